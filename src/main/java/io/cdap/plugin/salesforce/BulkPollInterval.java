@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.sforce.async.BatchInfo;
+import com.sforce.async.BatchStateEnum;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adaptive interval between polls of Bulk API batch states.
+ * <p/>
+ * Polling starts with a short interval, which is doubled after each poll up to the maximum interval,
+ * so small jobs are noticed to be completed shortly after they finish on the server, while long jobs do not
+ * waste API calls. Once some batches of the job are completed, their durations and the rate at which
+ * `numberRecordsProcessed` of running batches grows are used to predict when the next batch will complete,
+ * and the next poll is scheduled at the predicted time instead. Back-off then restarts from the predicted
+ * interval, so a batch that runs longer than predicted is polled less and less often.
+ */
+public final class BulkPollInterval {
+
+  private final long minIntervalMs;
+  private final long maxIntervalMs;
+  private final long maxRetryIntervalMs;
+  private final Map<String, BatchProgress> running = new HashMap<>();
+  private final Set<String> completed = new HashSet<>();
+  private long backoffMs;
+  private long predictedMs = -1;
+  private boolean lastPollFailed;
+  private long completedDurationMs;
+  private long completedRecords;
+
+  public BulkPollInterval() {
+    this(SalesforceSourceConstants.BATCH_POLL_MIN_INTERVAL_MS, SalesforceSourceConstants.BATCH_POLL_MAX_INTERVAL_MS,
+         SalesforceSourceConstants.GET_BATCH_RESULTS_SLEEP_MS);
+  }
+
+  public BulkPollInterval(long minIntervalMs, long maxIntervalMs, long maxRetryIntervalMs) {
+    this.minIntervalMs = minIntervalMs;
+    this.maxIntervalMs = maxIntervalMs;
+    this.maxRetryIntervalMs = maxRetryIntervalMs;
+    this.backoffMs = minIntervalMs;
+  }
+
+  /**
+   * Updates the prediction with batch states returned by the last poll.
+   *
+   * @param batchInfos batch states of the job
+   */
+  public void update(BatchInfo[] batchInfos) {
+    update(batchInfos, System.currentTimeMillis());
+  }
+
+  @VisibleForTesting
+  synchronized void update(BatchInfo[] batchInfos, long nowMs) {
+    lastPollFailed = false;
+    for (BatchInfo batchInfo : batchInfos) {
+      BatchStateEnum state = batchInfo.getState();
+      if (state == BatchStateEnum.Completed) {
+        running.remove(batchInfo.getId());
+        if (completed.add(batchInfo.getId())) {
+          completedRecords += batchInfo.getNumberRecordsProcessed();
+          completedDurationMs += getServerDurationMs(batchInfo);
+        }
+      } else if (state == BatchStateEnum.Queued || state == BatchStateEnum.InProgress) {
+        running.computeIfAbsent(batchInfo.getId(), id -> new BatchProgress(batchInfo, nowMs))
+          .update(batchInfo, nowMs);
+      } else {
+        running.remove(batchInfo.getId());
+      }
+    }
+
+    predictedMs = predictRemainingMs(nowMs);
+  }
+
+  /**
+   * Marks the last poll as failed, the next poll is a retry done after a shorter delay.
+   */
+  public synchronized void failed() {
+    lastPollFailed = true;
+    predictedMs = -1;
+  }
+
+  /**
+   * Returns the delay before the next poll.
+   *
+   * @return delay in milliseconds
+   */
+  public synchronized long next() {
+    long delayMs;
+    if (lastPollFailed) {
+      delayMs = Math.min(backoffMs, maxRetryIntervalMs);
+    } else if (predictedMs > 0) {
+      delayMs = Math.min(Math.max(predictedMs, minIntervalMs), maxIntervalMs);
+      // if the batch is not completed at the predicted time, back off from the predicted interval
+      backoffMs = delayMs;
+    } else {
+      delayMs = backoffMs;
+    }
+    predictedMs = -1;
+    backoffMs = Math.min(backoffMs * 2, maxIntervalMs);
+    return delayMs;
+  }
+
+  /**
+   * Predicts time until the first of the running batches completes. Batches running longer than predicted
+   * are not taken into account, since the time of their completion is unknown.
+   *
+   * @return predicted time in milliseconds or -1 if there is not enough information for the prediction
+   */
+  private long predictRemainingMs(long nowMs) {
+    if (completed.isEmpty() || running.isEmpty()) {
+      return -1;
+    }
+    double averageRecords = (double) completedRecords / completed.size();
+    long averageDurationMs = completedDurationMs / completed.size();
+    long remainingMs = Long.MAX_VALUE;
+    for (BatchProgress progress : running.values()) {
+      long batchRemainingMs;
+      if (progress.recordsPerMs > 0 && progress.records < averageRecords) {
+        batchRemainingMs = (long) ((averageRecords - progress.records) / progress.recordsPerMs);
+      } else if (progress.inProgress && averageDurationMs > 0) {
+        batchRemainingMs = averageDurationMs - progress.getElapsedMs(nowMs);
+      } else {
+        continue;
+      }
+      if (batchRemainingMs > 0) {
+        remainingMs = Math.min(remainingMs, batchRemainingMs);
+      }
+    }
+    return remainingMs == Long.MAX_VALUE ? -1 : remainingMs;
+  }
+
+  private static long getServerDurationMs(BatchInfo batchInfo) {
+    Calendar created = batchInfo.getCreatedDate();
+    Calendar modified = batchInfo.getSystemModstamp();
+    if (created == null || modified == null) {
+      return 0;
+    }
+    return Math.max(modified.getTimeInMillis() - created.getTimeInMillis(), 0);
+  }
+
+  /**
+   * Observed progress of a running batch.
+   */
+  private static final class BatchProgress {
+    private final long firstSeenMs;
+    private long serverElapsedMs;
+    private boolean inProgress;
+    private long records;
+    private long recordsUpdatedMs;
+    private double recordsPerMs;
+
+    private BatchProgress(BatchInfo batchInfo, long nowMs) {
+      this.firstSeenMs = nowMs;
+      this.records = batchInfo.getNumberRecordsProcessed();
+      this.recordsUpdatedMs = nowMs;
+    }
+
+    private void update(BatchInfo batchInfo, long nowMs) {
+      inProgress = batchInfo.getState() == BatchStateEnum.InProgress;
+      serverElapsedMs = getServerDurationMs(batchInfo);
+      long processed = batchInfo.getNumberRecordsProcessed();
+      if (processed > records && nowMs > recordsUpdatedMs) {
+        recordsPerMs = (double) (processed - records) / (nowMs - recordsUpdatedMs);
+        records = processed;
+        recordsUpdatedMs = nowMs;
+      }
+    }
+
+    private long getElapsedMs(long nowMs) {
+      // local time since the batch was first seen does not include processing before the first poll,
+      // server timestamps do not include processing since the last server side update
+      return Math.max(nowMs - firstSeenMs, serverElapsedMs);
+    }
+  }
+}
@@ -34,6 +34,7 @@ import com.sforce.ws.ConnectorConfig;
 import com.sforce.ws.SessionRenewer;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
 import org.awaitility.Awaitility;
+import org.awaitility.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -139,7 +140,8 @@ public final class SalesforceBulkUtil {
   }
 
   /**
-   * Wait for a job to complete by polling the Bulk API.
+   * Wait for a job to complete by polling the Bulk API. Batch states are polled with an adaptive interval,
+   * see {@link BulkPollInterval}.
    *
    * @param bulkConnection BulkConnection used to check results.
    * @param job            The job awaiting completion.
@@ -158,13 +160,16 @@ public final class SalesforceBulkUtil {
       batchWaitTimeSeconds = SalesforceSourceConstants.GET_BATCH_WAIT_TIME_SECONDS_SERIAL_MODE;
     }
     AtomicInteger failures = new AtomicInteger(0);
+    BulkPollInterval pollInterval = new BulkPollInterval();
     Awaitility.await()
       .atMost(batchWaitTimeSeconds, TimeUnit.SECONDS)
-      .pollInterval(SalesforceSourceConstants.GET_SINK_BATCH_RESULTS_SLEEP_MS, TimeUnit.MILLISECONDS)
+      .pollDelay(Duration.ZERO)
+      .pollInterval((pollCount, previousDuration) -> new Duration(pollInterval.next(), TimeUnit.MILLISECONDS))
       .until(() -> {
         try {
           BatchInfo[] statusList =
             bulkConnection.getBatchInfoList(job.getId()).getBatchInfo();
+          pollInterval.update(statusList);
 
           for (BatchInfo b : statusList) {
             if (b.getState() == BatchStateEnum.Failed) {
@@ -186,6 +191,7 @@ public final class SalesforceBulkUtil {
             }
           }
         } catch (AsyncApiException e) {
+          pollInterval.failed();
           if (AsyncExceptionCode.InvalidSessionId == e.getExceptionCode()) {
             renewSession(bulkConnection, e);
           } else if (AsyncExceptionCode.ClientInputError == e.getExceptionCode() &&
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Growable list of Salesforce record Ids, which are stored as numbers in primitive arrays instead of strings.
+ * <p/>
+ * 15 characters of an Id are 15 base62 digits. The key prefix and the 2 following digits are stored in an int
+ * (62^5 &lt; 2^31) and the remaining 10 digits in a long (62^10 &lt; 2^63), so an Id takes 12 bytes instead of
+ * a string object. Ids are returned in the same length as they were added. The checksum suffix of
+ * 18 characters Ids is not stored, but computed again, so all Ids of the list must have the same length.
+ */
+public class SalesforceIdArray implements Iterable<String> {
+
+  private static final int HIGH_DIGITS = SalesforceIdUtil.KEY_PREFIX_LENGTH + 2;
+  private static final int BASE = SalesforceIdUtil.DIGITS.length();
+  private static final byte[] DIGIT_VALUES = new byte[128];
+
+  static {
+    Arrays.fill(DIGIT_VALUES, (byte) -1);
+    for (int i = 0; i < BASE; i++) {
+      DIGIT_VALUES[SalesforceIdUtil.DIGITS.charAt(i)] = (byte) i;
+    }
+  }
+
+  private int[] highs;
+  private long[] lows;
+  private int size;
+  private int idLength;
+
+  public SalesforceIdArray() {
+    this(16);
+  }
+
+  /**
+   * @param capacity initial number of Ids that can be added without growing the arrays
+   */
+  public SalesforceIdArray(int capacity) {
+    highs = new int[Math.max(1, capacity)];
+    lows = new long[highs.length];
+  }
+
+  /**
+   * Adds Id to the end of the list.
+   *
+   * @param id 15 or 18 characters record Id, of the same length as Ids already in the list
+   * @throws IllegalArgumentException if the Id is not valid
+   */
+  public void add(String id) {
+    if (id == null || (id.length() != SalesforceIdUtil.ID_LENGTH && id.length() != SalesforceIdUtil.ID_LENGTH + 3)) {
+      throw new IllegalArgumentException(String.format("Invalid Salesforce Id '%s'", id));
+    }
+    if (size > 0 && id.length() != idLength) {
+      throw new IllegalArgumentException(
+        String.format("Salesforce Id '%s' has a different length than other Ids %d", id, idLength));
+    }
+    if (size == highs.length) {
+      int capacity = highs.length * 2;
+      highs = Arrays.copyOf(highs, capacity);
+      lows = Arrays.copyOf(lows, capacity);
+    }
+    long high = 0;
+    for (int i = 0; i < HIGH_DIGITS; i++) {
+      high = high * BASE + digit(id, i);
+    }
+    long low = 0;
+    for (int i = HIGH_DIGITS; i < SalesforceIdUtil.ID_LENGTH; i++) {
+      low = low * BASE + digit(id, i);
+    }
+    idLength = id.length();
+    highs[size] = (int) high;
+    lows[size] = low;
+    size++;
+  }
+
+  /**
+   * @param index index of the Id
+   * @return Id at the given index
+   */
+  public String get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds of %d Ids", index, size));
+    }
+    char[] chars = new char[idLength];
+    long high = highs[index];
+    for (int i = HIGH_DIGITS - 1; i >= 0; i--) {
+      chars[i] = SalesforceIdUtil.DIGITS.charAt((int) (high % BASE));
+      high /= BASE;
+    }
+    long low = lows[index];
+    for (int i = SalesforceIdUtil.ID_LENGTH - 1; i >= HIGH_DIGITS; i--) {
+      chars[i] = SalesforceIdUtil.DIGITS.charAt((int) (low % BASE));
+      low /= BASE;
+    }
+    if (idLength > SalesforceIdUtil.ID_LENGTH) {
+      SalesforceIdUtil.appendChecksum(chars);
+    }
+    return new String(chars);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes all Ids, the arrays are kept to be reused.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * @return all Ids as strings
+   */
+  public String[] toArray() {
+    String[] ids = new String[size];
+    for (int i = 0; i < size; i++) {
+      ids[i] = get(i);
+    }
+    return ids;
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return new Iterator<String>() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return get(index++);
+      }
+    };
+  }
+
+  private static int digit(String id, int index) {
+    char c = id.charAt(index);
+    int value = c < DIGIT_VALUES.length ? DIGIT_VALUES[c] : -1;
+    if (value < 0) {
+      throw new IllegalArgumentException(String.format("Invalid Salesforce Id '%s'", id));
+    }
+    return value;
+  }
+}
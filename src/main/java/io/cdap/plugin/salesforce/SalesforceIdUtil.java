@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce;
+
+import java.math.BigInteger;
+
+/**
+ * Provides arithmetic on Salesforce record Ids.
+ * <p/>
+ * A record Id consists of a 3 characters key prefix, which identifies the SObject, followed by 12 base62
+ * characters. An 18 characters Id additionally has a 3 characters case-insensitive checksum suffix.
+ * Base62 digits are ordered `0-9`, `A-Z`, `a-z`, which is the same as the order of their character codes,
+ * so the numeric order of Ids with the same key prefix matches the order of Ids in SOQL.
+ */
+public class SalesforceIdUtil {
+
+  public static final int KEY_PREFIX_LENGTH = 3;
+  public static final int ID_LENGTH = 15;
+
+  static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+  private static final String CHECKSUM_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ012345";
+  private static final int CHECKSUM_CHUNK_LENGTH = 5;
+  private static final BigInteger BASE = BigInteger.valueOf(DIGITS.length());
+  private static final BigInteger MAX_NUMBER = BASE.pow(ID_LENGTH - KEY_PREFIX_LENGTH).subtract(BigInteger.ONE);
+
+  /**
+   * Returns key prefix of the Id, which identifies the SObject of the record.
+   *
+   * @param id 15 or 18 characters record Id
+   * @return key prefix
+   */
+  public static String getKeyPrefix(String id) {
+    validate(id);
+    return id.substring(0, KEY_PREFIX_LENGTH);
+  }
+
+  /**
+   * Returns numeric value of the Id without the key prefix and checksum suffix.
+   *
+   * @param id 15 or 18 characters record Id
+   * @return numeric value
+   */
+  public static BigInteger toNumber(String id) {
+    validate(id);
+    BigInteger number = BigInteger.ZERO;
+    for (int i = KEY_PREFIX_LENGTH; i < ID_LENGTH; i++) {
+      int digit = DIGITS.indexOf(id.charAt(i));
+      if (digit < 0) {
+        throw new IllegalArgumentException(String.format("Invalid Salesforce Id '%s'", id));
+      }
+      number = number.multiply(BASE).add(BigInteger.valueOf(digit));
+    }
+    return number;
+  }
+
+  /**
+   * Creates 15 characters Id from key prefix and numeric value.
+   *
+   * @param keyPrefix key prefix of the SObject
+   * @param number    numeric value of the Id
+   * @return 15 characters record Id
+   */
+  public static String fromNumber(String keyPrefix, BigInteger number) {
+    if (number.signum() < 0 || number.compareTo(MAX_NUMBER) > 0) {
+      throw new IllegalArgumentException(String.format("Number '%s' is out of Salesforce Id range", number));
+    }
+    char[] chars = new char[ID_LENGTH];
+    keyPrefix.getChars(0, KEY_PREFIX_LENGTH, chars, 0);
+    BigInteger remainder = number;
+    for (int i = ID_LENGTH - 1; i >= KEY_PREFIX_LENGTH; i--) {
+      BigInteger[] division = remainder.divideAndRemainder(BASE);
+      chars[i] = DIGITS.charAt(division[1].intValue());
+      remainder = division[0];
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Returns 18 characters case-insensitive Id of the record. The 3 characters checksum suffix encodes
+   * positions of upper case letters in each 5 characters chunk of the 15 characters Id.
+   *
+   * @param id 15 or 18 characters record Id
+   * @return 18 characters record Id
+   */
+  public static String toCaseInsensitiveId(String id) {
+    validate(id);
+    if (id.length() > ID_LENGTH) {
+      return id;
+    }
+    char[] chars = new char[ID_LENGTH + 3];
+    id.getChars(0, ID_LENGTH, chars, 0);
+    appendChecksum(chars);
+    return new String(chars);
+  }
+
+  /**
+   * Fills the last 3 characters of 18 characters Id with the checksum of the first 15 characters.
+   *
+   * @param chars 18 characters of the Id
+   */
+  static void appendChecksum(char[] chars) {
+    for (int chunk = 0; chunk < 3; chunk++) {
+      int bits = 0;
+      for (int i = 0; i < CHECKSUM_CHUNK_LENGTH; i++) {
+        char c = chars[chunk * CHECKSUM_CHUNK_LENGTH + i];
+        if (c >= 'A' && c <= 'Z') {
+          bits |= 1 << i;
+        }
+      }
+      chars[ID_LENGTH + chunk] = CHECKSUM_DIGITS.charAt(bits);
+    }
+  }
+
+  private static void validate(String id) {
+    if (id == null || (id.length() != ID_LENGTH && id.length() != ID_LENGTH + 3)) {
+      throw new IllegalArgumentException(String.format("Invalid Salesforce Id '%s'", id));
+    }
+  }
+}
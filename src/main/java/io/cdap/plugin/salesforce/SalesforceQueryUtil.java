@@ -17,20 +17,27 @@ package io.cdap.plugin.salesforce;
 
 import io.cdap.plugin.salesforce.parser.SalesforceQueryParser;
 
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * Provides Salesforce query utility methods.
  */
 public class SalesforceQueryUtil {
   private static final String LESS_THAN = "<";
+  private static final String LESS_THAN_OR_EQUAL = "<=";
+  private static final String GREATER_THAN = ">";
   private static final String GREATER_THAN_OR_EQUAL = ">=";
+  private static final String NOT_EQUAL = "!=";
 
   private static final String SELECT = "SELECT ";
   private static final String FROM = " FROM ";
   private static final String WHERE = " WHERE ";
   private static final String AND = " AND ";
+  private static final String ORDER_BY_ID = " ORDER BY Id";
 
   private static final String FIELD_LAST_MODIFIED_DATE = "LastModifiedDate";
   private static final String FIELD_ID = "Id";
@@ -83,6 +90,169 @@ public class SalesforceQueryUtil {
     return SELECT + FIELD_ID + " " + fromStatement;
   }
 
+  /**
+   * Restricts initial query to records with `LastModifiedDate` in the range of the given filter.
+   *
+   * @param query            initial query
+   * @param filterDescriptor SObject date filter descriptor
+   * @return query with additional filter or initial query if SObjectFilterDescriptor type is NoOp
+   */
+  public static String addSObjectFilter(String query, SObjectFilterDescriptor filterDescriptor) {
+    return filterDescriptor.isNoOp()
+      ? query
+      : SalesforceQueryParser.addCondition(query, generateSObjectFilter(filterDescriptor));
+  }
+
+  /**
+   * Creates SObject records count query based on initial query. Replaces all query fields with `COUNT()`
+   * in SELECT clause but leaves other clauses as is.
+   *
+   * @param query initial query
+   * @return SObject records count query
+   */
+  public static String createSObjectCountQuery(String query) {
+    String fromStatement = SalesforceQueryParser.getFromStatement(query);
+    return SELECT + "COUNT() " + fromStatement;
+  }
+
+  /**
+   * Restricts initial query to records with Ids in the given range.
+   * <p/>
+   * Example:
+   * <ul>
+   *  <li>Initial query: `SELECT Name FROM Opportunity WHERE Name LIKE 'S_%'`</li>
+   *  <li>Result query: `SELECT Name FROM Opportunity WHERE (Name LIKE 'S_%') AND Id>='006000000000001'
+   *  AND Id<'006000000000002'`</li>
+   * </ul>
+   *
+   * @param query  initial query
+   * @param fromId inclusive lower bound of the range, null if the range is not bounded from below
+   * @param toId   exclusive upper bound of the range, null if the range is not bounded from above
+   * @return query restricted to the Id range or initial query if the range is not bounded
+   */
+  public static String createIdRangeQuery(String query, @Nullable String fromId, @Nullable String toId) {
+    StringBuilder condition = new StringBuilder();
+    if (fromId != null) {
+      condition.append(FIELD_ID).append(GREATER_THAN_OR_EQUAL).append("'").append(fromId).append("'");
+    }
+    if (toId != null) {
+      if (condition.length() > 0) {
+        condition.append(AND);
+      }
+      condition.append(FIELD_ID).append(LESS_THAN).append("'").append(toId).append("'");
+    }
+    return condition.length() == 0 ? query : SalesforceQueryParser.addCondition(query, condition.toString());
+  }
+
+  /**
+   * Restricts initial query to records with the datetime field in the given range.
+   * <p/>
+   * Example:
+   * <ul>
+   *  <li>Initial query: `SELECT Name FROM Opportunity WHERE Name LIKE 'S_%'`</li>
+   *  <li>Result query: `SELECT Name FROM Opportunity WHERE (Name LIKE 'S_%') AND
+   *  SystemModstamp>2019-01-01T00:00:00Z AND SystemModstamp<=2019-01-02T00:00:00Z`</li>
+   * </ul>
+   *
+   * @param query initial query
+   * @param field datetime field
+   * @param after exclusive lower bound of the range, null if the range is not bounded from below
+   * @param upTo  inclusive upper bound of the range
+   * @return query restricted to the range
+   */
+  public static String createIncrementalQuery(String query, String field, @Nullable ZonedDateTime after,
+                                              ZonedDateTime upTo) {
+    StringBuilder condition = new StringBuilder();
+    if (after != null) {
+      condition.append(field).append(GREATER_THAN).append(after.format(DateTimeFormatter.ISO_DATE_TIME))
+        .append(AND);
+    }
+    condition.append(field).append(LESS_THAN_OR_EQUAL).append(upTo.format(DateTimeFormatter.ISO_DATE_TIME));
+    return SalesforceQueryParser.addCondition(query, condition.toString());
+  }
+
+  /**
+   * Creates query of the largest value of the datetime field among SObject records, which were modified after
+   * the given time. Records without the field value are excluded, since descending order puts nulls first.
+   * <p/>
+   * Example: `SELECT SystemModstamp FROM Account WHERE SystemModstamp!=null AND
+   * SystemModstamp>2019-01-01T00:00:00Z ORDER BY SystemModstamp DESC LIMIT 1`
+   *
+   * @param sObjectName SObject name
+   * @param field       datetime field
+   * @param after       exclusive lower bound of the field, null if all records should be considered
+   * @return SOQL query of the largest field value
+   */
+  public static String createHighWatermarkQuery(String sObjectName, String field, @Nullable ZonedDateTime after) {
+    StringBuilder query = new StringBuilder()
+      .append(SELECT).append(field)
+      .append(FROM).append(sObjectName)
+      .append(WHERE).append(field).append(NOT_EQUAL).append("null");
+    if (after != null) {
+      query.append(AND).append(field).append(GREATER_THAN).append(after.format(DateTimeFormatter.ISO_DATE_TIME));
+    }
+    return query.append(" ORDER BY ").append(field).append(" DESC LIMIT 1").toString();
+  }
+
+  /**
+   * Divides fields of a wide query into groups, so that a query of each group together with the `Id` field,
+   * the initial from statement and ordering by `Id` is shorter than SOQL max length limit.
+   *
+   * @param query SOQL query
+   * @return groups of query fields, `Id` field is not included
+   * @throws IllegalArgumentException if a field cannot fit into a query under the limit
+   */
+  public static List<List<String>> getFieldGroups(String query) {
+    String fromStatement = SalesforceQueryParser.getFromStatement(query);
+    int maxFieldsLength = SalesforceConstants.SOQL_MAX_LENGTH - 1
+      - (SELECT + FIELD_ID + " " + fromStatement + ORDER_BY_ID).length();
+    List<List<String>> groups = new ArrayList<>();
+    List<String> group = new ArrayList<>();
+    int groupLength = 0;
+    for (String field : SObjectDescriptor.fromQuery(query).getFieldsNames()) {
+      if (FIELD_ID.equalsIgnoreCase(field)) {
+        continue;
+      }
+      // each field is preceded by a comma
+      int fieldLength = field.length() + 1;
+      if (fieldLength > maxFieldsLength) {
+        throw new IllegalArgumentException(
+          String.format("Field '%s' cannot fit into a query under SOQL length limit", field));
+      }
+      if (groupLength + fieldLength > maxFieldsLength) {
+        groups.add(group);
+        group = new ArrayList<>();
+        groupLength = 0;
+      }
+      group.add(field);
+      groupLength += fieldLength;
+    }
+    if (!group.isEmpty()) {
+      groups.add(group);
+    }
+    return groups;
+  }
+
+  /**
+   * Creates query of the `Id` and the given fields ordered by `Id`, other clauses of the initial query
+   * are left as is.
+   * <p/>
+   * Example:
+   * <ul>
+   *  <li>Initial query: `SELECT Id, Name, Phone FROM Account WHERE Name = 'Foo'`</li>
+   *  <li>Fields: `Phone`</li>
+   *  <li>Result query: `SELECT Id,Phone FROM Account WHERE Name = 'Foo' ORDER BY Id`</li>
+   * </ul>
+   *
+   * @param query  SOQL query without ORDER BY, LIMIT and other clauses following WHERE
+   * @param fields fields of the query
+   * @return SOQL query of the fields
+   */
+  public static String createFieldGroupQuery(String query, List<String> fields) {
+    String fromStatement = SalesforceQueryParser.getFromStatement(query);
+    return SELECT + FIELD_ID + "," + String.join(",", fields) + " " + fromStatement + ORDER_BY_ID;
+  }
+
   /**
    * Generates SObject query filter based on provided values.
    *
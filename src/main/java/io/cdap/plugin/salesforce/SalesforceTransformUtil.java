@@ -21,13 +21,22 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class that handles various value transformations based on given schema type.
+ * <p/>
+ * Date and time values in the fixed formats produced by Salesforce (`yyyy-MM-dd`, `yyyy-MM-ddTHH:mm:ss.SSSZ`,
+ * `HH:mm:ss.SSSZ`) are decoded directly from the string characters, any other representation is parsed
+ * by the java.time parsers.
  */
 public class SalesforceTransformUtil {
 
+  private static final int SECONDS_PER_DAY = 86400;
+  private static final int DAYS_0000_TO_1970 = 719528;
+  private static final int NOT_PARSED = -1;
+
   /**
    * Transforms given value based on the given logical type.
    *
@@ -40,14 +49,204 @@ public class SalesforceTransformUtil {
     switch (logicalType) {
       case DATE:
         // date will be in yyyy-mm-dd format
-        return Math.toIntExact(LocalDate.parse(value).toEpochDay());
+        return toEpochDay(value);
       case TIMESTAMP_MICROS:
-        return TimeUnit.MILLISECONDS.toMicros(Instant.parse(value).toEpochMilli());
+        return toTimestampMicros(value);
       case TIME_MICROS:
-        return TimeUnit.NANOSECONDS.toMicros(LocalTime.parse(value, DateTimeFormatter.ISO_TIME).toNanoOfDay());
+        return toTimeMicros(value);
       default:
         throw new IllegalArgumentException(
           String.format("Field '%s' is of unsupported type '%s'", fieldName, logicalType.getToken()));
     }
   }
+
+  /**
+   * Converts date in `yyyy-MM-dd` format to number of days since epoch.
+   *
+   * @param value date string
+   * @return days since epoch
+   */
+  public static int toEpochDay(String value) {
+    if (value.length() == 10) {
+      long epochDay = parseEpochDay(value);
+      if (epochDay != Long.MIN_VALUE) {
+        return (int) epochDay;
+      }
+    }
+    return Math.toIntExact(LocalDate.parse(value).toEpochDay());
+  }
+
+  /**
+   * Converts ISO-8601 instant (`yyyy-MM-ddTHH:mm:ss.SSSZ`) to microseconds since epoch with milliseconds precision.
+   *
+   * @param value instant string
+   * @return microseconds since epoch
+   */
+  public static long toTimestampMicros(String value) {
+    long epochSecond = parseEpochSecond(value);
+    if (epochSecond != Long.MIN_VALUE) {
+      int nanos = parseFraction(value, 19, value.length() - 1);
+      if (nanos != NOT_PARSED) {
+        return TimeUnit.MILLISECONDS.toMicros(epochSecond * 1000 + nanos / 1_000_000);
+      }
+    }
+    return TimeUnit.MILLISECONDS.toMicros(Instant.parse(value).toEpochMilli());
+  }
+
+  /**
+   * Converts ISO-8601 instant (`yyyy-MM-ddTHH:mm:ss.SSSZ`) to number of whole days since epoch.
+   *
+   * @param value instant string
+   * @return days since epoch
+   */
+  public static int toInstantEpochDay(String value) {
+    long epochSecond = parseEpochSecond(value);
+    if (epochSecond != Long.MIN_VALUE) {
+      int nanos = parseFraction(value, 19, value.length() - 1);
+      if (nanos != NOT_PARSED) {
+        // same rounding as ChronoUnit.DAYS.between(Instant.EPOCH, instant)
+        long seconds = epochSecond < 0 && nanos > 0 ? epochSecond + 1 : epochSecond;
+        return Math.toIntExact(seconds / SECONDS_PER_DAY);
+      }
+    }
+    return Math.toIntExact(ChronoUnit.DAYS.between(Instant.EPOCH, Instant.parse(value)));
+  }
+
+  /**
+   * Converts ISO-8601 time (`HH:mm:ss.SSSZ`) to microseconds of the day.
+   *
+   * @param value time string
+   * @return microseconds of the day
+   */
+  public static long toTimeMicros(String value) {
+    int end = value.length();
+    if (end > 0 && value.charAt(end - 1) == 'Z') {
+      end--;
+    }
+    int secondOfDay = parseSecondOfDay(value, 0, end);
+    if (secondOfDay != NOT_PARSED) {
+      int nanos = parseFraction(value, 8, end);
+      if (nanos != NOT_PARSED) {
+        return TimeUnit.SECONDS.toMicros(secondOfDay) + nanos / 1000;
+      }
+    }
+    return TimeUnit.NANOSECONDS.toMicros(LocalTime.parse(value, DateTimeFormatter.ISO_TIME).toNanoOfDay());
+  }
+
+  /**
+   * Parses `yyyy-MM-ddTHH:mm:ss` prefix of the instant ending with `Z`.
+   *
+   * @return seconds since epoch or {@link Long#MIN_VALUE} if value is not in the expected format
+   */
+  private static long parseEpochSecond(String value) {
+    if (value.length() < 20 || value.charAt(10) != 'T' || value.charAt(value.length() - 1) != 'Z') {
+      return Long.MIN_VALUE;
+    }
+    long epochDay = parseEpochDay(value);
+    int secondOfDay = parseSecondOfDay(value, 11, 19);
+    if (epochDay == Long.MIN_VALUE || secondOfDay == NOT_PARSED) {
+      return Long.MIN_VALUE;
+    }
+    return epochDay * SECONDS_PER_DAY + secondOfDay;
+  }
+
+  /**
+   * Parses `yyyy-MM-dd` at the beginning of the value.
+   *
+   * @return days since epoch or {@link Long#MIN_VALUE} if value is not in the expected format
+   */
+  private static long parseEpochDay(String value) {
+    if (value.charAt(4) != '-' || value.charAt(7) != '-') {
+      return Long.MIN_VALUE;
+    }
+    int year = parseDigits(value, 0, 4);
+    int month = parseDigits(value, 5, 7);
+    int day = parseDigits(value, 8, 10);
+    if (year == NOT_PARSED || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+      return Long.MIN_VALUE;
+    }
+
+    // see LocalDate#toEpochDay, year is never negative here
+    long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+    total += (367 * month - 362) / 12;
+    total += day - 1;
+    if (month > 2) {
+      total--;
+      if (!isLeapYear(year)) {
+        total--;
+      }
+    }
+    return total - DAYS_0000_TO_1970;
+  }
+
+  /**
+   * Parses `HH:mm:ss` between the given positions, followed either by the end position or by a fraction.
+   *
+   * @return second of the day or {@link #NOT_PARSED} if value is not in the expected format
+   */
+  private static int parseSecondOfDay(String value, int start, int end) {
+    if (end - start < 8 || value.charAt(start + 2) != ':' || value.charAt(start + 5) != ':') {
+      return NOT_PARSED;
+    }
+    int hour = parseDigits(value, start, start + 2);
+    int minute = parseDigits(value, start + 3, start + 5);
+    int second = parseDigits(value, start + 6, start + 8);
+    if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+      return NOT_PARSED;
+    }
+    return hour * 3600 + minute * 60 + second;
+  }
+
+  /**
+   * Parses optional fraction of second `.SSS` with 1 to 9 digits between the given positions.
+   *
+   * @return nanoseconds of the fraction or {@link #NOT_PARSED} if value is not in the expected format
+   */
+  private static int parseFraction(String value, int start, int end) {
+    if (start == end) {
+      return 0;
+    }
+    int digits = end - start - 1;
+    if (value.charAt(start) != '.' || digits < 1 || digits > 9) {
+      return NOT_PARSED;
+    }
+    int fraction = parseDigits(value, start + 1, end);
+    if (fraction == NOT_PARSED) {
+      return NOT_PARSED;
+    }
+    for (int i = digits; i < 9; i++) {
+      fraction *= 10;
+    }
+    return fraction;
+  }
+
+  private static int parseDigits(String value, int start, int end) {
+    int result = 0;
+    for (int i = start; i < end; i++) {
+      int digit = value.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return NOT_PARSED;
+      }
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return isLeapYear(year) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  private static boolean isLeapYear(int year) {
+    return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+  }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.parser;
+
+import io.cdap.plugin.salesforce.SObjectDescriptor;
+import io.cdap.plugin.salesforce.SalesforceConstants;
+import soql.SOQLParser;
+
+import javax.annotation.Nullable;
+
+/**
+ * Immutable result of a single parse of a SOQL query, which holds all information the plugins need about
+ * the query, so that the query does not have to be parsed again.
+ */
+public final class SalesforceQueryAnalysis {
+
+  private final SObjectDescriptor sObjectDescriptor;
+  private final SOQLParsingException sObjectDescriptorError;
+  private final String fromStatement;
+  private final boolean restricted;
+  private final boolean restrictedPK;
+  private final boolean underLengthLimit;
+
+  private SalesforceQueryAnalysis(@Nullable SObjectDescriptor sObjectDescriptor,
+                                  @Nullable SOQLParsingException sObjectDescriptorError, String fromStatement,
+                                  boolean restricted, boolean restrictedPK, boolean underLengthLimit) {
+    this.sObjectDescriptor = sObjectDescriptor;
+    this.sObjectDescriptorError = sObjectDescriptorError;
+    this.fromStatement = fromStatement;
+    this.restricted = restricted;
+    this.restrictedPK = restrictedPK;
+    this.underLengthLimit = underLengthLimit;
+  }
+
+  /**
+   * Analyzes the parsed query statement with all visitors.
+   *
+   * @param query     SOQL query
+   * @param statement parsed query statement
+   * @return query analysis
+   */
+  static SalesforceQueryAnalysis of(String query, SOQLParser.StatementContext statement) {
+    SObjectDescriptor sObjectDescriptor = null;
+    SOQLParsingException sObjectDescriptorError = null;
+    try {
+      sObjectDescriptor = new SalesforceQueryVisitor().visit(statement);
+    } catch (SOQLParsingException e) {
+      // query is valid syntactically, but its fields are not supported, which matters only to the descriptor
+      sObjectDescriptorError = e;
+    }
+    return new SalesforceQueryAnalysis(
+      sObjectDescriptor, sObjectDescriptorError,
+      new SalesforceQueryVisitor.FromStatementVisitor().visit(statement),
+      new SalesforceQueryVisitor.RestrictedQueryVisitor().visit(statement),
+      new SalesforceQueryVisitor.RestrictedPKQueryVisitor().visit(statement),
+      query.length() < SalesforceConstants.SOQL_MAX_LENGTH);
+  }
+
+  /**
+   * @return top sObject information and its fields information
+   * @throws SOQLParsingException if fields of the query are not supported
+   */
+  public SObjectDescriptor getSObjectDescriptor() {
+    if (sObjectDescriptorError != null) {
+      throw new SOQLParsingException(sObjectDescriptorError.getMessage(), sObjectDescriptorError);
+    }
+    return sObjectDescriptor;
+  }
+
+  /**
+   * @return part of the query after the select statement
+   */
+  public String getFromStatement() {
+    return fromStatement;
+  }
+
+  /**
+   * @return true if the query has restricted syntax that cannot be processed by Bulk API
+   */
+  public boolean isRestricted() {
+    return restricted;
+  }
+
+  /**
+   * @return true if the query has restricted syntax that cannot be processed by Bulk API with PK chunking
+   */
+  public boolean isRestrictedPK() {
+    return restrictedPK;
+  }
+
+  /**
+   * @return true if the query is shorter than the SOQL length limit, false for wide queries
+   */
+  public boolean isUnderLengthLimit() {
+    return underLengthLimit;
+  }
+}
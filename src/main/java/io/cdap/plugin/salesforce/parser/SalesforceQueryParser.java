@@ -15,6 +15,8 @@
  */
 package io.cdap.plugin.salesforce.parser;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.cdap.plugin.salesforce.SObjectDescriptor;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStreams;
@@ -26,9 +28,37 @@ import soql.SOQLParser;
 
 /**
  * Utility class that parses SOQL query.
+ * <p/>
+ * Analyses of queries are memoized in a cache bounded by the total length of the queries, from which the least
+ * recently used queries are evicted, so that a query used by split planning, record readers and config validation
+ * is lexed and parsed only once per JVM.
  */
 public class SalesforceQueryParser {
 
+  // total length of the queries, whose analyses are cached
+  private static final long MAX_CACHED_QUERY_CHARS = 8 * 1024 * 1024;
+  private static final Cache<String, SalesforceQueryAnalysis> ANALYSES = CacheBuilder.newBuilder()
+    .maximumWeight(MAX_CACHED_QUERY_CHARS)
+    .weigher((String query, SalesforceQueryAnalysis analysis) -> query.length())
+    .build();
+
+  /**
+   * Parses given SOQL query once and analyzes it. The analysis is memoized, so that it is shared by all callers.
+   * Concurrent calls for the same query, which is not cached yet, may parse it more than once.
+   *
+   * @param query SOQL query
+   * @return query analysis
+   * @throws SOQLParsingException if the query cannot be parsed
+   */
+  public static SalesforceQueryAnalysis analyze(String query) {
+    SalesforceQueryAnalysis analysis = ANALYSES.getIfPresent(query);
+    if (analysis == null) {
+      analysis = SalesforceQueryAnalysis.of(query, initParser(query).statement());
+      ANALYSES.put(query, analysis);
+    }
+    return analysis;
+  }
+
   /**
    * Parses given SOQL query and retrieves top sObject information and its fields information.
    *
@@ -36,9 +66,7 @@ public class SalesforceQueryParser {
    * @return sObject descriptor
    */
   public static SObjectDescriptor getObjectDescriptorFromQuery(String query) {
-    SOQLParser parser = initParser(query);
-    SalesforceQueryVisitor visitor = new SalesforceQueryVisitor();
-    return visitor.visit(parser.statement());
+    return analyze(query).getSObjectDescriptor();
   }
 
   /**
@@ -48,8 +76,20 @@ public class SalesforceQueryParser {
    * @return from statement
    */
   public static String getFromStatement(String query) {
+    return analyze(query).getFromStatement();
+  }
+
+  /**
+   * Adds condition to the WHERE clause of SOQL query. Existing conditions are combined with the given condition
+   * using AND, other clauses are left as is.
+   *
+   * @param query     SOQL query
+   * @param condition SOQL condition expression
+   * @return SOQL query with the condition
+   */
+  public static String addCondition(String query, String condition) {
     SOQLParser parser = initParser(query);
-    SalesforceQueryVisitor.FromStatementVisitor visitor = new SalesforceQueryVisitor.FromStatementVisitor();
+    SalesforceQueryVisitor.AddConditionVisitor visitor = new SalesforceQueryVisitor.AddConditionVisitor(condition);
     return visitor.visit(parser.statement());
   }
 
@@ -60,9 +100,7 @@ public class SalesforceQueryParser {
    * @return true if query has restricted syntax, false otherwise
    */
   public static boolean isRestrictedQuery(String query) {
-    SOQLParser parser = initParser(query);
-    SalesforceQueryVisitor.RestrictedQueryVisitor visitor = new SalesforceQueryVisitor.RestrictedQueryVisitor();
-    return visitor.visit(parser.statement());
+    return analyze(query).isRestricted();
   }
 
   /**
@@ -72,9 +110,7 @@ public class SalesforceQueryParser {
    * @return true if query has restricted syntax, false otherwise
    */
   public static boolean isRestrictedPKQuery(String query) {
-    SOQLParser parser = initParser(query);
-    SalesforceQueryVisitor.RestrictedPKQueryVisitor visitor = new SalesforceQueryVisitor.RestrictedPKQueryVisitor();
-    return visitor.visit(parser.statement());
+    return analyze(query).isRestrictedPK();
   }
 
   private static SOQLParser initParser(String query) {
@@ -19,6 +19,8 @@ package io.cdap.plugin.salesforce.parser;
 
 import io.cdap.plugin.salesforce.SObjectDescriptor;
 import io.cdap.plugin.salesforce.SalesforceFunctionType;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.RuleContext;
 import org.antlr.v4.runtime.misc.Interval;
 import soql.SOQLBaseVisitor;
@@ -99,6 +101,40 @@ public class SalesforceQueryVisitor extends SOQLBaseVisitor<SObjectDescriptor> {
     }
   }
 
+  /**
+   * Visits query statement and returns the query in the original representation with additional condition,
+   * which is combined with the existing WHERE conditions using AND.
+   */
+  public static class AddConditionVisitor extends SOQLBaseVisitor<String> {
+
+    private final String condition;
+
+    public AddConditionVisitor(String condition) {
+      this.condition = condition;
+    }
+
+    @Override
+    public String visitStatement(SOQLParser.StatementContext ctx) {
+      SOQLParser.FromStatementContext fromStatementContext = ctx.fromStatement();
+      CharStream input = ctx.start.getInputStream();
+      int end = input.size() - 1;
+      SOQLParser.ConditionExpressionsContext conditions = fromStatementContext.conditionExpressions();
+      if (conditions != null) {
+        return input.getText(new Interval(0, conditions.start.getStartIndex() - 1))
+          + "(" + input.getText(new Interval(conditions.start.getStartIndex(), conditions.stop.getStopIndex()))
+          + ") AND " + condition
+          + input.getText(new Interval(conditions.stop.getStopIndex() + 1, end));
+      }
+      // WHERE clause follows the object type and optional scope
+      ParserRuleContext insertAfter = fromStatementContext.filterScope() == null
+        ? fromStatementContext.objectType() : fromStatementContext.filterScope();
+      int insertIndex = insertAfter.stop.getStopIndex();
+      return input.getText(new Interval(0, insertIndex))
+        + " WHERE " + condition
+        + input.getText(new Interval(insertIndex + 1, end));
+    }
+  }
+
   /**
    * Visits query from statement and checks if it contains clauses that are restricted by Bulk API.
    * For example: GROUP BY [ROLLUP / CUBE], OFFSET.
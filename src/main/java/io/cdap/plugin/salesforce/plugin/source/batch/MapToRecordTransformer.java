@@ -22,88 +22,218 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.salesforce.SalesforceSchemaUtil;
 import io.cdap.plugin.salesforce.SalesforceTransformUtil;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
  * Transforms Map of records where key is schema and value is field value
  * into {@link StructuredRecord}.
+ * <p/>
+ * For each schema a conversion plan is compiled once and reused for all records of this schema.
+ * The plan maps record keys (or {@link SalesforceRow} column indexes) to schema fields and
+ * converters specialized for the field type, so the field name normalization, field lookup and
+ * type dispatch are not repeated for every record.
  */
 public class MapToRecordTransformer {
 
+  private static final int MAX_CACHED_PLANS = 64;
+
+  private final Map<Schema, ConversionPlan> plans = new HashMap<>();
+  private ConversionPlan lastPlan;
+
   public StructuredRecord transform(Schema schema, Map<String, ?> record) {
+    ConversionPlan plan = getPlan(schema);
     StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-    transformRecord(schema, record, builder);
+    if (record instanceof SalesforceRow) {
+      plan.transformRow((SalesforceRow) record, builder);
+    } else {
+      plan.transformRecord(record, builder);
+    }
     return builder.build();
   }
 
-  private void transformRecord(Schema schema, Map<String, ?> record, StructuredRecord.Builder builder) {
-    for (Map.Entry<String, ?> entry : record.entrySet()) {
-      String fieldName = SalesforceSchemaUtil.normalizeAvroName(entry.getKey());
-      Schema.Field field = schema.getField(fieldName, true);
-      if (field == null) {
-        continue;
+  private ConversionPlan getPlan(Schema schema) {
+    ConversionPlan plan = lastPlan;
+    if (plan != null && plan.schema == schema) {
+      return plan;
+    }
+    plan = plans.get(schema);
+    if (plan == null) {
+      if (plans.size() >= MAX_CACHED_PLANS) {
+        plans.clear();
       }
-      builder.set(field.getName(), convertValue(field.getName(), entry.getValue(), field.getSchema()));
+      plan = new ConversionPlan(schema);
+      plans.put(schema, plan);
     }
+    lastPlan = plan;
+    return plan;
   }
 
-  private Object convertValue(String fieldName, Object value, Schema fieldSchema) {
-    if (fieldSchema.isNullable()) {
-      return value == null ? null : convertValue(fieldName, value, fieldSchema.getNonNullable());
+  /**
+   * Converts field value to the representation expected by the record builder.
+   */
+  private interface ValueConverter {
+    Object convert(Object value);
+  }
+
+  /**
+   * Schema field with the converter for its values.
+   */
+  private static final class FieldConverter {
+    private static final FieldConverter NONE = new FieldConverter(null, null);
+
+    private final String fieldName;
+    private final ValueConverter converter;
+
+    FieldConverter(String fieldName, ValueConverter converter) {
+      this.fieldName = fieldName;
+      this.converter = converter;
     }
 
-    if (value == null) {
-      throw new RuntimeException(
-          String.format("Found null value for non nullable field %s", fieldName));
+    void set(StructuredRecord.Builder builder, Object value) {
+      if (this != NONE) {
+        builder.set(fieldName, converter.convert(value));
+      }
+    }
+  }
+
+  /**
+   * Conversion plan for a single record schema. Record keys are resolved to schema fields on first use,
+   * positional row columns are resolved once for each row layout.
+   */
+  private final class ConversionPlan {
+    private final Schema schema;
+    private final Map<String, FieldConverter> keyConverters = new HashMap<>();
+    private SalesforceRow.Layout columnsLayout;
+    private FieldConverter[] columnConverters;
+
+    ConversionPlan(Schema schema) {
+      this.schema = schema;
+    }
+
+    void transformRecord(Map<String, ?> record, StructuredRecord.Builder builder) {
+      for (Map.Entry<String, ?> entry : record.entrySet()) {
+        getKeyConverter(entry.getKey()).set(builder, entry.getValue());
+      }
+    }
+
+    void transformRow(SalesforceRow row, StructuredRecord.Builder builder) {
+      FieldConverter[] converters = getColumnConverters(row.getLayout());
+      for (int i = 0; i < row.size(); i++) {
+        converters[i].set(builder, row.get(i));
+      }
     }
 
-    Schema.Type fieldSchemaType = fieldSchema.getType();
+    private FieldConverter getKeyConverter(String key) {
+      FieldConverter converter = keyConverters.get(key);
+      if (converter == null) {
+        converter = createFieldConverter(key);
+        keyConverters.put(key, converter);
+      }
+      return converter;
+    }
 
-    // empty string is considered null in csv
-    if (value instanceof String && Strings.isNullOrEmpty((String) value)) {
-      return null;
+    private FieldConverter[] getColumnConverters(SalesforceRow.Layout layout) {
+      if (layout != columnsLayout) {
+        FieldConverter[] converters = new FieldConverter[layout.size()];
+        for (int i = 0; i < converters.length; i++) {
+          converters[i] = getKeyConverter(layout.getName(i));
+        }
+        columnsLayout = layout;
+        columnConverters = converters;
+      }
+      return columnConverters;
     }
 
+    private FieldConverter createFieldConverter(String key) {
+      Schema.Field field = schema.getField(SalesforceSchemaUtil.normalizeAvroName(key), true);
+      if (field == null) {
+        return FieldConverter.NONE;
+      }
+      return new FieldConverter(field.getName(), createConverter(field.getName(), field.getSchema()));
+    }
+  }
+
+  private ValueConverter createConverter(String fieldName, Schema fieldSchema) {
+    if (fieldSchema.isNullable()) {
+      ValueConverter nonNullableConverter = createConverter(fieldName, fieldSchema.getNonNullable());
+      return value -> value == null ? null : nonNullableConverter.convert(value);
+    }
+
+    ValueConverter converter = createNonNullConverter(fieldName, fieldSchema);
+    return value -> {
+      if (value == null) {
+        throw new RuntimeException(
+          String.format("Found null value for non nullable field %s", fieldName));
+      }
+      // empty string is considered null in csv
+      if (value instanceof String && Strings.isNullOrEmpty((String) value)) {
+        return null;
+      }
+      return converter.convert(value);
+    };
+  }
+
+  private ValueConverter createNonNullConverter(String fieldName, Schema fieldSchema) {
     Schema.LogicalType logicalType = fieldSchema.getLogicalType();
-    if (fieldSchema.getLogicalType() != null) {
-      return SalesforceTransformUtil.transformLogicalType(fieldName, logicalType, String.valueOf(value));
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return value -> SalesforceTransformUtil.toEpochDay(String.valueOf(value));
+        case TIMESTAMP_MICROS:
+          return value -> SalesforceTransformUtil.toTimestampMicros(String.valueOf(value));
+        case TIME_MICROS:
+          return value -> SalesforceTransformUtil.toTimeMicros(String.valueOf(value));
+        default:
+          return value -> SalesforceTransformUtil.transformLogicalType(fieldName, logicalType, String.valueOf(value));
+      }
     }
 
-    switch (fieldSchemaType) {
+    switch (fieldSchema.getType()) {
       case NULL:
-        return null;
+        return value -> null;
       case BOOLEAN:
-        return Boolean.parseBoolean(castValue(value, fieldName, String.class));
+        return value -> Boolean.parseBoolean(castValue(value, fieldName, String.class));
       case INT:
-        return Integer.parseInt(castValue(value, fieldName, String.class));
+        return value -> Integer.parseInt(castValue(value, fieldName, String.class));
       case LONG:
-        return Long.parseLong(castValue(value, fieldName, String.class));
+        return value -> Long.parseLong(castValue(value, fieldName, String.class));
       case FLOAT:
-        return Float.parseFloat(castValue(value, fieldName, String.class));
+        return value -> Float.parseFloat(castValue(value, fieldName, String.class));
       case DOUBLE:
-        return Double.parseDouble(castValue(value, fieldName, String.class));
+        return value -> Double.parseDouble(castValue(value, fieldName, String.class));
       case STRING:
-        return value;
+        return value -> value;
       case RECORD:
-        Map<String, String> recordValues = castGeneric(castValue(value, fieldName, Map.class));
-        StructuredRecord.Builder nestedBuilder = StructuredRecord.builder(fieldSchema);
-        Objects.requireNonNull(fieldSchema.getFields()).forEach(
-          field -> transformRecord(fieldSchema, recordValues, nestedBuilder));
-        return nestedBuilder.build();
+        Objects.requireNonNull(fieldSchema.getFields());
+        ConversionPlan nestedPlan = new ConversionPlan(fieldSchema);
+        return value -> {
+          Map<String, String> recordValues = castGeneric(castValue(value, fieldName, Map.class));
+          StructuredRecord.Builder nestedBuilder = StructuredRecord.builder(fieldSchema);
+          nestedPlan.transformRecord(recordValues, nestedBuilder);
+          return nestedBuilder.build();
+        };
       case ARRAY:
-        List<Map<String, String>> list = castGeneric(castValue(value, fieldName, List.class));
-        Schema componentSchema = Objects.requireNonNull(fieldSchema.getComponentSchema());
-        return list.stream()
-          .map(map -> convertValue(fieldName, map, componentSchema))
-          .collect(Collectors.toList());
+        ValueConverter componentConverter =
+          createConverter(fieldName, Objects.requireNonNull(fieldSchema.getComponentSchema()));
+        return value -> {
+          List<Map<String, String>> list = castGeneric(castValue(value, fieldName, List.class));
+          List<Object> result = new ArrayList<>(list.size());
+          for (Map<String, String> element : list) {
+            result.add(componentConverter.convert(element));
+          }
+          return result;
+        };
     }
 
-    throw new UnexpectedFormatException(
-      String.format("Unsupported schema type: '%s' for field: '%s'. Supported types are 'boolean, int, long, float,"
-                      + "double, string, record, array'.", fieldSchema, fieldName));
+    return value -> {
+      throw new UnexpectedFormatException(
+        String.format("Unsupported schema type: '%s' for field: '%s'. Supported types are 'boolean, int, long, float,"
+                        + "double, string, record, array'.", fieldSchema, fieldName));
+    };
   }
 
   private <T> T castValue(Object value, String fieldName, Class<T> clazz) {
@@ -39,6 +39,8 @@ import io.cdap.plugin.salesforce.plugin.OAuthInfo;
 import io.cdap.plugin.salesforce.plugin.SalesforceConnectorBaseConfig;
 import io.cdap.plugin.salesforce.plugin.SalesforceConnectorInfo;
 import io.cdap.plugin.salesforce.plugin.connector.SalesforceConnectorConfig;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceFileStateStore;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceIncrementalTracker;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -113,6 +115,79 @@ public abstract class SalesforceBaseSourceConfig extends ReferencePluginConfig {
   @Nullable
   private Boolean retryOnBackendError;
 
+  @Name(SalesforceSourceConstants.PROPERTY_RESULT_PREFETCH_DEPTH)
+  @Description("Number of Bulk API result chunks downloaded in background while the current chunk is read. " +
+    "Set to 0 to download result chunks one by one. Default is 1.")
+  @Nullable
+  private Integer resultPrefetchDepth;
+
+  @Name(SalesforceSourceConstants.PROPERTY_RESULT_PREFETCH_MEMORY_MB)
+  @Description("Maximum amount of prefetched result data in megabytes kept in memory by each reader. " +
+    "Prefetched data over this limit is stored in local temporary files. Default is 64.")
+  @Nullable
+  private Integer resultPrefetchMemoryMB;
+
+  @Name(SalesforceSourceConstants.PROPERTY_SPOOL_RESULTS)
+  @Description("Whether to download each Bulk API result chunk to a local file of the task before it is read. " +
+    "A chunk is downloaded again only if the download fails, and its file is deleted once the chunk is read or " +
+    "the task is finished. Files are stored in the local directories of the task, or in the local temporary " +
+    "directory if no local directories are configured. Default is false.")
+  @Nullable
+  private Boolean spoolResults;
+
+  @Name(SalesforceSourceConstants.PROPERTY_POSITIONAL_ROWS)
+  @Description("Whether record readers should produce positional rows, which are converted to records by column " +
+    "index, instead of a map per record. Default is false.")
+  @Nullable
+  private Boolean positionalRows;
+
+  @Name(SalesforceSourceConstants.PROPERTY_SPLIT_BY_RESULT_CHUNK)
+  @Description("Whether to wait for the Bulk API batches to complete before the run starts and create a split " +
+    "for each batch result chunk, so that a large batch is read by multiple tasks. Default is false.")
+  @Nullable
+  private Boolean splitByResultChunk;
+
+  @Name(SalesforceSourceConstants.PROPERTY_SOAP_QUERY_BATCH_SIZE)
+  @Description("Number of records fetched by each SOAP API call for queries which are not read with Bulk API. " +
+    "Allowed values are between 200 and 2000. Default is 2000.")
+  @Nullable
+  private Integer soapQueryBatchSize;
+
+  @Name(SalesforceSourceConstants.PROPERTY_WIDE_QUERY_MAX_IN_FLIGHT)
+  @Description("Maximum number of partitions of a wide query, up to 2000 records each, which are retrieved " +
+    "or buffered at the same time by a single task. Default is 4.")
+  @Nullable
+  private Integer wideQueryMaxInFlightPartitions;
+
+  @Name(SalesforceSourceConstants.PROPERTY_WIDE_QUERY_RETRIEVE_THREADS)
+  @Description("Number of concurrent SOAP API calls made by a single task to retrieve records of a wide query, " +
+    "each using its own connection. Allowed values are between 1 and 10. Default is 4.")
+  @Nullable
+  private Integer wideQueryRetrieveThreads;
+
+  @Name(SalesforceSourceConstants.PROPERTY_INCREMENTAL)
+  @Description("Whether to read only records modified since the previous successful run. The largest value of " +
+    "the Incremental Field of each SObject is stored in the State Store Path at the end of a successful run " +
+    "and the next run reads records with greater values. Default is false.")
+  @Nullable
+  @Macro
+  private Boolean incremental;
+
+  @Name(SalesforceSourceConstants.PROPERTY_INCREMENTAL_FIELD)
+  @Description("Datetime field used to find records modified since the previous run in incremental mode. " +
+    "Default is SystemModstamp.")
+  @Nullable
+  @Macro
+  private String incrementalField;
+
+  @Name(SalesforceSourceConstants.PROPERTY_STATE_STORE_PATH)
+  @Description("Directory where high-watermarks of the incremental mode are stored, one file per SObject. " +
+    "Can be a local path or a path of a file system supported by Hadoop, such as 'gs://bucket/salesforce/state'. " +
+    "Must be unique for each pipeline.")
+  @Nullable
+  @Macro
+  private String stateStorePath;
+
   @Name(ConfigUtil.NAME_USE_CONNECTION)
   @Nullable
   @Description("Whether to use an existing connection.")
@@ -235,6 +310,121 @@ public abstract class SalesforceBaseSourceConfig extends ReferencePluginConfig {
     return maxRetryCount == null ? SalesforceSourceConstants.DEFAULT_MAX_RETRY_COUNT : maxRetryCount;
   }
 
+  public Integer getResultPrefetchDepth() {
+    return resultPrefetchDepth == null ? SalesforceSourceConstants.DEFAULT_RESULT_PREFETCH_DEPTH :
+      resultPrefetchDepth;
+  }
+
+  public Integer getResultPrefetchMemoryMB() {
+    return resultPrefetchMemoryMB == null ? SalesforceSourceConstants.DEFAULT_RESULT_PREFETCH_MEMORY_MB :
+      resultPrefetchMemoryMB;
+  }
+
+  public Boolean isSpoolResults() {
+    return spoolResults != null && spoolResults;
+  }
+
+  public Boolean isPositionalRows() {
+    return positionalRows != null && positionalRows;
+  }
+
+  public Integer getSoapQueryBatchSize() {
+    return soapQueryBatchSize == null ? SalesforceSourceConstants.DEFAULT_SOAP_QUERY_BATCH_SIZE : soapQueryBatchSize;
+  }
+
+  public Integer getWideQueryMaxInFlightPartitions() {
+    return wideQueryMaxInFlightPartitions == null ? SalesforceSourceConstants.DEFAULT_WIDE_QUERY_MAX_IN_FLIGHT
+      : wideQueryMaxInFlightPartitions;
+  }
+
+  public Integer getWideQueryRetrieveThreads() {
+    return wideQueryRetrieveThreads == null ? SalesforceSourceConstants.DEFAULT_WIDE_QUERY_RETRIEVE_THREADS
+      : wideQueryRetrieveThreads;
+  }
+
+  public boolean isIncremental() {
+    return incremental != null && incremental;
+  }
+
+  public String getIncrementalField() {
+    return Strings.isNullOrEmpty(incrementalField) ? SalesforceSourceConstants.DEFAULT_INCREMENTAL_FIELD
+      : incrementalField;
+  }
+
+  @Nullable
+  public String getStateStorePath() {
+    return stateStorePath;
+  }
+
+  /**
+   * @return tracker of high-watermarks stored in the state store path, null if incremental mode is disabled
+   */
+  @Nullable
+  public SalesforceIncrementalTracker getIncrementalTracker() {
+    return isIncremental()
+      ? new SalesforceIncrementalTracker(new SalesforceFileStateStore(stateStorePath), getIncrementalField())
+      : null;
+  }
+
+  public void validateIncremental(FailureCollector collector) {
+    if (containsMacro(SalesforceSourceConstants.PROPERTY_INCREMENTAL) || !isIncremental()
+      || containsMacro(SalesforceSourceConstants.PROPERTY_STATE_STORE_PATH)) {
+      return;
+    }
+    if (Strings.isNullOrEmpty(stateStorePath)) {
+      collector.addFailure("State Store Path must be set in incremental mode.",
+                           "Set a directory where high-watermarks are stored.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_STATE_STORE_PATH);
+    }
+  }
+
+  /**
+   * Validates the properties, which tune how the record readers fetch data.
+   */
+  public void validateReaderProperties(FailureCollector collector) {
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_RESULT_PREFETCH_DEPTH) && getResultPrefetchDepth() < 0) {
+      collector.addFailure(String.format("Result Prefetch Depth '%d' must not be negative.",
+                                         getResultPrefetchDepth()),
+                           "Set it to 0 to download result chunks one by one.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_RESULT_PREFETCH_DEPTH);
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_RESULT_PREFETCH_MEMORY_MB)
+      && getResultPrefetchMemoryMB() < 0) {
+      collector.addFailure(String.format("Result Prefetch Memory '%d' must not be negative.",
+                                         getResultPrefetchMemoryMB()),
+                           "Set it to 0 to store all prefetched result chunks in local temporary files.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_RESULT_PREFETCH_MEMORY_MB);
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_SOAP_QUERY_BATCH_SIZE)
+      && (getSoapQueryBatchSize() < SalesforceSourceConstants.MIN_SOAP_QUERY_BATCH_SIZE
+      || getSoapQueryBatchSize() > SalesforceSourceConstants.MAX_SOAP_QUERY_BATCH_SIZE)) {
+      collector.addFailure(String.format("SOAP Query Batch Size '%d' is out of range.", getSoapQueryBatchSize()),
+                           String.format("Set it to a value between %d and %d.",
+                                         SalesforceSourceConstants.MIN_SOAP_QUERY_BATCH_SIZE,
+                                         SalesforceSourceConstants.MAX_SOAP_QUERY_BATCH_SIZE))
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_SOAP_QUERY_BATCH_SIZE);
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_WIDE_QUERY_MAX_IN_FLIGHT)
+      && getWideQueryMaxInFlightPartitions() <= 0) {
+      collector.addFailure(String.format("Wide Query Max In-Flight Partitions '%d' must be greater than 0.",
+                                         getWideQueryMaxInFlightPartitions()), null)
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_WIDE_QUERY_MAX_IN_FLIGHT);
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_WIDE_QUERY_RETRIEVE_THREADS)
+      && (getWideQueryRetrieveThreads() < 1
+      || getWideQueryRetrieveThreads() > SalesforceSourceConstants.MAX_WIDE_QUERY_RETRIEVE_THREADS)) {
+      collector.addFailure(String.format("Wide Query Retrieve Threads '%d' is out of range.",
+                                         getWideQueryRetrieveThreads()),
+                           String.format("Set it to a value between 1 and %d.",
+                                         SalesforceSourceConstants.MAX_WIDE_QUERY_RETRIEVE_THREADS))
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_WIDE_QUERY_RETRIEVE_THREADS);
+    }
+  }
+
+  public Boolean isSplitByResultChunk() {
+    return splitByResultChunk != null && splitByResultChunk;
+  }
+
   public void validateFilters(FailureCollector collector) {
     try {
       validateIntervalFilterProperty(SalesforceSourceConstants.PROPERTY_DATETIME_AFTER, getDatetimeAfter());
@@ -314,7 +504,13 @@ public abstract class SalesforceBaseSourceConfig extends ReferencePluginConfig {
     }
   }
 
-  private SObjectFilterDescriptor getSObjectFilterDescriptor(long logicalStartTime) {
+  /**
+   * Returns time window of the SObject query based on the filter properties.
+   *
+   * @param logicalStartTime application start time
+   * @return SObject date filter descriptor
+   */
+  public SObjectFilterDescriptor getSObjectFilterDescriptor(long logicalStartTime) {
     SObjectFilterDescriptor filterDescriptor;
     ZonedDateTime start = parseDatetime(datetimeAfter);
     ZonedDateTime end = parseDatetime(datetimeBefore);
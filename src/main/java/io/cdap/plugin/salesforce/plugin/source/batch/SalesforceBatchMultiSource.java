@@ -16,6 +16,8 @@
 package io.cdap.plugin.salesforce.plugin.source.batch;
 
 import com.sforce.async.BulkConnection;
+import com.sforce.async.OperationEnum;
+import com.sforce.soap.partner.PartnerConnection;
 import com.sforce.ws.ConnectionException;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Metadata;
@@ -35,19 +37,28 @@ import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSource;
 import io.cdap.cdap.etl.api.batch.BatchSourceContext;
 import io.cdap.cdap.etl.api.connector.Connector;
+import io.cdap.plugin.salesforce.SObjectDescriptor;
 import io.cdap.plugin.salesforce.SalesforceConnectionUtil;
 import io.cdap.plugin.salesforce.SalesforceConstants;
+import io.cdap.plugin.salesforce.SalesforceQueryUtil;
 import io.cdap.plugin.salesforce.authenticator.AuthenticatorCredentials;
+import io.cdap.plugin.salesforce.parser.SalesforceQueryParser;
 import io.cdap.plugin.salesforce.plugin.OAuthInfo;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceIdRangeSplitter;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceIncrementalTracker;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceMultiQueryPlanner;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforcePartnerConnectionPool;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSplitUtil;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -67,8 +78,9 @@ public class SalesforceBatchMultiSource extends BatchSource<Schema, Map<String,
 
   private final SalesforceMultiSourceConfig config;
   private MapToRecordTransformer transformer;
-  private Set<String> jobIds = new HashSet<>();
+  private final Set<String> jobIds = ConcurrentHashMap.newKeySet();
   private AuthenticatorCredentials authenticatorCredentials;
+  private SalesforceIncrementalTracker incrementalTracker;
 
   public SalesforceBatchMultiSource(SalesforceMultiSourceConfig config) {
     this.config = config;
@@ -93,7 +105,12 @@ public class SalesforceBatchMultiSource extends BatchSource<Schema, Map<String,
     config.validateSObjects(collector, oAuthInfo);
     collector.getOrThrowException();
 
+    authenticatorCredentials = config.getConnection().getAuthenticatorCredentials();
     List<String> queries = config.getQueries(context.getLogicalStartTime(), oAuthInfo);
+    incrementalTracker = config.getIncrementalTracker();
+    if (incrementalTracker != null) {
+      queries = getIncrementalQueries(queries);
+    }
     Map<String, Schema> schemas = config.getSObjectsSchemas(queries);
 
     // propagate schema for each SObject for multi sink plugin
@@ -101,15 +118,17 @@ public class SalesforceBatchMultiSource extends BatchSource<Schema, Map<String,
     schemas.forEach(
       (sObjectName, sObjectSchema) -> arguments.set(MULTI_SINK_PREFIX + sObjectName, sObjectSchema.toString()));
     String sObjectNameField = config.getSObjectNameField();
-    authenticatorCredentials = config.getConnection().getAuthenticatorCredentials();
     BulkConnection bulkConnection = SalesforceSplitUtil.getBulkConnection(authenticatorCredentials);
-    List<SalesforceSplit> querySplits = queries.parallelStream()
-      .map(query -> SalesforceSplitUtil.getQuerySplits(query, bulkConnection, false, config.getOperation(),
-                                                       config.getInitialRetryDuration(), config.getMaxRetryDuration(),
-                                                       config.getMaxRetryCount(), config.isRetryRequired()))
-      .flatMap(Collection::stream).collect(Collectors.toList());
-    // store the jobIds so be used in onRunFinish() to close the connections
-    querySplits.parallelStream().forEach(salesforceSplit -> jobIds.add(salesforceSplit.getJobId()));
+    SalesforceMultiQueryPlanner planner = new SalesforceMultiQueryPlanner(
+      config.getMaxConcurrentJobs(), TimeUnit.SECONDS.toMillis(config.getInitialRetryDuration()),
+      TimeUnit.SECONDS.toMillis(config.getMaxRetryDuration()), config.getMaxRetryCount());
+    List<SalesforceSplit> querySplits;
+    if (config.isSizeAwareSplits() || config.getEnablePKChunk()) {
+      querySplits = getSplitsBySize(planner, queries, bulkConnection);
+    } else {
+      querySplits = planner.plan(queries, config.getPrioritySObjects(),
+                                 query -> getQuerySplits(Collections.singletonList(query), bulkConnection, false));
+    }
     context.setInput(Input.of(config.referenceName, new SalesforceInputFormatProvider(
       config, getSchemaWithNameField(sObjectNameField, schemas), querySplits, sObjectNameField)));
     /* TODO PLUGIN-510
@@ -127,6 +146,13 @@ public class SalesforceBatchMultiSource extends BatchSource<Schema, Map<String,
   public void onRunFinish(boolean succeeded, BatchSourceContext context) {
     super.onRunFinish(succeeded, context);
     SalesforceSplitUtil.closeJobs(jobIds, authenticatorCredentials);
+    if (succeeded && incrementalTracker != null) {
+      try {
+        incrementalTracker.commit();
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to store high-watermarks of the incremental mode", e);
+      }
+    }
   }
 
   @Override
@@ -142,6 +168,122 @@ public class SalesforceBatchMultiSource extends BatchSource<Schema, Map<String,
     emitter.emit(record);
   }
 
+  /**
+   * Plans splits by the number of records of each SObject. With size-aware splitting, SObjects are planned from
+   * the largest, SObjects larger than the split size are chunked by Id ranges and splits of small SObjects are
+   * packed together. With PK chunking, SObjects supporting it are read with PK chunking if they have more records
+   * than the threshold or if their records could not be counted.
+   *
+   * @param planner        planner of multiple SObject queries
+   * @param queries        SObject queries
+   * @param bulkConnection bulk connection used to create jobs
+   * @return splits of all queries
+   */
+  private List<SalesforceSplit> getSplitsBySize(SalesforceMultiQueryPlanner planner, List<String> queries,
+                                                BulkConnection bulkConnection) {
+    String operation = config.getOperation();
+    boolean sizeAwareSplits = config.isSizeAwareSplits();
+    int splitSize = config.getSplitSize();
+    boolean enablePKChunk = config.getEnablePKChunk();
+    SalesforcePartnerConnectionPool connectionPool = new SalesforcePartnerConnectionPool(
+      config.getMaxConcurrentJobs(), () -> SalesforceConnectionUtil.getPartnerConnection(authenticatorCredentials));
+    boolean queryAll = OperationEnum.queryAll.name().equals(operation);
+    // without size-aware splitting, only SObjects that may be read with PK chunking are counted
+    List<String> countedQueries = sizeAwareSplits ? queries : queries.stream()
+      .filter(query -> SalesforceSplitUtil.isPKChunkSupported(SObjectDescriptor.fromQuery(query).getName()))
+      .collect(Collectors.toList());
+    Map<String, Long> recordCounts = planner.countRecords(countedQueries, query -> {
+      String countQuery = SalesforceQueryUtil.createSObjectCountQuery(query);
+      PartnerConnection partnerConnection = connectionPool.borrow();
+      try {
+        return (long) (queryAll ? partnerConnection.queryAll(countQuery) : partnerConnection.query(countQuery))
+          .getSize();
+      } finally {
+        connectionPool.release(partnerConnection);
+      }
+    });
+    Map<String, Long> plannedCounts = sizeAwareSplits ? recordCounts : Collections.emptyMap();
+    List<SalesforceSplit> splits = planner.plan(queries, config.getPrioritySObjects(), plannedCounts, query -> {
+      Long count = recordCounts.get(query);
+      if (SalesforceQueryParser.isRestrictedPKQuery(query)) {
+        return getQuerySplits(Collections.singletonList(query), bulkConnection, false);
+      }
+      if (enablePKChunk && (count == null || count > config.getPKChunkThreshold())
+        && SalesforceSplitUtil.isPKChunkSupported(SObjectDescriptor.fromQuery(query).getName())) {
+        // PK chunking header is set for the job of this SObject only
+        return getQuerySplits(Collections.singletonList(query), SalesforceSplitUtil.getPKChunkBulkConnection(
+          bulkConnection, config.getChunkSize(), null), true);
+      }
+      if (!sizeAwareSplits || count == null || count <= splitSize) {
+        return getQuerySplits(Collections.singletonList(query), bulkConnection, false);
+      }
+      try {
+        PartnerConnection partnerConnection = connectionPool.borrow();
+        try {
+          return getQuerySplits(SalesforceIdRangeSplitter.getRangeQueries(partnerConnection, query, operation,
+                                                                          splitSize), bulkConnection, false);
+        } finally {
+          connectionPool.release(partnerConnection);
+        }
+      } catch (ConnectionException e) {
+        String message = SalesforceConnectionUtil.getSalesforceErrorMessageFromException(e);
+        throw new RuntimeException(
+          String.format("Failed to split a Salesforce query (%s) by Id ranges: %s", query, message), e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while splitting a Salesforce query by Id ranges", e);
+      }
+    });
+    return sizeAwareSplits ? SalesforceMultiQueryPlanner.packSplits(splits, recordCounts, splitSize) : splits;
+  }
+
+  /**
+   * Generates splits of the queries of a single SObject and stores ids of the created jobs.
+   *
+   * @param queries        queries of the SObject, a single query or queries of Id ranges
+   * @param bulkConnection bulk connection used to create jobs
+   * @param enablePKChunk  indicates if the bulk connection enables PK chunking of a single query
+   * @return splits of the queries
+   */
+  private List<SalesforceSplit> getQuerySplits(List<String> queries, BulkConnection bulkConnection,
+                                               boolean enablePKChunk) {
+    List<SalesforceSplit> splits = queries.size() == 1
+      ? SalesforceSplitUtil.getQuerySplits(queries.get(0), bulkConnection, enablePKChunk, config.getOperation(),
+                                           config.getInitialRetryDuration(), config.getMaxRetryDuration(),
+                                           config.getMaxRetryCount(), config.isRetryRequired(),
+                                           config.isSplitByResultChunk())
+      : SalesforceSplitUtil.getQuerySplits(queries, bulkConnection, config.getOperation(),
+                                           config.getInitialRetryDuration(), config.getMaxRetryDuration(),
+                                           config.getMaxRetryCount(), config.isRetryRequired(),
+                                           config.isSplitByResultChunk());
+    // store the jobIds as soon as jobs are created to close them in onRunFinish()
+    splits.forEach(salesforceSplit -> jobIds.add(salesforceSplit.getJobId()));
+    return splits;
+  }
+
+  /**
+   * Restricts SObject queries to records modified since the previous successful run.
+   *
+   * @param queries SObject queries
+   * @return incremental SObject queries
+   */
+  private List<String> getIncrementalQueries(List<String> queries) {
+    List<String> incrementalQueries = new ArrayList<>(queries.size());
+    try {
+      PartnerConnection partnerConnection = SalesforceConnectionUtil.getPartnerConnection(authenticatorCredentials);
+      for (String query : queries) {
+        incrementalQueries.add(incrementalTracker.getIncrementalQuery(partnerConnection, query,
+                                                                      config.getOperation()));
+      }
+    } catch (ConnectionException e) {
+      String message = SalesforceConnectionUtil.getSalesforceErrorMessageFromException(e);
+      throw new RuntimeException(String.format("Failed to get high-watermarks of SObjects: %s", message), e);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read high-watermarks of the incremental mode", e);
+    }
+    return incrementalQueries;
+  }
+
   /**
    * For each given schema adds name field of type String and converts it to string representation.
    *
@@ -17,9 +17,9 @@ package io.cdap.plugin.salesforce.plugin.source.batch;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.sforce.async.BulkConnection;
+import com.sforce.soap.partner.PartnerConnection;
 import com.sforce.ws.ConnectionException;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Metadata;
@@ -40,18 +40,27 @@ import io.cdap.cdap.etl.api.connector.Connector;
 import io.cdap.plugin.common.Asset;
 import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.salesforce.SObjectDescriptor;
+import io.cdap.plugin.salesforce.SObjectFilterDescriptor;
 import io.cdap.plugin.salesforce.SalesforceConnectionUtil;
 import io.cdap.plugin.salesforce.SalesforceConstants;
+import io.cdap.plugin.salesforce.SalesforceQueryUtil;
 import io.cdap.plugin.salesforce.SalesforceSchemaUtil;
 import io.cdap.plugin.salesforce.authenticator.AuthenticatorCredentials;
+import io.cdap.plugin.salesforce.parser.SalesforceQueryParser;
 import io.cdap.plugin.salesforce.plugin.OAuthInfo;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceIdRangeSplitter;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceIncrementalTracker;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSplitUtil;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceTimeRangeSplitter;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -74,6 +83,7 @@ public class SalesforceBatchSource extends
   private MapToRecordTransformer transformer;
   private Set<String> jobIds = new HashSet<>();
   private AuthenticatorCredentials authenticatorCredentials;
+  private SalesforceIncrementalTracker incrementalTracker;
 
   public SalesforceBatchSource(SalesforceSourceConfig config) {
     this.config = config;
@@ -110,7 +120,8 @@ public class SalesforceBatchSource extends
   public void prepareRun(BatchSourceContext context) {
     FailureCollector collector = context.getFailureCollector();
     OAuthInfo oAuthInfo = SalesforceConnectionUtil.getOAuthInfo(config.getConnection(), collector);
-    config.validate(collector, oAuthInfo); // validate when macros are already substituted
+    // validate when macros are already substituted
+    config.validate(collector, oAuthInfo, context.getLogicalStartTime());
     collector.getOrThrowException();
 
     if (schema == null) {
@@ -137,9 +148,17 @@ public class SalesforceBatchSource extends
             .collect(Collectors.toList()));
 
     authenticatorCredentials = config.getConnection().getAuthenticatorCredentials();
+    incrementalTracker = config.getIncrementalTracker();
+    if (incrementalTracker != null) {
+      query = getIncrementalQuery(query);
+    }
     List<SalesforceSplit> querySplits =
-        getSplits(config, authenticatorCredentials, context.getLogicalStartTime(), oAuthInfo);
-    querySplits.stream().forEach(salesforceSplit -> jobIds.add(salesforceSplit.getJobId()));
+        getSplits(config, authenticatorCredentials, query, context.getLogicalStartTime());
+    // Bulk API 2.0 query jobs do not need to be closed, replication splits do not create jobs
+    querySplits.stream()
+      .filter(salesforceSplit -> !salesforceSplit.isBulkApiV2() && !salesforceSplit.isReplication())
+      .flatMap(salesforceSplit -> salesforceSplit.getFieldGroupSplits().stream())
+      .forEach(salesforceSplit -> jobIds.add(salesforceSplit.getJobId()));
     context.setInput(Input.of(config.getReferenceNameOrNormalizedFQN(orgId, sObjectName),
         new SalesforceInputFormatProvider(
             config, ImmutableMap.of(sObjectName, schema.toString()), querySplits, null)));
@@ -148,28 +167,100 @@ public class SalesforceBatchSource extends
   public static List<SalesforceSplit> getSplits(
       SalesforceSourceConfig config, AuthenticatorCredentials authenticatorCredentials,
       long logicStartTime, OAuthInfo oAuthInfo) {
-    String query = config.getQuery(logicStartTime, oAuthInfo);
+    return getSplits(config, authenticatorCredentials, config.getQuery(logicStartTime, oAuthInfo), logicStartTime);
+  }
+
+  private static List<SalesforceSplit> getSplits(
+      SalesforceSourceConfig config, AuthenticatorCredentials authenticatorCredentials,
+      String query, long logicStartTime) {
+    if (config.isReplicationMode()) {
+      SObjectFilterDescriptor filterDescriptor = config.getSObjectFilterDescriptor(logicStartTime);
+      ZonedDateTime startTime = Objects.requireNonNull(filterDescriptor.getStartTime(),
+                                                       "Replication mode requires the start of the time window");
+      long endTime = filterDescriptor.getEndTime() == null
+        ? logicStartTime : filterDescriptor.getEndTime().toInstant().toEpochMilli();
+      return SalesforceSplitUtil.getReplicationSplits(query, startTime.toInstant().toEpochMilli(), endTime);
+    }
+    SObjectFilterDescriptor filterDescriptor = config.isSoqlQuery()
+      ? SObjectFilterDescriptor.noOp() : config.getSObjectFilterDescriptor(logicStartTime);
+    boolean idRangeChunk = config.getEnableIdRangeChunk() && !SalesforceQueryParser.isRestrictedPKQuery(query);
+    boolean timeRangeSplit = config.getTimeRangeSplitSize() > 0 && !filterDescriptor.isNoOp();
+    if (config.isBulkApiV2() && SalesforceQueryUtil.isQueryUnderLengthLimit(query)
+      && !SalesforceQueryParser.isRestrictedQuery(query)) {
+      // result pages of a job are read sequentially, ranges are read in parallel by separate jobs
+      List<String> rangeQueries = idRangeChunk || timeRangeSplit
+        ? getRangeQueries(config, authenticatorCredentials, query, filterDescriptor, idRangeChunk)
+        : Collections.singletonList(query);
+      return SalesforceSplitUtil.getBulk2QuerySplits(rangeQueries, authenticatorCredentials, config.getOperation(),
+                                                     config.getMaxRecordsPerPage(), config.getInitialRetryDuration(),
+                                                     config.getMaxRetryDuration(), config.getMaxRetryCount(),
+                                                     config.isRetryRequired());
+    }
     BulkConnection bulkConnection = SalesforceSplitUtil.getBulkConnection(authenticatorCredentials);
+    boolean fieldGroupSplit = config.isSplitWideQueryByFields() && !SalesforceQueryUtil.isQueryUnderLengthLimit(query)
+      && !SalesforceQueryParser.isRestrictedPKQuery(query);
+    if (idRangeChunk || timeRangeSplit || fieldGroupSplit) {
+      List<String> rangeQueries = idRangeChunk || timeRangeSplit
+        ? getRangeQueries(config, authenticatorCredentials, query, filterDescriptor, idRangeChunk)
+        : Collections.singletonList(query);
+      if (fieldGroupSplit) {
+        return SalesforceSplitUtil.getFieldGroupSplits(rangeQueries, bulkConnection, config.getOperation(),
+                                                       config.getInitialRetryDuration(), config.getMaxRetryDuration(),
+                                                       config.getMaxRetryCount(), config.isRetryRequired());
+      }
+      return SalesforceSplitUtil.getQuerySplits(rangeQueries, bulkConnection, config.getOperation(),
+                                                config.getInitialRetryDuration(), config.getMaxRetryDuration(),
+                                                config.getMaxRetryCount(), config.isRetryRequired(),
+                                                config.isSplitByResultChunk());
+    }
     boolean enablePKChunk = config.getEnablePKChunk();
     if (enablePKChunk) {
-      String parent = config.getParent();
-      int chunkSize = config.getChunkSize();
-      List<String> chunkHeaderValues = new ArrayList<>();
-      chunkHeaderValues.add(
-          String.format(SalesforceSourceConstants.HEADER_VALUE_PK_CHUNK, chunkSize));
-      if (!Strings.isNullOrEmpty(parent)) {
-        chunkHeaderValues.add(
-            String.format(SalesforceSourceConstants.HEADER_PK_CHUNK_PARENT, parent));
-      }
-      bulkConnection.addHeader(SalesforceSourceConstants.HEADER_ENABLE_PK_CHUNK,
-          String.join(";", chunkHeaderValues));
+      bulkConnection = SalesforceSplitUtil.getPKChunkBulkConnection(bulkConnection, config.getChunkSize(),
+                                                                    config.getParent());
     }
     List<SalesforceSplit> querySplits = SalesforceSplitUtil.getQuerySplits(query, bulkConnection,
         enablePKChunk, config.getOperation(), config.getInitialRetryDuration(), config.getMaxRetryDuration(),
-          config.getMaxRetryCount(), config.isRetryRequired());
+          config.getMaxRetryCount(), config.isRetryRequired(), config.isSplitByResultChunk());
     return querySplits;
   }
 
+  private static List<String> getRangeQueries(SalesforceSourceConfig config,
+                                              AuthenticatorCredentials authenticatorCredentials, String query,
+                                              SObjectFilterDescriptor filterDescriptor, boolean idRangeChunk) {
+    try {
+      PartnerConnection partnerConnection = SalesforceConnectionUtil.getPartnerConnection(authenticatorCredentials);
+      return idRangeChunk
+        ? SalesforceIdRangeSplitter.getRangeQueries(partnerConnection, query, config.getOperation(),
+                                                    config.getChunkSize())
+        : SalesforceTimeRangeSplitter.getRangeQueries(partnerConnection, query, config.getOperation(),
+                                                      filterDescriptor, config.getTimeRangeSplitSize());
+    } catch (ConnectionException e) {
+      String message = SalesforceConnectionUtil.getSalesforceErrorMessageFromException(e);
+      throw new RuntimeException(
+        String.format("Failed to split a Salesforce query (%s) by %s ranges: %s", query,
+                      idRangeChunk ? "Id" : "time", message), e);
+    }
+  }
+
+  /**
+   * Restricts the query to records modified since the previous successful run.
+   *
+   * @param query SOQL query
+   * @return incremental query
+   */
+  private String getIncrementalQuery(String query) {
+    try {
+      PartnerConnection partnerConnection = SalesforceConnectionUtil.getPartnerConnection(authenticatorCredentials);
+      return incrementalTracker.getIncrementalQuery(partnerConnection, query, config.getOperation());
+    } catch (ConnectionException e) {
+      String message = SalesforceConnectionUtil.getSalesforceErrorMessageFromException(e);
+      throw new RuntimeException(
+        String.format("Failed to get high-watermark of a Salesforce query (%s): %s", query, message), e);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read high-watermark of the incremental mode", e);
+    }
+  }
+
   @Override
   public void initialize(BatchRuntimeContext context) throws Exception {
     super.initialize(context);
@@ -180,6 +271,13 @@ public class SalesforceBatchSource extends
   public void onRunFinish(boolean succeeded, BatchSourceContext context) {
     super.onRunFinish(succeeded, context);
     SalesforceSplitUtil.closeJobs(jobIds, authenticatorCredentials);
+    if (succeeded && incrementalTracker != null) {
+      try {
+        incrementalTracker.commit();
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to store high-watermark of the incremental mode", e);
+      }
+    }
   }
 
   @Override
@@ -234,6 +332,9 @@ public class SalesforceBatchSource extends
   public Schema retrieveSchema(OAuthInfo oAuthInfo) {
     Schema providedSchema = config.getSchema();
     Schema actualSchema = getSchema(config, oAuthInfo);
+    if (config.isReplicationMode()) {
+      actualSchema = getReplicationSchema(actualSchema);
+    }
     if (providedSchema != null) {
       SalesforceSchemaUtil.checkCompatibility(actualSchema, providedSchema);
       return providedSchema;
@@ -241,4 +342,22 @@ public class SalesforceBatchSource extends
     return actualSchema;
   }
 
+  /**
+   * Returns schema of records read in the replication mode. All fields are nullable, since records of deleted
+   * SObjects have only the `Id`, and the operation field is added.
+   *
+   * @param schema schema of the SObject query
+   * @return schema of replicated records
+   */
+  @VisibleForTesting
+  static Schema getReplicationSchema(Schema schema) {
+    List<Schema.Field> fields = Preconditions.checkNotNull(schema.getFields()).stream()
+      .filter(field -> !SalesforceSourceConstants.REPLICATION_OPERATION_FIELD.equals(field.getName()))
+      .map(field -> field.getSchema().isNullable()
+        ? field : Schema.Field.of(field.getName(), Schema.nullableOf(field.getSchema())))
+      .collect(Collectors.toList());
+    fields.add(Schema.Field.of(SalesforceSourceConstants.REPLICATION_OPERATION_FIELD,
+                               Schema.of(Schema.Type.STRING)));
+    return Schema.recordOf(schema.getRecordName(), fields);
+  }
 }
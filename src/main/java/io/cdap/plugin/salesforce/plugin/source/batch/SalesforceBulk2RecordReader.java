@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import dev.failsafe.RetryPolicy;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.salesforce.SalesforceConnectionUtil;
+import io.cdap.plugin.salesforce.authenticator.AuthenticatorCredentials;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceBulk2Client;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSplitUtil;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * RecordReader implementation, which reads all result pages of a Bulk API 2.0 query job
+ * provided in InputSplit. Pages are read one after another by following the locator of the next page.
+ */
+public class SalesforceBulk2RecordReader extends RecordReader<Schema, Map<String, ?>> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceBulk2RecordReader.class);
+
+  private final Schema schema;
+  private RetryPolicy<Object> retryPolicy;
+  private SalesforceBulk2Client client;
+  private String jobId;
+  private int maxRecords;
+  private long records;
+  private SalesforceBulk2Client.ResultPage page;
+  private SalesforceBulkCsvScanner csvScanner;
+  private Map<String, ?> value;
+  private long recordsRead;
+  private int pagesRead;
+  private boolean finished;
+
+  public SalesforceBulk2RecordReader(Schema schema) {
+    this.schema = schema;
+    this.retryPolicy = SalesforceSplitUtil.getRetryPolicy(
+      SalesforceSourceConstants.DEFAULT_INITIAL_RETRY_DURATION_SECONDS,
+      SalesforceSourceConstants.DEFULT_MAX_RETRY_DURATION_SECONDS, SalesforceSourceConstants.DEFAULT_MAX_RETRY_COUNT);
+  }
+
+  @Override
+  public void initialize(InputSplit inputSplit, TaskAttemptContext taskAttemptContext) throws IOException {
+    Configuration conf = taskAttemptContext.getConfiguration();
+    if (conf.getBoolean(SalesforceSourceConstants.CONFIG_RETRY_REQUIRED, true)) {
+      retryPolicy = SalesforceSplitUtil.getRetryPolicy(
+        conf.getLong(SalesforceSourceConstants.CONFIG_INITIAL_RETRY_DURATION,
+                     SalesforceSourceConstants.DEFAULT_INITIAL_RETRY_DURATION_SECONDS),
+        conf.getLong(SalesforceSourceConstants.CONFIG_MAX_RETRY_DURATION,
+                     SalesforceSourceConstants.DEFULT_MAX_RETRY_DURATION_SECONDS),
+        conf.getInt(SalesforceSourceConstants.CONFIG_MAX_RETRY_COUNT,
+                    SalesforceSourceConstants.DEFAULT_MAX_RETRY_COUNT));
+    } else {
+      retryPolicy = null;
+    }
+    AuthenticatorCredentials credentials = SalesforceConnectionUtil.getAuthenticatorCredentials(conf);
+    initialize(inputSplit, credentials);
+  }
+
+  public SalesforceBulk2RecordReader initialize(InputSplit inputSplit, AuthenticatorCredentials credentials)
+    throws IOException {
+    SalesforceSplit salesforceSplit = (SalesforceSplit) inputSplit;
+    jobId = salesforceSplit.getJobId();
+    maxRecords = salesforceSplit.getMaxRecords();
+    records = salesforceSplit.getRecords();
+    LOG.debug("Reading result pages of Bulk API 2.0 Job Id: '{}'", jobId);
+    client = new SalesforceBulk2Client(credentials, retryPolicy);
+    openPage(null);
+    return this;
+  }
+
+  /**
+   * Reads single record from csv, the next result page is opened when the current one is read completely.
+   *
+   * @return returns false if no more data to read
+   */
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    if (csvScanner == null) {
+      finished = true;
+      return false;
+    }
+    while (!csvScanner.nextRecord()) {
+      String nextLocator = page.getNextLocator();
+      closePage();
+      if (nextLocator == null) {
+        LOG.debug("Read {} records in {} result pages of Bulk API 2.0 Job Id: '{}'", recordsRead, pagesRead, jobId);
+        finished = true;
+        return false;
+      }
+      openPage(nextLocator);
+    }
+    value = csvScanner.getRow();
+    recordsRead++;
+    return true;
+  }
+
+  @Override
+  public Schema getCurrentKey() {
+    return schema;
+  }
+
+  @Override
+  public Map<String, ?> getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() {
+    if (finished) {
+      return 1.0f;
+    }
+    if (records <= 0) {
+      return 0.0f;
+    }
+    return Math.min(1.0f, (float) recordsRead / records);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      closePage();
+    } finally {
+      if (client != null) {
+        client.close();
+        client = null;
+      }
+    }
+  }
+
+  private void openPage(@Nullable String locator) throws IOException {
+    page = client.openResultPage(jobId, locator, maxRecords);
+    csvScanner = new SalesforceBulkCsvScanner(page.getInputStream());
+    pagesRead++;
+  }
+
+  private void closePage() throws IOException {
+    if (csvScanner != null) {
+      // this also closes the page input stream
+      csvScanner.close();
+      csvScanner = null;
+    }
+  }
+}
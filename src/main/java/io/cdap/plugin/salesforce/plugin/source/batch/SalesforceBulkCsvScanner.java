@@ -0,0 +1,268 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Scanner for CSV produced by Salesforce Bulk API query results, where the first record is a header and
+ * all values are enclosed in double quotes.
+ * <p/>
+ * Input is read through a reusable char buffer and fields of the current record are kept as slices of a reusable
+ * row buffer, so no objects are allocated per field until the field value is requested. The header is read once
+ * when the scanner is created and its {@link SalesforceRow.Layout} is shared by all rows returned by {@link #getRow()}.
+ */
+public class SalesforceBulkCsvScanner implements Closeable {
+
+  private static final int END_OF_STREAM = -1;
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+  private static final char DELIMITER = ',';
+  private static final char QUOTE = '"';
+  private static final char CR = '\r';
+  private static final char LF = '\n';
+
+  private final Reader reader;
+  private final char[] readBuffer = new char[READ_BUFFER_SIZE];
+  private int readPosition;
+  private int readLimit;
+
+  private char[] row = new char[1024];
+  private int rowLength;
+  private int[] fieldStarts = new int[64];
+  private int[] fieldEnds = new int[64];
+  private int fieldCount;
+  private long lineNumber = 1;
+
+  private final String[] header;
+  private final SalesforceRow.Layout layout;
+
+  /**
+   * Creates scanner for the given UTF-8 encoded stream and reads the header record.
+   *
+   * @param inputStream Bulk API query result stream
+   * @throws IOException if the stream cannot be read or the header is malformed
+   */
+  public SalesforceBulkCsvScanner(InputStream inputStream) throws IOException {
+    this(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+  }
+
+  public SalesforceBulkCsvScanner(Reader reader) throws IOException {
+    this.reader = reader;
+    if (nextRecord()) {
+      header = new String[fieldCount];
+      Set<String> names = new HashSet<>(fieldCount * 2);
+      for (int i = 0; i < fieldCount; i++) {
+        String name = getField(i);
+        if (name.isEmpty()) {
+          throw new IllegalArgumentException(
+            String.format("A header name is missing in %s", Arrays.toString(Arrays.copyOf(header, i))));
+        }
+        if (!names.add(name)) {
+          throw new IllegalArgumentException(
+            String.format("The header contains a duplicate name: \"%s\"", name));
+        }
+        header[i] = name;
+      }
+    } else {
+      header = new String[0];
+    }
+    layout = SalesforceRow.Layout.of(Arrays.asList(header));
+  }
+
+  /**
+   * @return header column names, empty if the stream did not contain any records
+   */
+  public String[] getHeader() {
+    return header;
+  }
+
+  /**
+   * Advances to the next record. Empty lines are skipped.
+   *
+   * @return false if there are no more records
+   * @throws IOException if the stream cannot be read or the record is malformed
+   */
+  public boolean nextRecord() throws IOException {
+    int c = read();
+    while (c == CR || c == LF) {
+      if (c == LF) {
+        lineNumber++;
+      }
+      c = read();
+    }
+    if (c == END_OF_STREAM) {
+      fieldCount = 0;
+      return false;
+    }
+
+    rowLength = 0;
+    fieldCount = 0;
+    while (true) {
+      int start = rowLength;
+      if (c == QUOTE) {
+        c = readEncapsulated();
+      } else {
+        while (c != DELIMITER && c != CR && c != LF && c != END_OF_STREAM) {
+          append((char) c);
+          c = read();
+        }
+      }
+      addField(start, rowLength);
+
+      if (c == DELIMITER) {
+        c = read();
+        continue;
+      }
+      if (c == CR && peek() == LF) {
+        read();
+        c = LF;
+      }
+      if (c == LF) {
+        lineNumber++;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * @return number of fields in the current record
+   */
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * Returns value of the field with the given index in the current record.
+   *
+   * @param index field index
+   * @return field value, empty string for empty fields
+   */
+  public String getField(int index) {
+    if (index >= fieldCount) {
+      throw new IndexOutOfBoundsException(
+        String.format("Field index %d is out of bounds for record with %d fields", index, fieldCount));
+    }
+    return new String(row, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+  }
+
+  /**
+   * Returns current record as a row with header columns. Values missing in the record
+   * are not present in the row, values without a header column are ignored.
+   *
+   * @return current record
+   */
+  public SalesforceRow getRow() {
+    Object[] values = new Object[Math.min(fieldCount, header.length)];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = getField(i);
+    }
+    return new SalesforceRow(layout, values);
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  /**
+   * Reads quoted value until the closing quote, unescaping doubled quotes. Only whitespace is allowed between the
+   * closing quote and the following delimiter or line break.
+   *
+   * @return first character after the value
+   */
+  private int readEncapsulated() throws IOException {
+    long startLine = lineNumber;
+    while (true) {
+      int c = read();
+      if (c == END_OF_STREAM) {
+        throw new IOException(String.format("(startline %d) EOF reached before encapsulated token finished",
+                                            startLine));
+      }
+      if (c == QUOTE) {
+        if (peek() == QUOTE) {
+          read();
+          append(QUOTE);
+          continue;
+        }
+        c = read();
+        while (c == ' ' || c == '\t') {
+          c = read();
+        }
+        if (c != DELIMITER && c != CR && c != LF && c != END_OF_STREAM) {
+          throw new IOException(String.format("(line %d) invalid char between encapsulated token and delimiter",
+                                              lineNumber));
+        }
+        return c;
+      }
+      if (c == LF) {
+        lineNumber++;
+      }
+      append((char) c);
+    }
+  }
+
+  private int read() throws IOException {
+    if (readPosition == readLimit && !fill()) {
+      return END_OF_STREAM;
+    }
+    return readBuffer[readPosition++];
+  }
+
+  private int peek() throws IOException {
+    if (readPosition == readLimit && !fill()) {
+      return END_OF_STREAM;
+    }
+    return readBuffer[readPosition];
+  }
+
+  private boolean fill() throws IOException {
+    int read;
+    do {
+      read = reader.read(readBuffer, 0, readBuffer.length);
+    } while (read == 0);
+    if (read == END_OF_STREAM) {
+      return false;
+    }
+    readPosition = 0;
+    readLimit = read;
+    return true;
+  }
+
+  private void append(char c) {
+    if (rowLength == row.length) {
+      row = Arrays.copyOf(row, row.length * 2);
+    }
+    row[rowLength++] = c;
+  }
+
+  private void addField(int start, int end) {
+    if (fieldCount == fieldStarts.length) {
+      fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+    }
+    fieldStarts[fieldCount] = start;
+    fieldEnds[fieldCount] = end;
+    fieldCount++;
+  }
+}
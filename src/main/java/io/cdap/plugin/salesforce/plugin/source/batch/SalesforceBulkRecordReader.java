@@ -20,38 +20,36 @@ import com.google.common.collect.ImmutableSet;
 import com.sforce.async.AsyncApiException;
 import com.sforce.async.AsyncExceptionCode;
 import com.sforce.async.BatchInfo;
-import com.sforce.async.BatchStateEnum;
 import com.sforce.async.BulkConnection;
 import dev.failsafe.Failsafe;
 import dev.failsafe.FailsafeException;
 import dev.failsafe.TimeoutExceededException;
 import io.cdap.cdap.api.data.schema.Schema;
-import io.cdap.plugin.salesforce.BulkAPIBatchException;
 import io.cdap.plugin.salesforce.SalesforceConnectionUtil;
 import io.cdap.plugin.salesforce.SalesforceConstants;
 import io.cdap.plugin.salesforce.authenticator.Authenticator;
 import io.cdap.plugin.salesforce.authenticator.AuthenticatorCredentials;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceBulkJobPoller;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceQueryExecutionException;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSplitUtil;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.csv.QuoteMode;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.MRConfig;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 /**
  * RecordReader implementation, which reads a single Salesforce batch from bulk job
@@ -64,20 +62,30 @@ public class SalesforceBulkRecordReader extends RecordReader<Schema, Map<String,
                                                                                 AsyncExceptionCode.InternalServerError,
                                                                                 AsyncExceptionCode.ClientInputError,
                                                                                 AsyncExceptionCode.Timeout);
+  // local directories of YARN containers and of Spark executors
+  private static final String[] LOCAL_DIRS_VARIABLES = {"LOCAL_DIRS", "SPARK_LOCAL_DIRS"};
   private static Long initialRetryDuration;
   private static Long maxRetryDuration;
   private static Integer maxRetryCount;
   private Boolean isRetryRequired;
+  private int prefetchDepth;
+  private long prefetchMemoryBytes;
+  private boolean spoolResults;
+  private Path spoolDirectory;
   private final Schema schema;
 
-  private CSVParser csvParser;
-  private Iterator<CSVRecord> parserIterator;
+  private SalesforceBulkCsvScanner csvScanner;
   private Map<String, ?> value;
   private String jobId;
   private BulkConnection bulkConnection;
   private String batchId;
   private String[] resultIds;
   private int resultIdIndex;
+  private int completedResults;
+  private long totalRecords;
+  private long recordsRead;
+  private SalesforceBulkResultPrefetcher prefetcher;
+  private SalesforceBulkResultSpool spool;
 
   public SalesforceBulkRecordReader(Schema schema) {
     this(schema, null, null, null);
@@ -94,6 +102,8 @@ public class SalesforceBulkRecordReader extends RecordReader<Schema, Map<String,
     maxRetryDuration = SalesforceSourceConstants.DEFULT_MAX_RETRY_DURATION_SECONDS;
     maxRetryCount = SalesforceSourceConstants.DEFAULT_MAX_RETRY_COUNT;
     isRetryRequired = true;
+    prefetchDepth = SalesforceSourceConstants.DEFAULT_RESULT_PREFETCH_DEPTH;
+    prefetchMemoryBytes = toBytes(SalesforceSourceConstants.DEFAULT_RESULT_PREFETCH_MEMORY_MB);
   }
 
   /**
@@ -115,20 +125,44 @@ public class SalesforceBulkRecordReader extends RecordReader<Schema, Map<String,
     maxRetryCount = Integer.valueOf(conf.get(SalesforceSourceConstants.CONFIG_MAX_RETRY_COUNT,
       String.valueOf(SalesforceSourceConstants.DEFAULT_MAX_RETRY_COUNT)));
     isRetryRequired = Boolean.valueOf(conf.get(SalesforceSourceConstants.CONFIG_RETRY_REQUIRED, String.valueOf(true)));
+    prefetchDepth = conf.getInt(SalesforceSourceConstants.CONFIG_RESULT_PREFETCH_DEPTH,
+                                SalesforceSourceConstants.DEFAULT_RESULT_PREFETCH_DEPTH);
+    prefetchMemoryBytes = toBytes(conf.getInt(SalesforceSourceConstants.CONFIG_RESULT_PREFETCH_MEMORY_MB,
+                                              SalesforceSourceConstants.DEFAULT_RESULT_PREFETCH_MEMORY_MB));
+    spoolResults = conf.getBoolean(SalesforceSourceConstants.CONFIG_SPOOL_RESULTS, false);
+    spoolDirectory = getSpoolDirectory(conf);
     AuthenticatorCredentials credentials = SalesforceConnectionUtil.getAuthenticatorCredentials(conf);
     initialize(inputSplit, credentials);
   }
 
   public SalesforceBulkRecordReader initialize(InputSplit inputSplit, AuthenticatorCredentials credentials)
     throws IOException, InterruptedException {
-    SalesforceSplit salesforceSplit = (SalesforceSplit) inputSplit;
+    try {
+      return initialize((SalesforceSplit) inputSplit,
+                        new BulkConnection(Authenticator.createConnectorConfig(credentials)));
+    } catch (AsyncApiException e) {
+      throw new RuntimeException(
+        String.format("Failed to wait for the result of a batch: %s", e.getMessage()),
+        e);
+    }
+  }
+
+  @VisibleForTesting
+  SalesforceBulkRecordReader initialize(SalesforceSplit salesforceSplit, BulkConnection bulkConnection)
+    throws IOException, InterruptedException {
     jobId = salesforceSplit.getJobId();
     batchId = salesforceSplit.getBatchId();
+    this.bulkConnection = bulkConnection;
     LOG.debug("Executing Salesforce Batch Id: '{}' for Job Id: '{}'", batchId, jobId);
 
     try {
-      bulkConnection = new BulkConnection(Authenticator.createConnectorConfig(credentials));
-      resultIds = waitForBatchResults(bulkConnection);
+      if (salesforceSplit.getResultId() != null) {
+        // batch is known to be completed when splits are created per result chunk
+        resultIds = new String[] {salesforceSplit.getResultId()};
+        totalRecords = salesforceSplit.getRecords();
+      } else {
+        resultIds = waitForBatchResults(bulkConnection);
+      }
       LOG.debug("Batch {} returned {} results", batchId, resultIds.length);
       setupParser();
     } catch (AsyncApiException | SalesforceQueryExecutionException e) {
@@ -146,25 +180,27 @@ public class SalesforceBulkRecordReader extends RecordReader<Schema, Map<String,
    */
   @Override
   public boolean nextKeyValue() throws IOException {
-    if (parserIterator == null) {
+    if (csvScanner == null) {
       return false;
     }
     try {
-      while (!parserIterator.hasNext()) {
+      while (!csvScanner.nextRecord()) {
+        completedResults = resultIdIndex;
+        if (spool != null) {
+          // the result was read completely, its copy is not needed for retries anymore
+          spool.delete(resultIds[resultIdIndex - 1]);
+        }
         if (resultIdIndex == resultIds.length) {
           // No more result ids to process.
           return false;
         }
-        // Close CSV parser for previous result.
-        if (csvParser != null && !csvParser.isClosed()) {
-          // this also closes the inputStream
-          csvParser.close();
-          csvParser = null;
-        }
+        // Close CSV scanner for previous result.
+        closeScanner();
         // Parse the next result.
         setupParser();
       }
-      value = parserIterator.next().toMap();
+      value = csvScanner.getRow();
+      recordsRead++;
     } catch (AsyncApiException e) {
       LOG.error("AsyncApiException error message with code is: {}" + e.getMessage());
       throw new IOException("Failed to query results", e);
@@ -184,17 +220,72 @@ public class SalesforceBulkRecordReader extends RecordReader<Schema, Map<String,
     return value;
   }
 
+  /**
+   * Returns share of the batch records read so far. If the number of batch records is unknown,
+   * returns share of the result chunks read completely. The number of records of a split of a single
+   * result chunk is estimated, so the progress is reported as complete only once the chunk is read.
+   */
   @Override
   public float getProgress() {
-    return 0.0f;
+    if (resultIds != null && resultIds.length > 0 && completedResults == resultIds.length) {
+      return 1.0f;
+    }
+    if (totalRecords > 0) {
+      return Math.min(1.0f, (float) recordsRead / totalRecords);
+    }
+    if (resultIds == null || resultIds.length == 0) {
+      return 0.0f;
+    }
+    return (float) completedResults / resultIds.length;
   }
 
+  /**
+   * Closes the reader and deletes local copies of result chunks, which were not read completely.
+   */
   @Override
   public void close() throws IOException {
-    if (csvParser != null && !csvParser.isClosed()) {
+    if (prefetcher != null) {
+      prefetcher.close();
+      prefetcher = null;
+    }
+    closeScanner();
+    if (spool != null) {
+      // the current result is not deleted by nextKeyValue() until it is read completely
+      for (int i = Math.max(completedResults, 0); i < resultIds.length; i++) {
+        spool.delete(resultIds[i]);
+      }
+      spool = null;
+    }
+  }
+
+  /**
+   * Returns the local directory of spooled result chunks. The local directories of MapReduce tasks and of YARN
+   * containers are cleaned up by the cluster, the local directories of Spark executors are used when Spark does
+   * not run on YARN. The local temporary directory is used only if none of them is configured, chunks left there
+   * by killed tasks are not cleaned up.
+   *
+   * @param conf task configuration
+   * @return directory of spooled result chunks
+   */
+  static Path getSpoolDirectory(Configuration conf) {
+    return getSpoolDirectory(conf, System.getenv());
+  }
+
+  @VisibleForTesting
+  static Path getSpoolDirectory(Configuration conf, Map<String, String> environment) {
+    String[] localDirs = conf.getTrimmedStrings(MRConfig.LOCAL_DIR);
+    for (int i = 0; localDirs.length == 0 && i < LOCAL_DIRS_VARIABLES.length; i++) {
+      localDirs = StringUtils.getTrimmedStrings(environment.get(LOCAL_DIRS_VARIABLES[i]));
+    }
+    String parent = localDirs.length == 0 ? System.getProperty("java.io.tmpdir") : localDirs[0];
+    return Paths.get(parent, SalesforceSourceConstants.SPOOL_DIRECTORY_NAME);
+  }
+
+  private void closeScanner() throws IOException {
+    if (csvScanner != null) {
       // this also closes the inputStream
-      csvParser.close();
-      csvParser = null;
+      csvScanner.close();
+      csvScanner = null;
     }
   }
 
@@ -204,27 +295,23 @@ public class SalesforceBulkRecordReader extends RecordReader<Schema, Map<String,
       throw new IllegalArgumentException(String.format("Invalid resultIdIndex %d, should be less than %d",
         resultIdIndex, resultIds.length));
     }
+    if (spoolResults && spool == null) {
+      if (spoolDirectory == null) {
+        spoolDirectory = getSpoolDirectory(new Configuration(false));
+      }
+      spool = new SalesforceBulkResultSpool(spoolDirectory, jobId, batchId);
+    }
     try {
-      final InputStream queryResponseStream;
-      if (isRetryRequired) {
-        queryResponseStream =
-          Failsafe.with(SalesforceSplitUtil.getRetryPolicy(initialRetryDuration, maxRetryDuration, maxRetryCount))
-            .get(() -> getQueryResultStream(bulkConnection));
-      } else {
-        queryResponseStream = bulkConnection.getQueryResultStream(jobId, batchId, resultIds[resultIdIndex]);
+      InputStream queryResponseStream = takePrefetchedResult();
+      if (queryResponseStream == null) {
+        queryResponseStream = openResultStream(resultIds[resultIdIndex]);
       }
-
-        CSVFormat csvFormat = CSVFormat.DEFAULT
-          .withHeader()
-          .withQuoteMode(QuoteMode.ALL)
-          .withAllowMissingColumnNames(false);
-        csvParser = CSVParser.parse(queryResponseStream, StandardCharsets.UTF_8, csvFormat);
-
-      if (csvParser.getHeaderMap().isEmpty()) {
+      csvScanner = new SalesforceBulkCsvScanner(queryResponseStream);
+      if (csvScanner.getHeader().length == 0) {
         throw new IllegalStateException("Empty response was received from Salesforce, but csv header was expected.");
       }
-      parserIterator = csvParser.iterator();
       resultIdIndex++;
+      prefetchResults();
     } catch (TimeoutExceededException e) {
       throw new AsyncApiException("Exhausted retries trying to get query result stream", AsyncExceptionCode.Timeout);
     } catch (FailsafeException e) {
@@ -239,9 +326,14 @@ public class SalesforceBulkRecordReader extends RecordReader<Schema, Map<String,
   }
 
   public InputStream getQueryResultStream(BulkConnection bulkConnection)
+    throws SalesforceQueryExecutionException, AsyncApiException {
+    return getQueryResultStream(bulkConnection, resultIds[resultIdIndex]);
+  }
+
+  private InputStream getQueryResultStream(BulkConnection bulkConnection, String resultId)
     throws SalesforceQueryExecutionException, AsyncApiException {
     try {
-      return bulkConnection.getQueryResultStream(jobId, batchId, resultIds[resultIdIndex]);
+      return bulkConnection.getQueryResultStream(jobId, batchId, resultId);
     } catch (AsyncApiException exception) {
       LOG.warn("The bulk query job {} failed.", jobId);
       if (RETRY_ON_REASON.contains(exception.getExceptionCode())) {
@@ -251,6 +343,93 @@ public class SalesforceBulkRecordReader extends RecordReader<Schema, Map<String,
     }
   }
 
+  private InputStream openQueryResultStream(String resultId) throws AsyncApiException {
+    if (isRetryRequired) {
+      return Failsafe.with(SalesforceSplitUtil.getRetryPolicy(initialRetryDuration, maxRetryDuration, maxRetryCount))
+        .get(() -> getQueryResultStream(bulkConnection, resultId));
+    }
+    return bulkConnection.getQueryResultStream(jobId, batchId, resultId);
+  }
+
+  /**
+   * Opens the result chunk stream, which is read from a local copy if spooling is enabled.
+   * The copy is downloaded only if it does not exist yet, a failed download is repeated from the start.
+   */
+  private InputStream openResultStream(String resultId) throws AsyncApiException, IOException {
+    if (!spoolResults) {
+      return openQueryResultStream(resultId);
+    }
+    Path file = spool.get(resultId);
+    if (file != null) {
+      LOG.debug("Reading result '{}' of batch {} from the spooled copy '{}'", resultId, batchId, file);
+    } else if (isRetryRequired) {
+      file = Failsafe.with(SalesforceSplitUtil.getRetryPolicy(initialRetryDuration, maxRetryDuration, maxRetryCount))
+        .get(() -> spoolQueryResult(resultId));
+    } else {
+      file = spool.write(resultId, bulkConnection.getQueryResultStream(jobId, batchId, resultId));
+    }
+    return spool.open(file);
+  }
+
+  private Path spoolQueryResult(String resultId) throws SalesforceQueryExecutionException, AsyncApiException {
+    InputStream resultStream = getQueryResultStream(bulkConnection, resultId);
+    try {
+      return spool.write(resultId, resultStream);
+    } catch (IOException e) {
+      LOG.warn("Failed to download result '{}' of batch {}.", resultId, batchId, e);
+      throw new SalesforceQueryExecutionException(e);
+    }
+  }
+
+  /**
+   * Starts background download of the result chunks following the current one, up to the configured depth.
+   */
+  private void prefetchResults() {
+    int lastIndex = Math.min(resultIds.length, resultIdIndex + prefetchDepth);
+    if (resultIdIndex >= lastIndex) {
+      return;
+    }
+    if (prefetcher == null) {
+      // spooled results are downloaded completely by the stream provider
+      prefetcher = new SalesforceBulkResultPrefetcher(this::openResultStream, prefetchDepth,
+                                                      prefetchMemoryBytes, !spoolResults);
+    }
+    for (int i = resultIdIndex; i < lastIndex; i++) {
+      prefetcher.prefetch(i, resultIds[i]);
+    }
+  }
+
+  /**
+   * Returns the current result chunk if it was downloaded in background.
+   *
+   * @return result chunk stream or null if the chunk was not prefetched
+   */
+  private InputStream takePrefetchedResult() throws IOException, AsyncApiException, InterruptedException {
+    if (prefetcher == null) {
+      return null;
+    }
+    try {
+      return prefetcher.take(resultIdIndex);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof AsyncApiException) {
+        throw (AsyncApiException) cause;
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        // includes failsafe exceptions, which are handled by the caller
+        throw (RuntimeException) cause;
+      }
+      throw new IOException("Failed to prefetch query result", cause);
+    }
+  }
+
+  private static long toBytes(int megabytes) {
+    return megabytes * 1024L * 1024L;
+  }
+
   /**
    * Wait until a batch with given batchId succeeds, or throw an exception
    *
@@ -261,47 +440,28 @@ public class SalesforceBulkRecordReader extends RecordReader<Schema, Map<String,
    */
   private String[] waitForBatchResults(BulkConnection bulkConnection)
     throws AsyncApiException, InterruptedException, SalesforceQueryExecutionException {
-    BatchInfo info = null;
-    for (int i = 0; i < SalesforceSourceConstants.GET_BATCH_RESULTS_TRIES; i++) {
-      try {
-        info = bulkConnection.getBatchInfo(jobId, batchId);
-      } catch (AsyncApiException e) {
-        if (i == SalesforceSourceConstants.GET_BATCH_RESULTS_TRIES - 1) {
-          throw e;
-        }
-        LOG.warn("Failed to get info for batch {}. Will retry after some time.", batchId, e);
-        continue;
+    BatchInfo info = SalesforceBulkJobPoller.getInstance().awaitCompletion(bulkConnection, jobId, batchId);
+    totalRecords = info.getNumberRecordsProcessed();
+    try {
+      if (isRetryRequired) {
+        return Failsafe.with(
+            SalesforceSplitUtil.getRetryPolicy(initialRetryDuration, maxRetryDuration, maxRetryCount))
+          .get(() -> getQueryResultList(bulkConnection));
+      } else {
+        return bulkConnection.getQueryResultList(jobId, batchId).getResult();
       }
 
-      if (info.getState() == BatchStateEnum.Completed) {
-        try {
-          if (isRetryRequired) {
-            return Failsafe.with(
-                SalesforceSplitUtil.getRetryPolicy(initialRetryDuration, maxRetryDuration, maxRetryCount))
-              .get(() -> getQueryResultList(bulkConnection));
-          } else {
-            return bulkConnection.getQueryResultList(jobId, batchId).getResult();
-          }
-
-        } catch (TimeoutExceededException e) {
-          throw new AsyncApiException("Exhausted retries trying to get query result list", AsyncExceptionCode.Timeout);
-        } catch (FailsafeException e) {
-          if (e.getCause() instanceof InterruptedException) {
-            throw (InterruptedException) e.getCause();
-          }
-          if (e.getCause() instanceof AsyncApiException) {
-            throw (AsyncApiException) e.getCause();
-          }
-          throw e;
-        }
-      } else if (info.getState() == BatchStateEnum.Failed) {
-        throw new BulkAPIBatchException("Batch failed", info);
-      } else {
-        LOG.debug("Batch {} job {} state {}", batchId, jobId, info.getState());
-        Thread.sleep(SalesforceSourceConstants.GET_BATCH_RESULTS_SLEEP_MS);
+    } catch (TimeoutExceededException e) {
+      throw new AsyncApiException("Exhausted retries trying to get query result list", AsyncExceptionCode.Timeout);
+    } catch (FailsafeException e) {
+      if (e.getCause() instanceof InterruptedException) {
+        throw (InterruptedException) e.getCause();
       }
+      if (e.getCause() instanceof AsyncApiException) {
+        throw (AsyncApiException) e.getCause();
+      }
+      throw e;
     }
-    throw new BulkAPIBatchException("Timeout waiting for batch results", info);
   }
 
   private String[] getQueryResultList(BulkConnection bulkConnection)
@@ -0,0 +1,322 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Downloads Bulk API query result chunks ahead of the chunk which is currently being parsed, so that the network
+ * transfer of the next chunks overlaps with the parsing of the current one.
+ * <p/>
+ * Each prefetched chunk is kept in memory while the total amount of prefetched data fits into the given limit,
+ * otherwise it is spooled to a local temporary file. Spooled data is released once the returned stream is closed.
+ * Streams of a provider, which already reads from a local copy of the chunk, can be returned without buffering.
+ */
+public class SalesforceBulkResultPrefetcher implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceBulkResultPrefetcher.class);
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+  private static final String SPOOL_FILE_PREFIX = "salesforce-bulk-result-";
+  private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+  private final ResultStreamProvider streamProvider;
+  private final long memoryLimitBytes;
+  private final boolean bufferResults;
+  private final AtomicLong memoryInUse = new AtomicLong();
+  private final ExecutorService executor;
+  private final Map<Integer, Future<SpooledResult>> pending = new HashMap<>();
+  private volatile boolean closed;
+
+  /**
+   * Opens a stream for a single Bulk API query result chunk.
+   */
+  public interface ResultStreamProvider {
+    InputStream open(String resultId) throws Exception;
+  }
+
+  /**
+   * @param streamProvider   opens result streams, called from the background threads
+   * @param depth            maximum number of result chunks downloaded concurrently
+   * @param memoryLimitBytes maximum number of prefetched bytes kept in memory
+   */
+  public SalesforceBulkResultPrefetcher(ResultStreamProvider streamProvider, int depth, long memoryLimitBytes) {
+    this(streamProvider, depth, memoryLimitBytes, true);
+  }
+
+  /**
+   * @param streamProvider   opens result streams, called from the background threads
+   * @param depth            maximum number of result chunks downloaded concurrently
+   * @param memoryLimitBytes maximum number of prefetched bytes kept in memory
+   * @param bufferResults    whether to read the opened streams ahead, false if the provider completes the download
+   */
+  public SalesforceBulkResultPrefetcher(ResultStreamProvider streamProvider, int depth, long memoryLimitBytes,
+                                        boolean bufferResults) {
+    this.streamProvider = streamProvider;
+    this.memoryLimitBytes = Math.max(0, memoryLimitBytes);
+    this.bufferResults = bufferResults;
+    this.executor = Executors.newFixedThreadPool(depth, new ThreadFactoryBuilder()
+      .setNameFormat("salesforce-bulk-result-prefetch-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  /**
+   * Starts background download of the result chunk with the given index, if it was not started already.
+   *
+   * @param index    index of the result chunk in the batch
+   * @param resultId result id
+   */
+  public synchronized void prefetch(int index, String resultId) {
+    if (closed || pending.containsKey(index)) {
+      return;
+    }
+    LOG.debug("Prefetching result '{}' with index {}", resultId, index);
+    pending.put(index, executor.submit(() -> spool(resultId)));
+  }
+
+  /**
+   * Returns stream of the prefetched result chunk, waiting for the download to complete if needed.
+   *
+   * @param index index of the result chunk in the batch
+   * @return stream with chunk data or null if the chunk was not prefetched
+   * @throws ExecutionException   if the background download failed
+   * @throws InterruptedException if interrupted while waiting for the download
+   */
+  @Nullable
+  public InputStream take(int index) throws ExecutionException, InterruptedException {
+    Future<SpooledResult> future;
+    synchronized (this) {
+      future = pending.remove(index);
+    }
+    return future == null ? null : future.get().open();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    executor.shutdownNow();
+    synchronized (this) {
+      for (Future<SpooledResult> future : pending.values()) {
+        future.cancel(true);
+        if (future.isDone() && !future.isCancelled()) {
+          try {
+            future.get().discard();
+          } catch (Exception e) {
+            // download failed, nothing to release
+          }
+        }
+      }
+      pending.clear();
+    }
+    try {
+      // downloads in progress must not create files after the caller cleans up
+      if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        LOG.warn("Prefetch of query results did not stop in {} seconds", CLOSE_TIMEOUT_SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private SpooledResult spool(String resultId) throws Exception {
+    if (!bufferResults) {
+      SpooledResult result = new SpooledResult(streamProvider.open(resultId));
+      if (closed) {
+        result.discard();
+      }
+      return result;
+    }
+    SpoolBuffer buffer = new SpoolBuffer();
+    long reserved = 0;
+    File file = null;
+    OutputStream fileStream = null;
+    try (InputStream inputStream = streamProvider.open(resultId)) {
+      byte[] chunk = new byte[COPY_BUFFER_SIZE];
+      int read;
+      while ((read = inputStream.read(chunk)) != -1) {
+        if (fileStream == null && reserve(read)) {
+          reserved += read;
+          buffer.write(chunk, 0, read);
+          continue;
+        }
+        if (fileStream == null) {
+          file = File.createTempFile(SPOOL_FILE_PREFIX, ".csv");
+          LOG.debug("Prefetch memory limit reached, spooling result '{}' to '{}'", resultId, file);
+          fileStream = new BufferedOutputStream(new FileOutputStream(file), COPY_BUFFER_SIZE);
+          buffer.writeTo(fileStream);
+          buffer = null;
+          release(reserved);
+          reserved = 0;
+        }
+        fileStream.write(chunk, 0, read);
+      }
+      if (fileStream != null) {
+        fileStream.close();
+        fileStream = null;
+      }
+    } catch (Exception e) {
+      release(reserved);
+      closeQuietly(fileStream);
+      deleteQuietly(file);
+      throw e;
+    }
+
+    SpooledResult result = file == null ? new SpooledResult(buffer, reserved) : new SpooledResult(file);
+    if (closed) {
+      result.discard();
+    }
+    return result;
+  }
+
+  private boolean reserve(long bytes) {
+    while (true) {
+      long current = memoryInUse.get();
+      if (current + bytes > memoryLimitBytes) {
+        return false;
+      }
+      if (memoryInUse.compareAndSet(current, current + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  private void release(long bytes) {
+    if (bytes > 0) {
+      memoryInUse.addAndGet(-bytes);
+    }
+  }
+
+  private static void closeQuietly(@Nullable Closeable closeable) {
+    if (closeable == null) {
+      return;
+    }
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      LOG.trace("Failed to close spool stream", e);
+    }
+  }
+
+  private static void deleteQuietly(@Nullable File file) {
+    if (file != null && file.exists() && !file.delete()) {
+      LOG.warn("Failed to delete spooled result file '{}'", file);
+    }
+  }
+
+  /**
+   * Byte array output stream which exposes its buffer to avoid copying spooled data.
+   */
+  private static class SpoolBuffer extends ByteArrayOutputStream {
+
+    SpoolBuffer() {
+      super(COPY_BUFFER_SIZE);
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+
+  /**
+   * Result chunk data which is kept either in memory or in a local temporary file, or a stream opened by
+   * the provider.
+   */
+  private class SpooledResult {
+    private final SpoolBuffer buffer;
+    private final long reserved;
+    private final File file;
+    private final InputStream stream;
+
+    SpooledResult(SpoolBuffer buffer, long reserved) {
+      this.buffer = buffer;
+      this.reserved = reserved;
+      this.file = null;
+      this.stream = null;
+    }
+
+    SpooledResult(File file) {
+      this.buffer = null;
+      this.reserved = 0;
+      this.file = file;
+      this.stream = null;
+    }
+
+    SpooledResult(InputStream stream) {
+      this.buffer = null;
+      this.reserved = 0;
+      this.file = null;
+      this.stream = stream;
+    }
+
+    InputStream open() throws ExecutionException {
+      if (stream != null) {
+        return stream;
+      }
+      InputStream inputStream;
+      if (file == null) {
+        inputStream = new ByteArrayInputStream(buffer.getBuffer(), 0, buffer.size());
+      } else {
+        try {
+          inputStream = new FileInputStream(file);
+        } catch (IOException e) {
+          discard();
+          throw new ExecutionException(e);
+        }
+      }
+      return new FilterInputStream(inputStream) {
+        private boolean released;
+
+        @Override
+        public void close() throws IOException {
+          super.close();
+          if (!released) {
+            released = true;
+            discard();
+          }
+        }
+      };
+    }
+
+    void discard() {
+      release(reserved);
+      deleteQuietly(file);
+      closeQuietly(stream);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps complete copies of Bulk API query result chunks of a batch in a local directory, so that a chunk is
+ * downloaded from Salesforce only once, even if it has to be parsed again.
+ * <p/>
+ * A chunk is transferred from the network stream to a temporary file through file channels and becomes visible
+ * only when the transfer is complete, so an interrupted download never leaves a partial copy. Copies are parsed
+ * from memory-mapped buffers and are kept until they are deleted explicitly, which the reader does once a chunk
+ * is read completely or the reader is closed.
+ */
+public class SalesforceBulkResultSpool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceBulkResultSpool.class);
+  private static final long TRANSFER_CHUNK_BYTES = 8 * 1024 * 1024;
+  private static final long MAX_MAPPED_REGION_BYTES = Integer.MAX_VALUE;
+
+  private final Path directory;
+  private final String filePrefix;
+
+  /**
+   * @param directory local directory of the copies
+   * @param jobId     Bulk API job id
+   * @param batchId   Bulk API batch id
+   */
+  public SalesforceBulkResultSpool(Path directory, String jobId, String batchId) {
+    this.directory = directory;
+    this.filePrefix = jobId + "-" + batchId + "-";
+  }
+
+  /**
+   * @param resultId result chunk id
+   * @return complete copy of the result chunk, or null if it was not spooled
+   */
+  @Nullable
+  public Path get(String resultId) {
+    Path file = getFile(resultId);
+    return Files.exists(file) ? file : null;
+  }
+
+  /**
+   * Transfers the result chunk stream to a local copy. The stream is closed.
+   *
+   * @param resultId     result chunk id
+   * @param resultStream stream of the result chunk
+   * @return complete copy of the result chunk
+   * @throws IOException if the stream could not be read or the copy could not be written
+   */
+  public Path write(String resultId, InputStream resultStream) throws IOException {
+    Files.createDirectories(directory);
+    Path file = getFile(resultId);
+    // concurrent attempts of the same task write separate temporary files
+    Path temporaryFile = Files.createTempFile(directory, "." + file.getFileName(), ".tmp");
+    try (ReadableByteChannel source = Channels.newChannel(resultStream);
+         FileChannel target = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+      long position = 0;
+      long transferred;
+      // transfer from a blocking stream returns 0 only at the end of the stream
+      while ((transferred = target.transferFrom(source, position, TRANSFER_CHUNK_BYTES)) > 0) {
+        position += transferred;
+      }
+      LOG.debug("Spooled {} bytes of result '{}' to '{}'", position, resultId, file);
+    } catch (IOException e) {
+      Files.deleteIfExists(temporaryFile);
+      throw e;
+    }
+    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return file;
+  }
+
+  /**
+   * Opens the local copy of a result chunk for reading from memory-mapped buffers.
+   *
+   * @param file copy of the result chunk
+   * @return stream of the copy
+   * @throws IOException if the copy could not be opened
+   */
+  public InputStream open(Path file) throws IOException {
+    return new MappedInputStream(FileChannel.open(file, StandardOpenOption.READ));
+  }
+
+  /**
+   * Deletes the local copy of a result chunk once it is not needed anymore.
+   *
+   * @param resultId result chunk id
+   */
+  public void delete(String resultId) {
+    Path file = getFile(resultId);
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOG.warn("Failed to delete spooled result file '{}'", file, e);
+    }
+  }
+
+  private Path getFile(String resultId) {
+    return directory.resolve(filePrefix + resultId + ".csv");
+  }
+
+  /**
+   * Input stream, which maps consecutive regions of a file into memory as they are read.
+   */
+  private static class MappedInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long size;
+    private long regionEnd;
+    private MappedByteBuffer region;
+
+    MappedInputStream(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+    }
+
+    @Override
+    public int read() throws IOException {
+      return nextRegion() ? region.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (!nextRegion()) {
+        return -1;
+      }
+      int read = Math.min(length, region.remaining());
+      region.get(bytes, offset, read);
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = 0;
+      while (skipped < n && nextRegion()) {
+        int step = (int) Math.min(n - skipped, region.remaining());
+        region.position(region.position() + step);
+        skipped += step;
+      }
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return region == null ? 0 : region.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+      region = null;
+      channel.close();
+    }
+
+    /**
+     * Maps the next region of the file if the current one is read completely.
+     *
+     * @return false if the whole file is read
+     */
+    private boolean nextRegion() throws IOException {
+      if (region != null && region.hasRemaining()) {
+        return true;
+      }
+      if (regionEnd >= size) {
+        return false;
+      }
+      long regionSize = Math.min(MAX_MAPPED_REGION_BYTES, size - regionEnd);
+      region = channel.map(FileChannel.MapMode.READ_ONLY, regionEnd, regionSize);
+      regionEnd += regionSize;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.salesforce.SalesforceIdUtil;
+import io.cdap.plugin.salesforce.authenticator.AuthenticatorCredentials;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RecordReader implementation for wide SOQL queries, which are split into queries of field groups. Reads
+ * Salesforce batches of all field groups of the split, which are ordered by record Id, and joins their
+ * records by Id.
+ * <p/>
+ * Records are only returned if they were read by every field group query, records created or deleted
+ * while the queries were running are skipped.
+ */
+public class SalesforceFieldGroupRecordReader extends RecordReader<Schema, Map<String, ?>> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceFieldGroupRecordReader.class);
+  private static final String FIELD_ID = "Id";
+
+  private final Schema schema;
+  private final List<RecordReader<Schema, Map<String, ?>>> readers = new ArrayList<>();
+
+  private SalesforceRow[] currentRows;
+  private SalesforceRow.Layout[] layouts;
+  private SalesforceRow.Layout layout;
+  private int[][] columnIndexes;
+  private long skippedRecords;
+  private Map<String, ?> value;
+
+  public SalesforceFieldGroupRecordReader(Schema schema) {
+    this.schema = schema;
+  }
+
+  @VisibleForTesting
+  SalesforceFieldGroupRecordReader(Schema schema, List<RecordReader<Schema, Map<String, ?>>> readers) {
+    this.schema = schema;
+    this.readers.addAll(readers);
+  }
+
+  @Override
+  public void initialize(InputSplit inputSplit, TaskAttemptContext taskAttemptContext)
+    throws IOException, InterruptedException {
+    for (SalesforceSplit split : ((SalesforceSplit) inputSplit).getFieldGroupSplits()) {
+      SalesforceBulkRecordReader reader = new SalesforceBulkRecordReader(schema);
+      readers.add(reader);
+      reader.initialize(split, taskAttemptContext);
+    }
+  }
+
+  public SalesforceFieldGroupRecordReader initialize(InputSplit inputSplit, AuthenticatorCredentials credentials)
+    throws IOException, InterruptedException {
+    for (SalesforceSplit split : ((SalesforceSplit) inputSplit).getFieldGroupSplits()) {
+      SalesforceBulkRecordReader reader = new SalesforceBulkRecordReader(schema);
+      readers.add(reader);
+      reader.initialize(split, credentials);
+    }
+    return this;
+  }
+
+  /**
+   * Reads the next record of the first field group and the records with the same Id of other field groups.
+   *
+   * @return returns false if no more data to read
+   */
+  @Override
+  public boolean nextKeyValue() throws IOException, InterruptedException {
+    if (currentRows == null) {
+      currentRows = new SalesforceRow[readers.size()];
+    }
+    while (readers.get(0).nextKeyValue()) {
+      currentRows[0] = (SalesforceRow) readers.get(0).getCurrentValue();
+      String id = getId(currentRows[0]);
+      boolean matched = true;
+      for (int i = 1; i < readers.size() && matched; i++) {
+        if (!advance(i, id)) {
+          // no more records of the field group to join with
+          return noMoreRecords();
+        }
+        matched = compareIds(getId(currentRows[i]), id) == 0;
+      }
+      if (matched) {
+        value = join(currentRows);
+        return true;
+      }
+      skippedRecords++;
+    }
+    return noMoreRecords();
+  }
+
+  @Override
+  public Schema getCurrentKey() {
+    return schema;
+  }
+
+  @Override
+  public Map<String, ?> getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() throws IOException, InterruptedException {
+    return readers.isEmpty() ? 0.0f : readers.get(0).getProgress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException exception = null;
+    for (RecordReader<Schema, Map<String, ?>> reader : readers) {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        if (exception == null) {
+          exception = e;
+        } else {
+          exception.addSuppressed(e);
+        }
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  private boolean noMoreRecords() {
+    LOG.debug("Skipped {} records, which were not read by all field group queries", skippedRecords);
+    return false;
+  }
+
+  /**
+   * Skips records of the field group with Ids lower than the given Id.
+   *
+   * @return false if there are no more records in the field group
+   */
+  private boolean advance(int group, String id) throws IOException, InterruptedException {
+    RecordReader<Schema, Map<String, ?>> reader = readers.get(group);
+    while (currentRows[group] == null || compareIds(getId(currentRows[group]), id) < 0) {
+      if (!reader.nextKeyValue()) {
+        return false;
+      }
+      currentRows[group] = (SalesforceRow) reader.getCurrentValue();
+    }
+    return true;
+  }
+
+  /**
+   * Joins rows of all field groups into a single row with columns of the first row followed by columns
+   * of other rows, except for the Id column.
+   */
+  private SalesforceRow join(SalesforceRow[] rows) {
+    updateLayout(rows);
+    Object[] values = new Object[layout.size()];
+    for (int i = 0; i < rows.length; i++) {
+      int[] indexes = columnIndexes[i];
+      for (int column = 0; column < rows[i].size(); column++) {
+        if (indexes[column] >= 0) {
+          values[indexes[column]] = rows[i].get(column);
+        }
+      }
+    }
+    return new SalesforceRow(layout, values);
+  }
+
+  /**
+   * Computes layout of joined rows, when layouts of field group rows change, which happens once per result chunk.
+   */
+  private void updateLayout(SalesforceRow[] rows) {
+    boolean changed = layouts == null;
+    for (int i = 0; i < rows.length && !changed; i++) {
+      changed = layouts[i] != rows[i].getLayout();
+    }
+    if (!changed) {
+      return;
+    }
+    layouts = new SalesforceRow.Layout[rows.length];
+    columnIndexes = new int[rows.length][];
+    List<String> names = new ArrayList<>();
+    Set<String> uniqueNames = new HashSet<>();
+    for (int i = 0; i < rows.length; i++) {
+      layouts[i] = rows[i].getLayout();
+      columnIndexes[i] = new int[layouts[i].size()];
+      for (int column = 0; column < layouts[i].size(); column++) {
+        String name = layouts[i].getName(column);
+        if (!uniqueNames.add(name)) {
+          columnIndexes[i][column] = -1;
+        } else {
+          columnIndexes[i][column] = names.size();
+          names.add(name);
+        }
+      }
+    }
+    layout = SalesforceRow.Layout.of(names);
+  }
+
+  private static String getId(SalesforceRow row) {
+    return String.valueOf(row.get(FIELD_ID));
+  }
+
+  /**
+   * Compares Ids in the order of `ORDER BY Id`, 18 characters Ids are compared without the checksum suffix.
+   */
+  private static int compareIds(String first, String second) {
+    return first.substring(0, Math.min(first.length(), SalesforceIdUtil.ID_LENGTH))
+      .compareTo(second.substring(0, Math.min(second.length(), SalesforceIdUtil.ID_LENGTH)));
+  }
+}
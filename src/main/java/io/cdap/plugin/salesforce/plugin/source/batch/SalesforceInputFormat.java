@@ -15,12 +15,16 @@
  */
 package io.cdap.plugin.salesforce.plugin.source.batch;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.salesforce.SObjectDescriptor;
-import io.cdap.plugin.salesforce.SalesforceQueryUtil;
 import io.cdap.plugin.salesforce.authenticator.AuthenticatorCredentials;
+import io.cdap.plugin.salesforce.parser.SalesforceQueryAnalysis;
 import io.cdap.plugin.salesforce.parser.SalesforceQueryParser;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
 import org.apache.hadoop.conf.Configuration;
@@ -34,12 +38,16 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * Input format class which generates input splits for each given query and initializes appropriate record reader.
+ * <p/>
+ * Parsed schemas, SObject descriptors and record reader types of queries are cached per JVM, so that they are
+ * shared by all splits of the same query or SObject read by an executor.
  */
 public class SalesforceInputFormat extends InputFormat {
 
@@ -49,6 +57,26 @@ public class SalesforceInputFormat extends InputFormat {
   private static final Type SCHEMAS_TYPE = new TypeToken<Map<String, String>>() { }.getType();
   private static final Type QUERY_SPLITS_TYPE = new TypeToken<List<SalesforceSplit>>() { }.getType();
 
+  // caches are bounded by the length of the serialized form, since wide queries and schemas of wide SObjects
+  // are large. Guava divides the maximum weight among segments, a single segment allows entries up to the limit.
+  // Serialized schemas of all SObjects are the same for all splits of a source, they are keyed by fingerprint
+  // not to keep the whole serialized form in memory next to the parsed one.
+  private static final Cache<String, Map<String, String>> SCHEMA_JSONS = CacheBuilder.newBuilder()
+    .concurrencyLevel(1)
+    .maximumWeight(SalesforceSourceConstants.READER_CACHE_MAX_CHARS)
+    .weigher((String fingerprint, Map<String, String> schemaJsons) -> getLength(schemaJsons))
+    .build();
+  private static final Cache<String, Schema> SCHEMAS = CacheBuilder.newBuilder()
+    .concurrencyLevel(1)
+    .maximumWeight(SalesforceSourceConstants.READER_CACHE_MAX_CHARS)
+    .weigher((String schemaJson, Schema schema) -> schemaJson.length())
+    .build();
+  private static final Cache<String, QueryMetadata> QUERY_METADATA = CacheBuilder.newBuilder()
+    .concurrencyLevel(1)
+    .maximumWeight(SalesforceSourceConstants.READER_CACHE_MAX_CHARS)
+    .weigher((String query, QueryMetadata queryMetadata) -> query.length())
+    .build();
+
   @Override
   public List<InputSplit> getSplits(JobContext context) {
     Configuration configuration = context.getConfiguration();
@@ -61,18 +89,30 @@ public class SalesforceInputFormat extends InputFormat {
   @Override
   public RecordReader createRecordReader(InputSplit split, TaskAttemptContext context) throws IOException {
     SalesforceSplit multiSplit = (SalesforceSplit) split;
+    if (multiSplit.isPacked()) {
+      return new SalesforcePackedRecordReader(multiSplit.getPackedSplits(), this::createRecordReader);
+    }
     String query = multiSplit.getQuery();
 
-    SObjectDescriptor sObjectDescriptor = SObjectDescriptor.fromQuery(query);
-    String sObjectName = sObjectDescriptor.getName();
+    QueryMetadata queryMetadata = getQueryMetadata(query);
+    String sObjectName = queryMetadata.getSObjectDescriptor().getName();
 
     Configuration configuration = context.getConfiguration();
     String sObjectNameField = configuration.get(SalesforceSourceConstants.CONFIG_SOBJECT_NAME_FIELD);
-    Map<String, String> schemas = GSON.fromJson(
-      configuration.get(SalesforceSourceConstants.CONFIG_SCHEMAS), SCHEMAS_TYPE);
-    Schema schema = Schema.parseJson(schemas.get(sObjectName));
+    Schema schema = getSchema(configuration.get(SalesforceSourceConstants.CONFIG_SCHEMAS), sObjectName);
+    boolean positionalRows = configuration.getBoolean(SalesforceSourceConstants.CONFIG_POSITIONAL_ROWS, false);
 
-    return new SalesforceRecordReaderWrapper(sObjectName, sObjectNameField, getDelegateRecordReader(query, schema));
+    RecordReader<Schema, Map<String, ?>> delegate;
+    if (multiSplit.isReplication()) {
+      delegate = new SalesforceReplicationRecordReader(schema, new SoapRecordToMapTransformer(positionalRows));
+    } else if (multiSplit.isBulkApiV2()) {
+      delegate = new SalesforceBulk2RecordReader(schema);
+    } else if (multiSplit.hasFieldGroups()) {
+      delegate = new SalesforceFieldGroupRecordReader(schema);
+    } else {
+      delegate = getDelegateRecordReader(query, queryMetadata.getReaderType(), schema, positionalRows);
+    }
+    return new SalesforceRecordReaderWrapper(sObjectName, sObjectNameField, delegate);
   }
 
   /**
@@ -89,33 +129,46 @@ public class SalesforceInputFormat extends InputFormat {
                                                 AuthenticatorCredentials credentials)
       throws IOException, InterruptedException {
     String query = salesforceSplit.getQuery();
-    SObjectDescriptor sObjectDescriptor = SObjectDescriptor.fromQuery(query);
-    String sObjectName = sObjectDescriptor.getName();
-    Schema schema = Schema.parseJson(schemaJsonString);
+    String sObjectName = getQueryMetadata(query).getSObjectDescriptor().getName();
+    Schema schema = parseSchema(schemaJsonString);
     SalesforceRecordReaderWrapper readerWrapper = new SalesforceRecordReaderWrapper(
         sObjectName, sObjectNameField, getDelegateRecordReader(query, schema, salesforceSplit, credentials));
     return readerWrapper;
   }
 
   private static RecordReader<Schema, Map<String, ?>> getDelegateRecordReader(String query,
-                                                                              Schema schema) {
-    if (SalesforceQueryParser.isRestrictedQuery(query)) {
-      LOG.info("The SOQL query uses an aggregate function call or offset. "
-                 + "Reads will be performed serially and not in parallel.");
-      return new SalesforceSoapRecordReader(schema, query, new SoapRecordToMapTransformer());
+                                                                              ReaderType readerType,
+                                                                              Schema schema,
+                                                                              boolean positionalRows) {
+    switch (readerType) {
+      case SOAP:
+        LOG.info("The SOQL query uses an aggregate function call or offset. "
+                   + "Reads will be performed serially and not in parallel.");
+        return new SalesforceSoapRecordReader(schema, query, new SoapRecordToMapTransformer(positionalRows));
+      case WIDE:
+        LOG.info("The SOQL query is a wide query. "
+                   + "An additional SOAP request will be performed for each record.");
+        return new SalesforceWideRecordReader(schema, query, new SoapRecordToMapTransformer(positionalRows));
+      default:
+        return new SalesforceBulkRecordReader(schema);
     }
-    if (SalesforceQueryUtil.isQueryUnderLengthLimit(query)) {
-      return new SalesforceBulkRecordReader(schema);
-    }
-    LOG.info("The SOQL query is a wide query. "
-               + "An additional SOAP request will be performed for each record.");
-    return new SalesforceWideRecordReader(schema, query, new SoapRecordToMapTransformer());
   }
 
   private static RecordReader<Schema, Map<String, ?>> getDelegateRecordReader(
       String query, Schema schema, SalesforceSplit split, AuthenticatorCredentials credentials)
       throws IOException, InterruptedException {
-    RecordReader<Schema, Map<String, ?>> recordReader = getDelegateRecordReader(query, schema);
+    if (split.isReplication()) {
+      return new SalesforceReplicationRecordReader(schema, new SoapRecordToMapTransformer(false))
+        .initialize(split, credentials);
+    }
+    if (split.isBulkApiV2()) {
+      return new SalesforceBulk2RecordReader(schema).initialize(split, credentials);
+    }
+    if (split.hasFieldGroups()) {
+      return new SalesforceFieldGroupRecordReader(schema).initialize(split, credentials);
+    }
+    RecordReader<Schema, Map<String, ?>> recordReader = getDelegateRecordReader(
+      query, getQueryMetadata(query).getReaderType(), schema, false);
     if (recordReader instanceof SalesforceSoapRecordReader) {
       ((SalesforceSoapRecordReader) recordReader).initialize(credentials);
     } else if (recordReader instanceof SalesforceWideRecordReader) {
@@ -125,4 +178,107 @@ public class SalesforceInputFormat extends InputFormat {
     }
     return recordReader;
   }
+
+  /**
+   * Returns the parsed schema of the SObject from the serialized schemas of all SObjects of the source.
+   *
+   * @param schemasJson serialized map of SObject names to their schemas
+   * @param sObjectName SObject name
+   * @return schema of the SObject
+   * @throws IOException if the schema could not be parsed
+   */
+  @VisibleForTesting
+  static Schema getSchema(String schemasJson, String sObjectName) throws IOException {
+    return parseSchema(getSchemaJsons(schemasJson).get(sObjectName));
+  }
+
+  /**
+   * Returns the serialized schemas of all SObjects of the source by SObject name.
+   *
+   * @param schemasJson serialized map of SObject names to their schemas
+   * @return map of SObject names to their serialized schemas
+   */
+  @VisibleForTesting
+  static Map<String, String> getSchemaJsons(String schemasJson) {
+    String fingerprint = Hashing.sha256().hashString(schemasJson, StandardCharsets.UTF_8).toString();
+    Map<String, String> schemaJsons = SCHEMA_JSONS.getIfPresent(fingerprint);
+    if (schemaJsons == null) {
+      schemaJsons = GSON.fromJson(schemasJson, SCHEMAS_TYPE);
+      SCHEMA_JSONS.put(fingerprint, schemaJsons);
+    }
+    return schemaJsons;
+  }
+
+  private static int getLength(Map<String, String> schemaJsons) {
+    long length = 0;
+    for (Map.Entry<String, String> entry : schemaJsons.entrySet()) {
+      length += entry.getKey().length() + entry.getValue().length();
+    }
+    return (int) Math.min(length, Integer.MAX_VALUE);
+  }
+
+  private static Schema parseSchema(String schemaJson) throws IOException {
+    Schema schema = SCHEMAS.getIfPresent(schemaJson);
+    if (schema == null) {
+      schema = Schema.parseJson(schemaJson);
+      SCHEMAS.put(schemaJson, schema);
+    }
+    return schema;
+  }
+
+  /**
+   * Returns the SObject descriptor and the record reader type of the query.
+   * Concurrent calls for the same query may analyze it more than once, which is harmless.
+   */
+  @VisibleForTesting
+  static QueryMetadata getQueryMetadata(String query) {
+    QueryMetadata queryMetadata = QUERY_METADATA.getIfPresent(query);
+    if (queryMetadata == null) {
+      queryMetadata = new QueryMetadata(SObjectDescriptor.fromQuery(query), getReaderType(query));
+      QUERY_METADATA.put(query, queryMetadata);
+    }
+    return queryMetadata;
+  }
+
+  private static ReaderType getReaderType(String query) {
+    SalesforceQueryAnalysis analysis = SalesforceQueryParser.analyze(query);
+    if (analysis.isRestricted()) {
+      return ReaderType.SOAP;
+    }
+    return analysis.isUnderLengthLimit() ? ReaderType.BULK : ReaderType.WIDE;
+  }
+
+  /**
+   * Record reader used for a query, which is not read with replication API, Bulk API 2.0 or by field groups.
+   */
+  @VisibleForTesting
+  enum ReaderType {
+    // query with aggregate functions or offset read serially with SOAP API
+    SOAP,
+    BULK,
+    // query exceeding SOQL length limit, records of Ids returned by a bulk query are retrieved with SOAP API
+    WIDE
+  }
+
+  /**
+   * Analyzed query shared by all splits of the query.
+   */
+  @VisibleForTesting
+  static final class QueryMetadata {
+    private final SObjectDescriptor sObjectDescriptor;
+    private final ReaderType readerType;
+
+    private QueryMetadata(SObjectDescriptor sObjectDescriptor, ReaderType readerType) {
+      this.sObjectDescriptor = sObjectDescriptor;
+      this.readerType = readerType;
+    }
+
+    SObjectDescriptor getSObjectDescriptor() {
+      return sObjectDescriptor;
+    }
+
+    ReaderType getReaderType() {
+      return readerType;
+    }
+  }
 }
@@ -50,7 +50,17 @@ public class SalesforceInputFormatProvider implements InputFormatProvider {
       .put(SalesforceSourceConstants.CONFIG_INITIAL_RETRY_DURATION, config.getInitialRetryDuration().toString())
       .put(SalesforceSourceConstants.CONFIG_MAX_RETRY_DURATION, config.getMaxRetryDuration().toString())
       .put(SalesforceSourceConstants.CONFIG_MAX_RETRY_COUNT, config.getMaxRetryCount().toString())
-      .put(SalesforceSourceConstants.CONFIG_RETRY_REQUIRED, config.isRetryRequired().toString());
+      .put(SalesforceSourceConstants.CONFIG_RETRY_REQUIRED, config.isRetryRequired().toString())
+      .put(SalesforceSourceConstants.CONFIG_RESULT_PREFETCH_DEPTH, config.getResultPrefetchDepth().toString())
+      .put(SalesforceSourceConstants.CONFIG_RESULT_PREFETCH_MEMORY_MB,
+           config.getResultPrefetchMemoryMB().toString())
+      .put(SalesforceSourceConstants.CONFIG_SPOOL_RESULTS, config.isSpoolResults().toString())
+      .put(SalesforceSourceConstants.CONFIG_POSITIONAL_ROWS, config.isPositionalRows().toString())
+      .put(SalesforceSourceConstants.CONFIG_SOAP_QUERY_BATCH_SIZE, config.getSoapQueryBatchSize().toString())
+      .put(SalesforceSourceConstants.CONFIG_WIDE_QUERY_MAX_IN_FLIGHT,
+           config.getWideQueryMaxInFlightPartitions().toString())
+      .put(SalesforceSourceConstants.CONFIG_WIDE_QUERY_RETRIEVE_THREADS,
+           config.getWideQueryRetrieveThreads().toString());
 
     if (!Strings.isNullOrEmpty(config.getConnection().getProxyUrl())) {
       configBuilder.put(SalesforceConstants.CONFIG_PROXY_URL, config.getConnection().getProxyUrl());
@@ -68,6 +68,51 @@ public class SalesforceMultiSourceConfig extends SalesforceBaseSourceConfig {
     + "Must not be the name of any sObject column that will be read. Defaults to 'tablename'.")
   private final String sObjectNameField;
 
+  @Name(SalesforceSourceConstants.PROPERTY_PRIORITY_SOBJECTS)
+  @Macro
+  @Nullable
+  @Description("List of SObjects, whose bulk jobs are created first, in the order of the list.")
+  private String prioritySObjects;
+
+  @Name(SalesforceSourceConstants.PROPERTY_MAX_CONCURRENT_JOBS)
+  @Macro
+  @Nullable
+  @Description("Maximum number of concurrent job creations, that is SObjects whose bulk jobs and batches are " +
+    "created at the same time. Created jobs stay open until the end of the run. Default is 10.")
+  private Integer maxConcurrentJobs;
+
+  @Name(SalesforceSourceConstants.PROPERTY_SIZE_AWARE_SPLITS)
+  @Macro
+  @Nullable
+  @Description("Counts records of each SObject before the run, so that the largest SObjects are read first, "
+    + "SObjects larger than the split size are read in chunks and small SObjects are read together.")
+  private Boolean sizeAwareSplits;
+
+  @Name(SalesforceSourceConstants.PROPERTY_SPLIT_SIZE)
+  @Macro
+  @Nullable
+  @Description("Number of records read by a single split with size-aware splitting. Default is 500000.")
+  private Integer splitSize;
+
+  @Name(SalesforceSourceConstants.PROPERTY_PK_CHUNK_ENABLE_NAME)
+  @Macro
+  @Nullable
+  @Description("Reads SObjects, which support Primary key (PK) Chunking and have more records than the PK Chunk " +
+    "Threshold, in chunks based on the record IDs.")
+  private Boolean enablePKChunk;
+
+  @Name(SalesforceSourceConstants.PROPERTY_CHUNK_SIZE_NAME)
+  @Macro
+  @Nullable
+  @Description("Specify size of chunk. Maximum Size is 250,000. Default Size is 100,000.")
+  private Integer chunkSize;
+
+  @Name(SalesforceSourceConstants.PROPERTY_PK_CHUNK_THRESHOLD)
+  @Macro
+  @Nullable
+  @Description("Number of records, above which an SObject is read with PK Chunking. Default is 1000000.")
+  private Long pkChunkThreshold;
+
   public SalesforceMultiSourceConfig(String referenceName,
                                      @Nullable String consumerKey,
                                      @Nullable String consumerSecret,
@@ -111,11 +156,80 @@ public class SalesforceMultiSourceConfig extends SalesforceBaseSourceConfig {
     return Strings.isNullOrEmpty(sObjectNameField) ? SOBJECT_NAME_FIELD_DEFAULT : sObjectNameField;
   }
 
+  /**
+   * @return SObjects, whose jobs are created first, in the order of priority
+   */
+  public List<String> getPrioritySObjects() {
+    return Strings.isNullOrEmpty(prioritySObjects)
+      ? Collections.emptyList()
+      : Stream.of(prioritySObjects.split(","))
+      .map(String::trim)
+      .filter(name -> !name.isEmpty())
+      .distinct()
+      .collect(Collectors.toList());
+  }
+
+  public int getMaxConcurrentJobs() {
+    return maxConcurrentJobs == null ? SalesforceSourceConstants.DEFAULT_MAX_CONCURRENT_JOBS : maxConcurrentJobs;
+  }
+
+  public boolean isSizeAwareSplits() {
+    return sizeAwareSplits != null && sizeAwareSplits;
+  }
+
+  public int getSplitSize() {
+    return splitSize == null ? SalesforceSourceConstants.DEFAULT_SPLIT_SIZE : splitSize;
+  }
+
+  public boolean getEnablePKChunk() {
+    return enablePKChunk != null && enablePKChunk;
+  }
+
+  public int getChunkSize() {
+    return chunkSize == null ? SalesforceSourceConstants.DEFAULT_PK_CHUNK_SIZE : chunkSize;
+  }
+
+  public long getPKChunkThreshold() {
+    return pkChunkThreshold == null ? SalesforceSourceConstants.DEFAULT_PK_CHUNK_THRESHOLD : pkChunkThreshold;
+  }
+
   public void validate(FailureCollector collector, @Nullable OAuthInfo oAuthInfo) {
     if (super.getConnection() != null) {
       super.getConnection().validate(collector, oAuthInfo);
     }
     validateFilters(collector);
+    validateIncremental(collector);
+    validateReaderProperties(collector);
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_MAX_CONCURRENT_JOBS) && getMaxConcurrentJobs() <= 0) {
+      collector.addFailure(String.format("Max Concurrent Jobs '%d' must be greater than 0.", getMaxConcurrentJobs()),
+                           null)
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_MAX_CONCURRENT_JOBS);
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_SPLIT_SIZE) && getSplitSize() <= 0) {
+      collector.addFailure(String.format("Split Size '%d' must be greater than 0.", getSplitSize()), null)
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_SPLIT_SIZE);
+    }
+    validatePKChunk(collector);
+  }
+
+  private void validatePKChunk(FailureCollector collector) {
+    if (containsMacro(SalesforceSourceConstants.PROPERTY_PK_CHUNK_ENABLE_NAME) || !getEnablePKChunk()) {
+      return;
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_CHUNK_SIZE_NAME)
+      && (getChunkSize() < SalesforceSourceConstants.MIN_PK_CHUNK_SIZE
+      || getChunkSize() > SalesforceSourceConstants.MAX_PK_CHUNK_SIZE)) {
+      collector.addFailure(String.format("Chunk Size '%d' is out of the allowed range.", getChunkSize()),
+                           String.format("Chunk Size must be between '%d' and '%d'.",
+                                         SalesforceSourceConstants.MIN_PK_CHUNK_SIZE,
+                                         SalesforceSourceConstants.MAX_PK_CHUNK_SIZE))
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_CHUNK_SIZE_NAME);
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_PK_CHUNK_THRESHOLD) && getPKChunkThreshold() < 0) {
+      collector.addFailure(String.format("PK Chunk Threshold '%d' must not be negative.", getPKChunkThreshold()),
+                           null)
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_PK_CHUNK_THRESHOLD);
+    }
   }
 
   /**
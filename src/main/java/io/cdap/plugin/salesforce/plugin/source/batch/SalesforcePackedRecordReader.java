@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RecordReader implementation for packed splits. Reads the packed splits one after another, each with its own
+ * record reader, which is created only when the previous split is read completely.
+ */
+public class SalesforcePackedRecordReader extends RecordReader<Schema, Map<String, ?>> {
+
+  private final List<SalesforceSplit> splits;
+  private final RecordReaderFactory readerFactory;
+
+  private TaskAttemptContext context;
+  private RecordReader<Schema, Map<String, ?>> current;
+  private int index = -1;
+
+  /**
+   * @param splits        packed splits
+   * @param readerFactory creates a record reader for a packed split
+   */
+  public SalesforcePackedRecordReader(List<SalesforceSplit> splits, RecordReaderFactory readerFactory) {
+    this.splits = splits;
+    this.readerFactory = readerFactory;
+  }
+
+  @Override
+  public void initialize(InputSplit inputSplit, TaskAttemptContext taskAttemptContext) {
+    this.context = taskAttemptContext;
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException, InterruptedException {
+    while (current == null || !current.nextKeyValue()) {
+      closeCurrent();
+      if (index + 1 >= splits.size()) {
+        index = splits.size();
+        return false;
+      }
+      SalesforceSplit split = splits.get(++index);
+      current = readerFactory.create(split, context);
+      current.initialize(split, context);
+    }
+    return true;
+  }
+
+  @Override
+  public Schema getCurrentKey() throws IOException, InterruptedException {
+    return current.getCurrentKey();
+  }
+
+  @Override
+  public Map<String, ?> getCurrentValue() throws IOException, InterruptedException {
+    return current.getCurrentValue();
+  }
+
+  /**
+   * Returns share of the packed splits read, including progress of the current one.
+   */
+  @Override
+  public float getProgress() throws IOException, InterruptedException {
+    if (splits.isEmpty()) {
+      return 1.0f;
+    }
+    float currentProgress = current == null ? 0.0f : current.getProgress();
+    return Math.min(1.0f, (Math.max(index, 0) + currentProgress) / splits.size());
+  }
+
+  @Override
+  public void close() throws IOException {
+    closeCurrent();
+  }
+
+  private void closeCurrent() throws IOException {
+    if (current != null) {
+      current.close();
+      current = null;
+    }
+  }
+
+  /**
+   * Creates record readers of packed splits.
+   */
+  public interface RecordReaderFactory {
+    RecordReader<Schema, Map<String, ?>> create(SalesforceSplit split, TaskAttemptContext context)
+      throws IOException;
+  }
+}
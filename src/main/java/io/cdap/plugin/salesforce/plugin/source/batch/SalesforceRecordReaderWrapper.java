@@ -66,6 +66,9 @@ public class SalesforceRecordReaderWrapper extends RecordReader<Schema, Map<Stri
     if (sObjectNameField == null) {
       return currentValue;
     }
+    if (currentValue instanceof SalesforceRow) {
+      return ((SalesforceRow) currentValue).withColumn(sObjectNameField, sObjectName);
+    }
     Map<String, Object> updatedCurrentValue = new HashMap<>(currentValue);
     updatedCurrentValue.put(sObjectNameField, sObjectName);
     return updatedCurrentValue;
@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.soap.partner.sobject.SObject;
+import com.sforce.ws.ConnectionException;
+import io.cdap.plugin.salesforce.SObjectDescriptor;
+import io.cdap.plugin.salesforce.SalesforceConnectionUtil;
+import io.cdap.plugin.salesforce.SalesforceIdArray;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforcePartnerConnectionPool;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Retrieves records of an SObject by Id with SOAP API retrieve calls, which run in background.
+ * <p/>
+ * Ids are submitted in partitions of up to {@link SalesforceSourceConstants#WIDE_QUERY_MAX_BATCH_COUNT} Ids, and
+ * records of a partition can be taken as soon as it is retrieved. At most the configured number of partitions
+ * are being retrieved or waiting to be taken at the same time. Partitions are retrieved by a dedicated pool of
+ * the configured number of threads, each call uses one of a pool of SOAP connections of the same size.
+ * Records deleted before they were retrieved are skipped.
+ */
+public class SalesforceRecordRetriever implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceRecordRetriever.class);
+
+  private final SObjectDescriptor sObjectDescriptor;
+  private final SoapRecordToMapTransformer transformer;
+  private final String fields;
+  private final int maxInFlightPartitions;
+  private final SalesforcePartnerConnectionPool connectionPool;
+  private final ExecutorService executor;
+  private final CompletionService<List<Map<String, ?>>> completionService;
+  private final Set<Future<List<Map<String, ?>>>> inFlightPartitions = new HashSet<>();
+
+  /**
+   * @param sObjectDescriptor     SObject and fields to retrieve
+   * @param transformer           transforms retrieved records
+   * @param maxInFlightPartitions maximum number of partitions being retrieved or waiting to be taken
+   * @param retrieveThreads       number of concurrent retrieve calls
+   * @param partnerConnection     SOAP connection, which is used by the first retrieve thread
+   * @param connectionFactory     creates SOAP connections for other retrieve threads
+   * @param threadNameFormat      name format of retrieve threads
+   */
+  public SalesforceRecordRetriever(SObjectDescriptor sObjectDescriptor, SoapRecordToMapTransformer transformer,
+                                   int maxInFlightPartitions, int retrieveThreads,
+                                   PartnerConnection partnerConnection,
+                                   SalesforcePartnerConnectionPool.ConnectionFactory connectionFactory,
+                                   String threadNameFormat) {
+    this.sObjectDescriptor = sObjectDescriptor;
+    this.transformer = transformer;
+    this.fields = String.join(",", sObjectDescriptor.getFieldsNames());
+    this.maxInFlightPartitions = Math.max(1, maxInFlightPartitions);
+    // more threads than partitions in flight would never be used
+    int threads = Math.min(this.maxInFlightPartitions,
+                           Math.max(1, Math.min(SalesforceSourceConstants.MAX_WIDE_QUERY_RETRIEVE_THREADS,
+                                                retrieveThreads)));
+    this.connectionPool = new SalesforcePartnerConnectionPool(threads, connectionFactory).add(partnerConnection);
+    this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat(threadNameFormat)
+      .setDaemon(true)
+      .build());
+    this.completionService = new ExecutorCompletionService<>(executor);
+    LOG.debug("Retrieving SObject '{}' with {} threads and up to {} partitions in flight",
+              sObjectDescriptor.getName(), threads, this.maxInFlightPartitions);
+  }
+
+  /**
+   * @return true if another partition can be submitted without exceeding the limit of partitions in flight
+   */
+  public boolean canSubmit() {
+    return inFlightPartitions.size() < maxInFlightPartitions;
+  }
+
+  /**
+   * @return true if there are partitions being retrieved or waiting to be taken
+   */
+  public boolean hasInFlightPartitions() {
+    return !inFlightPartitions.isEmpty();
+  }
+
+  /**
+   * Submits Ids for retrieval in background.
+   *
+   * @param sObjectIds Ids of the partition
+   */
+  public void submit(SalesforceIdArray sObjectIds) {
+    inFlightPartitions.add(completionService.submit(() -> fetchPartition(sObjectIds)));
+  }
+
+  /**
+   * Waits for any partition in flight to be retrieved.
+   *
+   * @return transformed records of the partition
+   */
+  public List<Map<String, ?>> take() throws IOException {
+    try {
+      Future<List<Map<String, ?>>> future = completionService.take();
+      inFlightPartitions.remove(future);
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+        String.format("Interrupted while retrieving records of SObject '%s'", sObjectDescriptor.getName()));
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(
+        String.format("Failed to retrieve records of SObject '%s'", sObjectDescriptor.getName()), cause);
+    }
+  }
+
+  @Override
+  public void close() {
+    inFlightPartitions.forEach(future -> future.cancel(true));
+    inFlightPartitions.clear();
+    executor.shutdownNow();
+  }
+
+  /**
+   * Fetches records through SOAP API.
+   *
+   * @param sObjectIds SObject ids to be fetched
+   * @return transformed records
+   */
+  private List<Map<String, ?>> fetchPartition(SalesforceIdArray sObjectIds) throws InterruptedException {
+    String sObjectName = sObjectDescriptor.getName();
+    PartnerConnection partnerConnection = null;
+    try {
+      partnerConnection = connectionPool.borrow();
+      SObject[] sObjects = partnerConnection.retrieve(fields, sObjectName, sObjectIds.toArray());
+      // retrieve returns null for records which no longer exist
+      return Arrays.stream(sObjects)
+        .filter(Objects::nonNull)
+        .map(sObject -> transformer.transformToMap(sObject, sObjectDescriptor))
+        .collect(Collectors.toList());
+    } catch (ConnectionException e) {
+      LOG.trace("Fetched SObject name: '{}', fields: '{}', Ids: '{}'", sObjectName, fields,
+                String.join(",", sObjectIds));
+      String errorMessage = SalesforceConnectionUtil.getSalesforceErrorMessageFromException(e);
+      throw new RuntimeException(
+        String.format("Failed to retrieve data for SObject '%s': %s",
+                      sObjectName, errorMessage),
+        e);
+    } finally {
+      if (partnerConnection != null) {
+        connectionPool.release(partnerConnection);
+      }
+    }
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.sforce.soap.partner.DeletedRecord;
+import com.sforce.soap.partner.GetDeletedResult;
+import com.sforce.soap.partner.GetUpdatedResult;
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.ws.ConnectionException;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.salesforce.SObjectDescriptor;
+import io.cdap.plugin.salesforce.SalesforceConnectionUtil;
+import io.cdap.plugin.salesforce.SalesforceIdArray;
+import io.cdap.plugin.salesforce.authenticator.AuthenticatorCredentials;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforcePartnerConnectionPool;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import javax.annotation.Nullable;
+
+/**
+ * RecordReader implementation for the replication mode. Lists Ids of SObject records updated and deleted in
+ * the time window of the split with `getUpdated` and `getDeleted` calls of SOAP API.
+ * <p/>
+ * Updated records are retrieved in parallel partitions by {@link SalesforceRecordRetriever} and returned with
+ * the `UPSERT` operation, followed by a record with only the `Id` and the `DELETE` operation for each deleted
+ * record. Updated records, which are deleted before they are retrieved, are only returned as deleted records.
+ * <p/>
+ * Changes of transactions running at the end of the window are listed by the next window, which overlaps
+ * this one. A warning is logged if the changes are listed only up to a time before the overlap.
+ */
+public class SalesforceReplicationRecordReader extends RecordReader<Schema, Map<String, ?>> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceReplicationRecordReader.class);
+  private static final String FIELD_ID = "Id";
+
+  private final Schema schema;
+  private final SoapRecordToMapTransformer transformer;
+
+  private int maxInFlightPartitions = SalesforceSourceConstants.DEFAULT_WIDE_QUERY_MAX_IN_FLIGHT;
+  private int retrieveThreads = SalesforceSourceConstants.DEFAULT_WIDE_QUERY_RETRIEVE_THREADS;
+  private SalesforceRecordRetriever retriever;
+  private String[] updatedIds;
+  private int updatedIdsSubmitted;
+  private DeletedRecord[] deletedRecords;
+  private int deletedRecordsRead;
+  private long updatedRecordsRead;
+  private long uncoveredMillis;
+
+  private List<Map<String, ?>> results;
+  private Map<String, ?> value;
+  private int index;
+
+  public SalesforceReplicationRecordReader(Schema schema, SoapRecordToMapTransformer transformer) {
+    this.schema = schema;
+    this.transformer = transformer;
+  }
+
+  @Override
+  public void initialize(InputSplit inputSplit, TaskAttemptContext taskAttemptContext) {
+    Configuration conf = taskAttemptContext.getConfiguration();
+    maxInFlightPartitions = conf.getInt(SalesforceSourceConstants.CONFIG_WIDE_QUERY_MAX_IN_FLIGHT,
+                                        SalesforceSourceConstants.DEFAULT_WIDE_QUERY_MAX_IN_FLIGHT);
+    retrieveThreads = conf.getInt(SalesforceSourceConstants.CONFIG_WIDE_QUERY_RETRIEVE_THREADS,
+                                  SalesforceSourceConstants.DEFAULT_WIDE_QUERY_RETRIEVE_THREADS);
+    AuthenticatorCredentials credentials = SalesforceConnectionUtil.getAuthenticatorCredentials(conf);
+    initialize(inputSplit, credentials);
+  }
+
+  public SalesforceReplicationRecordReader initialize(InputSplit inputSplit, AuthenticatorCredentials credentials) {
+    SalesforceSplit split = (SalesforceSplit) inputSplit;
+    try {
+      return initialize(split, SalesforceConnectionUtil.getPartnerConnection(credentials),
+                        () -> SalesforceConnectionUtil.getPartnerConnection(credentials));
+    } catch (ConnectionException e) {
+      String errorMessage = SalesforceConnectionUtil.getSalesforceErrorMessageFromException(e);
+      throw new RuntimeException(
+        String.format("Failed to get updated and deleted records for query %s: %s", split.getQuery(), errorMessage),
+        e);
+    }
+  }
+
+  /**
+   * Lists updated and deleted records of the split time window and prepares retrieval of updated records.
+   *
+   * @param split             replication split
+   * @param partnerConnection SOAP connection, which is used to list records and by the first retrieve thread
+   * @param connectionFactory creates SOAP connections for other retrieve threads
+   * @return this reader
+   */
+  @VisibleForTesting
+  SalesforceReplicationRecordReader initialize(SalesforceSplit split, PartnerConnection partnerConnection,
+                                               SalesforcePartnerConnectionPool.ConnectionFactory connectionFactory)
+    throws ConnectionException {
+    SObjectDescriptor sObjectDescriptor = SObjectDescriptor.fromQuery(split.getQuery());
+    String sObjectName = sObjectDescriptor.getName();
+    Calendar startTime = toCalendar(split.getReplicationStartTime());
+    Calendar endTime = toCalendar(split.getReplicationEndTime());
+
+    GetUpdatedResult updatedResult = partnerConnection.getUpdated(sObjectName, startTime, endTime);
+    updatedIds = updatedResult.getIds() == null ? new String[0] : updatedResult.getIds();
+    GetDeletedResult deletedResult = partnerConnection.getDeleted(sObjectName, startTime, endTime);
+    deletedRecords = deletedResult.getDeletedRecords() == null
+      ? new DeletedRecord[0] : deletedResult.getDeletedRecords();
+    LOG.debug("SObject '{}' has {} updated and {} deleted records between '{}' and '{}'", sObjectName,
+              updatedIds.length, deletedRecords.length, startTime.toInstant(), endTime.toInstant());
+    uncoveredMillis = Math.max(getUncoveredMillis(updatedResult.getLatestDateCovered(), endTime),
+                               getUncoveredMillis(deletedResult.getLatestDateCovered(), endTime));
+    if (uncoveredMillis > 0) {
+      LOG.warn("Changes of SObject '{}' before '{}' are listed only up to '{}', changes of transactions running " +
+                 "in between may be missed.", sObjectName, endTime.toInstant(),
+               endTime.toInstant().minusMillis(
+                 uncoveredMillis + SalesforceSourceConstants.REPLICATION_WINDOW_OVERLAP_MILLIS));
+    }
+
+    retriever = new SalesforceRecordRetriever(sObjectDescriptor, transformer, maxInFlightPartitions,
+                                              retrieveThreads, partnerConnection, connectionFactory,
+                                              "salesforce-replication-retrieve-%d");
+    return this;
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    while (results == null || results.size() == index) {
+      results = null;
+      submitPartitions();
+      if (!retriever.hasInFlightPartitions()) {
+        break;
+      }
+      results = retriever.take();
+      index = 0;
+    }
+    if (results != null) {
+      value = withOperation(results.get(index++), SalesforceSourceConstants.REPLICATION_OPERATION_UPSERT);
+      updatedRecordsRead++;
+      return true;
+    }
+    if (deletedRecordsRead < deletedRecords.length) {
+      Map<String, Object> deletedRecord = new HashMap<>();
+      deletedRecord.put(FIELD_ID, deletedRecords[deletedRecordsRead++].getId());
+      deletedRecord.put(SalesforceSourceConstants.REPLICATION_OPERATION_FIELD,
+                        SalesforceSourceConstants.REPLICATION_OPERATION_DELETE);
+      value = deletedRecord;
+      return true;
+    }
+    LOG.debug("Number of replicated records: {} updated, {} deleted", updatedRecordsRead, deletedRecordsRead);
+    return false;
+  }
+
+  @Override
+  public Schema getCurrentKey() {
+    return schema;
+  }
+
+  @Override
+  public Map<String, ?> getCurrentValue() {
+    return value;
+  }
+
+  /**
+   * Returns share of the updated Ids submitted for retrieval and deleted records returned.
+   */
+  @Override
+  public float getProgress() {
+    int total = updatedIds.length + deletedRecords.length;
+    return total == 0 ? 1.0f : (float) (updatedIdsSubmitted + deletedRecordsRead) / total;
+  }
+
+  /**
+   * @return time before the end of the window, which is not listed by this split nor by the overlap of the next one
+   */
+  @VisibleForTesting
+  long getUncoveredMillis() {
+    return uncoveredMillis;
+  }
+
+  @Override
+  public void close() {
+    if (retriever != null) {
+      retriever.close();
+      retriever = null;
+    }
+  }
+
+  /**
+   * Submits updated Ids for retrieval until the limit of partitions in flight is reached or all Ids are submitted.
+   */
+  private void submitPartitions() {
+    while (updatedIdsSubmitted < updatedIds.length && retriever.canSubmit()) {
+      int end = Math.min(updatedIds.length, updatedIdsSubmitted + SalesforceSourceConstants.WIDE_QUERY_MAX_BATCH_COUNT);
+      SalesforceIdArray sObjectIds = new SalesforceIdArray(end - updatedIdsSubmitted);
+      for (int i = updatedIdsSubmitted; i < end; i++) {
+        sObjectIds.add(updatedIds[i]);
+      }
+      retriever.submit(sObjectIds);
+      updatedIdsSubmitted = end;
+    }
+  }
+
+  private static Map<String, ?> withOperation(Map<String, ?> record, String operation) {
+    if (record instanceof SalesforceRow) {
+      return ((SalesforceRow) record).withColumn(SalesforceSourceConstants.REPLICATION_OPERATION_FIELD, operation);
+    }
+    Map<String, Object> updatedRecord = new HashMap<>(record);
+    updatedRecord.put(SalesforceSourceConstants.REPLICATION_OPERATION_FIELD, operation);
+    return updatedRecord;
+  }
+
+  private static long getUncoveredMillis(@Nullable Calendar latestDateCovered, Calendar endTime) {
+    if (latestDateCovered == null) {
+      return 0;
+    }
+    long overlapStart = endTime.getTimeInMillis() - SalesforceSourceConstants.REPLICATION_WINDOW_OVERLAP_MILLIS;
+    return Math.max(0, overlapStart - latestDateCovered.getTimeInMillis());
+  }
+
+  private static Calendar toCalendar(long timeInMillis) {
+    Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    calendar.setTimeInMillis(timeInMillis);
+    return calendar;
+  }
+}
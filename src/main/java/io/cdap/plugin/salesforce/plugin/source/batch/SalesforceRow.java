@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable positional row produced by record readers. Values are kept in an array in the order of the
+ * columns of the row {@link Layout}, which is shared by all rows read by the same reader.
+ * <p/>
+ * Row implements {@link Map} keyed by column name, so it can be consumed as any other record value,
+ * while {@link MapToRecordTransformer} converts it to a record by column index.
+ */
+public final class SalesforceRow extends AbstractMap<String, Object> {
+
+  private final Layout layout;
+  private final Object[] values;
+
+  /**
+   * @param layout row columns
+   * @param values column values, may contain less values than there are columns in the layout
+   */
+  public SalesforceRow(Layout layout, Object[] values) {
+    this.layout = layout;
+    this.values = values;
+  }
+
+  public Layout getLayout() {
+    return layout;
+  }
+
+  /**
+   * @param index column index
+   * @return value of the column with the given index
+   */
+  @Nullable
+  public Object get(int index) {
+    return values[index];
+  }
+
+  /**
+   * Returns row with an additional column appended after the columns of this row.
+   *
+   * @param name  name of the added column
+   * @param value value of the added column
+   * @return new row which shares the layout with all rows extended with the same column,
+   *   if the column already exists its value is replaced
+   */
+  public SalesforceRow withColumn(String name, Object value) {
+    int existing = layout.indexOf(name);
+    if (existing >= 0) {
+      Object[] updatedValues = Arrays.copyOf(values, Math.max(values.length, existing + 1));
+      updatedValues[existing] = value;
+      return new SalesforceRow(layout, updatedValues);
+    }
+    Object[] extendedValues = Arrays.copyOf(values, layout.size() + 1);
+    extendedValues[layout.size()] = value;
+    return new SalesforceRow(layout.withColumn(name), extendedValues);
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    int index = layout.indexOf(key);
+    return index >= 0 && index < values.length;
+  }
+
+  @Nullable
+  @Override
+  public Object get(Object key) {
+    int index = layout.indexOf(key);
+    return index < 0 || index >= values.length ? null : values[index];
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return new AbstractSet<Entry<String, Object>>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new Iterator<Entry<String, Object>>() {
+          private int index;
+
+          @Override
+          public boolean hasNext() {
+            return index < values.length;
+          }
+
+          @Override
+          public Entry<String, Object> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Entry<String, Object> entry = new SimpleImmutableEntry<>(layout.getName(index), values[index]);
+            index++;
+            return entry;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return values.length;
+      }
+    };
+  }
+
+  /**
+   * Ordered column names of a row with index by column name.
+   */
+  public static final class Layout {
+
+    private final String[] names;
+    private final Map<String, Integer> index;
+    private Layout extended;
+
+    private Layout(String[] names, Map<String, Integer> index) {
+      this.names = names;
+      this.index = index;
+    }
+
+    /**
+     * Creates layout for the given column names.
+     *
+     * @param names column names
+     * @return row layout
+     * @throws IllegalArgumentException if column names are not unique
+     */
+    public static Layout of(List<String> names) {
+      Map<String, Integer> index = new HashMap<>(names.size() * 2);
+      for (int i = 0; i < names.size(); i++) {
+        if (index.put(names.get(i), i) != null) {
+          throw new IllegalArgumentException(
+            String.format("Duplicate column name '%s'", names.get(i)));
+        }
+      }
+      return new Layout(names.toArray(new String[0]), index);
+    }
+
+    public int size() {
+      return names.length;
+    }
+
+    public String getName(int index) {
+      return names[index];
+    }
+
+    /**
+     * @param name column name
+     * @return column index or -1 if there is no column with the given name
+     */
+    public int indexOf(Object name) {
+      Integer position = index.get(name);
+      return position == null ? -1 : position;
+    }
+
+    /**
+     * Returns layout with the given column appended. The last returned layout is reused when
+     * the same column is appended again, so rows extended with the same column share their layout.
+     */
+    Layout withColumn(String name) {
+      Layout current = extended;
+      if (current != null && current.size() == names.length + 1 && current.names[names.length].equals(name)) {
+        return current;
+      }
+      String[] extendedNames = Arrays.copyOf(names, names.length + 1);
+      extendedNames[names.length] = name;
+      current = Layout.of(Arrays.asList(extendedNames));
+      extended = current;
+      return current;
+    }
+  }
+}
@@ -15,6 +15,8 @@
  */
 package io.cdap.plugin.salesforce.plugin.source.batch;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sforce.soap.partner.PartnerConnection;
 import com.sforce.soap.partner.QueryResult;
 import com.sforce.soap.partner.sobject.SObject;
@@ -23,6 +25,7 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.salesforce.SObjectDescriptor;
 import io.cdap.plugin.salesforce.SalesforceConnectionUtil;
 import io.cdap.plugin.salesforce.authenticator.AuthenticatorCredentials;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
@@ -31,11 +34,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * RecordReader implementation for SOQL queries with restricted field types (function calls, sub-query fields) or
  * GROUP BY [ROLLUP / CUBE], OFFSET clauses. Reads Salesforce query and makes SOAP calls to retrieve all values.
+ * <p/>
+ * The next page of query results is fetched with {@link PartnerConnection#queryMore(String)} on a background
+ * thread while the records of the current page are read, so that page boundaries do not stall the reader for
+ * a full SOAP round trip.
  */
 public class SalesforceSoapRecordReader extends RecordReader<Schema, Map<String, ?>> {
 
@@ -44,11 +56,16 @@ public class SalesforceSoapRecordReader extends RecordReader<Schema, Map<String,
   private final Schema schema;
   private final String query;
   private final SoapRecordToMapTransformer transformer;
+  private int batchSize = SalesforceSourceConstants.DEFAULT_SOAP_QUERY_BATCH_SIZE;
   private SObjectDescriptor sObjectDescriptor;
   private PartnerConnection partnerConnection;
+  private ExecutorService executor;
   private QueryResult queryResult;
+  private Future<QueryResult> nextQueryResult;
   private SObject[] sObjects;
   private int index;
+  private int totalRecords;
+  private long recordsRead;
 
   private Map<String, ?> value;
 
@@ -67,18 +84,15 @@ public class SalesforceSoapRecordReader extends RecordReader<Schema, Map<String,
   @Override
   public void initialize(InputSplit inputSplit, TaskAttemptContext taskAttemptContext) {
     Configuration conf = taskAttemptContext.getConfiguration();
+    batchSize = conf.getInt(SalesforceSourceConstants.CONFIG_SOAP_QUERY_BATCH_SIZE,
+                            SalesforceSourceConstants.DEFAULT_SOAP_QUERY_BATCH_SIZE);
     AuthenticatorCredentials credentials = SalesforceConnectionUtil.getAuthenticatorCredentials(conf);
     initialize(credentials);
   }
 
   public SalesforceSoapRecordReader initialize(AuthenticatorCredentials credentials) {
-    LOG.debug("Executing Salesforce SOAP query: '{}'", query);
-
     try {
-      partnerConnection = SalesforceConnectionUtil.getPartnerConnection(credentials);
-      sObjectDescriptor = SObjectDescriptor.fromQuery(query);
-      queryResult = partnerConnection.query(query);
-      return this;
+      return initialize(SalesforceConnectionUtil.getPartnerConnection(credentials));
     } catch (ConnectionException e) {
       String errorMessage = SalesforceConnectionUtil.getSalesforceErrorMessageFromException(e);
       throw new RuntimeException(
@@ -89,6 +103,26 @@ public class SalesforceSoapRecordReader extends RecordReader<Schema, Map<String,
     }
   }
 
+  @VisibleForTesting
+  SalesforceSoapRecordReader initialize(PartnerConnection partnerConnection) throws ConnectionException {
+    LOG.debug("Executing Salesforce SOAP query: '{}'", query);
+    this.partnerConnection = partnerConnection;
+    // Salesforce accepts batch sizes between 200 and 2000 records and may return smaller pages for wide objects
+    partnerConnection.setQueryOptions(Math.max(SalesforceSourceConstants.MIN_SOAP_QUERY_BATCH_SIZE,
+                                               Math.min(SalesforceSourceConstants.MAX_SOAP_QUERY_BATCH_SIZE,
+                                                        batchSize)));
+    sObjectDescriptor = SObjectDescriptor.fromQuery(query);
+    queryResult = partnerConnection.query(query);
+    totalRecords = queryResult.getSize();
+    // created once the query succeeds, the reader is not closed if initialization fails
+    executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("salesforce-soap-query-prefetch-%d")
+      .setDaemon(true)
+      .build());
+    prefetchNextPage();
+    return this;
+  }
+
   /**
    * Reads single record from query results.
    * Fetches more records if available.
@@ -97,17 +131,13 @@ public class SalesforceSoapRecordReader extends RecordReader<Schema, Map<String,
    */
   @Override
   public boolean nextKeyValue() throws IOException {
-    if (readValue()) {
-      return true;
+    while (!readValue()) {
+      if (queryResult.isDone()) {
+        return false;
+      }
+      queryMore();
     }
-
-    if (queryResult.isDone()) {
-      return false;
-    }
-
-    queryMore();
-    return readValue();
-
+    return true;
   }
 
   @Override
@@ -120,14 +150,27 @@ public class SalesforceSoapRecordReader extends RecordReader<Schema, Map<String,
     return value;
   }
 
+  /**
+   * Returns share of the query records read so far, based on the total number of records reported by the query.
+   */
   @Override
   public float getProgress() {
-    return 0.0f;
+    if (totalRecords <= 0) {
+      return queryResult != null && queryResult.isDone() && sObjects != null && index >= sObjects.length ? 1.0f : 0.0f;
+    }
+    return Math.min(1.0f, (float) recordsRead / totalRecords);
   }
 
   @Override
   public void close() {
-    // no-op
+    if (nextQueryResult != null) {
+      nextQueryResult.cancel(true);
+      nextQueryResult = null;
+    }
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
   }
 
   private boolean readValue() {
@@ -137,19 +180,38 @@ public class SalesforceSoapRecordReader extends RecordReader<Schema, Map<String,
     }
     if (sObjects.length > index) {
       value = transformer.transformToMap(sObjects[index++], sObjectDescriptor);
+      recordsRead++;
       return true;
     }
     return false;
   }
 
+  /**
+   * Starts fetching the page following the current one on the background thread, if there is one.
+   */
+  private void prefetchNextPage() {
+    if (queryResult.isDone()) {
+      return;
+    }
+    String queryLocator = queryResult.getQueryLocator();
+    nextQueryResult = executor.submit(() -> partnerConnection.queryMore(queryLocator));
+  }
+
   private void queryMore() throws IOException {
     try {
       sObjects = null;
-      queryResult = partnerConnection.queryMore(queryResult.getQueryLocator());
-    } catch (ConnectionException e) {
-      String errorMessage = SalesforceConnectionUtil.getSalesforceErrorMessageFromException(e);
+      queryResult = nextQueryResult.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(String.format("Interrupted while waiting for records of query locator: '%s'",
+                                                     queryResult.getQueryLocator()));
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      String errorMessage = cause instanceof Exception
+        ? SalesforceConnectionUtil.getSalesforceErrorMessageFromException((Exception) cause) : cause.getMessage();
       throw new IOException(String.format("Cannot create Salesforce SOAP connection for query locator: '%s' :%s",
-                                          queryResult.getQueryLocator(), errorMessage), e);
+                                          queryResult.getQueryLocator(), errorMessage), cause);
     }
+    prefetchNextPage();
   }
 }
@@ -38,8 +38,11 @@ import io.cdap.plugin.salesforce.plugin.OAuthInfo;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
 
 import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -88,6 +91,54 @@ public class SalesforceSourceConfig extends SalesforceBaseSourceConfig {
   @Description("Parent of the Salesforce Object. This is used to enable chunking for history tables or shared objects.")
   private final String parent;
 
+  @Name(SalesforceSourceConstants.PROPERTY_ID_RANGE_CHUNK_ENABLE_NAME)
+  @Macro
+  @Nullable
+  @Description("Id Range Chunking splits query into chunks based on the record IDs on the client side. " +
+    "Unlike PK Chunking, it is supported for all queryable objects.")
+  private Boolean enableIdRangeChunk;
+
+  @Name(SalesforceSourceConstants.PROPERTY_TIME_RANGE_SPLIT_SIZE)
+  @Macro
+  @Nullable
+  @Description("Approximate number of records in each split when the SObject query is filtered by " +
+    "Last Modified After, Last Modified Before, Duration or Offset. The time window is divided into time ranges " +
+    "with approximately this number of records based on number of records modified on each day. " +
+    "If not set, the time window is not divided.")
+  private Integer timeRangeSplitSize;
+
+  @Name(SalesforceSourceConstants.PROPERTY_SPLIT_WIDE_QUERY_BY_FIELDS)
+  @Macro
+  @Nullable
+  @Description("Whether to read a query that exceeds the SOQL length limit with multiple Bulk API queries, " +
+    "each with a group of the fields, which are joined by record Id. If disabled, records of such query " +
+    "are retrieved with SOAP API calls. Default is false.")
+  private Boolean splitWideQueryByFields;
+
+  @Name(SalesforceSourceConstants.PROPERTY_BULK_API_VERSION)
+  @Macro
+  @Nullable
+  @Description("Version of the Salesforce Bulk API used to run the query. Bulk API 2.0 chunks the query on the " +
+    "server side and returns the results in pages, which are read by a single task. Enable Id Range Chunking or " +
+    "set Time Range Split Size to run a query job per range and read the ranges in parallel. Default is 1.0.")
+  private String bulkApiVersion;
+
+  @Name(SalesforceSourceConstants.PROPERTY_MAX_RECORDS_PER_PAGE)
+  @Macro
+  @Nullable
+  @Description("Maximum number of records in a Bulk API 2.0 result page. " +
+    "If not set, the page size is chosen by Salesforce.")
+  private Integer maxRecordsPerPage;
+
+  @Name(SalesforceSourceConstants.PROPERTY_REPLICATION_MODE)
+  @Macro
+  @Nullable
+  @Description("Whether to read records of the SObject updated or deleted in the time window of Last Modified " +
+    "After, Last Modified Before or Duration with the replication API. Each record has an additional " +
+    "'_operation' field with the value 'UPSERT' or 'DELETE'. Records of deleted SObjects have only the Id. " +
+    "Default is false.")
+  private Boolean replicationMode;
+
   public SalesforceSourceConfig(String referenceName,
                                 @Nullable String consumerKey,
                                 @Nullable String consumerSecret,
@@ -169,6 +220,13 @@ public class SalesforceSourceConfig extends SalesforceBaseSourceConfig {
   }
 
   public void validate(FailureCollector collector, @Nullable OAuthInfo oAuthInfo) {
+    validate(collector, oAuthInfo, System.currentTimeMillis());
+  }
+
+  /**
+   * @param logicalStartTime application start time, the time window of the replication mode is validated against it
+   */
+  public void validate(FailureCollector collector, @Nullable OAuthInfo oAuthInfo, long logicalStartTime) {
     this.getConnection().validate(collector, oAuthInfo);
     if (!containsMacro(SalesforceSourceConstants.PROPERTY_QUERY) && !Strings.isNullOrEmpty(query)) {
       if (!SalesforceQueryUtil.isQueryUnderLengthLimit(query) && SalesforceQueryParser.isRestrictedQuery(query)) {
@@ -206,6 +264,13 @@ public class SalesforceSourceConfig extends SalesforceBaseSourceConfig {
     }
     validateSchema(collector);
     validatePKChunk(collector, oAuthInfo);
+    validateIdRangeChunk(collector);
+    validateTimeRangeSplitSize(collector);
+    validateSplitWideQueryByFields(collector);
+    validateIncremental(collector);
+    validateReaderProperties(collector);
+    validateBulkApiVersion(collector);
+    validateReplicationMode(collector, logicalStartTime);
   }
 
   private void validateSchema(FailureCollector collector) {
@@ -309,6 +374,140 @@ public class SalesforceSourceConfig extends SalesforceBaseSourceConfig {
     }
   }
 
+  private void validateIdRangeChunk(FailureCollector collector) {
+    if (containsMacro(SalesforceSourceConstants.PROPERTY_ID_RANGE_CHUNK_ENABLE_NAME) || !getEnableIdRangeChunk()) {
+      return;
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_PK_CHUNK_ENABLE_NAME) && getEnablePKChunk()) {
+      collector.addFailure("Id Range Chunking cannot be enabled together with PK Chunking.",
+                           "Enable only one of PK Chunking and Id Range Chunking.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_ID_RANGE_CHUNK_ENABLE_NAME);
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_QUERY) && !Strings.isNullOrEmpty(query)
+      && SalesforceQueryParser.isRestrictedPKQuery(query)) {
+      collector.addFailure(
+          String.format("SOQL Query contains restricted clauses when Id Range Chunk is Enabled. " +
+                          "Unsupported query: '%s'.", query),
+          "Set Enable Id Range Chunk to false, because 'WHERE' is the only supported conditions clause.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_QUERY);
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_CHUNK_SIZE_NAME)
+      && getChunkSize() < SalesforceSourceConstants.MIN_PK_CHUNK_SIZE) {
+      collector.addFailure(
+          String.format("Chunk Size %d is lower than minimum allowed size '%d'.", getChunkSize(),
+                        SalesforceSourceConstants.MIN_PK_CHUNK_SIZE), null)
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_CHUNK_SIZE_NAME);
+    }
+  }
+
+  private void validateTimeRangeSplitSize(FailureCollector collector) {
+    if (containsMacro(SalesforceSourceConstants.PROPERTY_TIME_RANGE_SPLIT_SIZE) || timeRangeSplitSize == null) {
+      return;
+    }
+    if (timeRangeSplitSize <= 0) {
+      collector.addFailure(String.format("Time Range Split Size '%d' must be greater than 0.", timeRangeSplitSize),
+                           null)
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_TIME_RANGE_SPLIT_SIZE);
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_PK_CHUNK_ENABLE_NAME) && getEnablePKChunk()) {
+      collector.addFailure("Time Range Split Size cannot be set when PK Chunking is enabled.",
+                           "Either disable PK Chunking or remove Time Range Split Size.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_TIME_RANGE_SPLIT_SIZE);
+    }
+  }
+
+  private void validateSplitWideQueryByFields(FailureCollector collector) {
+    if (containsMacro(SalesforceSourceConstants.PROPERTY_SPLIT_WIDE_QUERY_BY_FIELDS) || !isSplitWideQueryByFields()) {
+      return;
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_PK_CHUNK_ENABLE_NAME) && getEnablePKChunk()) {
+      collector.addFailure("Wide queries cannot be split by fields when PK Chunking is enabled.",
+                           "Use Id Range Chunking instead of PK Chunking.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_SPLIT_WIDE_QUERY_BY_FIELDS);
+    }
+  }
+
+  private void validateReplicationMode(FailureCollector collector, long logicalStartTime) {
+    if (containsMacro(SalesforceSourceConstants.PROPERTY_REPLICATION_MODE) || !isReplicationMode()) {
+      return;
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_QUERY) && !Strings.isNullOrEmpty(query)) {
+      collector.addFailure("Replication mode cannot be used with a SOQL query.",
+                           "Specify the SObject name instead of the SOQL query.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_REPLICATION_MODE);
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_INCREMENTAL) && isIncremental()) {
+      collector.addFailure("Replication mode cannot be used with the incremental mode.",
+                           "Disable either replication or incremental mode.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_REPLICATION_MODE);
+    }
+    if (containsMacro(SalesforceSourceConstants.PROPERTY_DATETIME_AFTER)
+      || containsMacro(SalesforceSourceConstants.PROPERTY_DURATION)) {
+      return;
+    }
+    boolean hasDuration;
+    try {
+      hasDuration = !getDuration().isEmpty();
+    } catch (InvalidConfigException e) {
+      // invalid duration is reported by the filter validation
+      return;
+    }
+    if (Strings.isNullOrEmpty(getDatetimeAfter()) && !hasDuration) {
+      collector.addFailure("Replication mode requires the start of the time window.",
+                           "Set Last Modified After or Duration.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_REPLICATION_MODE);
+      return;
+    }
+    if (containsMacro(SalesforceSourceConstants.PROPERTY_DATETIME_BEFORE)
+      || containsMacro(SalesforceSourceConstants.PROPERTY_OFFSET)) {
+      return;
+    }
+    ZonedDateTime startTime;
+    try {
+      startTime = getSObjectFilterDescriptor(logicalStartTime).getStartTime();
+    } catch (InvalidConfigException | DateTimeParseException e) {
+      // invalid filters are reported by the filter validation
+      return;
+    }
+    long oldestStartTime = logicalStartTime - SalesforceSourceConstants.REPLICATION_MAX_AGE_MILLIS;
+    if (startTime != null && startTime.toInstant().toEpochMilli() < oldestStartTime) {
+      collector.addFailure(
+          String.format("Start of the time window '%s' is more than %d days before the start of the pipeline.",
+                        startTime, TimeUnit.MILLISECONDS.toDays(SalesforceSourceConstants.REPLICATION_MAX_AGE_MILLIS)),
+          "Replication API only returns changes of the last 30 days, read older records without replication mode.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_REPLICATION_MODE);
+    }
+  }
+
+  private void validateBulkApiVersion(FailureCollector collector) {
+    if (containsMacro(SalesforceSourceConstants.PROPERTY_BULK_API_VERSION)) {
+      return;
+    }
+    if (bulkApiVersion != null && !SalesforceSourceConstants.BULK_API_VERSION_1.equals(bulkApiVersion)
+      && !SalesforceSourceConstants.BULK_API_VERSION_2.equals(bulkApiVersion)) {
+      collector.addFailure(String.format("Unsupported Bulk API version '%s'.", bulkApiVersion),
+                           String.format("Supported versions are '%s' and '%s'.",
+                                         SalesforceSourceConstants.BULK_API_VERSION_1,
+                                         SalesforceSourceConstants.BULK_API_VERSION_2))
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_BULK_API_VERSION);
+      return;
+    }
+    if (!isBulkApiV2()) {
+      return;
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_PK_CHUNK_ENABLE_NAME) && getEnablePKChunk()) {
+      collector.addFailure("PK Chunking cannot be enabled with Bulk API 2.0.",
+                           "Disable PK Chunking, Bulk API 2.0 chunks large queries automatically.")
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_PK_CHUNK_ENABLE_NAME);
+    }
+    if (!containsMacro(SalesforceSourceConstants.PROPERTY_MAX_RECORDS_PER_PAGE)
+      && maxRecordsPerPage != null && maxRecordsPerPage <= 0) {
+      collector.addFailure(String.format("Max Records Per Page '%d' must be greater than 0.", maxRecordsPerPage),
+                           null)
+        .withConfigProperty(SalesforceSourceConstants.PROPERTY_MAX_RECORDS_PER_PAGE);
+    }
+  }
+
   private void checkForPKSupportedObject(String sObject, FailureCollector collector, @Nullable OAuthInfo oAuthInfo) {
     if (oAuthInfo != null) {
       if (!isCustomObject(sObject, collector, oAuthInfo)) {
@@ -331,6 +530,36 @@ public class SalesforceSourceConfig extends SalesforceBaseSourceConfig {
     return chunkSize == null ? SalesforceSourceConstants.DEFAULT_PK_CHUNK_SIZE : chunkSize;
   }
 
+  public boolean getEnableIdRangeChunk() {
+    return enableIdRangeChunk != null && enableIdRangeChunk;
+  }
+
+  /**
+   * @return approximate number of records in a time range split or 0 if the time window is not split
+   */
+  public int getTimeRangeSplitSize() {
+    return timeRangeSplitSize == null ? 0 : timeRangeSplitSize;
+  }
+
+  public boolean isSplitWideQueryByFields() {
+    return splitWideQueryByFields != null && splitWideQueryByFields;
+  }
+
+  public boolean isReplicationMode() {
+    return replicationMode != null && replicationMode;
+  }
+
+  public boolean isBulkApiV2() {
+    return SalesforceSourceConstants.BULK_API_VERSION_2.equals(bulkApiVersion);
+  }
+
+  /**
+   * @return maximum number of records in a Bulk API 2.0 result page or 0 if the page size is chosen by Salesforce
+   */
+  public int getMaxRecordsPerPage() {
+    return maxRecordsPerPage == null ? 0 : maxRecordsPerPage;
+  }
+
   private boolean isCustomObject(String sObjectName, FailureCollector collector, OAuthInfo oAuthInfo) {
     AuthenticatorCredentials credentials = AuthenticatorCredentials.fromParameters(oAuthInfo,
                                                                         this.getConnection().getConnectTimeout(),
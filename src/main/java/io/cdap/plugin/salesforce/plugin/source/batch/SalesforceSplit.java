@@ -23,6 +23,11 @@ import org.apache.hadoop.mapreduce.InputSplit;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * A split used for mapreduce
@@ -31,6 +36,17 @@ public class SalesforceSplit extends InputSplit implements Writable {
   private String jobId;
   private String batchId;
   private String query;
+  private String resultId;
+  private boolean bulkApiV2;
+  private long records;
+  private int maxRecords;
+  private boolean fieldGroups;
+  private String[] fieldGroupJobIds = new String[0];
+  private String[] fieldGroupBatchIds = new String[0];
+  private boolean replication;
+  private long replicationStartTime;
+  private long replicationEndTime;
+  private SalesforceSplit[] packedSplits = new SalesforceSplit[0];
 
   @SuppressWarnings("unused")
   public SalesforceSplit() {
@@ -38,16 +54,118 @@ public class SalesforceSplit extends InputSplit implements Writable {
   }
 
   public SalesforceSplit(String jobId, String batchId, String query) {
+    this(jobId, batchId, query, null);
+  }
+
+  /**
+   * @param resultId id of the single batch result chunk to be read, if null all result chunks of the batch are read
+   */
+  public SalesforceSplit(String jobId, String batchId, String query, @Nullable String resultId) {
     this.jobId = jobId;
     this.batchId = batchId;
     this.query = query;
+    this.resultId = resultId;
+  }
+
+  /**
+   * Creates a split that reads a single result chunk of a completed batch.
+   *
+   * @param records estimated number of records in the result chunk, 0 if unknown
+   */
+  public static SalesforceSplit forResultChunk(String jobId, String batchId, String query, String resultId,
+                                               long records) {
+    SalesforceSplit split = new SalesforceSplit(jobId, batchId, query, resultId);
+    split.records = records;
+    return split;
+  }
+
+  /**
+   * Creates a split that reads all result pages of a completed Bulk API 2.0 query job.
+   *
+   * @param records    number of records returned by the job, -1 if unknown
+   * @param maxRecords maximum number of records in a page, 0 if the page size is chosen by Salesforce
+   */
+  public static SalesforceSplit forQueryJob(String jobId, String query, long records, int maxRecords) {
+    SalesforceSplit split = new SalesforceSplit(jobId, "", query);
+    split.bulkApiV2 = true;
+    split.records = records;
+    split.maxRecords = maxRecords;
+    return split;
+  }
+
+  /**
+   * Creates a split that reads batches of multiple queries of the same records, each with a group of fields
+   * of a wide query. Results of the batches are joined by record Id. A single field group is still read by
+   * field groups, since the query of the split may exceed SOQL length limit even if the field group does not.
+   *
+   * @param query    wide query of the split
+   * @param jobIds   bulk job of each field group
+   * @param batchIds batch of each field group
+   */
+  public static SalesforceSplit forFieldGroups(String query, List<String> jobIds, List<String> batchIds) {
+    SalesforceSplit split = new SalesforceSplit(jobIds.get(0), batchIds.get(0), query);
+    split.fieldGroups = true;
+    split.fieldGroupJobIds = jobIds.subList(1, jobIds.size()).toArray(new String[0]);
+    split.fieldGroupBatchIds = batchIds.subList(1, batchIds.size()).toArray(new String[0]);
+    return split;
+  }
+
+  /**
+   * Creates a split that reads records of the SObject updated or deleted in a time window with replication API.
+   *
+   * @param query     SObject query with fields to read
+   * @param startTime inclusive start of the time window in milliseconds
+   * @param endTime   exclusive end of the time window in milliseconds
+   */
+  public static SalesforceSplit forReplication(String query, long startTime, long endTime) {
+    SalesforceSplit split = new SalesforceSplit("", "", query);
+    split.replication = true;
+    split.replicationStartTime = startTime;
+    split.replicationEndTime = endTime;
+    return split;
+  }
+
+  /**
+   * Creates a split that reads multiple small splits one after another in a single task.
+   *
+   * @param splits splits to be read, each of a single SObject query
+   */
+  public static SalesforceSplit forPackedSplits(List<SalesforceSplit> splits) {
+    SalesforceSplit split = new SalesforceSplit("", "", splits.get(0).getQuery());
+    split.packedSplits = splits.toArray(new SalesforceSplit[0]);
+    return split;
   }
-  
+
   @Override
   public void readFields(DataInput dataInput) throws IOException {
     jobId = dataInput.readUTF();
     batchId = dataInput.readUTF();
     query = dataInput.readUTF();
+    String result = dataInput.readUTF();
+    resultId = result.isEmpty() ? null : result;
+    records = dataInput.readLong();
+    bulkApiV2 = dataInput.readBoolean();
+    if (bulkApiV2) {
+      maxRecords = dataInput.readInt();
+    }
+    fieldGroups = dataInput.readBoolean();
+    int otherFieldGroups = dataInput.readInt();
+    fieldGroupJobIds = new String[otherFieldGroups];
+    fieldGroupBatchIds = new String[otherFieldGroups];
+    for (int i = 0; i < otherFieldGroups; i++) {
+      fieldGroupJobIds[i] = dataInput.readUTF();
+      fieldGroupBatchIds[i] = dataInput.readUTF();
+    }
+    replication = dataInput.readBoolean();
+    if (replication) {
+      replicationStartTime = dataInput.readLong();
+      replicationEndTime = dataInput.readLong();
+    }
+    packedSplits = new SalesforceSplit[dataInput.readInt()];
+    for (int i = 0; i < packedSplits.length; i++) {
+      packedSplits[i] = new SalesforceSplit();
+      packedSplits[i].readFields(dataInput);
+    }
   }
 
   @Override
@@ -55,6 +173,27 @@ public class SalesforceSplit extends InputSplit implements Writable {
     dataOutput.writeUTF(jobId);
     dataOutput.writeUTF(batchId);
     dataOutput.writeUTF(query);
+    dataOutput.writeUTF(resultId == null ? "" : resultId);
+    dataOutput.writeLong(records);
+    dataOutput.writeBoolean(bulkApiV2);
+    if (bulkApiV2) {
+      dataOutput.writeInt(maxRecords);
+    }
+    dataOutput.writeBoolean(fieldGroups);
+    dataOutput.writeInt(fieldGroupJobIds.length);
+    for (int i = 0; i < fieldGroupJobIds.length; i++) {
+      dataOutput.writeUTF(fieldGroupJobIds[i]);
+      dataOutput.writeUTF(fieldGroupBatchIds[i]);
+    }
+    dataOutput.writeBoolean(replication);
+    if (replication) {
+      dataOutput.writeLong(replicationStartTime);
+      dataOutput.writeLong(replicationEndTime);
+    }
+    dataOutput.writeInt(packedSplits.length);
+    for (SalesforceSplit packedSplit : packedSplits) {
+      packedSplit.write(dataOutput);
+    }
   }
 
   @Override
@@ -78,4 +217,79 @@ public class SalesforceSplit extends InputSplit implements Writable {
   public String getQuery() {
     return query;
   }
+
+  @Nullable
+  public String getResultId() {
+    return resultId;
+  }
+
+  /**
+   * @return true if the split reads result pages of a Bulk API 2.0 query job
+   */
+  public boolean isBulkApiV2() {
+    return bulkApiV2;
+  }
+
+  /**
+   * @return number of records returned by the Bulk API 2.0 query job, -1 if unknown,
+   * or estimated number of records of the result chunk, 0 if unknown
+   */
+  public long getRecords() {
+    return records;
+  }
+
+  public int getMaxRecords() {
+    return maxRecords;
+  }
+
+  /**
+   * @return true if the split joins results of multiple field group queries
+   */
+  public boolean hasFieldGroups() {
+    return fieldGroups;
+  }
+
+  /**
+   * @return split of each field group batch, or this split if it does not have field groups
+   */
+  public List<SalesforceSplit> getFieldGroupSplits() {
+    if (!hasFieldGroups()) {
+      return Collections.singletonList(this);
+    }
+    List<SalesforceSplit> splits = new ArrayList<>(fieldGroupJobIds.length + 1);
+    splits.add(new SalesforceSplit(jobId, batchId, query));
+    for (int i = 0; i < fieldGroupJobIds.length; i++) {
+      splits.add(new SalesforceSplit(fieldGroupJobIds[i], fieldGroupBatchIds[i], query));
+    }
+    return splits;
+  }
+
+  /**
+   * @return true if the split reads updated and deleted records of a time window with replication API
+   */
+  public boolean isReplication() {
+    return replication;
+  }
+
+  public long getReplicationStartTime() {
+    return replicationStartTime;
+  }
+
+  public long getReplicationEndTime() {
+    return replicationEndTime;
+  }
+
+  /**
+   * @return true if the split reads multiple packed splits
+   */
+  public boolean isPacked() {
+    return packedSplits.length > 0;
+  }
+
+  /**
+   * @return packed splits in the order they are read
+   */
+  public List<SalesforceSplit> getPackedSplits() {
+    return Arrays.asList(packedSplits);
+  }
 }
@@ -15,14 +15,15 @@
  */
 package io.cdap.plugin.salesforce.plugin.source.batch;
 
-import com.google.common.collect.Lists;
+import com.google.common.annotations.VisibleForTesting;
 import com.sforce.soap.partner.PartnerConnection;
-import com.sforce.soap.partner.sobject.SObject;
 import com.sforce.ws.ConnectionException;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.salesforce.SObjectDescriptor;
 import io.cdap.plugin.salesforce.SalesforceConnectionUtil;
+import io.cdap.plugin.salesforce.SalesforceIdArray;
 import io.cdap.plugin.salesforce.authenticator.AuthenticatorCredentials;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforcePartnerConnectionPool;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.InputSplit;
@@ -31,16 +32,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * RecordReader implementation for wide SOQL queries. Reads a single Salesforce batch of SObject Id's from bulk job
  * provided in InputSplit, creates subpartitions and makes parallel SOAP calls to retrieve all values.
+ * <p/>
+ * Ids are streamed from the batch result and grouped into partitions, which are retrieved in background by
+ * {@link SalesforceRecordRetriever}. Records of a partition are returned as soon as it is retrieved. At most
+ * the configured number of partitions are being retrieved or waiting to be read at the same time, so that memory
+ * used by the reader does not depend on the size of the batch.
  */
 public class SalesforceWideRecordReader extends SalesforceBulkRecordReader {
 
@@ -49,6 +51,13 @@ public class SalesforceWideRecordReader extends SalesforceBulkRecordReader {
   private final String query;
   private final SoapRecordToMapTransformer transformer;
 
+  private int maxInFlightPartitions = SalesforceSourceConstants.DEFAULT_WIDE_QUERY_MAX_IN_FLIGHT;
+  private int retrieveThreads = SalesforceSourceConstants.DEFAULT_WIDE_QUERY_RETRIEVE_THREADS;
+  private SalesforceRecordRetriever retriever;
+  private boolean idsExhausted;
+  private long idsRead;
+  private long recordsRead;
+
   private List<Map<String, ?>> results;
   private Map<String, ?> value;
   private int index;
@@ -59,38 +68,35 @@ public class SalesforceWideRecordReader extends SalesforceBulkRecordReader {
     this.transformer = transformer;
   }
 
+  @VisibleForTesting
+  SalesforceWideRecordReader(Schema schema, String query, SoapRecordToMapTransformer transformer,
+                             String jobId, String batchId, String[] resultIds) {
+    super(schema, jobId, batchId, resultIds);
+    this.query = query;
+    this.transformer = transformer;
+  }
+
   @Override
   public void initialize(InputSplit inputSplit, TaskAttemptContext taskAttemptContext) throws IOException,
     InterruptedException {
     Configuration conf = taskAttemptContext.getConfiguration();
-    AuthenticatorCredentials credentials = SalesforceConnectionUtil.getAuthenticatorCredentials(conf);
-    initialize(inputSplit, credentials);
+    maxInFlightPartitions = conf.getInt(SalesforceSourceConstants.CONFIG_WIDE_QUERY_MAX_IN_FLIGHT,
+                                        SalesforceSourceConstants.DEFAULT_WIDE_QUERY_MAX_IN_FLIGHT);
+    retrieveThreads = conf.getInt(SalesforceSourceConstants.CONFIG_WIDE_QUERY_RETRIEVE_THREADS,
+                                  SalesforceSourceConstants.DEFAULT_WIDE_QUERY_RETRIEVE_THREADS);
+    // reads Bulk API settings and calls initialize with credentials
+    super.initialize(inputSplit, taskAttemptContext);
   }
 
+  @Override
   public SalesforceWideRecordReader initialize(
       InputSplit inputSplit, AuthenticatorCredentials credentials)
       throws IOException, InterruptedException {
-    List<Map<String, ?>> fetchedIdList = fetchBulkQueryIds(inputSplit, null);
-    LOG.debug("Number of records received from batch job for wide object: '{}'", fetchedIdList.size());
+    super.initialize(inputSplit, credentials);
 
     try {
-      PartnerConnection partnerConnection = SalesforceConnectionUtil.getPartnerConnection(credentials);
-      SObjectDescriptor sObjectDescriptor = SObjectDescriptor.fromQuery(query);
-      List<String> fieldsNames = sObjectDescriptor.getFieldsNames();
-      String fields = String.join(",", fieldsNames);
-      String sObjectName = sObjectDescriptor.getName();
-
-      List<List<Map<String, ?>>> partitions =
-        Lists.partition(fetchedIdList, SalesforceSourceConstants.WIDE_QUERY_MAX_BATCH_COUNT);
-      LOG.debug("Number of partitions to be fetched for wide object: '{}'", partitions.size());
-
-      results = partitions.parallelStream()
-        .map(this::getSObjectIds)
-        .map(sObjectIds -> fetchPartition(partnerConnection, fields, sObjectName, sObjectIds))
-        .flatMap(Arrays::stream)
-        .map(sObject -> transformer.transformToMap(sObject, sObjectDescriptor))
-        .collect(Collectors.toList());
-      return this;
+      return initialize(SalesforceConnectionUtil.getPartnerConnection(credentials),
+                        () -> SalesforceConnectionUtil.getPartnerConnection(credentials));
     } catch (ConnectionException e) {
       String errorMessage = SalesforceConnectionUtil.getSalesforceErrorMessageFromException(e);
       throw new RuntimeException(
@@ -101,12 +107,36 @@ public class SalesforceWideRecordReader extends SalesforceBulkRecordReader {
     }
   }
 
+  /**
+   * Prepares retrieval of records for Ids read from the batch result.
+   *
+   * @param partnerConnection SOAP connection, which is used by the first retrieve thread
+   * @param connectionFactory creates SOAP connections for other retrieve threads
+   * @return this reader
+   */
+  @VisibleForTesting
+  SalesforceWideRecordReader initialize(PartnerConnection partnerConnection,
+                                        SalesforcePartnerConnectionPool.ConnectionFactory connectionFactory) {
+    retriever = new SalesforceRecordRetriever(SObjectDescriptor.fromQuery(query), transformer,
+                                              maxInFlightPartitions, retrieveThreads, partnerConnection,
+                                              connectionFactory, "salesforce-wide-retrieve-%d");
+    return this;
+  }
+
   @Override
-  public boolean nextKeyValue() {
-    if (results.size() == index) {
-      return false;
+  public boolean nextKeyValue() throws IOException {
+    while (results == null || results.size() == index) {
+      results = null;
+      submitPartitions();
+      if (!retriever.hasInFlightPartitions()) {
+        LOG.debug("Number of records retrieved for wide object: '{}'", recordsRead);
+        return false;
+      }
+      results = retriever.take();
+      index = 0;
     }
     value = results.get(index++);
+    recordsRead++;
     return true;
   }
 
@@ -115,70 +145,60 @@ public class SalesforceWideRecordReader extends SalesforceBulkRecordReader {
     return value;
   }
 
+  /**
+   * Returns share of the batch Ids read so far, multiplied by the share of the records retrieved for them
+   * that were already returned.
+   */
   @Override
   public float getProgress() {
-    return results == null || results.isEmpty() ? 0.0f : (float) index / results.size();
+    if (idsRead == 0) {
+      return idsExhausted ? 1.0f : 0.0f;
+    }
+    return super.getProgress() * Math.min(1.0f, (float) recordsRead / idsRead);
   }
 
-  /**
-   * Fetches single entry map (Id -> SObjectId_value) values received from Bulk API.
-   *
-   * @param inputSplit         specifies batch details
-   * @param taskAttemptContext task context
-   * @return list of single entry Map
-   * @throws IOException          can be due error during reading query
-   * @throws InterruptedException interrupted sleep while waiting for batch results
-   */
-  private List<Map<String, ?>> fetchBulkQueryIds(InputSplit inputSplit, TaskAttemptContext taskAttemptContext)
-    throws IOException, InterruptedException {
-    super.initialize(inputSplit, taskAttemptContext);
-    List<Map<String, ?>> fetchedIdList = new ArrayList<>();
-    while (super.nextKeyValue()) {
-      fetchedIdList.add(super.getCurrentValue());
+  @Override
+  public void close() throws IOException {
+    if (retriever != null) {
+      retriever.close();
+      retriever = null;
     }
-    return fetchedIdList;
+    super.close();
   }
 
   /**
-   * Transforms list of single entry map to array of SObject ids.
-   * <p/>
-   * Example:
-   * <ul>
-   *  <li>Expected list of map format: `List(Map(Id -> SObject_id1), Map(Id -> SObject_id2), ...)`</li>
-   *  <li>Result array: `[SObject_id1, SObject_id2, ...]`</li>
-   * </ul>
-   *
-   * @param subIds list of single entry Map
-   * @return array of SObject ids
+   * Reads Ids from the batch result and submits them for retrieval until the limit of partitions in flight
+   * is reached or there are no more Ids.
    */
-  private String[] getSObjectIds(List<Map<String, ?>> subIds) {
-    return subIds.stream()
-      .map(Map::values)
-      .flatMap(Collection::stream)
-      .toArray(String[]::new);
+  private void submitPartitions() throws IOException {
+    while (!idsExhausted && retriever.canSubmit()) {
+      SalesforceIdArray sObjectIds = readIds(SalesforceSourceConstants.WIDE_QUERY_MAX_BATCH_COUNT);
+      if (sObjectIds.isEmpty()) {
+        break;
+      }
+      retriever.submit(sObjectIds);
+    }
   }
 
   /**
-   * Fetches wide object records through SOAP API.
+   * Reads next Ids from the batch result.
+   * <p/>
+   * Each record of the batch result is a single entry map: `Map(Id -> SObject_id)`. Ids are kept in compact form
+   * until the partition is retrieved, so that Ids of partitions waiting for retrieval do not hold a string each.
    *
-   * @param partnerConnection SOAP connection
-   * @param fields            SObject fields to be fetched
-   * @param sObjectName       SObject name
-   * @param sObjectIds        SObject ids to be fetched
-   * @return fetched SObject array
+   * @param maxCount maximum number of Ids to read
+   * @return SObject ids, empty if there are no more Ids
    */
-  private SObject[] fetchPartition(PartnerConnection partnerConnection, String fields, String sObjectName,
-                                   String[] sObjectIds) {
-    try {
-      return partnerConnection.retrieve(fields, sObjectName, sObjectIds);
-    } catch (ConnectionException e) {
-      LOG.trace("Fetched SObject name: '{}', fields: '{}', Ids: '{}'", sObjectName, fields,
-                String.join(",", sObjectIds));
-      String errorMessage = SalesforceConnectionUtil.getSalesforceErrorMessageFromException(e);
-      throw new RuntimeException(
-        String.format("Failed to retrieve data for SObject '%s': %s",
-                      sObjectName, errorMessage),
-        e);
+  private SalesforceIdArray readIds(int maxCount) throws IOException {
+    SalesforceIdArray ids = new SalesforceIdArray(maxCount);
+    while (ids.size() < maxCount) {
+      if (!super.nextKeyValue()) {
+        idsExhausted = true;
+        break;
+      }
+      super.getCurrentValue().values().forEach(id -> ids.add(String.valueOf(id)));
     }
+    idsRead += ids.size();
+    return ids;
   }
 }
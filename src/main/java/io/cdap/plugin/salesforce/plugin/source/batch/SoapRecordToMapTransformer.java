@@ -19,8 +19,11 @@ import com.sforce.soap.partner.sobject.SObject;
 import com.sforce.ws.bind.XmlObject;
 import io.cdap.plugin.salesforce.SObjectDescriptor;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -28,11 +31,26 @@ import java.util.stream.StreamSupport;
 
 /**
  * Transformer class to transform Salesforce SObject to {@link Map}.
+ * If positional rows are enabled, SObjects are transformed to {@link SalesforceRow}s.
  */
 public class SoapRecordToMapTransformer {
 
   private static final String SUB_QUERY_FIELDS_PARENT = "records";
 
+  private final boolean positionalRows;
+  private volatile Map.Entry<SObjectDescriptor, SalesforceRow.Layout> rowLayout;
+
+  public SoapRecordToMapTransformer() {
+    this(false);
+  }
+
+  /**
+   * @param positionalRows whether SObjects should be transformed to {@link SalesforceRow}s
+   */
+  public SoapRecordToMapTransformer(boolean positionalRows) {
+    this.positionalRows = positionalRows;
+  }
+
   /**
    * Transforms SOAP API SObject to map for provided field names.
    *
@@ -41,39 +59,83 @@ public class SoapRecordToMapTransformer {
    * @return map of fields names and values extracted from SObject
    */
   public Map<String, ?> transformToMap(SObject sObject, SObjectDescriptor sObjectDescriptor) {
+    if (positionalRows) {
+      return transformToRow(sObject, sObjectDescriptor);
+    }
     Map<String, Object> result = new HashMap<>(transformRowToMap(sObject, sObjectDescriptor));
 
     for (SObjectDescriptor childSObjectDescriptor : sObjectDescriptor.getChildSObjects()) {
-      XmlObject child = sObject.getChild(childSObjectDescriptor.getName());
-      if (child == null) {
-        throw new IllegalStateException(
-          String.format("SObject sub-query field with name '%s' not found in parent '%s'",
-                        childSObjectDescriptor.getName(), sObject.getName().getLocalPart()));
-      }
-      Iterable<XmlObject> subValues = () -> child.getChildren(SUB_QUERY_FIELDS_PARENT);
-
-      List<Map<String, String>> subQueryValues = StreamSupport.stream(subValues.spliterator(), false)
-        .map(subValue -> transformRowToMap(subValue, childSObjectDescriptor))
-        .collect(Collectors.toList());
-      result.put(childSObjectDescriptor.getName(), subQueryValues);
+      result.put(childSObjectDescriptor.getName(), transformSubQuery(sObject, childSObjectDescriptor));
     }
     return result;
   }
 
+  /**
+   * Transforms SOAP API SObject to positional row for provided field names. Row layout is created once
+   * for the given SObject metadata and is shared by all rows transformed with the same metadata.
+   *
+   * @param sObject           SObject to be transformed
+   * @param sObjectDescriptor SObject metadata to be used for fields extraction
+   * @return row of values extracted from SObject
+   */
+  public SalesforceRow transformToRow(SObject sObject, SObjectDescriptor sObjectDescriptor) {
+    Map.Entry<SObjectDescriptor, SalesforceRow.Layout> descriptorLayout = rowLayout;
+    if (descriptorLayout == null || descriptorLayout.getKey() != sObjectDescriptor) {
+      descriptorLayout = new AbstractMap.SimpleImmutableEntry<>(sObjectDescriptor, createLayout(sObjectDescriptor));
+      rowLayout = descriptorLayout;
+    }
+    SalesforceRow.Layout layout = descriptorLayout.getValue();
+
+    Object[] values = new Object[layout.size()];
+    for (SObjectDescriptor.FieldDescriptor fieldDescriptor : sObjectDescriptor.getFields()) {
+      values[layout.indexOf(fieldDescriptor.getQueryName())] = extractFieldValue(sObject, fieldDescriptor);
+    }
+    for (SObjectDescriptor childSObjectDescriptor : sObjectDescriptor.getChildSObjects()) {
+      values[layout.indexOf(childSObjectDescriptor.getName())] = transformSubQuery(sObject, childSObjectDescriptor);
+    }
+    return new SalesforceRow(layout, values);
+  }
+
   public Map<String, String> transformRowToMap(XmlObject sObject, SObjectDescriptor sObjectDescriptor) {
     Map<String, String> result = new HashMap<>(sObjectDescriptor.getFields().size());
     for (SObjectDescriptor.FieldDescriptor fieldDescriptor : sObjectDescriptor.getFields()) {
-      Object fieldValue;
-      if (fieldDescriptor.getAlias() != null) {
-        fieldValue = extractValue(sObject, fieldDescriptor.getAlias(), Collections.emptyList());
-      } else {
-        fieldValue = extractValue(sObject, fieldDescriptor.getName(), fieldDescriptor.getParents());
-      }
-      result.put(fieldDescriptor.getQueryName(), fieldValue == null ? null : String.valueOf(fieldValue));
+      result.put(fieldDescriptor.getQueryName(), extractFieldValue(sObject, fieldDescriptor));
     }
     return result;
   }
 
+  private String extractFieldValue(XmlObject sObject, SObjectDescriptor.FieldDescriptor fieldDescriptor) {
+    Object fieldValue;
+    if (fieldDescriptor.getAlias() != null) {
+      fieldValue = extractValue(sObject, fieldDescriptor.getAlias(), Collections.emptyList());
+    } else {
+      fieldValue = extractValue(sObject, fieldDescriptor.getName(), fieldDescriptor.getParents());
+    }
+    return fieldValue == null ? null : String.valueOf(fieldValue);
+  }
+
+  private List<Map<String, String>> transformSubQuery(XmlObject sObject, SObjectDescriptor childSObjectDescriptor) {
+    XmlObject child = sObject.getChild(childSObjectDescriptor.getName());
+    if (child == null) {
+      throw new IllegalStateException(
+        String.format("SObject sub-query field with name '%s' not found in parent '%s'",
+                      childSObjectDescriptor.getName(), sObject.getName().getLocalPart()));
+    }
+    Iterable<XmlObject> subValues = () -> child.getChildren(SUB_QUERY_FIELDS_PARENT);
+
+    return StreamSupport.stream(subValues.spliterator(), false)
+      .map(subValue -> transformRowToMap(subValue, childSObjectDescriptor))
+      .collect(Collectors.toList());
+  }
+
+  private SalesforceRow.Layout createLayout(SObjectDescriptor sObjectDescriptor) {
+    // same names overwrite each other in the map representation, so they share a single column
+    LinkedHashSet<String> names = new LinkedHashSet<>();
+    sObjectDescriptor.getFields().forEach(fieldDescriptor -> names.add(fieldDescriptor.getQueryName()));
+    sObjectDescriptor.getChildSObjects().forEach(childSObjectDescriptor -> names.add(childSObjectDescriptor.getName()));
+    return SalesforceRow.Layout.of(new ArrayList<>(names));
+  }
+
   /**
    * Extracts value from XmlObject field. Reference type fields extracted recursively.
    * <p/>
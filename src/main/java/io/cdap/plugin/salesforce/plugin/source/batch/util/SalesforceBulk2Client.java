@@ -0,0 +1,385 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import dev.failsafe.Failsafe;
+import dev.failsafe.FailsafeException;
+import dev.failsafe.RetryPolicy;
+import io.cdap.plugin.salesforce.BulkPollInterval;
+import io.cdap.plugin.salesforce.SalesforceConstants;
+import io.cdap.plugin.salesforce.authenticator.Authenticator;
+import io.cdap.plugin.salesforce.authenticator.AuthenticatorCredentials;
+import io.cdap.plugin.salesforce.plugin.OAuthInfo;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.util.InputStreamResponseListener;
+import org.eclipse.jetty.client.util.StringContentProvider;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * Client of the Salesforce Bulk API 2.0 query jobs.
+ * <p/>
+ * Results of a completed job are returned in pages. Each page response contains the locator of the next page in
+ * the `Sforce-Locator` header, so the pages of a job are read one after another.
+ * <p/>
+ * Requests failed with a server error or without a response are retried with the given retry policy, like other
+ * Bulk API calls of the source. Failed reads of a page content are not retried.
+ */
+public class SalesforceBulk2Client implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceBulk2Client.class);
+  private static final Gson GSON = new Gson();
+  private static final String JOBS_PATH = "%s/services/data/v%s/jobs/query";
+  private static final String LAST_PAGE_LOCATOR = "null";
+  private static final String CONTENT_TYPE_JSON = "application/json";
+  private static final String CONTENT_TYPE_CSV = "text/csv";
+
+  private final AuthenticatorCredentials credentials;
+  private final HttpClient httpClient;
+  private final long readTimeoutMs;
+  private final RetryPolicy<Object> retryPolicy;
+  private OAuthInfo oAuthInfo;
+
+  public SalesforceBulk2Client(AuthenticatorCredentials credentials) throws IOException {
+    this(credentials, null);
+  }
+
+  /**
+   * @param credentials Salesforce credentials
+   * @param retryPolicy policy of retries of failed requests, null if requests should not be retried
+   */
+  public SalesforceBulk2Client(AuthenticatorCredentials credentials, @Nullable RetryPolicy<Object> retryPolicy)
+    throws IOException {
+    this.credentials = credentials;
+    this.retryPolicy = retryPolicy;
+    this.readTimeoutMs = credentials.getReadTimeout();
+    this.httpClient = new HttpClient(new SslContextFactory());
+    httpClient.setConnectTimeout(credentials.getConnectTimeout());
+    if (!Strings.isNullOrEmpty(credentials.getProxyUrl())) {
+      Authenticator.setProxy(credentials, httpClient);
+    }
+    try {
+      httpClient.start();
+      oAuthInfo = Authenticator.getOAuthInfo(credentials);
+    } catch (Exception e) {
+      close();
+      throw new IOException(String.format("Failed to connect to Salesforce Bulk API 2.0: %s", e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Creates a query job.
+   *
+   * @param query     SOQL query
+   * @param operation query operation, `query` or `queryAll`
+   * @return job id
+   * @throws IOException if the job could not be created
+   */
+  public String createQueryJob(String query, String operation) throws IOException {
+    JsonObject job = new JsonObject();
+    job.addProperty("operation", operation);
+    job.addProperty("query", query);
+    job.addProperty("contentType", "CSV");
+    job.addProperty("columnDelimiter", "COMMA");
+    job.addProperty("lineEnding", "LF");
+    String body = GSON.toJson(job);
+    ContentResponse response = send(() -> newRequest(HttpMethod.POST, getJobsUrl(), CONTENT_TYPE_JSON)
+      .content(new StringContentProvider(CONTENT_TYPE_JSON, body, StandardCharsets.UTF_8)));
+    String jobId = parseJson(response).get("id").getAsString();
+    LOG.debug("Created Bulk API 2.0 query job '{}'", jobId);
+    return jobId;
+  }
+
+  /**
+   * Waits until the query job is completed.
+   *
+   * @param jobId job id
+   * @return number of records returned by the job
+   * @throws IOException          if the job failed, was aborted or did not complete in time
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public long awaitCompletion(String jobId) throws IOException, InterruptedException {
+    BulkPollInterval pollInterval = new BulkPollInterval();
+    long deadline = System.currentTimeMillis()
+      + TimeUnit.SECONDS.toMillis(SalesforceSourceConstants.GET_BATCH_WAIT_TIME_SECONDS);
+    while (true) {
+      JsonObject job = parseJson(send(() -> newRequest(HttpMethod.GET, getJobsUrl() + "/" + jobId, CONTENT_TYPE_JSON)));
+      String state = job.get("state").getAsString();
+      switch (state) {
+        case "JobComplete":
+          return job.has("numberRecordsProcessed") ? job.get("numberRecordsProcessed").getAsLong() : -1;
+        case "Failed":
+        case "Aborted":
+          String errorMessage = job.has("errorMessage") && !job.get("errorMessage").isJsonNull()
+            ? job.get("errorMessage").getAsString() : "";
+          throw new IOException(String.format("Bulk API 2.0 query job '%s' is in state '%s': %s",
+                                              jobId, state, errorMessage));
+        default:
+          LOG.debug("Bulk API 2.0 query job {} state {}", jobId, state);
+      }
+      if (System.currentTimeMillis() >= deadline) {
+        throw new IOException(String.format("Timeout waiting for Bulk API 2.0 query job '%s' to complete", jobId));
+      }
+      Thread.sleep(pollInterval.next());
+    }
+  }
+
+  /**
+   * Opens a result page of a completed query job.
+   *
+   * @param jobId      job id
+   * @param locator    locator of the page, null for the first page
+   * @param maxRecords maximum number of records in the page, 0 to let Salesforce choose the page size
+   * @return result page, which must be closed by the caller
+   * @throws IOException if the page could not be opened
+   */
+  public ResultPage openResultPage(String jobId, @Nullable String locator, int maxRecords) throws IOException {
+    return execute(() -> tryOpenResultPage(jobId, locator, maxRecords));
+  }
+
+  private ResultPage tryOpenResultPage(String jobId, @Nullable String locator, int maxRecords)
+    throws IOException, SalesforceQueryExecutionException {
+    StringBuilder url = new StringBuilder(getJobsUrl()).append('/').append(jobId).append("/results");
+    char separator = '?';
+    if (locator != null) {
+      url.append(separator).append("locator=").append(locator);
+      separator = '&';
+    }
+    if (maxRecords > 0) {
+      url.append(separator).append("maxRecords=").append(maxRecords);
+    }
+    String resultsUrl = url.toString();
+
+    boolean sessionRenewed = false;
+    while (true) {
+      InputStreamResponseListener listener = new InputStreamResponseListener();
+      // results are only returned as CSV, other requests return JSON
+      newRequest(HttpMethod.GET, resultsUrl, CONTENT_TYPE_CSV).send(listener);
+      Response response = await(listener);
+      InputStream inputStream = listener.getInputStream();
+      if (response.getStatus() == HttpStatus.OK_200) {
+        return new ResultPage(inputStream, response.getHeaders().get(SalesforceSourceConstants.HEADER_LOCATOR),
+                              response.getHeaders().getLongField(SalesforceSourceConstants.HEADER_NUMBER_OF_RECORDS));
+      }
+      String content;
+      try (InputStream errorStream = inputStream) {
+        content = new String(ByteStreams.toByteArray(errorStream), StandardCharsets.UTF_8);
+      }
+      if (response.getStatus() == HttpStatus.UNAUTHORIZED_401 && !sessionRenewed && renewSession()) {
+        sessionRenewed = true;
+        continue;
+      }
+      fail(String.format("Bulk API 2.0 request '%s' failed with status %d: %s",
+                         resultsUrl, response.getStatus(), content), response.getStatus());
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      httpClient.stop();
+    } catch (Exception e) {
+      throw new IOException("Failed to stop HTTP client", e);
+    }
+  }
+
+  private String getJobsUrl() {
+    return String.format(JOBS_PATH, oAuthInfo.getInstanceURL(), SalesforceConstants.API_VERSION);
+  }
+
+  private Request newRequest(HttpMethod method, String url, String accept) {
+    return httpClient.newRequest(url)
+      .method(method)
+      .header(HttpHeader.AUTHORIZATION, "Bearer " + oAuthInfo.getAccessToken())
+      .header(HttpHeader.ACCEPT, accept)
+      .idleTimeout(readTimeoutMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Sends the request, the request is sent once again with a renewed session if the session has expired.
+   * Failed requests are retried with the retry policy of the client.
+   */
+  private ContentResponse send(Supplier<Request> request) throws IOException {
+    return execute(() -> trySend(request));
+  }
+
+  private ContentResponse trySend(Supplier<Request> request) throws IOException, SalesforceQueryExecutionException {
+    boolean sessionRenewed = false;
+    while (true) {
+      Request current = request.get();
+      ContentResponse response;
+      try {
+        response = current.send();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for Bulk API 2.0 response", e);
+      } catch (TimeoutException | ExecutionException e) {
+        throw new SalesforceQueryExecutionException(
+          new IOException(String.format("Bulk API 2.0 request '%s' failed: %s", current.getURI(), e.getMessage()), e));
+      }
+      if (response.getStatus() == HttpStatus.UNAUTHORIZED_401 && !sessionRenewed && renewSession()) {
+        sessionRenewed = true;
+        continue;
+      }
+      if (response.getStatus() / 100 != 2) {
+        fail(String.format("Bulk API 2.0 request '%s' failed with status %d: %s", current.getURI(),
+                           response.getStatus(), response.getContentAsString()), response.getStatus());
+      }
+      return response;
+    }
+  }
+
+  private Response await(InputStreamResponseListener listener)
+    throws IOException, SalesforceQueryExecutionException {
+    try {
+      return listener.get(readTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for Bulk API 2.0 response", e);
+    } catch (TimeoutException | ExecutionException e) {
+      throw new SalesforceQueryExecutionException(
+        new IOException(String.format("Bulk API 2.0 request failed: %s", e.getMessage()), e));
+    }
+  }
+
+  /**
+   * Server errors are retried, other failed requests are not expected to succeed when repeated.
+   */
+  private static void fail(String message, int status) throws IOException, SalesforceQueryExecutionException {
+    IOException exception = new IOException(message);
+    if (status >= HttpStatus.INTERNAL_SERVER_ERROR_500) {
+      throw new SalesforceQueryExecutionException(exception);
+    }
+    throw exception;
+  }
+
+  /**
+   * Runs the request with the retry policy of the client.
+   */
+  private <T> T execute(Call<T> call) throws IOException {
+    try {
+      if (retryPolicy == null) {
+        return call.run();
+      }
+      return Failsafe.with(retryPolicy).get(call::run);
+    } catch (SalesforceQueryExecutionException e) {
+      throw toIOException(e);
+    } catch (FailsafeException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof SalesforceQueryExecutionException) {
+        throw toIOException((SalesforceQueryExecutionException) cause);
+      }
+      throw new IOException(String.format("Bulk API 2.0 request failed: %s", e.getMessage()), e);
+    }
+  }
+
+  private static IOException toIOException(SalesforceQueryExecutionException e) {
+    return e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getMessage(), e);
+  }
+
+  /**
+   * Bulk API 2.0 request, which throws {@link SalesforceQueryExecutionException} if it may be retried.
+   */
+  private interface Call<T> {
+    T run() throws IOException, SalesforceQueryExecutionException;
+  }
+
+  /**
+   * Obtains a new access token, this is only possible if the credentials are not an access token themselves.
+   *
+   * @return true if the session was renewed
+   */
+  private boolean renewSession() {
+    if (credentials.getOAuthInfo() != null) {
+      return false;
+    }
+    try {
+      oAuthInfo = Authenticator.getOAuthInfo(credentials);
+      return true;
+    } catch (Exception e) {
+      LOG.warn("Failed to renew Salesforce session", e);
+      return false;
+    }
+  }
+
+  private static JsonObject parseJson(ContentResponse response) {
+    return GSON.fromJson(response.getContentAsString(), JsonObject.class);
+  }
+
+  /**
+   * Result page of a query job, the CSV content is streamed from the response.
+   */
+  public static final class ResultPage implements Closeable {
+    private final InputStream inputStream;
+    private final String nextLocator;
+    private final long numberOfRecords;
+
+    private ResultPage(InputStream inputStream, @Nullable String nextLocator, long numberOfRecords) {
+      this.inputStream = inputStream;
+      this.nextLocator = nextLocator == null || LAST_PAGE_LOCATOR.equals(nextLocator) ? null : nextLocator;
+      this.numberOfRecords = numberOfRecords;
+    }
+
+    public InputStream getInputStream() {
+      return inputStream;
+    }
+
+    /**
+     * @return locator of the next page or null if this is the last page
+     */
+    @Nullable
+    public String getNextLocator() {
+      return nextLocator;
+    }
+
+    /**
+     * @return number of records in the page or -1 if unknown
+     */
+    public long getNumberOfRecords() {
+      return numberOfRecords;
+    }
+
+    @Override
+    public void close() throws IOException {
+      // closing the stream before it is read to the end aborts the response
+      inputStream.close();
+    }
+  }
+}
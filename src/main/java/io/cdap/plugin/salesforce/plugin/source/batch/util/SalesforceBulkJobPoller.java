@@ -0,0 +1,307 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.BatchInfo;
+import com.sforce.async.BatchStateEnum;
+import com.sforce.async.BulkConnection;
+import io.cdap.plugin.salesforce.BulkAPIBatchException;
+import io.cdap.plugin.salesforce.BulkPollInterval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Waits for completion of Bulk API batches. Batch states of a job are polled by a single background thread
+ * per JVM with one {@link BulkConnection#getBatchInfoList(String)} call per poll, regardless of
+ * how many readers wait for batches of this job. Polls of a job are scheduled by its {@link BulkPollInterval}.
+ * Waiting readers are notified as soon as the poll observes their batch completed.
+ * <p/>
+ * Polling of a job starts when the first reader starts waiting for its batch and stops when no readers
+ * are waiting for batches of the job.
+ */
+public final class SalesforceBulkJobPoller {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceBulkJobPoller.class);
+  private static final SalesforceBulkJobPoller INSTANCE = new SalesforceBulkJobPoller(
+    BulkPollInterval::new, TimeUnit.SECONDS.toMillis(SalesforceSourceConstants.GET_BATCH_WAIT_TIME_SECONDS));
+
+  private final Supplier<BulkPollInterval> pollIntervalFactory;
+  private final long waitTimeMs;
+  private final ScheduledExecutorService executor;
+  private final Map<String, JobStatus> jobs = new HashMap<>();
+
+  @VisibleForTesting
+  SalesforceBulkJobPoller(Supplier<BulkPollInterval> pollIntervalFactory, long waitTimeMs) {
+    this.pollIntervalFactory = pollIntervalFactory;
+    this.waitTimeMs = waitTimeMs;
+    this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("salesforce-bulk-job-poller-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  public static SalesforceBulkJobPoller getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Waits until the batch with given id is completed.
+   *
+   * @param bulkConnection bulk connection used for polling, if there is no poll running for the job yet
+   * @param jobId          job id
+   * @param batchId        batch id
+   * @return info of the completed batch
+   * @throws AsyncApiException    if batch info could not be retrieved
+   * @throws InterruptedException if interrupted while waiting
+   * @throws BulkAPIBatchException if the batch failed or did not complete in time
+   */
+  public BatchInfo awaitCompletion(BulkConnection bulkConnection, String jobId, String batchId)
+    throws AsyncApiException, InterruptedException {
+    return awaitCompletion(bulkConnection, jobId, Collections.singletonList(batchId)).get(0);
+  }
+
+  /**
+   * Waits until all batches with given ids are completed.
+   *
+   * @param bulkConnection bulk connection used for polling, if there is no poll running for the job yet
+   * @param jobId          job id
+   * @param batchIds       batch ids
+   * @return infos of the completed batches in the order of given batch ids
+   * @throws AsyncApiException    if batch info could not be retrieved
+   * @throws InterruptedException if interrupted while waiting
+   * @throws BulkAPIBatchException if any of the batches failed or did not complete in time
+   */
+  public List<BatchInfo> awaitCompletion(BulkConnection bulkConnection, String jobId, List<String> batchIds)
+    throws AsyncApiException, InterruptedException {
+    List<Registration> registrations = new ArrayList<>(batchIds.size());
+    try {
+      for (String batchId : batchIds) {
+        registrations.add(register(bulkConnection, jobId, batchId));
+      }
+      long deadline = System.currentTimeMillis() + waitTimeMs;
+      List<BatchInfo> batchInfos = new ArrayList<>(batchIds.size());
+      for (int i = 0; i < batchIds.size(); i++) {
+        batchInfos.add(await(registrations.get(i).getCompletion(), jobId, batchIds.get(i), deadline));
+      }
+      return batchInfos;
+    } finally {
+      registrations.forEach(this::unregister);
+    }
+  }
+
+  private BatchInfo await(CompletableFuture<BatchInfo> completion, String jobId, String batchId, long deadline)
+    throws AsyncApiException, InterruptedException {
+    try {
+      return completion.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof AsyncApiException) {
+        throw (AsyncApiException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause);
+    } catch (TimeoutException e) {
+      throw new BulkAPIBatchException("Timeout waiting for batch results", getLastBatchInfo(jobId, batchId));
+    }
+  }
+
+  @VisibleForTesting
+  synchronized Registration register(BulkConnection bulkConnection, String jobId, String batchId) {
+    JobStatus job = jobs.computeIfAbsent(jobId, id -> new JobStatus(id, pollIntervalFactory.get()));
+    // the most recently registered connection is the least likely to have an expired session
+    job.bulkConnection = bulkConnection;
+    BatchWaiters waiters = job.waiters.computeIfAbsent(batchId, id -> new BatchWaiters());
+    waiters.count++;
+    BatchInfo lastBatchInfo = job.batchInfos.get(batchId);
+    if (lastBatchInfo != null) {
+      notifyWaiters(job, lastBatchInfo);
+    }
+    if (job.task == null) {
+      LOG.debug("Start polling batches of job {}", jobId);
+      schedulePoll(job, 0);
+    }
+    return new Registration(job, batchId, waiters);
+  }
+
+  /**
+   * Removes the reader from waiters of the batch. Job status and waiters, which were removed since the reader
+   * registered, may have been created again for other readers, so only the registered instances are updated.
+   */
+  @VisibleForTesting
+  synchronized void unregister(Registration registration) {
+    JobStatus job = registration.job;
+    if (jobs.get(job.jobId) != job) {
+      return;
+    }
+    BatchWaiters waiters = job.waiters.get(registration.batchId);
+    if (waiters == registration.waiters && --waiters.count == 0) {
+      job.waiters.remove(registration.batchId);
+    }
+    stopIfIdle(job);
+  }
+
+  private synchronized BatchInfo getLastBatchInfo(String jobId, String batchId) {
+    JobStatus job = jobs.get(jobId);
+    BatchInfo batchInfo = job == null ? null : job.batchInfos.get(batchId);
+    if (batchInfo == null) {
+      batchInfo = new BatchInfo();
+      batchInfo.setId(batchId);
+      batchInfo.setJobId(jobId);
+    }
+    return batchInfo;
+  }
+
+  private void poll(JobStatus job) {
+    BulkConnection bulkConnection;
+    synchronized (this) {
+      bulkConnection = job.bulkConnection;
+    }
+
+    BatchInfo[] batchInfos;
+    try {
+      batchInfos = bulkConnection.getBatchInfoList(job.jobId).getBatchInfo();
+    } catch (AsyncApiException | RuntimeException e) {
+      synchronized (this) {
+        if (++job.failures < SalesforceSourceConstants.GET_BATCH_RESULTS_TRIES) {
+          LOG.warn("Failed to get info for batches of job {}. Will retry after some time.", job.jobId, e);
+          job.pollInterval.failed();
+          scheduleNextPoll(job);
+          return;
+        }
+        job.waiters.values().forEach(waiters -> waiters.completion.completeExceptionally(e));
+        job.waiters.clear();
+        stopIfIdle(job);
+      }
+      return;
+    }
+
+    synchronized (this) {
+      job.failures = 0;
+      job.pollInterval.update(batchInfos);
+      for (BatchInfo batchInfo : batchInfos) {
+        job.batchInfos.put(batchInfo.getId(), batchInfo);
+        notifyWaiters(job, batchInfo);
+      }
+      scheduleNextPoll(job);
+    }
+  }
+
+  private void schedulePoll(JobStatus job, long delayMs) {
+    job.task = executor.schedule(() -> poll(job), delayMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void scheduleNextPoll(JobStatus job) {
+    // the job is not polled anymore if all waiters left while the poll was running
+    if (job.task != null && !job.waiters.isEmpty()) {
+      schedulePoll(job, job.pollInterval.next());
+    } else {
+      stopIfIdle(job);
+    }
+  }
+
+  private void notifyWaiters(JobStatus job, BatchInfo batchInfo) {
+    BatchWaiters waiters = job.waiters.get(batchInfo.getId());
+    if (waiters == null) {
+      return;
+    }
+    if (batchInfo.getState() == BatchStateEnum.Completed) {
+      waiters.completion.complete(batchInfo);
+      job.waiters.remove(batchInfo.getId());
+    } else if (batchInfo.getState() == BatchStateEnum.Failed) {
+      waiters.completion.completeExceptionally(new BulkAPIBatchException("Batch failed", batchInfo));
+      job.waiters.remove(batchInfo.getId());
+    } else {
+      LOG.debug("Batch {} job {} state {}", batchInfo.getId(), job.jobId, batchInfo.getState());
+    }
+  }
+
+  private void stopIfIdle(JobStatus job) {
+    if (!job.waiters.isEmpty()) {
+      return;
+    }
+    if (job.task != null) {
+      LOG.debug("Stop polling batches of job {}", job.jobId);
+      job.task.cancel(false);
+      job.task = null;
+    }
+    jobs.remove(job.jobId, job);
+  }
+
+  /**
+   * Last known batch states of a job and readers waiting for its batches.
+   */
+  private static final class JobStatus {
+    private final String jobId;
+    private final BulkPollInterval pollInterval;
+    private final Map<String, BatchWaiters> waiters = new HashMap<>();
+    private final Map<String, BatchInfo> batchInfos = new HashMap<>();
+    private BulkConnection bulkConnection;
+    private ScheduledFuture<?> task;
+    private int failures;
+
+    private JobStatus(String jobId, BulkPollInterval pollInterval) {
+      this.jobId = jobId;
+      this.pollInterval = pollInterval;
+    }
+  }
+
+  /**
+   * Batch waiters of a job, which a reader registered to.
+   */
+  @VisibleForTesting
+  static final class Registration {
+    private final JobStatus job;
+    private final String batchId;
+    private final BatchWaiters waiters;
+
+    private Registration(JobStatus job, String batchId, BatchWaiters waiters) {
+      this.job = job;
+      this.batchId = batchId;
+      this.waiters = waiters;
+    }
+
+    CompletableFuture<BatchInfo> getCompletion() {
+      return waiters.completion;
+    }
+  }
+
+  /**
+   * Completion shared by all readers waiting for the same batch.
+   */
+  private static final class BatchWaiters {
+    private final CompletableFuture<BatchInfo> completion = new CompletableFuture<>();
+    private int count;
+  }
+}
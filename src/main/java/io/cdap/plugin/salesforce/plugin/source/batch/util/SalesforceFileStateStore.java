@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.google.common.io.CharStreams;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nullable;
+
+/**
+ * State store, which keeps each value in a separate file of a directory. The directory can be on the local
+ * file system or on any file system supported by Hadoop, such as HDFS or GCS, so that the state is kept
+ * when the pipeline runs on an ephemeral cluster.
+ * <p/>
+ * A value is written to a temporary file first, which then replaces the file of the key, so that a failed write
+ * does not corrupt the previous value.
+ */
+public class SalesforceFileStateStore implements SalesforceStateStore {
+
+  private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+  private final Path directory;
+  private final Configuration conf;
+
+  public SalesforceFileStateStore(String directory) {
+    this(directory, new Configuration());
+  }
+
+  public SalesforceFileStateStore(String directory, Configuration conf) {
+    this.directory = new Path(directory);
+    this.conf = conf;
+  }
+
+  @Nullable
+  @Override
+  public String get(String key) throws IOException {
+    Path file = new Path(directory, key);
+    FileSystem fileSystem = file.getFileSystem(conf);
+    if (!fileSystem.exists(file)) {
+      return null;
+    }
+    try (FSDataInputStream inputStream = fileSystem.open(file)) {
+      String value = CharStreams.toString(new InputStreamReader(inputStream, StandardCharsets.UTF_8)).trim();
+      return value.isEmpty() ? null : value;
+    }
+  }
+
+  @Override
+  public void put(String key, String value) throws IOException {
+    Path file = new Path(directory, key);
+    Path temporaryFile = new Path(directory, "." + key + TEMPORARY_FILE_SUFFIX);
+    FileSystem fileSystem = file.getFileSystem(conf);
+    fileSystem.mkdirs(directory);
+    try (FSDataOutputStream outputStream = fileSystem.create(temporaryFile, true)) {
+      outputStream.write(value.getBytes(StandardCharsets.UTF_8));
+    }
+    // rename does not replace an existing file on all file systems
+    if (fileSystem.exists(file) && !fileSystem.delete(file, false)) {
+      throw new IOException(String.format("Failed to delete previous state file '%s'", file));
+    }
+    if (!fileSystem.rename(temporaryFile, file)) {
+      throw new IOException(String.format("Failed to rename state file '%s' to '%s'", temporaryFile, file));
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.sforce.async.OperationEnum;
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.soap.partner.QueryResult;
+import com.sforce.soap.partner.sobject.SObject;
+import com.sforce.ws.ConnectionException;
+import io.cdap.plugin.salesforce.SalesforceIdUtil;
+import io.cdap.plugin.salesforce.SalesforceQueryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+
+/**
+ * Splits a query into queries for consecutive ranges of record Ids on the client side, so that objects
+ * which do not support PK chunking can be read in parallel as well.
+ * <p/>
+ * The smallest and the largest Ids matching the query are found with `ORDER BY Id` queries. The Id range
+ * between them is bisected using base62 arithmetic on the Ids without the key prefix, and the number of records
+ * in each half is obtained with a `COUNT()` query, until each range has at most chunk size records.
+ * Adjacent ranges are then merged into chunks of at most chunk size records. The first and the last chunk
+ * are not bounded from below and above respectively, so that the chunks cover all records of the query.
+ */
+public final class SalesforceIdRangeSplitter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceIdRangeSplitter.class);
+
+  /**
+   * Splits the query into queries for consecutive Id ranges with approximately chunk size records each.
+   *
+   * @param partnerConnection partner connection used to sample Ids and count records
+   * @param query             SOQL query without ORDER BY, LIMIT and other clauses following WHERE
+   * @param operation         query operation, `query` or `queryAll`
+   * @param chunkSize         maximum number of records in a chunk
+   * @return queries restricted to Id ranges or the initial query if it does not need to be chunked
+   * @throws ConnectionException if Ids could not be sampled
+   */
+  public static List<String> getRangeQueries(PartnerConnection partnerConnection, String query, String operation,
+                                             int chunkSize) throws ConnectionException {
+    boolean queryAll = OperationEnum.queryAll.name().equals(operation);
+    String idQuery = SalesforceQueryUtil.createSObjectIdQuery(query);
+    String minId = queryFirstId(partnerConnection, idQuery + " ORDER BY Id ASC LIMIT 1", queryAll);
+    if (minId == null) {
+      return Collections.singletonList(query);
+    }
+    String maxId = queryFirstId(partnerConnection, idQuery + " ORDER BY Id DESC LIMIT 1", queryAll);
+    IdRangeCounter counter = (fromId, toId) -> query(partnerConnection, SalesforceQueryUtil.createSObjectCountQuery(
+      SalesforceQueryUtil.createIdRangeQuery(idQuery, fromId, toId)), queryAll).getSize();
+    long count = counter.count(null, null);
+
+    List<String> boundaries = getBoundaries(minId, maxId, count, chunkSize,
+                                            SalesforceSourceConstants.MAX_ID_RANGE_COUNT_QUERIES, counter);
+    LOG.debug("Split {} records between Ids '{}' and '{}' into {} chunks", count, minId, maxId,
+              boundaries.size() + 1);
+    List<String> queries = new ArrayList<>(boundaries.size() + 1);
+    String fromId = null;
+    for (String boundary : boundaries) {
+      queries.add(SalesforceQueryUtil.createIdRangeQuery(query, fromId, boundary));
+      fromId = boundary;
+    }
+    queries.add(SalesforceQueryUtil.createIdRangeQuery(query, fromId, null));
+    return queries;
+  }
+
+  /**
+   * Calculates Ids that divide records between the given Ids into chunks of at most chunk size records.
+   * If the maximum number of count queries is reached, the largest ranges are not divided further and
+   * the chunks may be larger.
+   *
+   * @param minId           smallest Id of the records
+   * @param maxId           largest Id of the records
+   * @param count           number of the records
+   * @param chunkSize       maximum number of records in a chunk
+   * @param maxCountQueries maximum number of count queries
+   * @param counter         counts records in an Id range
+   * @return ordered inclusive lower bounds of all chunks except the first one
+   * @throws ConnectionException if records could not be counted
+   */
+  @VisibleForTesting
+  static List<String> getBoundaries(String minId, String maxId, long count, int chunkSize, int maxCountQueries,
+                                    IdRangeCounter counter) throws ConnectionException {
+    String keyPrefix = SalesforceIdUtil.getKeyPrefix(minId);
+    if (count <= chunkSize || !keyPrefix.equals(SalesforceIdUtil.getKeyPrefix(maxId))) {
+      return Collections.emptyList();
+    }
+
+    // the most populated range is divided first
+    PriorityQueue<IdRange> ranges = new PriorityQueue<>(
+      Comparator.comparingLong((IdRange range) -> range.count).reversed());
+    ranges.add(new IdRange(SalesforceIdUtil.toNumber(minId),
+                           SalesforceIdUtil.toNumber(maxId).add(BigInteger.ONE), count));
+    List<IdRange> leaves = new ArrayList<>();
+    int countQueries = 0;
+    while (!ranges.isEmpty() && ranges.peek().count > chunkSize && countQueries < maxCountQueries) {
+      IdRange range = ranges.poll();
+      BigInteger middle = range.from.add(range.to).shiftRight(1);
+      if (middle.equals(range.from)) {
+        // range of a single Id cannot be divided
+        leaves.add(range);
+        continue;
+      }
+      long lowerCount = counter.count(SalesforceIdUtil.fromNumber(keyPrefix, range.from),
+                                      SalesforceIdUtil.fromNumber(keyPrefix, middle));
+      countQueries++;
+      ranges.add(new IdRange(range.from, middle, lowerCount));
+      // records may be created or deleted while counting
+      ranges.add(new IdRange(middle, range.to, Math.max(range.count - lowerCount, 0)));
+    }
+    leaves.addAll(ranges);
+    leaves.sort(Comparator.comparing(range -> range.from));
+
+    List<String> boundaries = new ArrayList<>();
+    long chunkCount = 0;
+    for (IdRange leaf : leaves) {
+      if (chunkCount > 0 && chunkCount + leaf.count > chunkSize) {
+        boundaries.add(SalesforceIdUtil.fromNumber(keyPrefix, leaf.from));
+        chunkCount = 0;
+      }
+      chunkCount += leaf.count;
+    }
+    return boundaries;
+  }
+
+  @Nullable
+  private static String queryFirstId(PartnerConnection partnerConnection, String query, boolean queryAll)
+    throws ConnectionException {
+    SObject[] records = query(partnerConnection, query, queryAll).getRecords();
+    return records == null || records.length == 0 ? null : records[0].getId();
+  }
+
+  private static QueryResult query(PartnerConnection partnerConnection, String query, boolean queryAll)
+    throws ConnectionException {
+    return queryAll ? partnerConnection.queryAll(query) : partnerConnection.query(query);
+  }
+
+  /**
+   * Counts records with Ids in a range.
+   */
+  @VisibleForTesting
+  interface IdRangeCounter {
+
+    /**
+     * @param fromId inclusive lower bound of the range, null if the range is not bounded from below
+     * @param toId   exclusive upper bound of the range, null if the range is not bounded from above
+     * @return number of records
+     */
+    long count(@Nullable String fromId, @Nullable String toId) throws ConnectionException;
+  }
+
+  /**
+   * Range of numeric Id values with the number of records in it.
+   */
+  private static final class IdRange {
+    private final BigInteger from;
+    private final BigInteger to;
+    private final long count;
+
+    private IdRange(BigInteger from, BigInteger to, long count) {
+      this.from = from;
+      this.to = to;
+      this.count = count;
+    }
+  }
+}
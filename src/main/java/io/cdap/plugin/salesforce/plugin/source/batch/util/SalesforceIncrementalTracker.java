@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.sforce.async.OperationEnum;
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.soap.partner.QueryResult;
+import com.sforce.soap.partner.sobject.SObject;
+import com.sforce.ws.ConnectionException;
+import io.cdap.plugin.salesforce.SObjectDescriptor;
+import io.cdap.plugin.salesforce.SalesforceQueryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Restricts SObject queries to records modified since the previous successful run, based on high-watermarks
+ * of a datetime field, such as `SystemModstamp`, which are kept in a {@link SalesforceStateStore} by SObject name.
+ * <p/>
+ * The current high-watermark is the largest value of the field, truncated to seconds. The query reads records
+ * with the field greater than the stored high-watermark and not greater than the current one, so records modified
+ * while the run is in progress are read by the next run. Current high-watermarks are stored only when
+ * {@link #commit()} is called at the end of a successful run, a failed run is repeated from the same high-watermarks.
+ */
+public class SalesforceIncrementalTracker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceIncrementalTracker.class);
+
+  private final SalesforceStateStore stateStore;
+  private final String field;
+  private final Map<String, String> highWatermarks = new LinkedHashMap<>();
+
+  public SalesforceIncrementalTracker(SalesforceStateStore stateStore, String field) {
+    this.stateStore = stateStore;
+    this.field = field;
+  }
+
+  /**
+   * Restricts the query to records modified between the stored and the current high-watermark of its SObject.
+   *
+   * @param partnerConnection partner connection used to get the current high-watermark
+   * @param query             SOQL query of the SObject
+   * @param operation         query operation, `query` or `queryAll`
+   * @return query restricted to records modified since the previous successful run,
+   * or the initial query if the SObject has no records
+   * @throws ConnectionException if the current high-watermark could not be queried
+   * @throws IOException         if the stored high-watermark could not be read
+   */
+  public String getIncrementalQuery(PartnerConnection partnerConnection, String query, String operation)
+    throws ConnectionException, IOException {
+    String sObjectName = SObjectDescriptor.fromQuery(query).getName();
+    String storedHighWatermark = stateStore.get(sObjectName);
+    ZonedDateTime after = storedHighWatermark == null ? null : parse(storedHighWatermark);
+
+    String highWatermarkQuery = SalesforceQueryUtil.createHighWatermarkQuery(sObjectName, field, after);
+    QueryResult result = OperationEnum.queryAll.name().equals(operation)
+      ? partnerConnection.queryAll(highWatermarkQuery) : partnerConnection.query(highWatermarkQuery);
+    SObject[] records = result.getRecords();
+    Object value = records == null || records.length == 0 ? null : records[0].getField(field);
+
+    if (value == null) {
+      if (after == null) {
+        LOG.debug("SObject '{}' has no records with '{}' set, reading all records", sObjectName, field);
+        return query;
+      }
+      LOG.debug("No records of SObject '{}' were modified after '{}'", sObjectName, storedHighWatermark);
+      return SalesforceQueryUtil.createIncrementalQuery(query, field, after, after);
+    }
+
+    // SOQL datetime literals have seconds precision
+    ZonedDateTime highWatermark = parse(String.valueOf(value)).truncatedTo(ChronoUnit.SECONDS);
+    highWatermarks.put(sObjectName, highWatermark.format(DateTimeFormatter.ISO_DATE_TIME));
+    LOG.debug("Reading records of SObject '{}' with '{}' after '{}' up to '{}'", sObjectName, field,
+              storedHighWatermark, highWatermark);
+    return SalesforceQueryUtil.createIncrementalQuery(query, field, after, highWatermark);
+  }
+
+  /**
+   * Stores current high-watermarks of all SObjects queried by this tracker.
+   *
+   * @throws IOException if high-watermarks could not be stored
+   */
+  public void commit() throws IOException {
+    for (Map.Entry<String, String> entry : highWatermarks.entrySet()) {
+      stateStore.put(entry.getKey(), entry.getValue());
+    }
+    LOG.debug("Stored high-watermarks of '{}' SObjects", highWatermarks.size());
+  }
+
+  /**
+   * @return current high-watermarks by SObject name, which are stored on commit
+   */
+  public Map<String, String> getHighWatermarks() {
+    return highWatermarks;
+  }
+
+  private static ZonedDateTime parse(String datetime) {
+    return ZonedDateTime.parse(datetime, DateTimeFormatter.ISO_DATE_TIME).withZoneSameInstant(ZoneOffset.UTC);
+  }
+}
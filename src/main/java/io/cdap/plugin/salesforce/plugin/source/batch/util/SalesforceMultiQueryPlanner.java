@@ -0,0 +1,314 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
+import com.sforce.soap.partner.fault.IApiFault;
+import com.sforce.ws.ConnectionException;
+import io.cdap.plugin.salesforce.SObjectDescriptor;
+import io.cdap.plugin.salesforce.plugin.source.batch.SalesforceSplit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Generates splits of multiple SObject queries, creating Bulk API jobs for at most the configured number of
+ * SObjects at the same time. Created jobs are not closed by the planner and stay open until the end of the run.
+ * <p/>
+ * SObjects of the priority list are planned first, in the order of the list, followed by other SObjects from
+ * the largest to the smallest if their numbers of records are known, otherwise in the order of the queries.
+ * When Salesforce rejects a job because of a concurrency or quota limit, planning of all SObjects is paused with
+ * exponential back-off and the rejected SObject is planned again, up to the configured number of retries.
+ */
+public class SalesforceMultiQueryPlanner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceMultiQueryPlanner.class);
+  // name of the limit in the `REQUEST_LIMIT_EXCEEDED` error of too many concurrent long-running requests
+  private static final String CONCURRENT_REQUESTS_LIMIT = "ConcurrentPerOrgLongTxn";
+
+  private final int maxConcurrentJobs;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final int maxRetryCount;
+  private final Object pauseLock = new Object();
+  private long resumeTime;
+
+  /**
+   * Generates splits of a single SObject query.
+   */
+  public interface SplitGenerator {
+    List<SalesforceSplit> getSplits(String query);
+  }
+
+  /**
+   * Counts records of a single SObject query.
+   */
+  public interface RecordCounter {
+    long count(String query) throws ConnectionException, InterruptedException;
+  }
+
+  /**
+   * Task run for a query on a planner thread.
+   */
+  private interface QueryTask {
+    List<SalesforceSplit> run(String query) throws Exception;
+  }
+
+  /**
+   * @param maxConcurrentJobs    maximum number of concurrent job creations, that is SObjects planned at the same time
+   * @param initialBackoffMillis pause after the first rejection because of a limit
+   * @param maxBackoffMillis     maximum pause after a rejection because of a limit
+   * @param maxRetryCount        maximum number of retries of an SObject rejected because of a limit
+   */
+  public SalesforceMultiQueryPlanner(int maxConcurrentJobs, long initialBackoffMillis, long maxBackoffMillis,
+                                     int maxRetryCount) {
+    this.maxConcurrentJobs = Math.max(1, maxConcurrentJobs);
+    this.initialBackoffMillis = Math.max(0, initialBackoffMillis);
+    this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+    this.maxRetryCount = Math.max(0, maxRetryCount);
+  }
+
+  /**
+   * Counts records of all queries, running at most the configured number of count queries at the same time.
+   * Queries, whose records could not be counted, for example because the count query timed out on a very
+   * large SObject, are left out of the result.
+   *
+   * @param queries       SObject queries
+   * @param recordCounter counts records of a query, called from the planner threads
+   * @return number of records of each query
+   */
+  public Map<String, Long> countRecords(List<String> queries, RecordCounter recordCounter) {
+    Map<String, Long> recordCounts = new ConcurrentHashMap<>();
+    runAll(queries, query -> {
+      try {
+        recordCounts.put(query, recordCounter.count(query));
+      } catch (ConnectionException | RuntimeException e) {
+        LOG.warn("Failed to count records of query '{}', its size is unknown: {}", query, e.getMessage());
+      }
+      return Collections.emptyList();
+    });
+    LOG.debug("Counted records of {} of {} SObject queries", recordCounts.size(), queries.size());
+    return recordCounts;
+  }
+
+  /**
+   * Generates splits of all queries.
+   *
+   * @param queries          SObject queries
+   * @param prioritySObjects SObjects, which are planned first
+   * @param splitGenerator   generates splits of a query, called from the planner threads
+   * @return splits of all queries, in the order the queries were planned
+   */
+  public List<SalesforceSplit> plan(List<String> queries, List<String> prioritySObjects,
+                                    SplitGenerator splitGenerator) {
+    return plan(queries, prioritySObjects, Collections.emptyMap(), splitGenerator);
+  }
+
+  /**
+   * Generates splits of all queries, planning larger SObjects first.
+   *
+   * @param queries          SObject queries
+   * @param prioritySObjects SObjects, which are planned first
+   * @param recordCounts     number of records of each query, queries without a count are planned as the largest
+   * @param splitGenerator   generates splits of a query, called from the planner threads
+   * @return splits of all queries, in the order the queries were planned
+   */
+  public List<SalesforceSplit> plan(List<String> queries, List<String> prioritySObjects,
+                                    Map<String, Long> recordCounts, SplitGenerator splitGenerator) {
+    List<String> orderedQueries = orderQueries(queries, prioritySObjects, recordCounts);
+    List<SalesforceSplit> splits = runAll(orderedQueries, query -> planQuery(query, splitGenerator));
+    LOG.debug("Planned {} SObject queries into {} splits with up to {} concurrent job creations", orderedQueries.size(),
+              splits.size(), maxConcurrentJobs);
+    return splits;
+  }
+
+  /**
+   * Packs splits of small SObjects into shared splits of at most the split size records, so that a task is not
+   * started for each of them. A split is packed if it is the only split of its query and the query has at most
+   * {@link SalesforceSourceConstants#PACKED_SOBJECT_SPLIT_SIZE_DIVISOR} times fewer records than the split size.
+   *
+   * @param splits       planned splits
+   * @param recordCounts number of records of each query
+   * @param splitSize    number of records read by a split
+   * @return splits, which are not packed, in the planned order, followed by packed splits from the largest
+   */
+  public static List<SalesforceSplit> packSplits(List<SalesforceSplit> splits, Map<String, Long> recordCounts,
+                                                 long splitSize) {
+    long maxPackedCount = splitSize / SalesforceSourceConstants.PACKED_SOBJECT_SPLIT_SIZE_DIVISOR;
+    Map<String, Long> querySplits = splits.stream()
+      .collect(Collectors.groupingBy(SalesforceSplit::getQuery, Collectors.counting()));
+    List<SalesforceSplit> result = new ArrayList<>(splits.size());
+    List<SalesforceSplit> smallSplits = new ArrayList<>();
+    for (SalesforceSplit split : splits) {
+      Long count = recordCounts.get(split.getQuery());
+      if (count != null && count <= maxPackedCount && querySplits.get(split.getQuery()) == 1 && !split.isPacked()) {
+        smallSplits.add(split);
+      } else {
+        result.add(split);
+      }
+    }
+
+    // first fit decreasing
+    smallSplits.sort(Comparator.comparingLong((SalesforceSplit split) -> recordCounts.get(split.getQuery()))
+                       .reversed());
+    List<List<SalesforceSplit>> bins = new ArrayList<>();
+    List<Long> binCounts = new ArrayList<>();
+    for (SalesforceSplit split : smallSplits) {
+      long count = recordCounts.get(split.getQuery());
+      int bin = 0;
+      while (bin < bins.size() && binCounts.get(bin) + count > splitSize) {
+        bin++;
+      }
+      if (bin == bins.size()) {
+        bins.add(new ArrayList<>());
+        binCounts.add(0L);
+      }
+      bins.get(bin).add(split);
+      binCounts.set(bin, binCounts.get(bin) + count);
+    }
+    for (List<SalesforceSplit> bin : bins) {
+      result.add(bin.size() == 1 ? bin.get(0) : SalesforceSplit.forPackedSplits(bin));
+    }
+    LOG.debug("Packed {} splits of small SObjects into {} splits", smallSplits.size(), bins.size());
+    return result;
+  }
+
+  /**
+   * Orders queries of the priority SObjects first, in the order of the priority list, followed by other queries
+   * from the one with the most records. Queries without a count are considered the largest. Queries of the same
+   * priority and size keep their order.
+   */
+  @VisibleForTesting
+  static List<String> orderQueries(List<String> queries, List<String> prioritySObjects,
+                                   Map<String, Long> recordCounts) {
+    List<String> orderedQueries = new ArrayList<>(queries);
+    // stable sort keeps the order of the queries without priority and count
+    orderedQueries.sort(Comparator.comparingInt((String query) -> {
+      int priority = prioritySObjects.indexOf(SObjectDescriptor.fromQuery(query).getName());
+      return priority < 0 ? Integer.MAX_VALUE : priority;
+    }).thenComparing(query -> recordCounts.getOrDefault(query, Long.MAX_VALUE), Comparator.reverseOrder()));
+    return orderedQueries;
+  }
+
+  /**
+   * Runs the task for each query on the planner threads.
+   *
+   * @return results of all queries, in the order of the queries
+   */
+  private List<SalesforceSplit> runAll(List<String> queries, QueryTask task) {
+    ExecutorService executor = Executors.newFixedThreadPool(
+      Math.min(maxConcurrentJobs, Math.max(1, queries.size())), new ThreadFactoryBuilder()
+        .setNameFormat("salesforce-multi-query-planner-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      // the executor queue starts queries in the submitted order
+      List<Future<List<SalesforceSplit>>> futures = new ArrayList<>(queries.size());
+      for (String query : queries) {
+        futures.add(executor.submit(() -> task.run(query)));
+      }
+      List<SalesforceSplit> splits = new ArrayList<>();
+      for (Future<List<SalesforceSplit>> future : futures) {
+        splits.addAll(future.get());
+      }
+      return splits;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while planning SObject queries", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(String.format("Failed to plan SObject queries: %s", cause.getMessage()), cause);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private List<SalesforceSplit> planQuery(String query, SplitGenerator splitGenerator) throws InterruptedException {
+    int attempt = 0;
+    while (true) {
+      awaitResume();
+      try {
+        return splitGenerator.getSplits(query);
+      } catch (RuntimeException e) {
+        if (attempt >= maxRetryCount || !isLimitExceeded(e)) {
+          throw e;
+        }
+        long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 30));
+        LOG.warn("Salesforce limit was reached while planning query '{}', pausing for {} ms: {}", query, backoff,
+                 e.getMessage());
+        pause(backoff);
+        attempt++;
+      }
+    }
+  }
+
+  private void pause(long backoffMillis) {
+    synchronized (pauseLock) {
+      resumeTime = Math.max(resumeTime, System.currentTimeMillis() + backoffMillis);
+    }
+  }
+
+  private void awaitResume() throws InterruptedException {
+    while (true) {
+      long delay;
+      synchronized (pauseLock) {
+        delay = resumeTime - System.currentTimeMillis();
+      }
+      if (delay <= 0) {
+        return;
+      }
+      TimeUnit.MILLISECONDS.sleep(delay);
+    }
+  }
+
+  /**
+   * Checks whether the job was rejected because of a concurrency or quota limit of the organization. Only the
+   * `ExceededQuota` code of Bulk API and the limit of concurrent long-running requests are treated as limits,
+   * other failures are not expected to succeed after a pause.
+   */
+  @VisibleForTesting
+  static boolean isLimitExceeded(Throwable throwable) {
+    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+      if (cause instanceof AsyncApiException
+        && ((AsyncApiException) cause).getExceptionCode() == AsyncExceptionCode.ExceededQuota) {
+        return true;
+      }
+      String message = cause instanceof IApiFault ? ((IApiFault) cause).getExceptionMessage() : cause.getMessage();
+      if (message != null && message.contains(CONCURRENT_REQUESTS_LIMIT)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
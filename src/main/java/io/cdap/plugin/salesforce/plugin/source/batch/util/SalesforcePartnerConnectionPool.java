@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.ws.ConnectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Small pool of SOAP connections, so that concurrent calls of a reader do not share a single
+ * {@link PartnerConnection}. Connections are created on demand up to the maximum size of the pool.
+ * When all connections are in use, callers wait until one of them is released, which also limits
+ * the number of concurrent SOAP requests made through the pool.
+ */
+public class SalesforcePartnerConnectionPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforcePartnerConnectionPool.class);
+
+  private final int maxSize;
+  private final ConnectionFactory connectionFactory;
+  private final BlockingQueue<PartnerConnection> idleConnections;
+  private int size;
+
+  /**
+   * @param maxSize           maximum number of connections
+   * @param connectionFactory creates new connections
+   */
+  public SalesforcePartnerConnectionPool(int maxSize, ConnectionFactory connectionFactory) {
+    this.maxSize = Math.max(1, maxSize);
+    this.connectionFactory = connectionFactory;
+    this.idleConnections = new LinkedBlockingQueue<>(this.maxSize);
+  }
+
+  /**
+   * Adds an existing connection to the pool.
+   *
+   * @param connection connection that can be used by the pool
+   * @return this pool
+   */
+  public synchronized SalesforcePartnerConnectionPool add(PartnerConnection connection) {
+    if (size >= maxSize) {
+      throw new IllegalStateException(String.format("Connection pool is full with %d connections", maxSize));
+    }
+    size++;
+    idleConnections.add(connection);
+    return this;
+  }
+
+  /**
+   * Takes an idle connection from the pool, creates a new one if the pool is not full yet,
+   * or waits until a connection is released.
+   *
+   * @return connection to be released after use
+   * @throws ConnectionException  if a new connection could not be created
+   * @throws InterruptedException if interrupted while waiting for a connection
+   */
+  public PartnerConnection borrow() throws ConnectionException, InterruptedException {
+    PartnerConnection connection = idleConnections.poll();
+    if (connection != null) {
+      return connection;
+    }
+    if (reserve()) {
+      try {
+        LOG.debug("Creating Salesforce SOAP connection {} of {}", size, maxSize);
+        return connectionFactory.create();
+      } catch (ConnectionException | RuntimeException e) {
+        synchronized (this) {
+          size--;
+        }
+        throw e;
+      }
+    }
+    return idleConnections.take();
+  }
+
+  /**
+   * Returns the connection to the pool.
+   *
+   * @param connection connection obtained with {@link #borrow()}
+   */
+  public void release(PartnerConnection connection) {
+    idleConnections.add(connection);
+  }
+
+  private synchronized boolean reserve() {
+    if (size >= maxSize) {
+      return false;
+    }
+    size++;
+    return true;
+  }
+
+  /**
+   * Creates SOAP connections.
+   */
+  public interface ConnectionFactory {
+
+    /**
+     * @return new connection
+     * @throws ConnectionException if the connection could not be created
+     */
+    PartnerConnection create() throws ConnectionException;
+  }
+}
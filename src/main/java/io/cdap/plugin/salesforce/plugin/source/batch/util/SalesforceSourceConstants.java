@@ -17,6 +17,7 @@ package io.cdap.plugin.salesforce.plugin.source.batch.util;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Salesforce batch source constants
@@ -36,14 +37,39 @@ public class SalesforceSourceConstants {
   public static final String PROPERTY_MAX_RETRY_DURATION = "maxRetryDuration";
   public static final String PROPERTY_MAX_RETRY_COUNT = "maxRetryCount";
   public static final String PROPERTY_RETRY_REQUIRED = "retryOnBackendError";
+  public static final String PROPERTY_RESULT_PREFETCH_DEPTH = "resultPrefetchDepth";
+  public static final String PROPERTY_RESULT_PREFETCH_MEMORY_MB = "resultPrefetchMemoryMB";
+  public static final String PROPERTY_SPOOL_RESULTS = "spoolResults";
+  public static final String PROPERTY_POSITIONAL_ROWS = "positionalRows";
+  public static final String PROPERTY_SPLIT_BY_RESULT_CHUNK = "splitByResultChunk";
+  public static final String PROPERTY_SOAP_QUERY_BATCH_SIZE = "soapQueryBatchSize";
+  public static final String PROPERTY_WIDE_QUERY_MAX_IN_FLIGHT = "wideQueryMaxInFlightPartitions";
+  public static final String PROPERTY_WIDE_QUERY_RETRIEVE_THREADS = "wideQueryRetrieveThreads";
+  public static final String PROPERTY_INCREMENTAL = "incremental";
+  public static final String PROPERTY_INCREMENTAL_FIELD = "incrementalField";
+  public static final String PROPERTY_STATE_STORE_PATH = "stateStorePath";
+  public static final String PROPERTY_REPLICATION_MODE = "replicationMode";
 
   public static final String PROPERTY_PK_CHUNK_ENABLE_NAME = "enablePKChunk";
   public static final String PROPERTY_CHUNK_SIZE_NAME = "chunkSize";
   public static final String PROPERTY_PARENT_NAME = "parent";
+  public static final String PROPERTY_ID_RANGE_CHUNK_ENABLE_NAME = "enableIdRangeChunk";
+  public static final String PROPERTY_TIME_RANGE_SPLIT_SIZE = "timeRangeSplitSize";
+  public static final String PROPERTY_SPLIT_WIDE_QUERY_BY_FIELDS = "splitWideQueryByFields";
+  public static final String PROPERTY_BULK_API_VERSION = "bulkApiVersion";
+  public static final String PROPERTY_MAX_RECORDS_PER_PAGE = "maxRecordsPerPage";
+
+  public static final String BULK_API_VERSION_1 = "1.0";
+  public static final String BULK_API_VERSION_2 = "2.0";
 
   public static final String PROPERTY_WHITE_LIST = "whiteList";
   public static final String PROPERTY_BLACK_LIST = "blackList";
   public static final String PROPERTY_SOBJECT_NAME_FIELD = "sObjectNameField";
+  public static final String PROPERTY_PRIORITY_SOBJECTS = "prioritySObjects";
+  public static final String PROPERTY_MAX_CONCURRENT_JOBS = "maxConcurrentJobs";
+  public static final String PROPERTY_SIZE_AWARE_SPLITS = "sizeAwareSplits";
+  public static final String PROPERTY_SPLIT_SIZE = "splitSize";
+  public static final String PROPERTY_PK_CHUNK_THRESHOLD = "pkChunkThreshold";
 
   public static final String CONFIG_SCHEMAS = "mapred.salesforce.input.schemas";
   public static final String CONFIG_QUERY_SPLITS = "mapred.salesforce.input.query.splits";
@@ -51,12 +77,21 @@ public class SalesforceSourceConstants {
   public static final String HEADER_ENABLE_PK_CHUNK = "Sforce-Enable-PKChunking";
   public static final String HEADER_VALUE_PK_CHUNK = "chunkSize=%d";
   public static final String HEADER_PK_CHUNK_PARENT = "parent=%s";
+  public static final String HEADER_LOCATOR = "Sforce-Locator";
+  public static final String HEADER_NUMBER_OF_RECORDS = "Sforce-NumberOfRecords";
 
   public static final String CONFIG_SOBJECT_NAME_FIELD = "mapred.salesforce.input.sObjectNameField";
   public static final String CONFIG_INITIAL_RETRY_DURATION = "mapred.salesforce.initialRetryDuration";
   public static final String CONFIG_MAX_RETRY_DURATION = "mapred.salesforce.maxRetryDuration";
   public static final String CONFIG_MAX_RETRY_COUNT = "mapred.salesforce.maxRetryCount";
   public static final String CONFIG_RETRY_REQUIRED = "mapred.salesforce.retryOnBackendError";
+  public static final String CONFIG_RESULT_PREFETCH_DEPTH = "mapred.salesforce.resultPrefetchDepth";
+  public static final String CONFIG_RESULT_PREFETCH_MEMORY_MB = "mapred.salesforce.resultPrefetchMemoryMB";
+  public static final String CONFIG_SPOOL_RESULTS = "mapred.salesforce.spoolResults";
+  public static final String CONFIG_POSITIONAL_ROWS = "mapred.salesforce.positionalRows";
+  public static final String CONFIG_SOAP_QUERY_BATCH_SIZE = "mapred.salesforce.soapQueryBatchSize";
+  public static final String CONFIG_WIDE_QUERY_MAX_IN_FLIGHT = "mapred.salesforce.wideQueryMaxInFlightPartitions";
+  public static final String CONFIG_WIDE_QUERY_RETRIEVE_THREADS = "mapred.salesforce.wideQueryRetrieveThreads";
 
   public static final int WIDE_QUERY_MAX_BATCH_COUNT = 2000;
   // https://developer.salesforce.com/docs/atlas.en-us.api_asynch.meta/api_asynch/
@@ -64,6 +99,8 @@ public class SalesforceSourceConstants {
   public static final int MAX_PK_CHUNK_SIZE = 250000;
   public static final int DEFAULT_PK_CHUNK_SIZE = 100000;
   public static final int MIN_PK_CHUNK_SIZE = 1;
+  // maximum number of COUNT() queries used to balance Id range chunks
+  public static final int MAX_ID_RANGE_COUNT_QUERIES = 500;
   // https://developer.salesforce.com/docs/atlas.en-us.api_asynch.meta/api_asynch/
   // async_api_headers_enable_pk_chunking.htm
   public static final List<String> SUPPORTED_OBJECTS_WITH_PK_CHUNK = Arrays.asList("Account",
@@ -141,14 +178,19 @@ public class SalesforceSourceConstants {
    */
   public static final long GET_BATCH_WAIT_TIME_SECONDS = 6000;
   /**
-   * Sleep time between polling the batch status
+   * Maximum sleep time between retries of a failed batch status poll
    */
   public static final long GET_BATCH_RESULTS_SLEEP_MS = 5000;
 
   /**
-   * Sleep time between polling the batch status for Salesforce Sink
+   * Initial sleep time between polling the batch status, it is doubled after each poll
+   */
+  public static final long BATCH_POLL_MIN_INTERVAL_MS = 250;
+
+  /**
+   * Maximum sleep time between polling the batch status
    */
-  public static final long GET_SINK_BATCH_RESULTS_SLEEP_MS = 5000;
+  public static final long BATCH_POLL_MAX_INTERVAL_MS = 30000;
 
   /**
    * Number of tries while polling the batch status
@@ -171,4 +213,94 @@ public class SalesforceSourceConstants {
 
   public static final int DEFAULT_MAX_RETRY_COUNT = 5;
 
+  /**
+   * Number of SObjects of the multi-object source, for which bulk jobs are created at the same time
+   */
+  public static final int DEFAULT_MAX_CONCURRENT_JOBS = 10;
+
+  /**
+   * Number of records read by a split of the multi-object source with size-aware splitting
+   */
+  public static final int DEFAULT_SPLIT_SIZE = 500000;
+
+  /**
+   * SObjects with fewer records than this fraction of the split size are packed into shared splits
+   */
+  public static final int PACKED_SOBJECT_SPLIT_SIZE_DIVISOR = 10;
+
+  /**
+   * Number of records, above which an SObject of the multi-object source is read with PK chunking when enabled
+   */
+  public static final long DEFAULT_PK_CHUNK_THRESHOLD = 1000000L;
+
+  /**
+   * Total length of the queries or schemas, whose parsed form is kept in each per-JVM cache of the input format
+   */
+  public static final long READER_CACHE_MAX_CHARS = 8 * 1024 * 1024;
+
+  /**
+   * Number of Bulk API result chunks downloaded in background while the current one is being parsed
+   */
+  public static final int DEFAULT_RESULT_PREFETCH_DEPTH = 1;
+
+  /**
+   * Amount of prefetched result data kept in memory per reader, the rest is spooled to local temporary files
+   */
+  public static final int DEFAULT_RESULT_PREFETCH_MEMORY_MB = 64;
+
+  /**
+   * Directory under the local directory of the task, where Bulk API result chunks are spooled when enabled
+   */
+  public static final String SPOOL_DIRECTORY_NAME = "salesforce-bulk-results";
+
+  /**
+   * Number of records returned by a SOAP API query call, Salesforce allows values between 200 and 2000
+   */
+  public static final int DEFAULT_SOAP_QUERY_BATCH_SIZE = 2000;
+  public static final int MIN_SOAP_QUERY_BATCH_SIZE = 200;
+  public static final int MAX_SOAP_QUERY_BATCH_SIZE = 2000;
+
+  /**
+   * Number of wide query Id partitions being retrieved or waiting to be read per reader, each partition holds up to
+   * {@link #WIDE_QUERY_MAX_BATCH_COUNT} records
+   */
+  public static final int DEFAULT_WIDE_QUERY_MAX_IN_FLIGHT = 4;
+
+  /**
+   * Number of concurrent SOAP retrieve calls per wide query reader. The maximum keeps several tasks of a pipeline
+   * below the limit of 25 concurrent long-running API requests of a Salesforce org
+   */
+  public static final int DEFAULT_WIDE_QUERY_RETRIEVE_THREADS = 4;
+  public static final int MAX_WIDE_QUERY_RETRIEVE_THREADS = 10;
+
+  /**
+   * Field of which the high-watermark is tracked in incremental mode, it is updated on any change of the record
+   * including system changes, which do not update `LastModifiedDate`
+   */
+  public static final String DEFAULT_INCREMENTAL_FIELD = "SystemModstamp";
+
+  /**
+   * Field added to records of the replication mode, which holds the operation of the record
+   */
+  public static final String REPLICATION_OPERATION_FIELD = "_operation";
+  public static final String REPLICATION_OPERATION_UPSERT = "UPSERT";
+  public static final String REPLICATION_OPERATION_DELETE = "DELETE";
+
+  /**
+   * Length of time windows of the replication mode read by a single split, updated and deleted records of each
+   * window are listed with a single call
+   */
+  public static final long REPLICATION_SPLIT_WINDOW_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  /**
+   * Maximum age of the start of the replication time window, older changes are not returned by the replication API
+   */
+  public static final long REPLICATION_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+  /**
+   * Time by which each replication window but the first starts before the end of the previous one. Changes of
+   * transactions running at the end of a window are only listed after it, see `latestDateCovered` of `getUpdated`
+   */
+  public static final long REPLICATION_WINDOW_OVERLAP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
 }
@@ -15,6 +15,7 @@
  */
 package io.cdap.plugin.salesforce.plugin.source.batch.util;
 
+import com.google.common.base.Strings;
 import com.sforce.async.AsyncApiException;
 import com.sforce.async.AsyncExceptionCode;
 import com.sforce.async.BatchInfo;
@@ -30,6 +31,7 @@ import dev.failsafe.FailsafeException;
 import dev.failsafe.RetryPolicy;
 import dev.failsafe.TimeoutExceededException;
 import io.cdap.plugin.salesforce.BulkAPIBatchException;
+import io.cdap.plugin.salesforce.BulkPollInterval;
 import io.cdap.plugin.salesforce.InvalidConfigException;
 import io.cdap.plugin.salesforce.SObjectDescriptor;
 import io.cdap.plugin.salesforce.SalesforceBulkUtil;
@@ -44,11 +46,19 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 
 /**
  * Utility class which provides methods to generate Salesforce splits for a query.
@@ -69,10 +79,242 @@ public final class SalesforceSplitUtil {
                                                      boolean enablePKChunk, String operation,
                                                      Long initialRetryDuration, Long maxRetryDuration,
                                                      Integer maxRetryCount, Boolean retryOnBackendError) {
-    return Stream.of(getBatches(query, bulkConnection, enablePKChunk, operation, initialRetryDuration, maxRetryDuration,
-                                maxRetryCount, retryOnBackendError))
-      .map(batch -> new SalesforceSplit(batch.getJobId(), batch.getId(), query))
-      .collect(Collectors.toList());
+    return getQuerySplits(query, bulkConnection, enablePKChunk, operation, initialRetryDuration, maxRetryDuration,
+                          maxRetryCount, retryOnBackendError, false);
+  }
+
+  /**
+   * Generates and returns Salesforce splits for a query. If splitting by result chunks is enabled, waits for
+   * the batches to complete and generates a split for each result chunk of each batch, so that large batches
+   * are read by multiple tasks.
+   *
+   * @param query              the query for the sobject
+   * @param bulkConnection     used to create salesforce jobs
+   * @param enablePKChunk      indicates if pk chunking is enabled
+   * @param splitByResultChunk indicates if a split should be generated for each batch result chunk
+   * @return list of salesforce splits
+   */
+  public static List<SalesforceSplit> getQuerySplits(String query, BulkConnection bulkConnection,
+                                                     boolean enablePKChunk, String operation,
+                                                     Long initialRetryDuration, Long maxRetryDuration,
+                                                     Integer maxRetryCount, Boolean retryOnBackendError,
+                                                     boolean splitByResultChunk) {
+    BatchInfo[] batches = getBatches(query, bulkConnection, enablePKChunk, operation, initialRetryDuration,
+                                     maxRetryDuration, maxRetryCount, retryOnBackendError);
+    try {
+      return createSplits(bulkConnection, batches, batch -> query, initialRetryDuration, maxRetryDuration,
+                          maxRetryCount, retryOnBackendError, splitByResultChunk);
+    } catch (RuntimeException e) {
+      closeFailedJobs(bulkConnection, Stream.of(batches).map(BatchInfo::getJobId).distinct()
+        .collect(Collectors.toList()));
+      throw e;
+    }
+  }
+
+  /**
+   * Generates and returns Salesforce splits for multiple queries of the same sobject, which are run as separate
+   * batches of a single bulk job. Used for queries chunked by Id ranges on the client side.
+   *
+   * @param queries            queries for the sobject
+   * @param bulkConnection     used to create salesforce jobs
+   * @param splitByResultChunk indicates if a split should be generated for each batch result chunk
+   * @return list of salesforce splits
+   */
+  public static List<SalesforceSplit> getQuerySplits(List<String> queries, BulkConnection bulkConnection,
+                                                     String operation, Long initialRetryDuration,
+                                                     Long maxRetryDuration, Integer maxRetryCount,
+                                                     Boolean retryOnBackendError, boolean splitByResultChunk) {
+    Map<String, String> batchQueries = new HashMap<>();
+    List<String> createdJobIds = new ArrayList<>();
+    boolean succeeded = false;
+    try {
+      SObjectDescriptor sObjectDescriptor = SObjectDescriptor.fromQuery(queries.get(0));
+      JobInfo job = SalesforceBulkUtil.createJob(bulkConnection, sObjectDescriptor.getName(),
+                                                 getOperationEnum(operation), null, ConcurrencyMode.Parallel,
+                                                 ContentType.CSV);
+      createdJobIds.add(job.getId());
+      for (String query : queries) {
+        String batchQuery = query;
+        if (!SalesforceQueryUtil.isQueryUnderLengthLimit(query)) {
+          LOG.debug("Wide object query detected. Query length '{}'", query.length());
+          batchQuery = SalesforceQueryUtil.createSObjectIdQuery(query);
+        }
+        BatchInfo batchInfo = createBatch(bulkConnection, batchQuery, job, initialRetryDuration, maxRetryDuration,
+                                          maxRetryCount, retryOnBackendError);
+        batchQueries.put(batchInfo.getId(), query);
+      }
+      LOG.debug("Created {} batches in job {}", batchQueries.size(), job.getId());
+      BatchInfo[] batches = bulkConnection.getBatchInfoList(job.getId()).getBatchInfo();
+      List<SalesforceSplit> splits = createSplits(bulkConnection, batches, batch -> batchQueries.get(batch.getId()),
+                                                  initialRetryDuration, maxRetryDuration, maxRetryCount,
+                                                  retryOnBackendError, splitByResultChunk);
+      succeeded = true;
+      return splits;
+    } catch (AsyncApiException | IOException | InterruptedException e) {
+      throw new RuntimeException(
+        String.format("Failed to run Salesforce bulk queries (%s): %s", queries.get(0), e.getMessage()), e);
+    } finally {
+      if (!succeeded) {
+        closeFailedJobs(bulkConnection, createdJobIds);
+      }
+    }
+  }
+
+  /**
+   * Generates and returns Salesforce splits for wide queries of the same sobject, which are read with Bulk API
+   * instead of retrieving each record with SOAP API. Fields of the queries are divided into groups of queries
+   * under SOQL length limit, each group is run as a separate bulk job with a batch per query. Results of
+   * all field group batches of a query are ordered by Id and joined by Id when the split is read.
+   *
+   * @param queries        wide queries for the sobject, for example restricted to Id ranges
+   * @param bulkConnection used to create salesforce jobs
+   * @return list of salesforce splits, one per query
+   */
+  public static List<SalesforceSplit> getFieldGroupSplits(List<String> queries, BulkConnection bulkConnection,
+                                                          String operation, Long initialRetryDuration,
+                                                          Long maxRetryDuration, Integer maxRetryCount,
+                                                          Boolean retryOnBackendError) {
+    // groups of the longest query fit all queries, since queries differ only in conditions
+    String longestQuery = queries.stream().max(Comparator.comparingInt(String::length)).orElse(queries.get(0));
+    List<List<String>> fieldGroups = SalesforceQueryUtil.getFieldGroups(longestQuery);
+    LOG.debug("Wide object query of length '{}' is divided into {} field groups", longestQuery.length(),
+              fieldGroups.size());
+    List<String> createdJobIds = new ArrayList<>();
+    boolean succeeded = false;
+    try {
+      SObjectDescriptor sObjectDescriptor = SObjectDescriptor.fromQuery(queries.get(0));
+      List<List<String>> jobIds = new ArrayList<>();
+      List<List<String>> batchIds = new ArrayList<>();
+      for (int i = 0; i < queries.size(); i++) {
+        jobIds.add(new ArrayList<>());
+        batchIds.add(new ArrayList<>());
+      }
+      for (List<String> fieldGroup : fieldGroups) {
+        JobInfo job = SalesforceBulkUtil.createJob(bulkConnection, sObjectDescriptor.getName(),
+                                                   getOperationEnum(operation), null, ConcurrencyMode.Parallel,
+                                                   ContentType.CSV);
+        createdJobIds.add(job.getId());
+        for (int i = 0; i < queries.size(); i++) {
+          String query = SalesforceQueryUtil.createFieldGroupQuery(queries.get(i), fieldGroup);
+          BatchInfo batchInfo = createBatch(bulkConnection, query, job, initialRetryDuration, maxRetryDuration,
+                                            maxRetryCount, retryOnBackendError);
+          jobIds.get(i).add(job.getId());
+          batchIds.get(i).add(batchInfo.getId());
+        }
+      }
+      List<SalesforceSplit> splits = new ArrayList<>(queries.size());
+      for (int i = 0; i < queries.size(); i++) {
+        splits.add(SalesforceSplit.forFieldGroups(queries.get(i), jobIds.get(i), batchIds.get(i)));
+      }
+      succeeded = true;
+      return splits;
+    } catch (AsyncApiException | IOException | InterruptedException e) {
+      throw new RuntimeException(
+        String.format("Failed to run Salesforce bulk queries of field groups (%s): %s", queries.get(0),
+                      e.getMessage()), e);
+    } finally {
+      if (!succeeded) {
+        closeFailedJobs(bulkConnection, createdJobIds);
+      }
+    }
+  }
+
+  private static List<SalesforceSplit> createSplits(BulkConnection bulkConnection, BatchInfo[] batches,
+                                                    Function<BatchInfo, String> batchQuery,
+                                                    Long initialRetryDuration, Long maxRetryDuration,
+                                                    Integer maxRetryCount, Boolean retryOnBackendError,
+                                                    boolean splitByResultChunk) {
+    if (!splitByResultChunk) {
+      return Stream.of(batches)
+        .map(batch -> new SalesforceSplit(batch.getJobId(), batch.getId(), batchQuery.apply(batch)))
+        .collect(Collectors.toList());
+    }
+    try {
+      List<SalesforceSplit> splits = new ArrayList<>();
+      for (BatchInfo batch : waitForBatchesCompletion(bulkConnection, batches)) {
+        String[] resultIds = getQueryResultList(bulkConnection, batch, initialRetryDuration, maxRetryDuration,
+                                                maxRetryCount, retryOnBackendError);
+        LOG.debug("Batch {} of job {} returned {} results", batch.getId(), batch.getJobId(), resultIds.length);
+        // record counts of the result chunks are not returned, records are assumed to be spread evenly
+        long chunkRecords = resultIds.length == 0
+          ? 0 : (batch.getNumberRecordsProcessed() + resultIds.length - 1) / resultIds.length;
+        for (String resultId : resultIds) {
+          splits.add(SalesforceSplit.forResultChunk(batch.getJobId(), batch.getId(), batchQuery.apply(batch),
+                                                    resultId, chunkRecords));
+        }
+      }
+      return splits;
+    } catch (AsyncApiException | InterruptedException e) {
+      throw new RuntimeException(
+        String.format("Failed to get results of a Salesforce bulk query (%s): %s",
+                      batches.length == 0 ? "" : batchQuery.apply(batches[0]), e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Divides the time window into consecutive windows of
+   * {@link SalesforceSourceConstants#REPLICATION_SPLIT_WINDOW_MILLIS} and generates a replication split for each
+   * of them. Replication API ignores seconds, so the boundaries are truncated to minutes. Each window but the first
+   * starts {@link SalesforceSourceConstants#REPLICATION_WINDOW_OVERLAP_MILLIS} before the end of the previous one,
+   * so that changes committed by transactions running at the end of the previous window are not missed.
+   *
+   * @param query     SObject query with fields to read
+   * @param startTime inclusive start of the time window in milliseconds
+   * @param endTime   exclusive end of the time window in milliseconds
+   * @return list of salesforce splits, empty if the window is shorter than a minute
+   */
+  public static List<SalesforceSplit> getReplicationSplits(String query, long startTime, long endTime) {
+    long minute = TimeUnit.MINUTES.toMillis(1);
+    long windowStart = startTime - Math.floorMod(startTime, minute);
+    long windowEnd = endTime - Math.floorMod(endTime, minute);
+    long splitWindow = SalesforceSourceConstants.REPLICATION_SPLIT_WINDOW_MILLIS;
+    List<SalesforceSplit> splits = new ArrayList<>();
+    for (long start = windowStart; start < windowEnd; start += splitWindow) {
+      long overlapStart = Math.max(windowStart, start - SalesforceSourceConstants.REPLICATION_WINDOW_OVERLAP_MILLIS);
+      splits.add(SalesforceSplit.forReplication(query, overlapStart, Math.min(windowEnd, start + splitWindow)));
+    }
+    LOG.debug("Replication window of query '{}' is divided into {} splits", query, splits.size());
+    return splits;
+  }
+
+  /**
+   * Runs each query as a Bulk API 2.0 query job, waits for the jobs to complete and generates a split for each
+   * job. Result pages of a job are read by its split one after another, since the locator of a page is only
+   * known from the response of the previous one, so queries of Id or time ranges are used to read in parallel.
+   *
+   * @param queries              queries for the sobject, for example restricted to Id ranges
+   * @param credentials          Salesforce credentials
+   * @param operation            query operation, `query` or `queryAll`
+   * @param maxRecordsPerPage    maximum number of records in a page, 0 to let Salesforce choose the page size
+   * @param initialRetryDuration initial delay before a failed request is retried in seconds
+   * @param maxRetryDuration     maximum delay between retries of a failed request in seconds
+   * @param maxRetryCount        maximum number of retries of a failed request
+   * @param retryOnBackendError  whether failed requests are retried
+   * @return list of salesforce splits, one per query
+   */
+  public static List<SalesforceSplit> getBulk2QuerySplits(List<String> queries, AuthenticatorCredentials credentials,
+                                                          String operation, int maxRecordsPerPage,
+                                                          Long initialRetryDuration, Long maxRetryDuration,
+                                                          Integer maxRetryCount, Boolean retryOnBackendError) {
+    RetryPolicy<Object> retryPolicy = retryOnBackendError
+      ? getRetryPolicy(initialRetryDuration, maxRetryDuration, maxRetryCount) : null;
+    try (SalesforceBulk2Client client = new SalesforceBulk2Client(credentials, retryPolicy)) {
+      // jobs run concurrently on the server while the previous ones are awaited
+      List<String> jobIds = new ArrayList<>(queries.size());
+      for (String query : queries) {
+        jobIds.add(client.createQueryJob(query, operation));
+      }
+      List<SalesforceSplit> splits = new ArrayList<>(queries.size());
+      for (int i = 0; i < queries.size(); i++) {
+        long records = client.awaitCompletion(jobIds.get(i));
+        LOG.debug("Bulk API 2.0 job {} returned {} records", jobIds.get(i), records);
+        splits.add(SalesforceSplit.forQueryJob(jobIds.get(i), queries.get(i), records, maxRecordsPerPage));
+      }
+      return splits;
+    } catch (IOException | InterruptedException e) {
+      throw new RuntimeException(
+        String.format("Failed to run a Salesforce Bulk API 2.0 query (%s): %s", queries.get(0), e.getMessage()), e);
+    }
   }
 
   /**
@@ -123,20 +365,15 @@ public final class SalesforceSplitUtil {
     SObjectDescriptor sObjectDescriptor = SObjectDescriptor.fromQuery(query);
     JobInfo job = SalesforceBulkUtil.createJob(bulkConnection, sObjectDescriptor.getName(), getOperationEnum(operation),
       null, ConcurrencyMode.Parallel, ContentType.CSV);
-    final BatchInfo batchInfo;
+    boolean succeeded = false;
     try {
-      if (retryOnBackendError) {
-        batchInfo =
-          Failsafe.with(getRetryPolicy(initialRetryDuration, maxRetryDuration, maxRetryCount))
-            .get(() -> createBatchFromStream(bulkConnection, query, job));
-      } else {
-        try (ByteArrayInputStream bout = new ByteArrayInputStream(query.getBytes())) {
-          batchInfo = bulkConnection.createBatchFromStream(job, bout);
-        }
-      }
+      BatchInfo batchInfo = createBatch(bulkConnection, query, job, initialRetryDuration, maxRetryDuration,
+                                        maxRetryCount, retryOnBackendError);
       if (enablePKChunk) {
         LOG.debug("PKChunking is enabled");
-        return waitForBatchChunks(bulkConnection, job.getId(), batchInfo.getId());
+        BatchInfo[] batchInfos = waitForBatchChunks(bulkConnection, job.getId(), batchInfo.getId());
+        succeeded = true;
+        return batchInfos;
       }
       LOG.debug("PKChunking is not enabled");
       BatchInfo[] batchInfos = bulkConnection.getBatchInfoList(job.getId()).getBatchInfo();
@@ -144,7 +381,44 @@ public final class SalesforceSplitUtil {
       if (batchInfos.length > 0) {
         LOG.info("Batch size {}, state {}", batchInfos.length, batchInfos[0].getState());
       }
+      succeeded = true;
       return batchInfos;
+    } finally {
+      if (!succeeded) {
+        closeFailedJobs(bulkConnection, Collections.singletonList(job.getId()));
+      }
+    }
+  }
+
+  /**
+   * Closes jobs created for queries, whose splits could not be generated. Ids of these jobs are not returned
+   * in splits, so they would not be closed when the run finishes, for example if the query is planned again.
+   *
+   * @param bulkConnection bulk connection instance
+   * @param jobIds         ids of the jobs
+   */
+  private static void closeFailedJobs(BulkConnection bulkConnection, List<String> jobIds) {
+    for (String jobId : jobIds) {
+      try {
+        SalesforceBulkUtil.closeJob(bulkConnection, jobId);
+      } catch (AsyncApiException | RuntimeException e) {
+        LOG.warn("Failed to close job {} of a failed query.", jobId, e);
+      }
+    }
+  }
+
+  private static BatchInfo createBatch(BulkConnection bulkConnection, String query, JobInfo job,
+                                       Long initialRetryDuration, Long maxRetryDuration,
+                                       Integer maxRetryCount, Boolean retryOnBackendError)
+    throws AsyncApiException, IOException, InterruptedException {
+    try {
+      if (retryOnBackendError) {
+        return Failsafe.with(getRetryPolicy(initialRetryDuration, maxRetryDuration, maxRetryCount))
+          .get(() -> createBatchFromStream(bulkConnection, query, job));
+      }
+      try (ByteArrayInputStream bout = new ByteArrayInputStream(query.getBytes())) {
+        return bulkConnection.createBatchFromStream(job, bout);
+      }
     } catch (TimeoutExceededException e) {
       throw new AsyncApiException("Exhausted retries trying to create batch from stream", AsyncExceptionCode.Timeout);
     } catch (FailsafeException e) {
@@ -188,6 +462,47 @@ public final class SalesforceSplitUtil {
     }
   }
 
+  /**
+   * Creates a bulk connection with the session of the given one, which enables PK chunking of the jobs it creates.
+   * Headers of a bulk connection are sent with every request, so a separate connection is used for the jobs
+   * with PK chunking, instead of enabling it for all jobs created with the given connection.
+   *
+   * @param bulkConnection bulk connection, whose session is used
+   * @param chunkSize      number of records in a chunk
+   * @param parent         parent of the SObject, used to enable PK chunking for history and shared objects
+   * @return bulk connection enabling PK chunking
+   */
+  public static BulkConnection getPKChunkBulkConnection(BulkConnection bulkConnection, int chunkSize,
+                                                        @Nullable String parent) {
+    List<String> chunkHeaderValues = new ArrayList<>();
+    chunkHeaderValues.add(String.format(SalesforceSourceConstants.HEADER_VALUE_PK_CHUNK, chunkSize));
+    if (!Strings.isNullOrEmpty(parent)) {
+      chunkHeaderValues.add(String.format(SalesforceSourceConstants.HEADER_PK_CHUNK_PARENT, parent));
+    }
+    try {
+      BulkConnection pkChunkConnection = new BulkConnection(bulkConnection.getConfig());
+      pkChunkConnection.addHeader(SalesforceSourceConstants.HEADER_ENABLE_PK_CHUNK,
+                                  String.join(";", chunkHeaderValues));
+      return pkChunkConnection;
+    } catch (AsyncApiException e) {
+      throw new RuntimeException(
+        String.format("Failed to create a connection to Salesforce bulk API: %s", e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Checks whether PK chunking is supported for the SObject without describing it. Custom objects support
+   * PK chunking as well as the standard objects listed in
+   * {@link SalesforceSourceConstants#SUPPORTED_OBJECTS_WITH_PK_CHUNK}.
+   *
+   * @param sObjectName SObject name
+   * @return true if PK chunking is supported for the SObject
+   */
+  public static boolean isPKChunkSupported(String sObjectName) {
+    return SalesforceSourceConstants.SUPPORTED_OBJECTS_WITH_PK_CHUNK.contains(sObjectName)
+      || sObjectName.endsWith("__c");
+  }
+
   /**
    * When PK Chunk is enabled, wait for state of initial batch to be NotProcessed, in this case Salesforce API will
    * decide how many batches will be created
@@ -201,7 +516,11 @@ public final class SalesforceSplitUtil {
   private static BatchInfo[] waitForBatchChunks(BulkConnection bulkConnection, String jobId, String initialBatchId)
     throws AsyncApiException {
     BatchInfo initialBatchInfo = null;
-    for (int i = 0; i < SalesforceSourceConstants.GET_BATCH_RESULTS_TRIES; i++) {
+    BulkPollInterval pollInterval = new BulkPollInterval();
+    long deadline = System.currentTimeMillis()
+      + TimeUnit.SECONDS.toMillis(SalesforceSourceConstants.GET_BATCH_WAIT_TIME_SECONDS);
+    int failures = 0;
+    while (System.currentTimeMillis() < deadline) {
       //check if the job is aborted
       if (bulkConnection.getJobStatus(jobId).getState() == JobStateEnum.Aborted) {
         LOG.info(String.format("Job with Id: '%s' is aborted", jobId));
@@ -209,31 +528,83 @@ public final class SalesforceSplitUtil {
       }
       try {
         initialBatchInfo = bulkConnection.getBatchInfo(jobId, initialBatchId);
+        failures = 0;
+        pollInterval.update(new BatchInfo[] {initialBatchInfo});
       } catch (AsyncApiException e) {
-        if (i == SalesforceSourceConstants.GET_BATCH_RESULTS_TRIES - 1) {
+        if (++failures == SalesforceSourceConstants.GET_BATCH_RESULTS_TRIES) {
           throw e;
         }
         LOG.warn("Failed to get info for batch {}. Will retry after some time.", initialBatchId, e);
-        continue;
+        pollInterval.failed();
       }
 
-      if (initialBatchInfo.getState() == BatchStateEnum.NotProcessed) {
+      if (initialBatchInfo != null && initialBatchInfo.getState() == BatchStateEnum.NotProcessed) {
         BatchInfo[] result = bulkConnection.getBatchInfoList(jobId).getBatchInfo();
         return Arrays.stream(result).filter(batchInfo -> batchInfo.getState() != BatchStateEnum.NotProcessed)
           .toArray(BatchInfo[]::new);
-      } else if (initialBatchInfo.getState() == BatchStateEnum.Failed) {
+      } else if (initialBatchInfo != null && initialBatchInfo.getState() == BatchStateEnum.Failed) {
         throw new BulkAPIBatchException("Batch failed", initialBatchInfo);
-      } else {
-        try {
-          Thread.sleep(SalesforceSourceConstants.GET_BATCH_RESULTS_SLEEP_MS);
-        } catch (InterruptedException e) {
-          throw new RuntimeException(String.format("Job is aborted: %s", e.getMessage()), e);
-        }
+      }
+      try {
+        Thread.sleep(pollInterval.next());
+      } catch (InterruptedException e) {
+        throw new RuntimeException(String.format("Job is aborted: %s", e.getMessage()), e);
       }
     }
     throw new BulkAPIBatchException("Timeout waiting for batch results", initialBatchInfo);
   }
 
+  /**
+   * Waits until all given batches of a job are completed.
+   *
+   * @param bulkConnection bulk connection instance
+   * @param batches        batches of a single job
+   * @return completed batches
+   * @throws AsyncApiException    if batch info cannot be retrieved
+   * @throws InterruptedException interrupted while waiting
+   */
+  private static List<BatchInfo> waitForBatchesCompletion(BulkConnection bulkConnection, BatchInfo[] batches)
+    throws AsyncApiException, InterruptedException {
+    if (batches.length == 0) {
+      return Collections.emptyList();
+    }
+    List<String> batchIds = Stream.of(batches).map(BatchInfo::getId).collect(Collectors.toList());
+    return SalesforceBulkJobPoller.getInstance().awaitCompletion(bulkConnection, batches[0].getJobId(), batchIds);
+  }
+
+  private static String[] getQueryResultList(BulkConnection bulkConnection, BatchInfo batch,
+                                             Long initialRetryDuration, Long maxRetryDuration,
+                                             Integer maxRetryCount, Boolean retryOnBackendError)
+    throws AsyncApiException, InterruptedException {
+    if (!retryOnBackendError) {
+      return bulkConnection.getQueryResultList(batch.getJobId(), batch.getId()).getResult();
+    }
+    try {
+      return Failsafe.with(getRetryPolicy(initialRetryDuration, maxRetryDuration, maxRetryCount))
+        .get(() -> {
+          try {
+            return bulkConnection.getQueryResultList(batch.getJobId(), batch.getId()).getResult();
+          } catch (AsyncApiException exception) {
+            LOG.warn("Failed to get results of batch {} for job {}.", batch.getId(), batch.getJobId());
+            if (SalesforceBulkRecordReader.RETRY_ON_REASON.contains(exception.getExceptionCode())) {
+              throw new SalesforceQueryExecutionException(exception);
+            }
+            throw exception;
+          }
+        });
+    } catch (TimeoutExceededException e) {
+      throw new AsyncApiException("Exhausted retries trying to get query result list", AsyncExceptionCode.Timeout);
+    } catch (FailsafeException e) {
+      if (e.getCause() instanceof InterruptedException) {
+        throw (InterruptedException) e.getCause();
+      }
+      if (e.getCause() instanceof AsyncApiException) {
+        throw (AsyncApiException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   public static void closeJobs(Set<String> jobIds, AuthenticatorCredentials authenticatorCredentials) {
     BulkConnection bulkConnection = SalesforceSplitUtil.getBulkConnection(authenticatorCredentials);
     RuntimeException runtimeException = null;
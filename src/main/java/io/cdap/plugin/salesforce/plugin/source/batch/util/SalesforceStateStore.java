@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * Stores state of Salesforce sources between pipeline runs, such as high-watermarks of incremental extraction.
+ */
+public interface SalesforceStateStore {
+
+  /**
+   * @param key key of the value, for example SObject name
+   * @return stored value or null if there is no value for the key
+   * @throws IOException if the value could not be read
+   */
+  @Nullable
+  String get(String key) throws IOException;
+
+  /**
+   * Stores the value, replacing the previous value of the key.
+   *
+   * @param key   key of the value, for example SObject name
+   * @param value value to store
+   * @throws IOException if the value could not be stored
+   */
+  void put(String key, String value) throws IOException;
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.sforce.async.OperationEnum;
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.soap.partner.QueryResult;
+import com.sforce.soap.partner.sobject.SObject;
+import com.sforce.ws.ConnectionException;
+import io.cdap.plugin.salesforce.SObjectFilterDescriptor;
+import io.cdap.plugin.salesforce.SalesforceQueryUtil;
+import io.cdap.plugin.salesforce.parser.SalesforceQueryParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Splits a query with `LastModifiedDate` filter into queries for consecutive time ranges with approximately
+ * equal number of records, so that long time windows are read evenly in parallel.
+ * <p/>
+ * Number of records modified on each day of the window is obtained with a single aggregate query grouped by
+ * `DAY_ONLY(LastModifiedDate)`. If the window has too many days to be returned by an aggregate query,
+ * records are grouped by calendar month instead. The days are then merged into time ranges of approximately
+ * split size records. Records modified on the same day are never split between time ranges.
+ */
+public final class SalesforceTimeRangeSplitter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SalesforceTimeRangeSplitter.class);
+  private static final String DAY_HISTOGRAM_QUERY = "SELECT DAY_ONLY(LastModifiedDate), COUNT(Id) %s " +
+    "GROUP BY DAY_ONLY(LastModifiedDate)";
+  private static final String MONTH_HISTOGRAM_QUERY = "SELECT CALENDAR_YEAR(LastModifiedDate), " +
+    "CALENDAR_MONTH(LastModifiedDate), COUNT(Id) %s " +
+    "GROUP BY CALENDAR_YEAR(LastModifiedDate), CALENDAR_MONTH(LastModifiedDate)";
+
+  /**
+   * Splits the query into queries for consecutive time ranges of the filter with approximately split size
+   * records each.
+   *
+   * @param partnerConnection partner connection used to run the aggregate query
+   * @param query             SOQL query with `LastModifiedDate` filter
+   * @param operation         query operation, `query` or `queryAll`
+   * @param filterDescriptor  time window of the query
+   * @param splitSize         approximate number of records in a time range
+   * @return queries restricted to time ranges or the initial query if it does not need to be split
+   * @throws ConnectionException if records could not be counted
+   */
+  public static List<String> getRangeQueries(PartnerConnection partnerConnection, String query, String operation,
+                                             SObjectFilterDescriptor filterDescriptor, int splitSize)
+    throws ConnectionException {
+    boolean queryAll = OperationEnum.queryAll.name().equals(operation);
+    String fromStatement = SalesforceQueryParser.getFromStatement(query);
+    QueryResult result = query(partnerConnection, String.format(DAY_HISTOGRAM_QUERY, fromStatement), queryAll);
+    SortedMap<LocalDate, Long> histogram = new TreeMap<>();
+    if (result.isDone()) {
+      for (SObject record : result.getRecords()) {
+        histogram.put(LocalDate.parse(getField(record, "expr0")), Long.parseLong(getField(record, "expr1")));
+      }
+    } else {
+      LOG.debug("Too many days in the time window of query '{}', counting records by month", query);
+      result = query(partnerConnection, String.format(MONTH_HISTOGRAM_QUERY, fromStatement), queryAll);
+      for (SObject record : result.getRecords()) {
+        histogram.put(LocalDate.of(Integer.parseInt(getField(record, "expr0")),
+                                   Integer.parseInt(getField(record, "expr1")), 1),
+                      Long.parseLong(getField(record, "expr2")));
+      }
+    }
+
+    List<ZonedDateTime> boundaries = getBoundaries(histogram, splitSize);
+    LOG.debug("Split {} days of query '{}' into {} time ranges", histogram.size(), query, boundaries.size() + 1);
+    if (boundaries.isEmpty()) {
+      return Collections.singletonList(query);
+    }
+    List<String> queries = new ArrayList<>(boundaries.size() + 1);
+    ZonedDateTime startTime = filterDescriptor.getStartTime();
+    for (ZonedDateTime boundary : boundaries) {
+      queries.add(SalesforceQueryUtil.addSObjectFilter(query, SObjectFilterDescriptor.interval(startTime, boundary)));
+      startTime = boundary;
+    }
+    queries.add(SalesforceQueryUtil.addSObjectFilter(
+      query, SObjectFilterDescriptor.interval(startTime, filterDescriptor.getEndTime())));
+    return queries;
+  }
+
+  /**
+   * Calculates start times of time ranges, which divide records of the histogram into ranges of approximately
+   * split size records.
+   *
+   * @param histogram number of records by the first day of the histogram bucket
+   * @param splitSize approximate number of records in a time range
+   * @return ordered start times of all time ranges except the first one
+   */
+  @VisibleForTesting
+  static List<ZonedDateTime> getBoundaries(SortedMap<LocalDate, Long> histogram, long splitSize) {
+    List<ZonedDateTime> boundaries = new ArrayList<>();
+    long rangeCount = 0;
+    for (Map.Entry<LocalDate, Long> bucket : histogram.entrySet()) {
+      // the bucket is added to the next range if it fits there better
+      if (rangeCount > 0 && rangeCount + bucket.getValue() / 2 >= splitSize) {
+        boundaries.add(bucket.getKey().atStartOfDay(ZoneOffset.UTC));
+        rangeCount = 0;
+      }
+      rangeCount += bucket.getValue();
+    }
+    return boundaries;
+  }
+
+  private static String getField(SObject record, String name) {
+    return String.valueOf(record.getField(name));
+  }
+
+  private static QueryResult query(PartnerConnection partnerConnection, String query, boolean queryAll)
+    throws ConnectionException {
+    return queryAll ? partnerConnection.queryAll(query) : partnerConnection.query(query);
+  }
+}
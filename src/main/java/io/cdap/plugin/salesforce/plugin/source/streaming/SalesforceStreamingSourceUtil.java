@@ -23,6 +23,7 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.streaming.StreamingContext;
 import io.cdap.plugin.salesforce.SObjectDescriptor;
 import io.cdap.plugin.salesforce.SalesforceSchemaUtil;
+import io.cdap.plugin.salesforce.SalesforceTransformUtil;
 import io.cdap.plugin.salesforce.plugin.OAuthInfo;
 import org.apache.spark.streaming.api.java.JavaDStream;
 import org.apache.spark.streaming.api.java.JavaReceiverInputDStream;
@@ -33,13 +34,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import scala.reflect.ClassTag$;
 
-import java.time.Instant;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Salesforce streaming source uti.
@@ -124,11 +120,11 @@ final class SalesforceStreamingSourceUtil {
       String valueString = (String) value;
       switch (logicalType) {
         case DATE:
-          return Math.toIntExact(ChronoUnit.DAYS.between(Instant.EPOCH, Instant.parse(valueString)));
+          return SalesforceTransformUtil.toInstantEpochDay(valueString);
         case TIMESTAMP_MICROS:
-          return TimeUnit.MILLISECONDS.toMicros(Instant.parse(valueString).toEpochMilli());
+          return SalesforceTransformUtil.toTimestampMicros(valueString);
         case TIME_MICROS:
-          return TimeUnit.NANOSECONDS.toMicros(LocalTime.parse(valueString, DateTimeFormatter.ISO_TIME).toNanoOfDay());
+          return SalesforceTransformUtil.toTimeMicros(valueString);
         default:
           throw new UnexpectedFormatException(String.format("Field '%s' is of unsupported type '%s'",
                                                             field.getName(), logicalType.getToken()));
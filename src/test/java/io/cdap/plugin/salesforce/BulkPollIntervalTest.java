@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce;
+
+import com.sforce.async.BatchInfo;
+import com.sforce.async.BatchStateEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Calendar;
+
+/**
+ * Tests for {@link BulkPollInterval}.
+ */
+public class BulkPollIntervalTest {
+
+  @Test
+  public void testBackoff() {
+    BulkPollInterval interval = new BulkPollInterval(100L, 1000L, 300L);
+    interval.update(new BatchInfo[] {createBatch("1", BatchStateEnum.Queued, 0, 0)}, 0L);
+    Assert.assertEquals(100L, interval.next());
+    Assert.assertEquals(200L, interval.next());
+    Assert.assertEquals(400L, interval.next());
+    interval.failed();
+    Assert.assertEquals(300L, interval.next());
+    interval.update(new BatchInfo[] {createBatch("1", BatchStateEnum.InProgress, 0, 0)}, 0L);
+    Assert.assertEquals(1000L, interval.next());
+    Assert.assertEquals(1000L, interval.next());
+  }
+
+  @Test
+  public void testBackoffNotResetWithoutPrediction() {
+    BulkPollInterval interval = new BulkPollInterval(100L, 1000L, 300L);
+    interval.update(new BatchInfo[] {createBatch("1", BatchStateEnum.InProgress, 0, 0),
+      createBatch("2", BatchStateEnum.Queued, 0, 0)}, 0L);
+    interval.next();
+    interval.next();
+    // completed batch without duration gives no prediction for the queued one
+    interval.update(new BatchInfo[] {createBatch("1", BatchStateEnum.Completed, 0, 0),
+      createBatch("2", BatchStateEnum.Queued, 0, 0)}, 0L);
+    Assert.assertEquals(400L, interval.next());
+  }
+
+  @Test
+  public void testPredictionFromRecordsRate() {
+    BulkPollInterval interval = new BulkPollInterval(100L, 60000L, 300L);
+    // completed batch processed 10000 records, running batch processes 10 records per ms
+    interval.update(new BatchInfo[] {createBatch("1", BatchStateEnum.Completed, 10000, 5000),
+      createBatch("2", BatchStateEnum.InProgress, 1000, 0)}, 0L);
+    interval.update(new BatchInfo[] {createBatch("1", BatchStateEnum.Completed, 10000, 5000),
+      createBatch("2", BatchStateEnum.InProgress, 2000, 0)}, 100L);
+    Assert.assertEquals(800L, interval.next());
+    // without a new observation the prediction is not reused, back-off restarts from the predicted interval
+    Assert.assertEquals(1600L, interval.next());
+  }
+
+  @Test
+  public void testPredictionFromDuration() {
+    BulkPollInterval interval = new BulkPollInterval(100L, 60000L, 300L);
+    interval.update(new BatchInfo[] {createBatch("1", BatchStateEnum.Completed, 0, 5000),
+      createBatch("2", BatchStateEnum.InProgress, 0, 1000)}, 0L);
+    Assert.assertEquals(4000L, interval.next());
+    interval.update(new BatchInfo[] {createBatch("1", BatchStateEnum.Completed, 0, 5000),
+      createBatch("2", BatchStateEnum.InProgress, 0, 1000)}, 5900L);
+    // batch runs longer than predicted, back off from the predicted interval instead of polling it at the minimum
+    Assert.assertEquals(8000L, interval.next());
+    interval.update(new BatchInfo[] {createBatch("1", BatchStateEnum.Completed, 0, 5000),
+      createBatch("2", BatchStateEnum.InProgress, 0, 1000)}, 12900L);
+    Assert.assertEquals(16000L, interval.next());
+  }
+
+  private static BatchInfo createBatch(String id, BatchStateEnum state, long recordsProcessed, long durationMs) {
+    BatchInfo batchInfo = new BatchInfo();
+    batchInfo.setId(id);
+    batchInfo.setState(state);
+    batchInfo.setNumberRecordsProcessed((int) recordsProcessed);
+    Calendar created = Calendar.getInstance();
+    created.setTimeInMillis(1_000_000L);
+    Calendar modified = Calendar.getInstance();
+    modified.setTimeInMillis(1_000_000L + durationMs);
+    batchInfo.setCreatedDate(created);
+    batchInfo.setSystemModstamp(modified);
+    return batchInfo;
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link SalesforceIdArray}.
+ */
+public class SalesforceIdArrayTest {
+
+  @Test
+  public void testShortIds() {
+    List<String> ids = Arrays.asList("001D000000IqhSL", "000000000000000", "zzzzzzzzzzzzzzz",
+                                     "a0B5e00000AbCdE");
+    SalesforceIdArray array = new SalesforceIdArray(1);
+    ids.forEach(array::add);
+
+    Assert.assertEquals(ids.size(), array.size());
+    Assert.assertArrayEquals(ids.toArray(), array.toArray());
+    List<String> iterated = new ArrayList<>();
+    array.forEach(iterated::add);
+    Assert.assertEquals(ids, iterated);
+  }
+
+  @Test
+  public void testLongIds() {
+    SalesforceIdArray array = new SalesforceIdArray();
+    array.add("001D000000IqhSLIAZ");
+    array.add("a0B5e00000AbCdEEAV");
+
+    Assert.assertEquals("001D000000IqhSLIAZ", array.get(0));
+    Assert.assertEquals("a0B5e00000AbCdEEAV", array.get(1));
+  }
+
+  @Test
+  public void testClear() {
+    SalesforceIdArray array = new SalesforceIdArray();
+    array.add("001D000000IqhSLIAZ");
+    array.clear();
+
+    Assert.assertTrue(array.isEmpty());
+    array.add("001D000000IqhSL");
+    Assert.assertEquals("001D000000IqhSL", array.get(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMixedLengthIds() {
+    SalesforceIdArray array = new SalesforceIdArray();
+    array.add("001D000000IqhSL");
+    array.add("001D000000IqhSLIAZ");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidId() {
+    new SalesforceIdArray().add("001D000000Iqh-L");
+  }
+
+  @Test
+  public void testToCaseInsensitiveId() {
+    Assert.assertEquals("001D000000IqhSLIAZ", SalesforceIdUtil.toCaseInsensitiveId("001D000000IqhSL"));
+    Assert.assertEquals("001D000000IqhSLIAZ", SalesforceIdUtil.toCaseInsensitiveId("001D000000IqhSLIAZ"));
+  }
+}
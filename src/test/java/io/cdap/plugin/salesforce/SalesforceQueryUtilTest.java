@@ -227,4 +227,71 @@ public class SalesforceQueryUtilTest {
 
     Assert.assertEquals("SELECT Id " + fromClause, sObjectIdQuery);
   }
+
+  @Test
+  public void testCreateSObjectCountQuery() {
+    String fromClause = "FROM sObjectName WHERE LastModifiedDate>=2019-04-12T23:23:23Z";
+
+    Assert.assertEquals("SELECT COUNT() " + fromClause,
+                        SalesforceQueryUtil.createSObjectCountQuery("SELECT Id,Name " + fromClause));
+  }
+
+  @Test
+  public void testCreateIdRangeQuery() {
+    String query = "SELECT Id,Name FROM Account WHERE Name LIKE 'S_%'";
+
+    Assert.assertEquals(query, SalesforceQueryUtil.createIdRangeQuery(query, null, null));
+    Assert.assertEquals("SELECT Id,Name FROM Account WHERE (Name LIKE 'S_%') AND Id<'001000000000002'",
+                        SalesforceQueryUtil.createIdRangeQuery(query, null, "001000000000002"));
+    Assert.assertEquals("SELECT Id,Name FROM Account WHERE (Name LIKE 'S_%') AND Id>='001000000000001' " +
+                          "AND Id<'001000000000002'",
+                        SalesforceQueryUtil.createIdRangeQuery(query, "001000000000001", "001000000000002"));
+    Assert.assertEquals("SELECT Id,Name FROM Account WHERE Id>='001000000000001'",
+                        SalesforceQueryUtil.createIdRangeQuery("SELECT Id,Name FROM Account", "001000000000001",
+                                                               null));
+  }
+
+  @Test
+  public void testCreateIncrementalQuery() {
+    ZonedDateTime after = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    ZonedDateTime upTo = after.plusDays(1);
+    Assert.assertEquals("SELECT Id,Name FROM Account WHERE (Name LIKE 'S_%') AND " +
+                          "SystemModstamp>2020-01-01T00:00:00Z AND SystemModstamp<=2020-01-02T00:00:00Z",
+                        SalesforceQueryUtil.createIncrementalQuery("SELECT Id,Name FROM Account WHERE Name LIKE 'S_%'",
+                                                                   "SystemModstamp", after, upTo));
+    Assert.assertEquals("SELECT Id,Name FROM Account WHERE SystemModstamp<=2020-01-02T00:00:00Z",
+                        SalesforceQueryUtil.createIncrementalQuery("SELECT Id,Name FROM Account",
+                                                                   "SystemModstamp", null, upTo));
+  }
+
+  @Test
+  public void testCreateHighWatermarkQuery() {
+    ZonedDateTime after = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    Assert.assertEquals("SELECT SystemModstamp FROM Account WHERE SystemModstamp!=null AND " +
+                          "SystemModstamp>2020-01-01T00:00:00Z ORDER BY SystemModstamp DESC LIMIT 1",
+                        SalesforceQueryUtil.createHighWatermarkQuery("Account", "SystemModstamp", after));
+    // nulls are first in descending order, so records without the field value must be excluded
+    Assert.assertEquals("SELECT Closed__c FROM Case WHERE Closed__c!=null ORDER BY Closed__c DESC LIMIT 1",
+                        SalesforceQueryUtil.createHighWatermarkQuery("Case", "Closed__c", null));
+  }
+
+  @Test
+  public void testGetFieldGroups() {
+    List<String> fields = IntStream.range(0, 2000)
+      .mapToObj(i -> String.format("Field%04d__c", i))
+      .collect(Collectors.toList());
+    String fromClause = "FROM Account WHERE Name LIKE 'S_%'";
+    String query = "SELECT Id," + String.join(",", fields) + " " + fromClause;
+
+    List<List<String>> groups = SalesforceQueryUtil.getFieldGroups(query);
+
+    Assert.assertTrue(groups.size() > 1);
+    Assert.assertEquals(fields, groups.stream().flatMap(List::stream).collect(Collectors.toList()));
+    for (List<String> group : groups) {
+      String groupQuery = SalesforceQueryUtil.createFieldGroupQuery(query, group);
+      Assert.assertTrue(SalesforceQueryUtil.isQueryUnderLengthLimit(groupQuery));
+      Assert.assertTrue(groupQuery.startsWith("SELECT Id," + group.get(0) + ","));
+      Assert.assertTrue(groupQuery.endsWith(" " + fromClause + " ORDER BY Id"));
+    }
+  }
 }
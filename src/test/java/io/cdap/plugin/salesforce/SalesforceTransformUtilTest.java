@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+public class SalesforceTransformUtilTest {
+
+  @Test
+  public void testDate() {
+    for (String value : new String[]{"2019-05-20", "1970-01-01", "1969-12-31", "2000-02-29", "2100-12-31",
+      "0001-01-01", "9999-12-31", "+12019-05-20"}) {
+      Assert.assertEquals(value, Math.toIntExact(LocalDate.parse(value).toEpochDay()),
+                          SalesforceTransformUtil.toEpochDay(value));
+    }
+    LocalDate date = LocalDate.of(1896, 1, 1);
+    while (date.getYear() < 2104) {
+      Assert.assertEquals(Math.toIntExact(date.toEpochDay()), SalesforceTransformUtil.toEpochDay(date.toString()));
+      date = date.plusDays(1);
+    }
+  }
+
+  @Test(expected = DateTimeParseException.class)
+  public void testInvalidDate() {
+    SalesforceTransformUtil.toEpochDay("2019-02-29");
+  }
+
+  @Test
+  public void testTimestamp() {
+    for (String value : new String[]{"2019-05-20T01:01:01.000Z", "2019-05-20T01:01:01Z", "2019-05-20T23:59:59.999Z",
+      "1969-12-31T23:59:59.500Z", "1900-01-01T00:00:00.1Z", "2019-05-20T01:01:01.123456789Z",
+      "2016-12-31T23:59:60Z", "2019-05-20t01:01:01.000z"}) {
+      Assert.assertEquals(value, TimeUnit.MILLISECONDS.toMicros(Instant.parse(value).toEpochMilli()),
+                          SalesforceTransformUtil.toTimestampMicros(value));
+      Assert.assertEquals(value, Math.toIntExact(ChronoUnit.DAYS.between(Instant.EPOCH, Instant.parse(value))),
+                          SalesforceTransformUtil.toInstantEpochDay(value));
+    }
+  }
+
+  @Test(expected = DateTimeParseException.class)
+  public void testInvalidTimestamp() {
+    SalesforceTransformUtil.toTimestampMicros("2019-05-20T25:01:01.000Z");
+  }
+
+  @Test
+  public void testTime() {
+    for (String value : new String[]{"01:01:01.000Z", "00:00:00Z", "23:59:59.999Z", "12:30:15.123456Z",
+      "12:30:15", "12:30", "12:30:15.123+02:00"}) {
+      Assert.assertEquals(value,
+                          TimeUnit.NANOSECONDS.toMicros(LocalTime.parse(value, DateTimeFormatter.ISO_TIME)
+                                                          .toNanoOfDay()),
+                          SalesforceTransformUtil.toTimeMicros(value));
+    }
+  }
+
+  @Test
+  public void testTransformLogicalType() {
+    Assert.assertEquals(18036, SalesforceTransformUtil.transformLogicalType("f", Schema.LogicalType.DATE,
+                                                                            "2019-05-20"));
+    Assert.assertEquals(1558314061000000L, SalesforceTransformUtil.transformLogicalType(
+      "f", Schema.LogicalType.TIMESTAMP_MICROS, "2019-05-20T01:01:01.000Z"));
+    Assert.assertEquals(3661000000L, SalesforceTransformUtil.transformLogicalType(
+      "f", Schema.LogicalType.TIME_MICROS, "01:01:01.000Z"));
+  }
+}
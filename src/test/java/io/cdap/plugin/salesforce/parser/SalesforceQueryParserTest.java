@@ -296,4 +296,51 @@ public class SalesforceQueryParserTest {
     String query = "SELECT OFFSET FROM CommSubscriptionTiming";
     SalesforceQueryParser.getObjectDescriptorFromQuery(query);
   }
+
+  @Test
+  public void testAddCondition() {
+    String condition = "Id >= '001000000000001'";
+    Assert.assertEquals("SELECT Id, Name FROM Account WHERE Id >= '001000000000001'",
+                        SalesforceQueryParser.addCondition("SELECT Id, Name FROM Account", condition));
+    Assert.assertEquals("SELECT Id FROM Account a WHERE Id >= '001000000000001'",
+                        SalesforceQueryParser.addCondition("SELECT Id FROM Account a", condition));
+    Assert.assertEquals("SELECT Id FROM Account USING SCOPE Mine WHERE Id >= '001000000000001' LIMIT 10",
+                        SalesforceQueryParser.addCondition("SELECT Id FROM Account USING SCOPE Mine LIMIT 10",
+                                                           condition));
+    Assert.assertEquals("SELECT Id FROM Account WHERE (Name = 'a' OR Name = 'b') AND Id >= '001000000000001'",
+                        SalesforceQueryParser.addCondition("SELECT Id FROM Account WHERE Name = 'a' OR Name = 'b'",
+                                                           condition));
+  }
+
+  @Test
+  public void testAnalyze() {
+    String query = "SELECT Id, Name FROM Account WHERE Name LIKE 'A%' LIMIT 10";
+    SalesforceQueryAnalysis analysis = SalesforceQueryParser.analyze(query);
+
+    Assert.assertEquals("Account", analysis.getSObjectDescriptor().getName());
+    Assert.assertEquals("FROM Account WHERE Name LIKE 'A%' LIMIT 10", analysis.getFromStatement());
+    Assert.assertFalse(analysis.isRestricted());
+    Assert.assertTrue(analysis.isRestrictedPK());
+    Assert.assertTrue(analysis.isUnderLengthLimit());
+    // analysis is memoized
+    Assert.assertSame(analysis, SalesforceQueryParser.analyze(new String(query)));
+    Assert.assertSame(analysis.getSObjectDescriptor(), SObjectDescriptor.fromQuery(query));
+  }
+
+  @Test
+  public void testAnalyzeUnsupportedFields() {
+    String query = "SELECT COUNT() FROM Contact";
+    SalesforceQueryAnalysis analysis = SalesforceQueryParser.analyze(query);
+
+    Assert.assertTrue(SalesforceQueryParser.isRestrictedQuery(query));
+    Assert.assertEquals("FROM Contact", SalesforceQueryParser.getFromStatement(query));
+    for (int i = 0; i < 2; i++) {
+      try {
+        analysis.getSObjectDescriptor();
+        Assert.fail(String.format("Error must be thrown during query '%s' parsing", query));
+      } catch (SOQLParsingException e) {
+        // expected failure, do nothing
+      }
+    }
+  }
 }
@@ -108,6 +108,51 @@ public class MapToRecordTransformerTest {
     Assert.assertNull(structuredRecord.get("double_field"));
   }
 
+  @Test
+  public void testTransformPositionalRow() {
+    Schema schema = Schema.recordOf("output",
+        Schema.Field.of("string_field", Schema.of(Schema.Type.STRING)),
+        Schema.Field.of("long_field", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+        Schema.Field.of("sobject", Schema.of(Schema.Type.STRING)));
+    SalesforceRow.Layout layout = SalesforceRow.Layout.of(ImmutableList.of("string.field", "long_field", "unknown"));
+
+    MapToRecordTransformer recordTransformer = new MapToRecordTransformer();
+    for (long i = 0; i < 3; i++) {
+      SalesforceRow row = new SalesforceRow(layout, new Object[]{"value" + i, String.valueOf(i), "ignored"})
+        .withColumn("sobject", "Account");
+      StructuredRecord structuredRecord = recordTransformer.transform(schema, row);
+      Assert.assertEquals("value" + i, structuredRecord.get("string_field"));
+      Assert.assertEquals(Long.valueOf(i), structuredRecord.get("long_field"));
+      Assert.assertEquals("Account", structuredRecord.get("sobject"));
+    }
+  }
+
+  @Test
+  public void testTransformerReusedForDifferentSchemas() {
+    Schema accountSchema = Schema.recordOf("Account",
+        Schema.Field.of("Id", Schema.of(Schema.Type.STRING)),
+        Schema.Field.of("NumberOfEmployees", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+    Schema contactSchema = Schema.recordOf("Contact",
+        Schema.Field.of("Id", Schema.of(Schema.Type.STRING)),
+        Schema.Field.of("Birthdate", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))));
+
+    MapToRecordTransformer recordTransformer = new MapToRecordTransformer();
+    for (int i = 0; i < 2; i++) {
+      StructuredRecord account = recordTransformer.transform(
+        accountSchema, ImmutableMap.of("Id", "a" + i, "NumberOfEmployees", String.valueOf(i)));
+      Assert.assertEquals("a" + i, account.get("Id"));
+      Assert.assertEquals(Integer.valueOf(i), account.get("NumberOfEmployees"));
+
+      Map<String, Object> contactValues = new HashMap<>();
+      contactValues.put("Id", "c" + i);
+      contactValues.put("Birthdate", i == 0 ? "" : "2019-05-20");
+      contactValues.put("Unknown", "ignored");
+      StructuredRecord contact = recordTransformer.transform(contactSchema, contactValues);
+      Assert.assertEquals("c" + i, contact.get("Id"));
+      Assert.assertEquals(i == 0 ? null : LocalDate.of(2019, 5, 20), contact.getDate("Birthdate"));
+    }
+  }
+
   @Test(expected = RuntimeException.class)
   public void testNonNullableFieldWithNull() {
     Schema schema = Schema.recordOf("output",
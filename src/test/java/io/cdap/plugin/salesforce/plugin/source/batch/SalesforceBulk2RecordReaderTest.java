@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.salesforce.SalesforceConstants;
+import io.cdap.plugin.salesforce.authenticator.AuthenticatorCredentials;
+import io.cdap.plugin.salesforce.plugin.OAuthInfo;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSplitUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link SalesforceBulk2RecordReader} and Bulk API 2.0 splits against a local stub server.
+ */
+public class SalesforceBulk2RecordReaderTest {
+
+  private static final String QUERY = "SELECT Id, Name FROM Account";
+  private static final String JOBS_PATH = "/services/data/v" + SalesforceConstants.API_VERSION + "/jobs/query";
+  private static final Schema SCHEMA = Schema.recordOf("output",
+                                                       Schema.Field.of("Id", Schema.of(Schema.Type.STRING)),
+                                                       Schema.Field.of("Name", Schema.of(Schema.Type.STRING)));
+  // result pages by locator, the first page has no locator
+  private static final Map<String, String[]> PAGES = ImmutableMap.of(
+    "", new String[] {"L2", "\"Id\",\"Name\"\n\"1\",\"first\"\n\"2\",\"second\"\n"},
+    "L2", new String[] {"L4", "\"Id\",\"Name\"\n\"3\",\"third\"\n\"4\",\"fourth\"\n"},
+    "L4", new String[] {"null", "\"Id\",\"Name\"\n\"5\",\"fifth\"\n"});
+
+  private HttpServer server;
+  private AuthenticatorCredentials credentials;
+  private String jobState;
+  private AtomicInteger jobStatusRequests;
+  private AtomicInteger pageRequests;
+  private AtomicInteger serverErrors;
+  private String lastQuery;
+
+  @Before
+  public void setUp() throws IOException {
+    jobState = "JobComplete";
+    jobStatusRequests = new AtomicInteger();
+    pageRequests = new AtomicInteger();
+    serverErrors = new AtomicInteger();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(JOBS_PATH, this::handle);
+    server.start();
+    credentials = AuthenticatorCredentials.fromParameters(
+      new OAuthInfo("token", "http://localhost:" + server.getAddress().getPort()), 10000, 10000, null);
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testReadPages() throws Exception {
+    List<SalesforceSplit> splits = getSplits("query", 2);
+    Assert.assertTrue(lastQuery.contains("\"operation\":\"query\""));
+    Assert.assertEquals(2, jobStatusRequests.get());
+    // pages are not read when the splits are generated
+    Assert.assertEquals(0, pageRequests.get());
+    Assert.assertEquals(1, splits.size());
+    SalesforceSplit split = splits.get(0);
+    Assert.assertTrue(split.isBulkApiV2());
+    Assert.assertEquals("750job", split.getJobId());
+    Assert.assertEquals(5, split.getRecords());
+    Assert.assertEquals(2, split.getMaxRecords());
+
+    List<String> names = new ArrayList<>();
+    try (SalesforceBulk2RecordReader reader = new SalesforceBulk2RecordReader(SCHEMA).initialize(split,
+                                                                                                 credentials)) {
+      Assert.assertEquals(0.0f, reader.getProgress(), 0.0f);
+      while (reader.nextKeyValue()) {
+        Assert.assertEquals(SCHEMA, reader.getCurrentKey());
+        names.add((String) reader.getCurrentValue().get("Name"));
+        if (names.size() == 3) {
+          Assert.assertEquals(0.6f, reader.getProgress(), 0.0001f);
+        }
+      }
+      Assert.assertEquals(1.0f, reader.getProgress(), 0.0f);
+    }
+    Assert.assertEquals(ImmutableList.of("first", "second", "third", "fourth", "fifth"), names);
+    Assert.assertEquals(3, pageRequests.get());
+  }
+
+  @Test
+  public void testRetryServerErrors() throws Exception {
+    serverErrors.set(1);
+    List<SalesforceSplit> splits = getSplits("query", 2);
+    Assert.assertEquals(0, serverErrors.get());
+    Assert.assertEquals(1, splits.size());
+  }
+
+  @Test
+  public void testFailedJob() {
+    jobState = "Failed";
+    try {
+      getSplits("queryAll", 0);
+      Assert.fail("Expected RuntimeException");
+    } catch (RuntimeException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("is in state 'Failed': query failed"));
+    }
+    Assert.assertTrue(lastQuery.contains("\"operation\":\"queryAll\""));
+  }
+
+  @Test
+  public void testSplitSerialization() throws IOException {
+    SalesforceSplit split = SalesforceSplit.forQueryJob("750job", QUERY, 1000L, 100);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    split.write(new DataOutputStream(bytes));
+    SalesforceSplit deserialized = new SalesforceSplit();
+    deserialized.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    Assert.assertTrue(deserialized.isBulkApiV2());
+    Assert.assertEquals(1000L, deserialized.getRecords());
+    Assert.assertEquals(100, deserialized.getMaxRecords());
+    Assert.assertEquals(QUERY, deserialized.getQuery());
+  }
+
+  private List<SalesforceSplit> getSplits(String operation, int maxRecordsPerPage) {
+    return SalesforceSplitUtil.getBulk2QuerySplits(Collections.singletonList(QUERY), credentials, operation,
+                                                   maxRecordsPerPage, 1L, 2L, 3, true);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    if (serverErrors.getAndUpdate(errors -> Math.max(errors - 1, 0)) > 0) {
+      respond(exchange, 503, "[{\"errorCode\":\"SERVER_UNAVAILABLE\"}]");
+      return;
+    }
+    if (!"Bearer token".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+      respond(exchange, 401, "[{\"errorCode\":\"INVALID_SESSION_ID\"}]");
+      return;
+    }
+    String path = exchange.getRequestURI().getPath();
+    // results are only returned as CSV, jobs are described with JSON
+    String accept = path.endsWith("/results") ? "text/csv" : "application/json";
+    if (!accept.equals(exchange.getRequestHeaders().getFirst("Accept"))) {
+      respond(exchange, 406, "[{\"errorCode\":\"NOT_ACCEPTABLE\"}]");
+      return;
+    }
+    if ("POST".equals(exchange.getRequestMethod()) && path.equals(JOBS_PATH)) {
+      lastQuery = new String(ByteStreams.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8);
+      respond(exchange, 200, "{\"id\":\"750job\",\"state\":\"UploadComplete\"}");
+    } else if (path.equals(JOBS_PATH + "/750job")) {
+      // the first status request reports the job as still running
+      String state = jobStatusRequests.incrementAndGet() == 1 ? "InProgress" : jobState;
+      respond(exchange, 200, String.format("{\"id\":\"750job\",\"state\":\"%s\",\"numberRecordsProcessed\":5," +
+                                             "\"errorMessage\":\"query failed\"}", state));
+    } else if (path.equals(JOBS_PATH + "/750job/results")) {
+      pageRequests.incrementAndGet();
+      String locator = "";
+      String rawQuery = exchange.getRequestURI().getRawQuery();
+      if (!rawQuery.contains("maxRecords=2")) {
+        respond(exchange, 400, "[{\"errorCode\":\"INVALIDMAXRECORDS\"}]");
+        return;
+      }
+      for (String parameter : rawQuery.split("&")) {
+        if (parameter.startsWith("locator=")) {
+          locator = parameter.substring("locator=".length());
+        }
+      }
+      String[] page = PAGES.get(locator);
+      exchange.getResponseHeaders().add("Sforce-Locator", page[0]);
+      exchange.getResponseHeaders().add("Sforce-NumberOfRecords", page[0].equals("null") ? "1" : "2");
+      respond(exchange, 200, page[1]);
+    } else {
+      respond(exchange, 404, "[]");
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      outputStream.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class SalesforceBulkCsvScannerTest {
+
+  @Test
+  public void testQuotedValues() throws IOException {
+    String csv = "\"Id\",\"Name\",\"Description\"\r\n"
+      + "\"1\",\"a \"\"quoted\"\" name\",\"multi\r\nline, with comma\"\r\n"
+      + "\"2\",\"\",\"\"\r\n";
+
+    try (SalesforceBulkCsvScanner scanner = new SalesforceBulkCsvScanner(new StringReader(csv))) {
+      Assert.assertArrayEquals(new String[]{"Id", "Name", "Description"}, scanner.getHeader());
+
+      Assert.assertTrue(scanner.nextRecord());
+      Assert.assertEquals(ImmutableMap.of("Id", "1", "Name", "a \"quoted\" name",
+                                          "Description", "multi\r\nline, with comma"), scanner.getRow());
+
+      Assert.assertTrue(scanner.nextRecord());
+      SalesforceRow row = scanner.getRow();
+      Assert.assertEquals(ImmutableMap.of("Id", "2", "Name", "", "Description", ""), row);
+      Assert.assertEquals("2", row.get(0));
+
+      Assert.assertFalse(scanner.nextRecord());
+    }
+  }
+
+  @Test
+  public void testUnquotedValuesAndEmptyLines() throws IOException {
+    String csv = "Id,Name\n\n1,first\n2,\n";
+
+    try (SalesforceBulkCsvScanner scanner = new SalesforceBulkCsvScanner(new StringReader(csv))) {
+      Assert.assertTrue(scanner.nextRecord());
+      Assert.assertEquals(ImmutableMap.of("Id", "1", "Name", "first"), scanner.getRow());
+      Assert.assertTrue(scanner.nextRecord());
+      Assert.assertEquals(ImmutableMap.of("Id", "2", "Name", ""), scanner.getRow());
+      Assert.assertFalse(scanner.nextRecord());
+    }
+  }
+
+  @Test
+  public void testEmptyInput() throws IOException {
+    try (SalesforceBulkCsvScanner scanner = new SalesforceBulkCsvScanner(new StringReader(""))) {
+      Assert.assertEquals(0, scanner.getHeader().length);
+      Assert.assertFalse(scanner.nextRecord());
+    }
+  }
+
+  @Test
+  public void testInvalidCharAfterQuote() throws IOException {
+    String csv = "\"Id\"\n\"1\"x\n";
+    try (SalesforceBulkCsvScanner scanner = new SalesforceBulkCsvScanner(new StringReader(csv))) {
+      scanner.nextRecord();
+      Assert.fail("Expected IOException");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("(line 2) invalid char between encapsulated token and delimiter"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateHeader() throws IOException {
+    new SalesforceBulkCsvScanner(new StringReader("\"Id\",\"Id\"\n"));
+  }
+}
@@ -24,21 +24,36 @@ import dev.failsafe.FailsafeException;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.salesforce.SalesforceSchemaUtil;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
 import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSplitUtil;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.MRConfig;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.mockito.internal.util.reflection.FieldSetter;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.lang.reflect.Field;
+import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class SalesforceBulkRecordReaderTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void testMultipleResults() throws Exception {
     String csvString1 = "\"Id\",\"IsDeleted\",\"ExpectedRevenue\",\"LastModifiedDate\",\"CloseDate\",\"Time\"\n" +
@@ -282,8 +297,186 @@ public class SalesforceBulkRecordReaderTest {
     assertRecordReaderOutputRecords(new String[] {csvString}, schema, expectedRecords);
   }
 
+  @Test
+  public void testPrefetchedResultsSpooledToDisk() throws Exception {
+    String header = "\"Id\",\"Name\"\n";
+    String[] csvStrings = new String[4];
+    List<Map<String, Object>> expectedRecords = new ArrayList<>();
+    for (int i = 0; i < csvStrings.length; i++) {
+      StringBuilder csv = new StringBuilder(header);
+      for (int j = 0; j < 3; j++) {
+        String id = String.format("0061i000003XN%d%dAAW", i, j);
+        String name = String.format("Name %d, %d", i, j);
+        csv.append('"').append(id).append("\",\"").append(name).append("\"\n");
+        expectedRecords.add(ImmutableMap.of("Id", id, "Name", name));
+      }
+      csvStrings[i] = csv.toString();
+    }
+
+    Schema schema = Schema.recordOf("output",
+                                    Schema.Field.of("Id", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("Name", Schema.of(Schema.Type.STRING))
+    );
+
+    // no prefetch memory forces every prefetched result to be spooled to a temporary file
+    assertRecordReaderOutputRecords(csvStrings, schema, expectedRecords, 3, 0L);
+  }
+
+  @Test
+  public void testSpooledResults() throws Exception {
+    String[] resultIds = {"result0", "result1"};
+    String[] csvStrings = {"\"Id\"\n\"0061i000003XNcBAAW\"\n", "\"Id\"\n\"0061i000003XNcCAAW\"\n"};
+    SalesforceBulkRecordReader reader = new SalesforceBulkRecordReader(
+      Schema.recordOf("output", Schema.Field.of("Id", Schema.of(Schema.Type.STRING))), "spoolJob", "batch",
+      resultIds);
+    Path directory = temporaryFolder.getRoot().toPath();
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("spoolResults"), true);
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("spoolDirectory"), directory);
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("initialRetryDuration"), 1L);
+    BulkConnection mock = Mockito.mock(BulkConnection.class);
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("bulkConnection"), mock);
+
+    // the first download of the first result fails in the middle of the stream
+    InputStream failingStream = new SequenceInputStream(
+      new ByteArrayInputStream(csvStrings[0].substring(0, 8).getBytes(StandardCharsets.UTF_8)),
+      new InputStream() {
+        @Override
+        public int read() throws IOException {
+          throw new SocketTimeoutException("Read timed out");
+        }
+      });
+    Mockito.when(mock.getQueryResultStream("spoolJob", "batch", resultIds[0]))
+      .thenReturn(failingStream)
+      .thenReturn(new ByteArrayInputStream(csvStrings[0].getBytes(StandardCharsets.UTF_8)));
+    Mockito.when(mock.getQueryResultStream("spoolJob", "batch", resultIds[1]))
+      .thenReturn(new ByteArrayInputStream(csvStrings[1].getBytes(StandardCharsets.UTF_8)));
+
+    try {
+      reader.setupParser();
+      List<Object> ids = new ArrayList<>();
+      while (reader.nextKeyValue()) {
+        ids.add(reader.getCurrentValue().get("Id"));
+      }
+      Assert.assertEquals(ImmutableList.of("0061i000003XNcBAAW", "0061i000003XNcCAAW"), ids);
+    } finally {
+      reader.close();
+    }
+    Mockito.verify(mock, Mockito.times(2)).getQueryResultStream("spoolJob", "batch", resultIds[0]);
+    Mockito.verify(mock, Mockito.times(1)).getQueryResultStream("spoolJob", "batch", resultIds[1]);
+    // copies of results read completely are deleted
+    SalesforceBulkResultSpool spool = new SalesforceBulkResultSpool(directory, "spoolJob", "batch");
+    Assert.assertNull(spool.get(resultIds[0]));
+    Assert.assertNull(spool.get(resultIds[1]));
+  }
+
+  @Test
+  public void testUnreadSpooledResultsDeletedOnClose() throws Exception {
+    String[] resultIds = {"result0", "result1"};
+    String[] csvStrings = {"\"Id\"\n\"1\"\n\"2\"\n", "\"Id\"\n\"3\"\n"};
+    SalesforceBulkRecordReader reader = new SalesforceBulkRecordReader(
+      Schema.recordOf("output", Schema.Field.of("Id", Schema.of(Schema.Type.STRING))), "job", "batch", resultIds);
+    Path directory = temporaryFolder.getRoot().toPath();
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("spoolResults"), true);
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("spoolDirectory"), directory);
+    BulkConnection mock = Mockito.mock(BulkConnection.class);
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("bulkConnection"), mock);
+    for (int i = 0; i < csvStrings.length; i++) {
+      Mockito.when(mock.getQueryResultStream("job", "batch", resultIds[i]))
+        .thenReturn(new ByteArrayInputStream(csvStrings[i].getBytes(StandardCharsets.UTF_8)));
+    }
+
+    reader.setupParser();
+    Assert.assertTrue(reader.nextKeyValue());
+    SalesforceBulkResultSpool spool = new SalesforceBulkResultSpool(directory, "job", "batch");
+    Assert.assertNotNull(spool.get(resultIds[0]));
+    // task is closed before the results are read completely
+    reader.close();
+
+    Assert.assertNull(spool.get(resultIds[0]));
+    Assert.assertNull(spool.get(resultIds[1]));
+  }
+
+  @Test
+  public void testSpoolDirectory() {
+    Configuration conf = new Configuration(false);
+    Map<String, String> environment = new HashMap<>();
+    Assert.assertEquals(Paths.get(System.getProperty("java.io.tmpdir"), SalesforceSourceConstants.SPOOL_DIRECTORY_NAME),
+                        SalesforceBulkRecordReader.getSpoolDirectory(conf, environment));
+    environment.put("SPARK_LOCAL_DIRS", "/spark/1,/spark/2");
+    Assert.assertEquals(Paths.get("/spark/1", SalesforceSourceConstants.SPOOL_DIRECTORY_NAME),
+                        SalesforceBulkRecordReader.getSpoolDirectory(conf, environment));
+    environment.put("LOCAL_DIRS", "/yarn/1/appcache/application_1,/yarn/2/appcache/application_1");
+    Assert.assertEquals(Paths.get("/yarn/1/appcache/application_1", SalesforceSourceConstants.SPOOL_DIRECTORY_NAME),
+                        SalesforceBulkRecordReader.getSpoolDirectory(conf, environment));
+    conf.set(MRConfig.LOCAL_DIR, "/data/1/container, /data/2/container");
+    Assert.assertEquals(Paths.get("/data/1/container", SalesforceSourceConstants.SPOOL_DIRECTORY_NAME),
+                        SalesforceBulkRecordReader.getSpoolDirectory(conf, environment));
+  }
+
+  @Test
+  public void testProgress() throws Exception {
+    String[] csvStrings = {"\"Id\"\n\"1\"\n\"2\"\n", "\"Id\"\n\"3\"\n\"4\"\n"};
+    String[] resultIds = {"result0", "result1"};
+    SalesforceBulkRecordReader reader = new SalesforceBulkRecordReader(
+      Schema.recordOf("output", Schema.Field.of("Id", Schema.of(Schema.Type.STRING))), "job", "batch", resultIds);
+    BulkConnection mock = Mockito.mock(BulkConnection.class);
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("bulkConnection"), mock);
+    for (int i = 0; i < csvStrings.length; i++) {
+      Mockito.when(mock.getQueryResultStream("job", "batch", resultIds[i]))
+        .thenReturn(new ByteArrayInputStream(csvStrings[i].getBytes(StandardCharsets.UTF_8)));
+    }
+    reader.setupParser();
+
+    // progress by result chunks when the number of batch records is unknown
+    Assert.assertEquals(0.0f, reader.getProgress(), 0.0f);
+    reader.nextKeyValue();
+    reader.nextKeyValue();
+    Assert.assertEquals(0.0f, reader.getProgress(), 0.0f);
+    reader.nextKeyValue();
+    Assert.assertEquals(0.5f, reader.getProgress(), 0.0f);
+
+    // progress by records when the number of batch records is known
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("totalRecords"), 4L);
+    Assert.assertEquals(0.75f, reader.getProgress(), 0.0f);
+    reader.nextKeyValue();
+    Assert.assertEquals(1.0f, reader.getProgress(), 0.0f);
+    Assert.assertFalse(reader.nextKeyValue());
+    reader.close();
+  }
+
+  @Test
+  public void testResultChunkSplitProgress() throws Exception {
+    BulkConnection mock = Mockito.mock(BulkConnection.class);
+    Mockito.when(mock.getQueryResultStream("job", "batch", "result1"))
+      .thenReturn(new ByteArrayInputStream("\"Id\"\n\"1\"\n\"2\"\n\"3\"\n".getBytes(StandardCharsets.UTF_8)));
+    SalesforceSplit split = SalesforceSplit.forResultChunk("job", "batch", "SELECT Id FROM Account", "result1", 4L);
+    SalesforceBulkRecordReader reader = new SalesforceBulkRecordReader(
+      Schema.recordOf("output", Schema.Field.of("Id", Schema.of(Schema.Type.STRING)))).initialize(split, mock);
+
+    // progress by the estimated number of records of the result chunk
+    Assert.assertEquals(0.0f, reader.getProgress(), 0.0f);
+    reader.nextKeyValue();
+    Assert.assertEquals(0.25f, reader.getProgress(), 0.0f);
+    reader.nextKeyValue();
+    reader.nextKeyValue();
+    Assert.assertEquals(0.75f, reader.getProgress(), 0.0f);
+    // the chunk returned less records than estimated
+    Assert.assertFalse(reader.nextKeyValue());
+    Assert.assertEquals(1.0f, reader.getProgress(), 0.0f);
+    reader.close();
+    Mockito.verify(mock, Mockito.never()).getQueryResultList(Mockito.anyString(), Mockito.anyString());
+  }
+
   private void assertRecordReaderOutputRecords(String[] csvStrings, Schema schema,
                                                List<Map<String, Object>> expectedRecords) throws Exception {
+    assertRecordReaderOutputRecords(csvStrings, schema, expectedRecords,
+                                    SalesforceSourceConstants.DEFAULT_RESULT_PREFETCH_DEPTH,
+                                    SalesforceSourceConstants.DEFAULT_RESULT_PREFETCH_MEMORY_MB * 1024L * 1024L);
+  }
+
+  private void assertRecordReaderOutputRecords(String[] csvStrings, Schema schema,
+                                               List<Map<String, Object>> expectedRecords,
+                                               int prefetchDepth, long prefetchMemoryBytes) throws Exception {
     MapToRecordTransformer transformer = new MapToRecordTransformer();
     String jobId = "job";
     String batchId = "batch";
@@ -293,6 +486,9 @@ public class SalesforceBulkRecordReaderTest {
     }
 
     SalesforceBulkRecordReader reader = new SalesforceBulkRecordReader(schema, jobId, batchId, resultIds);
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("prefetchDepth"), prefetchDepth);
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("prefetchMemoryBytes"),
+                         prefetchMemoryBytes);
     BulkConnection mock = Mockito.mock(BulkConnection.class);
     FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("bulkConnection"), mock);
     for (int i = 0; i < csvStrings.length; i++) {
@@ -310,7 +506,10 @@ public class SalesforceBulkRecordReaderTest {
       StructuredRecord record = transformer.transform(schema, value);
       records.add(record);
     }
+    Assert.assertEquals(1.0f, reader.getProgress(), 0.0f);
+    reader.close();
 
+    Assert.assertEquals(expectedRecords.size(), records.size());
     for (StructuredRecord record : records) {
       Map<String, Object> fields = (Map<String, Object>) fieldsField.get(record);
       Assert.assertTrue(expectedRecords.contains(fields));
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Tests for {@link SalesforceBulkResultSpool}.
+ */
+public class SalesforceBulkResultSpoolTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testWriteAndOpen() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath().resolve("spool");
+    SalesforceBulkResultSpool spool = new SalesforceBulkResultSpool(directory, "job", "batch");
+    byte[] data = new byte[20 * 1024 * 1024 + 17];
+    new Random(1).nextBytes(data);
+
+    Assert.assertNull(spool.get("result"));
+    Path file = spool.write("result", new ByteArrayInputStream(data));
+    Assert.assertEquals(file, spool.get("result"));
+    try (InputStream inputStream = spool.open(file)) {
+      Assert.assertEquals(1, inputStream.skip(1));
+      Assert.assertEquals(data[1] & 0xFF, inputStream.read());
+      byte[] rest = ByteStreams.toByteArray(inputStream);
+      Assert.assertEquals(data.length - 2, rest.length);
+      Assert.assertEquals(data[data.length - 1], rest[rest.length - 1]);
+    }
+
+    spool.delete("result");
+    Assert.assertNull(spool.get("result"));
+  }
+
+  @Test
+  public void testFailedWrite() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath();
+    SalesforceBulkResultSpool spool = new SalesforceBulkResultSpool(directory, "job", "batch");
+    InputStream failingStream = new SequenceInputStream(new ByteArrayInputStream(new byte[100]), new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("Connection reset");
+      }
+    });
+
+    try {
+      spool.write("result", failingStream);
+      Assert.fail("Write of a failing stream should fail");
+    } catch (IOException e) {
+      Assert.assertEquals("Connection reset", e.getMessage());
+    }
+    // neither a partial copy nor a temporary file is left
+    Assert.assertNull(spool.get("result"));
+    try (Stream<Path> files = Files.list(directory)) {
+      Assert.assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  public void testEmptyResult() throws Exception {
+    SalesforceBulkResultSpool spool = new SalesforceBulkResultSpool(temporaryFolder.getRoot().toPath(), "job",
+                                                                    "batch");
+    try (InputStream inputStream = spool.open(spool.write("result", new ByteArrayInputStream(new byte[0])))) {
+      Assert.assertEquals(-1, inputStream.read());
+      Assert.assertEquals(-1, inputStream.read(new byte[10], 0, 10));
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.stubbing.OngoingStubbing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link SalesforceFieldGroupRecordReader}.
+ */
+public class SalesforceFieldGroupRecordReaderTest {
+
+  private static final Schema SCHEMA = Schema.recordOf("output",
+                                                       Schema.Field.of("Id", Schema.of(Schema.Type.STRING)),
+                                                       Schema.Field.of("Name", Schema.of(Schema.Type.STRING)),
+                                                       Schema.Field.of("Phone", Schema.of(Schema.Type.STRING)));
+
+  @Test
+  public void testJoinById() throws Exception {
+    SalesforceRow.Layout nameLayout = SalesforceRow.Layout.of(Arrays.asList("Id", "Name"));
+    SalesforceRow.Layout phoneLayout = SalesforceRow.Layout.of(Arrays.asList("Id", "Phone"));
+    // record 2 was deleted before the second query ran, record 4 was created before it ran
+    RecordReader<Schema, Map<String, ?>> names = mockReader(
+      new SalesforceRow(nameLayout, new Object[] {"001000000000001AAA", "a"}),
+      new SalesforceRow(nameLayout, new Object[] {"001000000000002AAA", "b"}),
+      new SalesforceRow(nameLayout, new Object[] {"001000000000003AAA", "c"}));
+    RecordReader<Schema, Map<String, ?>> phones = mockReader(
+      new SalesforceRow(phoneLayout, new Object[] {"001000000000001AAA", "1"}),
+      new SalesforceRow(phoneLayout, new Object[] {"001000000000003AAA", "3"}),
+      new SalesforceRow(phoneLayout, new Object[] {"001000000000004AAA", "4"}));
+
+    SalesforceFieldGroupRecordReader reader = new SalesforceFieldGroupRecordReader(
+      SCHEMA, ImmutableList.of(names, phones));
+    List<Map<String, ?>> records = new ArrayList<>();
+    while (reader.nextKeyValue()) {
+      records.add(reader.getCurrentValue());
+    }
+    reader.close();
+
+    Assert.assertEquals(ImmutableList.of(
+      ImmutableMap.of("Id", "001000000000001AAA", "Name", "a", "Phone", "1"),
+      ImmutableMap.of("Id", "001000000000003AAA", "Name", "c", "Phone", "3")), records);
+    Assert.assertEquals(Arrays.asList("Id", "Name", "Phone"),
+                        new ArrayList<>(records.get(0).keySet()));
+    Mockito.verify(names).close();
+    Mockito.verify(phones).close();
+  }
+
+  @Test
+  public void testFieldGroupSplitSerialization() throws Exception {
+    SalesforceSplit split = SalesforceSplit.forFieldGroups("SELECT Id, Name, Phone FROM Account",
+                                                           Arrays.asList("job1", "job2"),
+                                                           Arrays.asList("batch1", "batch2"));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    split.write(new DataOutputStream(bytes));
+    SalesforceSplit deserialized = new SalesforceSplit();
+    deserialized.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    Assert.assertTrue(deserialized.hasFieldGroups());
+    List<SalesforceSplit> groupSplits = deserialized.getFieldGroupSplits();
+    Assert.assertEquals(2, groupSplits.size());
+    Assert.assertEquals("job1", groupSplits.get(0).getJobId());
+    Assert.assertEquals("batch1", groupSplits.get(0).getBatchId());
+    Assert.assertEquals("job2", groupSplits.get(1).getJobId());
+    Assert.assertEquals("batch2", groupSplits.get(1).getBatchId());
+    Assert.assertEquals(split.getQuery(), groupSplits.get(1).getQuery());
+  }
+
+  @Test
+  public void testSingleFieldGroupSplit() throws Exception {
+    SalesforceSplit split = SalesforceSplit.forFieldGroups("SELECT Id, Name, Phone FROM Account",
+                                                           Collections.singletonList("job1"),
+                                                           Collections.singletonList("batch1"));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    split.write(new DataOutputStream(bytes));
+    SalesforceSplit deserialized = new SalesforceSplit();
+    deserialized.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    // a single field group is not read with the record reader chosen by the length of the split query
+    Assert.assertTrue(deserialized.hasFieldGroups());
+    List<SalesforceSplit> groupSplits = deserialized.getFieldGroupSplits();
+    Assert.assertEquals(1, groupSplits.size());
+    Assert.assertEquals("job1", groupSplits.get(0).getJobId());
+    Assert.assertEquals("batch1", groupSplits.get(0).getBatchId());
+    Assert.assertFalse(new SalesforceSplit("job1", "batch1", split.getQuery()).hasFieldGroups());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static RecordReader<Schema, Map<String, ?>> mockReader(SalesforceRow... rows) throws Exception {
+    RecordReader<Schema, Map<String, ?>> reader = Mockito.mock(RecordReader.class);
+    OngoingStubbing<Boolean> next = Mockito.when(reader.nextKeyValue());
+    for (SalesforceRow ignored : rows) {
+      next = next.thenReturn(true);
+    }
+    next.thenReturn(false);
+    OngoingStubbing<Map<String, ?>> current = Mockito.when(reader.getCurrentValue());
+    for (SalesforceRow row : rows) {
+      current = current.thenReturn(row);
+    }
+    return reader;
+  }
+}
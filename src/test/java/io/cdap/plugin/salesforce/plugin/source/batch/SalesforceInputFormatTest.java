@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests for {@link SalesforceInputFormat}.
+ */
+public class SalesforceInputFormatTest {
+
+  private static final Schema ACCOUNT_SCHEMA = Schema.recordOf(
+    "Account", Schema.Field.of("Id", Schema.of(Schema.Type.STRING)));
+  private static final Schema CONTACT_SCHEMA = Schema.recordOf(
+    "Contact", Schema.Field.of("Name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  private static final String SCHEMAS = new Gson().toJson(ImmutableMap.of("Account", ACCOUNT_SCHEMA.toString(),
+                                                                          "Contact", CONTACT_SCHEMA.toString()));
+
+  @Test
+  public void testSchemasAreShared() throws Exception {
+    Schema accountSchema = SalesforceInputFormat.getSchema(SCHEMAS, "Account");
+    Assert.assertEquals(ACCOUNT_SCHEMA, accountSchema);
+    Assert.assertEquals(CONTACT_SCHEMA, SalesforceInputFormat.getSchema(SCHEMAS, "Contact"));
+    Assert.assertSame(accountSchema, SalesforceInputFormat.getSchema(new String(SCHEMAS), "Account"));
+  }
+
+  @Test
+  public void testLargeSchemasAreShared() throws Exception {
+    // schemas of many wide SObjects are larger than a segment of the cache with the default concurrency level
+    Map<String, String> schemaJsons = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      Schema schema = Schema.recordOf("Object" + i + "__c", IntStream.range(0, 1000)
+        .mapToObj(field -> Schema.Field.of("Field" + field + "__c", Schema.nullableOf(Schema.of(Schema.Type.STRING))))
+        .collect(Collectors.toList()));
+      schemaJsons.put(schema.getRecordName(), schema.toString());
+    }
+    String schemasJson = new Gson().toJson(schemaJsons);
+    Assert.assertTrue(schemasJson.length() > SalesforceSourceConstants.READER_CACHE_MAX_CHARS / 4);
+
+    Map<String, String> parsedSchemaJsons = SalesforceInputFormat.getSchemaJsons(schemasJson);
+    Assert.assertEquals(schemaJsons, parsedSchemaJsons);
+    Assert.assertSame(parsedSchemaJsons, SalesforceInputFormat.getSchemaJsons(new String(schemasJson)));
+    Assert.assertEquals(1000, SalesforceInputFormat.getSchema(schemasJson, "Object1__c").getFields().size());
+  }
+
+  @Test
+  public void testQueryMetadata() {
+    String query = "SELECT Id, Name FROM Account";
+    SalesforceInputFormat.QueryMetadata queryMetadata = SalesforceInputFormat.getQueryMetadata(query);
+    Assert.assertEquals("Account", queryMetadata.getSObjectDescriptor().getName());
+    Assert.assertEquals(SalesforceInputFormat.ReaderType.BULK, queryMetadata.getReaderType());
+    Assert.assertSame(queryMetadata, SalesforceInputFormat.getQueryMetadata(new String(query)));
+
+    Assert.assertEquals(SalesforceInputFormat.ReaderType.SOAP,
+                        SalesforceInputFormat.getQueryMetadata("SELECT Id FROM Account LIMIT 10 OFFSET 5")
+                          .getReaderType());
+    String wideQuery = IntStream.range(0, 2000)
+      .mapToObj(i -> "Field" + i + "__c")
+      .collect(Collectors.joining(",", "SELECT ", " FROM Account"));
+    Assert.assertEquals(SalesforceInputFormat.ReaderType.WIDE,
+                        SalesforceInputFormat.getQueryMetadata(wideQuery).getReaderType());
+  }
+
+  @Test
+  public void testCreateRecordReader() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.set(SalesforceSourceConstants.CONFIG_SCHEMAS, SCHEMAS);
+    configuration.set(SalesforceSourceConstants.CONFIG_SOBJECT_NAME_FIELD, "tablename");
+    TaskAttemptContext context = Mockito.mock(TaskAttemptContext.class);
+    Mockito.when(context.getConfiguration()).thenReturn(configuration);
+
+    RecordReader<?, ?> recordReader = new SalesforceInputFormat().createRecordReader(
+      new SalesforceSplit("job", "batch", "SELECT Name FROM Contact"), context);
+
+    Assert.assertTrue(recordReader instanceof SalesforceRecordReaderWrapper);
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link SalesforcePackedRecordReader}.
+ */
+public class SalesforcePackedRecordReaderTest {
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "output", Schema.Field.of("Id", Schema.of(Schema.Type.STRING)));
+
+  @Test
+  public void testReadPackedSplits() throws Exception {
+    SalesforceSplit split = SalesforceSplit.forPackedSplits(ImmutableList.of(
+      new SalesforceSplit("job1", "batch1", "SELECT Id FROM Account"),
+      new SalesforceSplit("job2", "batch2", "SELECT Id FROM Lead"),
+      new SalesforceSplit("job3", "batch3", "SELECT Id FROM Case")));
+    Map<String, List<String>> records = ImmutableMap.of("job1", ImmutableList.of("001", "002"),
+                                                        "job2", ImmutableList.of(),
+                                                        "job3", ImmutableList.of("500"));
+    List<String> closedJobs = new ArrayList<>();
+
+    SalesforcePackedRecordReader reader = new SalesforcePackedRecordReader(
+      split.getPackedSplits(), (packedSplit, context) -> new ListRecordReader(records.get(packedSplit.getJobId()),
+                                                                                () -> closedJobs.add(
+                                                                                  packedSplit.getJobId())));
+    reader.initialize(split, Mockito.mock(TaskAttemptContext.class));
+    List<Object> ids = new ArrayList<>();
+    while (reader.nextKeyValue()) {
+      Assert.assertEquals(SCHEMA, reader.getCurrentKey());
+      ids.add(reader.getCurrentValue().get("Id"));
+    }
+    reader.close();
+
+    Assert.assertEquals(ImmutableList.of("001", "002", "500"), ids);
+    Assert.assertEquals(ImmutableList.of("job1", "job2", "job3"), closedJobs);
+    Assert.assertEquals(1.0f, reader.getProgress(), 0.0f);
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    SalesforceSplit split = SalesforceSplit.forPackedSplits(ImmutableList.of(
+      new SalesforceSplit("job1", "batch1", "SELECT Id FROM Account"),
+      new SalesforceSplit("job2", "batch2", "SELECT Id FROM Lead", "result")));
+    DataOutputBuffer output = new DataOutputBuffer();
+    split.write(output);
+    DataInputBuffer input = new DataInputBuffer();
+    input.reset(output.getData(), output.getLength());
+    SalesforceSplit deserialized = new SalesforceSplit();
+    deserialized.readFields(input);
+
+    Assert.assertTrue(deserialized.isPacked());
+    List<SalesforceSplit> packedSplits = deserialized.getPackedSplits();
+    Assert.assertEquals(2, packedSplits.size());
+    Assert.assertEquals("SELECT Id FROM Lead", packedSplits.get(1).getQuery());
+    Assert.assertEquals("result", packedSplits.get(1).getResultId());
+    Assert.assertFalse(packedSplits.get(1).isPacked());
+  }
+
+  /**
+   * Reader of Ids from a list.
+   */
+  private static class ListRecordReader extends RecordReader<Schema, Map<String, ?>> {
+
+    private final Iterator<String> ids;
+    private final Runnable onClose;
+    private String id;
+
+    ListRecordReader(List<String> ids, Runnable onClose) {
+      this.ids = ids.iterator();
+      this.onClose = onClose;
+    }
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) {
+    }
+
+    @Override
+    public boolean nextKeyValue() {
+      id = ids.hasNext() ? ids.next() : null;
+      return id != null;
+    }
+
+    @Override
+    public Schema getCurrentKey() {
+      return SCHEMA;
+    }
+
+    @Override
+    public Map<String, ?> getCurrentValue() {
+      return ImmutableMap.of("Id", id);
+    }
+
+    @Override
+    public float getProgress() {
+      return ids.hasNext() ? 0.0f : 1.0f;
+    }
+
+    @Override
+    public void close() {
+      onClose.run();
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.sforce.soap.partner.DeletedRecord;
+import com.sforce.soap.partner.GetDeletedResult;
+import com.sforce.soap.partner.GetUpdatedResult;
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.soap.partner.sobject.SObject;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.salesforce.etl.SObjectBuilder;
+import io.cdap.plugin.salesforce.plugin.source.batch.util.SalesforceSourceConstants;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link SalesforceReplicationRecordReader}.
+ */
+public class SalesforceReplicationRecordReaderTest {
+
+  private static final String QUERY = "SELECT Id,Name FROM Account";
+  private static final Schema SCHEMA = Schema.recordOf(
+    "output",
+    Schema.Field.of("Id", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("Name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of(SalesforceSourceConstants.REPLICATION_OPERATION_FIELD, Schema.of(Schema.Type.STRING)));
+
+  @Test
+  public void testUpdatedAndDeletedRecords() throws Exception {
+    String updatedId = "001000000000001";
+    String updatedAndDeletedId = "001000000000002";
+    String deletedId = "001000000000003";
+    SalesforceSplit split = SalesforceSplit.forReplication(QUERY, 1_000L, 2_000L);
+
+    PartnerConnection partnerConnection = Mockito.mock(PartnerConnection.class);
+    GetUpdatedResult updatedResult = new GetUpdatedResult();
+    updatedResult.setIds(new String[] {updatedId, updatedAndDeletedId});
+    Mockito.when(partnerConnection.getUpdated(ArgumentMatchers.eq("Account"), ArgumentMatchers.any(),
+                                              ArgumentMatchers.any()))
+      .thenReturn(updatedResult);
+    DeletedRecord deletedRecord = new DeletedRecord();
+    deletedRecord.setId(deletedId);
+    GetDeletedResult deletedResult = new GetDeletedResult();
+    deletedResult.setDeletedRecords(new DeletedRecord[] {deletedRecord});
+    Mockito.when(partnerConnection.getDeleted(ArgumentMatchers.eq("Account"), ArgumentMatchers.any(),
+                                              ArgumentMatchers.any()))
+      .thenReturn(deletedResult);
+    // the second record is deleted before it is retrieved
+    Mockito.when(partnerConnection.retrieve(ArgumentMatchers.eq("Id,Name"), ArgumentMatchers.eq("Account"),
+                                            ArgumentMatchers.any()))
+      .thenReturn(new SObject[] {
+        new SObjectBuilder().setType("Account").put("Id", updatedId).put("Name", "name").build(), null});
+
+    SalesforceReplicationRecordReader reader = new SalesforceReplicationRecordReader(
+      SCHEMA, new SoapRecordToMapTransformer());
+    try {
+      reader.initialize(split, partnerConnection, () -> partnerConnection);
+
+      Assert.assertTrue(reader.nextKeyValue());
+      Map<String, Object> expected = new HashMap<>();
+      expected.put("Id", updatedId);
+      expected.put("Name", "name");
+      expected.put(SalesforceSourceConstants.REPLICATION_OPERATION_FIELD,
+                   SalesforceSourceConstants.REPLICATION_OPERATION_UPSERT);
+      Assert.assertEquals(expected, reader.getCurrentValue());
+
+      Assert.assertTrue(reader.nextKeyValue());
+      expected.clear();
+      expected.put("Id", deletedId);
+      expected.put(SalesforceSourceConstants.REPLICATION_OPERATION_FIELD,
+                   SalesforceSourceConstants.REPLICATION_OPERATION_DELETE);
+      Assert.assertEquals(expected, reader.getCurrentValue());
+
+      Assert.assertFalse(reader.nextKeyValue());
+      Assert.assertEquals(1.0f, reader.getProgress(), 0.0f);
+      Mockito.verify(partnerConnection).retrieve(
+        "Id,Name", "Account", new String[] {updatedId, updatedAndDeletedId});
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testLatestDateCovered() throws Exception {
+    long minute = TimeUnit.MINUTES.toMillis(1);
+    long endTime = 60 * minute;
+    PartnerConnection partnerConnection = Mockito.mock(PartnerConnection.class);
+    GetUpdatedResult updatedResult = new GetUpdatedResult();
+    Mockito.when(partnerConnection.getUpdated(ArgumentMatchers.anyString(), ArgumentMatchers.any(),
+                                              ArgumentMatchers.any()))
+      .thenReturn(updatedResult);
+    Mockito.when(partnerConnection.getDeleted(ArgumentMatchers.anyString(), ArgumentMatchers.any(),
+                                              ArgumentMatchers.any()))
+      .thenReturn(new GetDeletedResult());
+    SalesforceSplit split = SalesforceSplit.forReplication(QUERY, 0L, endTime);
+
+    // changes of a transaction running at the end of the window are listed by the overlap of the next window
+    updatedResult.setLatestDateCovered(toCalendar(endTime - minute));
+    SalesforceReplicationRecordReader reader = new SalesforceReplicationRecordReader(
+      SCHEMA, new SoapRecordToMapTransformer());
+    try {
+      reader.initialize(split, partnerConnection, () -> partnerConnection);
+      Assert.assertEquals(0L, reader.getUncoveredMillis());
+    } finally {
+      reader.close();
+    }
+
+    // changes of a longer transaction may be missed
+    updatedResult.setLatestDateCovered(toCalendar(endTime - 5 * minute));
+    reader = new SalesforceReplicationRecordReader(SCHEMA, new SoapRecordToMapTransformer());
+    try {
+      reader.initialize(split, partnerConnection, () -> partnerConnection);
+      Assert.assertEquals(4 * minute, reader.getUncoveredMillis());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testNoChanges() throws Exception {
+    PartnerConnection partnerConnection = Mockito.mock(PartnerConnection.class);
+    Mockito.when(partnerConnection.getUpdated(ArgumentMatchers.anyString(), ArgumentMatchers.any(),
+                                              ArgumentMatchers.any()))
+      .thenReturn(new GetUpdatedResult());
+    Mockito.when(partnerConnection.getDeleted(ArgumentMatchers.anyString(), ArgumentMatchers.any(),
+                                              ArgumentMatchers.any()))
+      .thenReturn(new GetDeletedResult());
+
+    SalesforceReplicationRecordReader reader = new SalesforceReplicationRecordReader(
+      SCHEMA, new SoapRecordToMapTransformer());
+    try {
+      reader.initialize(SalesforceSplit.forReplication(QUERY, 0L, 1_000L), partnerConnection,
+                        () -> partnerConnection);
+      Assert.assertFalse(reader.nextKeyValue());
+      Assert.assertEquals(1.0f, reader.getProgress(), 0.0f);
+      Mockito.verify(partnerConnection, Mockito.never())
+        .retrieve(ArgumentMatchers.anyString(), ArgumentMatchers.anyString(), ArgumentMatchers.any());
+      Mockito.verify(partnerConnection).getUpdated(
+        ArgumentMatchers.eq("Account"),
+        ArgumentMatchers.argThat(calendar -> calendar.getTimeInMillis() == 0L),
+        ArgumentMatchers.argThat(calendar -> calendar.getTimeInMillis() == 1_000L));
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static Calendar toCalendar(long timeInMillis) {
+    Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    calendar.setTimeInMillis(timeInMillis);
+    return calendar;
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.soap.partner.QueryResult;
+import com.sforce.soap.partner.sobject.SObject;
+import com.sforce.ws.ConnectionException;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.salesforce.etl.SObjectBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link SalesforceSoapRecordReader}.
+ */
+public class SalesforceSoapRecordReaderTest {
+
+  private static final String QUERY = "SELECT Id, Name FROM Account";
+  private static final Schema SCHEMA = Schema.recordOf("output",
+                                                       Schema.Field.of("Id", Schema.of(Schema.Type.STRING)),
+                                                       Schema.Field.of("Name", Schema.of(Schema.Type.STRING)));
+
+  @Test
+  public void testPrefetchNextPage() throws Exception {
+    PartnerConnection partnerConnection = Mockito.mock(PartnerConnection.class);
+    Mockito.when(partnerConnection.query(QUERY)).thenReturn(page("L1", 3, "1", "2"));
+    Mockito.when(partnerConnection.queryMore("L1")).thenReturn(page("L2", 3));
+    Mockito.when(partnerConnection.queryMore("L2")).thenReturn(page(null, 3, "3"));
+
+    SalesforceSoapRecordReader reader = new SalesforceSoapRecordReader(SCHEMA, QUERY,
+                                                                       new SoapRecordToMapTransformer());
+    try {
+      reader.initialize(partnerConnection);
+      Mockito.verify(partnerConnection).setQueryOptions(2000);
+      // the second page is requested before the records of the first page are read
+      Mockito.verify(partnerConnection, Mockito.timeout(10000)).queryMore("L1");
+
+      Assert.assertEquals(Arrays.asList("1", "2", "3"), readIds(reader));
+      Assert.assertEquals(1.0f, reader.getProgress(), 0.0f);
+      Mockito.verify(partnerConnection, Mockito.times(1)).queryMore("L2");
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testQueryMoreFailure() throws Exception {
+    PartnerConnection partnerConnection = Mockito.mock(PartnerConnection.class);
+    Mockito.when(partnerConnection.query(QUERY)).thenReturn(page("L1", 2, "1"));
+    Mockito.when(partnerConnection.queryMore("L1")).thenThrow(new ConnectionException("Session expired"));
+
+    SalesforceSoapRecordReader reader = new SalesforceSoapRecordReader(SCHEMA, QUERY,
+                                                                       new SoapRecordToMapTransformer());
+    try {
+      reader.initialize(partnerConnection);
+      Assert.assertTrue(reader.nextKeyValue());
+      reader.nextKeyValue();
+      Assert.fail("Expected failure to fetch the second page");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("L1"));
+      Assert.assertTrue(e.getCause() instanceof ConnectionException);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testQueryFailure() throws Exception {
+    PartnerConnection partnerConnection = Mockito.mock(PartnerConnection.class);
+    Mockito.when(partnerConnection.query(QUERY)).thenThrow(new ConnectionException("Invalid query"));
+
+    SalesforceSoapRecordReader reader = new SalesforceSoapRecordReader(SCHEMA, QUERY,
+                                                                       new SoapRecordToMapTransformer());
+    try {
+      reader.initialize(partnerConnection);
+      Assert.fail("Expected failure to run the query");
+    } catch (ConnectionException e) {
+      Assert.assertEquals("Invalid query", e.getMessage());
+    }
+    // the prefetch thread is not started, since a reader failed to initialize is not closed
+    Field executor = SalesforceSoapRecordReader.class.getDeclaredField("executor");
+    executor.setAccessible(true);
+    Assert.assertNull(executor.get(reader));
+  }
+
+  private static List<String> readIds(SalesforceSoapRecordReader reader) throws IOException {
+    List<String> ids = new ArrayList<>();
+    while (reader.nextKeyValue()) {
+      ids.add(String.valueOf(reader.getCurrentValue().get("Id")));
+    }
+    return ids;
+  }
+
+  private static QueryResult page(String queryLocator, int size, String... ids) {
+    QueryResult result = new QueryResult();
+    result.setQueryLocator(queryLocator);
+    result.setDone(queryLocator == null);
+    result.setSize(size);
+    result.setRecords(Arrays.stream(ids)
+                        .map(id -> new SObjectBuilder().setType("Account").put("Id", id).put("Name", "n" + id).build())
+                        .toArray(SObject[]::new));
+    return result;
+  }
+}
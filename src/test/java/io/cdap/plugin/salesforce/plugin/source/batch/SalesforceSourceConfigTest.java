@@ -31,6 +31,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -268,6 +269,55 @@ public class SalesforceSourceConfigTest {
     testPKChunkInvalidConfig(config, SalesforceSourceConstants.PROPERTY_CHUNK_SIZE_NAME);
   }
 
+  @Test
+  public void testNegativeResultPrefetchDepth() throws Exception {
+    SalesforceSourceConfig config = new SalesforceSourceConfigBuilder()
+      .setQuery("Select Name from Table")
+      .setReferenceName("Source").build();
+    setField(config, "resultPrefetchDepth", -1);
+    testPKChunkInvalidConfig(config, SalesforceSourceConstants.PROPERTY_RESULT_PREFETCH_DEPTH);
+  }
+
+  @Test
+  public void testNegativeResultPrefetchMemory() throws Exception {
+    SalesforceSourceConfig config = new SalesforceSourceConfigBuilder()
+      .setQuery("Select Name from Table")
+      .setReferenceName("Source").build();
+    setField(config, "resultPrefetchMemoryMB", -1);
+    testPKChunkInvalidConfig(config, SalesforceSourceConstants.PROPERTY_RESULT_PREFETCH_MEMORY_MB);
+  }
+
+  @Test
+  public void testSoapQueryBatchSizeBelowMin() throws Exception {
+    SalesforceSourceConfig config = new SalesforceSourceConfigBuilder()
+      .setQuery("Select Name from Table")
+      .setReferenceName("Source").build();
+    setField(config, "soapQueryBatchSize", SalesforceSourceConstants.MIN_SOAP_QUERY_BATCH_SIZE - 1);
+    testPKChunkInvalidConfig(config, SalesforceSourceConstants.PROPERTY_SOAP_QUERY_BATCH_SIZE);
+  }
+
+  @Test
+  public void testNonPositiveWideQueryMaxInFlightPartitions() throws Exception {
+    SalesforceSourceConfig config = new SalesforceSourceConfigBuilder()
+      .setQuery("Select Name from Table")
+      .setReferenceName("Source").build();
+    setField(config, "wideQueryMaxInFlightPartitions", 0);
+    testPKChunkInvalidConfig(config, SalesforceSourceConstants.PROPERTY_WIDE_QUERY_MAX_IN_FLIGHT);
+  }
+
+  @Test
+  public void testWideQueryRetrieveThreadsAboveMax() throws Exception {
+    SalesforceSourceConfig config = new SalesforceSourceConfigBuilder()
+      .setQuery("Select Name from Table")
+      .setReferenceName("Source").build();
+    setField(config, "wideQueryRetrieveThreads", SalesforceSourceConstants.MAX_WIDE_QUERY_RETRIEVE_THREADS + 1);
+    testPKChunkInvalidConfig(config, SalesforceSourceConstants.PROPERTY_WIDE_QUERY_RETRIEVE_THREADS);
+  }
+
+  private static void setField(SalesforceSourceConfig config, String name, Object value) throws Exception {
+    FieldSetter.setField(config, SalesforceBaseSourceConfig.class.getDeclaredField(name), value);
+  }
+
   private void testPKChunkInvalidConfig(SalesforceSourceConfig config, String stageConfigName) throws Exception {
     MockFailureCollector collector = new MockFailureCollector();
     SalesforceSourceConfig mock = Mockito.spy(config);
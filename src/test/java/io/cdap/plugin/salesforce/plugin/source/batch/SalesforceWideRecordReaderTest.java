@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch;
+
+import com.sforce.async.BulkConnection;
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.soap.partner.sobject.SObject;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.salesforce.etl.SObjectBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests for {@link SalesforceWideRecordReader}.
+ */
+public class SalesforceWideRecordReaderTest {
+
+  private static final String QUERY = "SELECT Id, Name FROM Account";
+  private static final Schema SCHEMA = Schema.recordOf("output",
+                                                       Schema.Field.of("Id", Schema.of(Schema.Type.STRING)),
+                                                       Schema.Field.of("Name", Schema.of(Schema.Type.STRING)));
+
+  @Test
+  public void testStreamingRetrieve() throws Exception {
+    int count = 4500;
+    StringBuilder csv = new StringBuilder("\"Id\"\n");
+    for (int i = 0; i < count; i++) {
+      csv.append('"').append(String.format("001%012d", i)).append("\"\n");
+    }
+    SalesforceWideRecordReader reader = new SalesforceWideRecordReader(SCHEMA, QUERY, new SoapRecordToMapTransformer(),
+                                                                       "job", "batch", new String[] {"result"});
+    BulkConnection bulkConnection = Mockito.mock(BulkConnection.class);
+    Mockito.when(bulkConnection.getQueryResultStream("job", "batch", "result"))
+      .thenReturn(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+    FieldSetter.setField(reader, SalesforceBulkRecordReader.class.getDeclaredField("bulkConnection"), bulkConnection);
+    FieldSetter.setField(reader, SalesforceWideRecordReader.class.getDeclaredField("maxInFlightPartitions"), 2);
+
+    PartnerConnection partnerConnection = Mockito.mock(PartnerConnection.class);
+    Mockito.when(partnerConnection.retrieve(ArgumentMatchers.eq("Id,Name"), ArgumentMatchers.eq("Account"),
+                                            ArgumentMatchers.any()))
+      .thenAnswer(invocation -> Arrays.stream((String[]) invocation.getArgument(2))
+        .map(id -> new SObjectBuilder().setType("Account").put("Id", id).put("Name", "n" + id).build())
+        .toArray(SObject[]::new));
+
+    try {
+      reader.setupParser();
+      reader.initialize(partnerConnection, () -> partnerConnection);
+
+      Assert.assertTrue(reader.nextKeyValue());
+      // only the partitions allowed in flight are retrieved before their records are read
+      Mockito.verify(partnerConnection, Mockito.timeout(10000).times(2))
+        .retrieve(ArgumentMatchers.anyString(), ArgumentMatchers.anyString(), ArgumentMatchers.any());
+
+      Set<String> ids = new HashSet<>();
+      do {
+        Assert.assertEquals("n" + reader.getCurrentValue().get("Id"), reader.getCurrentValue().get("Name"));
+        ids.add((String) reader.getCurrentValue().get("Id"));
+      } while (reader.nextKeyValue());
+
+      Assert.assertEquals(count, ids.size());
+      Assert.assertEquals(1.0f, reader.getProgress(), 0.0f);
+      Mockito.verify(partnerConnection, Mockito.times(3))
+        .retrieve(ArgumentMatchers.anyString(), ArgumentMatchers.anyString(), ArgumentMatchers.any());
+    } finally {
+      reader.close();
+    }
+  }
+}
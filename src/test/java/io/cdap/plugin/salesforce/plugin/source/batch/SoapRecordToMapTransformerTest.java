@@ -73,6 +73,39 @@ public class SoapRecordToMapTransformerTest {
     Assert.assertEquals(campaign.getField("Id"), resultMap.get("Campaign.Id"));
   }
 
+  @Test
+  public void testTransformToRow() {
+    SoapRecordToMapTransformer transformer = new SoapRecordToMapTransformer(true);
+    SObject campaign = new SObjectBuilder()
+      .setType("Campaign")
+      .put("Id", "testCampaignId")
+      .build();
+
+    SObject opportunity = new SObjectBuilder()
+      .setType("Opportunity")
+      .put("Id", "testOpportunityId")
+      .put("Name", "testOpportunity-1")
+      .put(campaign.getType(), campaign)
+      .build();
+
+    List<SObjectDescriptor.FieldDescriptor> fieldDescriptors = getFieldDescriptors("Name", "Id", "Campaign.Id");
+    SObjectDescriptor sObjectDescriptor = Mockito.mock(SObjectDescriptor.class);
+
+    Mockito.when(sObjectDescriptor.getChildSObjects()).thenReturn(Collections.emptyList());
+    Mockito.when(sObjectDescriptor.getFields()).thenReturn(fieldDescriptors);
+
+    Map<String, ?> first = transformer.transformToMap(opportunity, sObjectDescriptor);
+    Map<String, ?> second = transformer.transformToMap(opportunity, sObjectDescriptor);
+
+    Assert.assertTrue(first instanceof SalesforceRow);
+    SalesforceRow row = (SalesforceRow) first;
+    Assert.assertSame(row.getLayout(), ((SalesforceRow) second).getLayout());
+    Assert.assertEquals("testOpportunity-1", row.get(0));
+    Assert.assertEquals("testOpportunityId", row.get("Id"));
+    Assert.assertEquals("testCampaignId", row.get("Campaign.Id"));
+    Assert.assertEquals(fieldDescriptors.size(), row.size());
+  }
+
   @Test
   public void testTransformToMapIncorrectReferenceField() {
     SoapRecordToMapTransformer transformer = new SoapRecordToMapTransformer();
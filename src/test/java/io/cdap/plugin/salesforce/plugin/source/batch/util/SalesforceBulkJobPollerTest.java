@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.google.common.collect.ImmutableList;
+import com.sforce.async.BatchInfo;
+import com.sforce.async.BatchInfoList;
+import com.sforce.async.BatchStateEnum;
+import com.sforce.async.BulkConnection;
+import io.cdap.plugin.salesforce.BulkAPIBatchException;
+import io.cdap.plugin.salesforce.BulkPollInterval;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link SalesforceBulkJobPoller}.
+ */
+public class SalesforceBulkJobPollerTest {
+
+  private BulkConnection bulkConnection;
+  private SalesforceBulkJobPoller poller;
+
+  @Before
+  public void setUp() {
+    bulkConnection = Mockito.mock(BulkConnection.class);
+    poller = new SalesforceBulkJobPoller(() -> new BulkPollInterval(10L, 10L, 10L), 5000L);
+  }
+
+  @Test
+  public void testCompletedBatches() throws Exception {
+    Mockito.when(bulkConnection.getBatchInfoList("job"))
+      .thenReturn(createBatchInfoList(BatchStateEnum.InProgress, BatchStateEnum.Queued))
+      .thenReturn(createBatchInfoList(BatchStateEnum.Completed, BatchStateEnum.InProgress))
+      .thenReturn(createBatchInfoList(BatchStateEnum.Completed, BatchStateEnum.Completed));
+
+    List<BatchInfo> batchInfos = poller.awaitCompletion(bulkConnection, "job", ImmutableList.of("batch1", "batch2"));
+    Assert.assertEquals(2, batchInfos.size());
+    Assert.assertEquals("batch1", batchInfos.get(0).getId());
+    Assert.assertEquals("batch2", batchInfos.get(1).getId());
+    Mockito.verify(bulkConnection, Mockito.times(3)).getBatchInfoList("job");
+  }
+
+  @Test
+  public void testSharedPolling() throws Exception {
+    Mockito.when(bulkConnection.getBatchInfoList("job"))
+      .thenAnswer(invocation -> {
+        Thread.sleep(500L);
+        return createBatchInfoList(BatchStateEnum.Completed, BatchStateEnum.Completed);
+      });
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<BatchInfo> batch1 = executor.submit(() -> poller.awaitCompletion(bulkConnection, "job", "batch1"));
+      Future<BatchInfo> batch2 = executor.submit(() -> poller.awaitCompletion(bulkConnection, "job", "batch2"));
+      Assert.assertEquals("batch1", batch1.get().getId());
+      Assert.assertEquals("batch2", batch2.get().getId());
+    } finally {
+      executor.shutdownNow();
+    }
+    Mockito.verify(bulkConnection, Mockito.times(1)).getBatchInfoList("job");
+  }
+
+  @Test
+  public void testFailedBatch() throws Exception {
+    Mockito.when(bulkConnection.getBatchInfoList("job"))
+      .thenReturn(createBatchInfoList(BatchStateEnum.Failed, BatchStateEnum.Completed));
+
+    try {
+      poller.awaitCompletion(bulkConnection, "job", "batch1");
+      Assert.fail("Expected BulkAPIBatchException");
+    } catch (BulkAPIBatchException e) {
+      Assert.assertEquals(BatchStateEnum.Failed, e.getBatchInfo().getState());
+    }
+    // completed batch must still be returned after the failed one was reported
+    Assert.assertEquals("batch2", poller.awaitCompletion(bulkConnection, "job", "batch2").getId());
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    poller = new SalesforceBulkJobPoller(() -> new BulkPollInterval(10L, 10L, 10L), 100L);
+    Mockito.when(bulkConnection.getBatchInfoList("job"))
+      .thenReturn(createBatchInfoList(BatchStateEnum.InProgress, BatchStateEnum.InProgress));
+
+    try {
+      poller.awaitCompletion(bulkConnection, "job", "batch1");
+      Assert.fail("Expected BulkAPIBatchException");
+    } catch (BulkAPIBatchException e) {
+      Assert.assertEquals("batch1", e.getBatchInfo().getId());
+      Assert.assertEquals(BatchStateEnum.InProgress, e.getBatchInfo().getState());
+    }
+  }
+
+  @Test
+  public void testLateUnregister() throws Exception {
+    Mockito.when(bulkConnection.getBatchInfoList("job"))
+      .thenReturn(createBatchInfoList(BatchStateEnum.Completed, BatchStateEnum.Completed))
+      .thenReturn(createBatchInfoList(BatchStateEnum.InProgress, BatchStateEnum.InProgress))
+      .thenReturn(createBatchInfoList(BatchStateEnum.Completed, BatchStateEnum.Completed));
+
+    SalesforceBulkJobPoller.Registration first = poller.register(bulkConnection, "job", "batch1");
+    first.getCompletion().get(5, TimeUnit.SECONDS);
+    // polling of the job stopped, since its only waiter was notified, and is started again for another reader
+    SalesforceBulkJobPoller.Registration second = poller.register(bulkConnection, "job", "batch1");
+    // the first reader leaves after the second one registered, which must not stop polling for the second one
+    poller.unregister(first);
+    try {
+      Assert.assertEquals("batch1", second.getCompletion().get(5, TimeUnit.SECONDS).getId());
+    } finally {
+      poller.unregister(second);
+    }
+    Mockito.verify(bulkConnection, Mockito.times(3)).getBatchInfoList("job");
+  }
+
+  private static BatchInfoList createBatchInfoList(BatchStateEnum state1, BatchStateEnum state2) {
+    BatchInfoList batchInfoList = new BatchInfoList();
+    batchInfoList.setBatchInfo(new BatchInfo[] {createBatch("batch1", state1), createBatch("batch2", state2)});
+    return batchInfoList;
+  }
+
+  private static BatchInfo createBatch(String id, BatchStateEnum state) {
+    BatchInfo batchInfo = new BatchInfo();
+    batchInfo.setId(id);
+    batchInfo.setJobId("job");
+    batchInfo.setState(state);
+    return batchInfo;
+  }
+}
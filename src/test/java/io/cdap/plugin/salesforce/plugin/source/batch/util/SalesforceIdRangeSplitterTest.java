@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import io.cdap.plugin.salesforce.SalesforceIdUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link SalesforceIdRangeSplitter}.
+ */
+public class SalesforceIdRangeSplitterTest {
+
+  @Test
+  public void testIdArithmetic() {
+    String id = "001Dn00000AbCdE";
+    BigInteger number = SalesforceIdUtil.toNumber(id);
+    Assert.assertEquals("001", SalesforceIdUtil.getKeyPrefix(id));
+    Assert.assertEquals(id, SalesforceIdUtil.fromNumber("001", number));
+    // checksum suffix of 18 characters Ids is ignored
+    Assert.assertEquals(number, SalesforceIdUtil.toNumber(id + "IAQ"));
+    Assert.assertEquals("001Dn00000AbCdF", SalesforceIdUtil.fromNumber("001", number.add(BigInteger.ONE)));
+    Assert.assertEquals("001Dn00000AbCe0",
+                        SalesforceIdUtil.fromNumber("001", SalesforceIdUtil.toNumber("001Dn00000AbCdz")
+                          .add(BigInteger.ONE)));
+    // numeric order matches the order of Ids
+    Assert.assertTrue(SalesforceIdUtil.toNumber("001Dn00000AbCdZ")
+                        .compareTo(SalesforceIdUtil.toNumber("001Dn00000AbCda")) < 0);
+  }
+
+  @Test
+  public void testNoChunksForSmallQuery() throws Exception {
+    List<String> ids = createIds("001Dn0000000000", 10, 1);
+    Assert.assertEquals(Collections.emptyList(), getBoundaries(ids, 10, new AtomicInteger()));
+  }
+
+  @Test
+  public void testBalancedChunks() throws Exception {
+    List<String> ids = new ArrayList<>();
+    // dense and sparse regions of Ids
+    ids.addAll(createIds("001Dn0000000000", 1000, 1));
+    ids.addAll(createIds("001Dn0000100000", 500, 100000));
+    ids.addAll(createIds("001Fx0000000000", 500, 7));
+
+    List<String> boundaries = getBoundaries(ids, 300, new AtomicInteger());
+
+    List<Integer> chunkSizes = getChunkSizes(ids, boundaries);
+    Assert.assertEquals(ids.size(), chunkSizes.stream().mapToInt(Integer::intValue).sum());
+    for (int chunkSize : chunkSizes) {
+      Assert.assertTrue("Unexpected chunk size " + chunkSize, chunkSize > 150 && chunkSize <= 300);
+    }
+  }
+
+  @Test
+  public void testCountQueriesLimit() throws Exception {
+    List<String> ids = createIds("001Dn0000000000", 10000, 3);
+    AtomicInteger countQueries = new AtomicInteger();
+
+    List<String> boundaries = SalesforceIdRangeSplitter.getBoundaries(
+      ids.get(0), ids.get(ids.size() - 1), ids.size(), 10, 20, createCounter(ids, countQueries));
+
+    Assert.assertEquals(20, countQueries.get());
+    Assert.assertEquals(20, boundaries.size());
+    Assert.assertEquals(ids.size(), getChunkSizes(ids, boundaries).stream().mapToInt(Integer::intValue).sum());
+  }
+
+  private static List<String> getBoundaries(List<String> ids, int chunkSize, AtomicInteger countQueries)
+    throws Exception {
+    return SalesforceIdRangeSplitter.getBoundaries(ids.get(0), ids.get(ids.size() - 1), ids.size(), chunkSize,
+                                                   SalesforceSourceConstants.MAX_ID_RANGE_COUNT_QUERIES,
+                                                   createCounter(ids, countQueries));
+  }
+
+  private static SalesforceIdRangeSplitter.IdRangeCounter createCounter(List<String> ids,
+                                                                        AtomicInteger countQueries) {
+    return (fromId, toId) -> {
+      countQueries.incrementAndGet();
+      return ids.stream()
+        .filter(id -> fromId == null || id.compareTo(fromId) >= 0)
+        .filter(id -> toId == null || id.compareTo(toId) < 0)
+        .count();
+    };
+  }
+
+  private static List<Integer> getChunkSizes(List<String> ids, List<String> boundaries) {
+    List<Integer> chunkSizes = new ArrayList<>();
+    int chunkSize = 0;
+    int boundary = 0;
+    for (String id : ids) {
+      while (boundary < boundaries.size() && id.compareTo(boundaries.get(boundary)) >= 0) {
+        chunkSizes.add(chunkSize);
+        chunkSize = 0;
+        boundary++;
+      }
+      chunkSize++;
+    }
+    chunkSizes.add(chunkSize);
+    return chunkSizes;
+  }
+
+  private static List<String> createIds(String firstId, int count, int step) {
+    BigInteger number = SalesforceIdUtil.toNumber(firstId);
+    List<String> ids = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ids.add(SalesforceIdUtil.fromNumber("001", number));
+      number = number.add(BigInteger.valueOf(step));
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.soap.partner.QueryResult;
+import com.sforce.soap.partner.sobject.SObject;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+/**
+ * Tests for {@link SalesforceIncrementalTracker}.
+ */
+public class SalesforceIncrementalTrackerTest {
+
+  private static final String QUERY = "SELECT Id,Name FROM Account";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testIncrementalRuns() throws Exception {
+    SalesforceStateStore stateStore = new SalesforceFileStateStore(temporaryFolder.getRoot().getPath() + "/state");
+    PartnerConnection partnerConnection = Mockito.mock(PartnerConnection.class);
+    Mockito.when(partnerConnection.query(
+        "SELECT SystemModstamp FROM Account WHERE SystemModstamp!=null ORDER BY SystemModstamp DESC LIMIT 1"))
+      .thenReturn(createResult("2020-01-05T10:20:30.500Z"));
+    Mockito.when(partnerConnection.query(
+        "SELECT SystemModstamp FROM Account WHERE SystemModstamp!=null AND SystemModstamp>2020-01-05T10:20:30Z " +
+          "ORDER BY SystemModstamp DESC LIMIT 1"))
+      .thenReturn(createResult("2020-01-06T00:00:01.000Z"));
+
+    // the first run reads all records up to the current high-watermark
+    SalesforceIncrementalTracker tracker = new SalesforceIncrementalTracker(stateStore, "SystemModstamp");
+    Assert.assertEquals("SELECT Id,Name FROM Account WHERE SystemModstamp<=2020-01-05T10:20:30Z",
+                        tracker.getIncrementalQuery(partnerConnection, QUERY, "query"));
+    Assert.assertNull(stateStore.get("Account"));
+    tracker.commit();
+    Assert.assertEquals("2020-01-05T10:20:30Z", stateStore.get("Account"));
+
+    // a failed run does not move the high-watermark
+    tracker = new SalesforceIncrementalTracker(stateStore, "SystemModstamp");
+    String query = tracker.getIncrementalQuery(partnerConnection, QUERY, "query");
+    Assert.assertEquals("SELECT Id,Name FROM Account WHERE SystemModstamp>2020-01-05T10:20:30Z AND " +
+                          "SystemModstamp<=2020-01-06T00:00:01Z", query);
+
+    tracker = new SalesforceIncrementalTracker(stateStore, "SystemModstamp");
+    Assert.assertEquals(query, tracker.getIncrementalQuery(partnerConnection, QUERY, "query"));
+    tracker.commit();
+    Assert.assertEquals("2020-01-06T00:00:01Z", stateStore.get("Account"));
+  }
+
+  @Test
+  public void testNoModifiedRecords() throws Exception {
+    SalesforceStateStore stateStore = new SalesforceFileStateStore(temporaryFolder.getRoot().getPath());
+    stateStore.put("Account", "2020-01-05T10:20:30Z");
+    PartnerConnection partnerConnection = Mockito.mock(PartnerConnection.class);
+    Mockito.when(partnerConnection.queryAll(Mockito.anyString())).thenReturn(createResult());
+
+    SalesforceIncrementalTracker tracker = new SalesforceIncrementalTracker(stateStore, "LastModifiedDate");
+    Assert.assertEquals("SELECT Id,Name FROM Account WHERE LastModifiedDate>2020-01-05T10:20:30Z AND " +
+                          "LastModifiedDate<=2020-01-05T10:20:30Z",
+                        tracker.getIncrementalQuery(partnerConnection, QUERY, "queryAll"));
+    Assert.assertTrue(tracker.getHighWatermarks().isEmpty());
+    tracker.commit();
+    Assert.assertEquals("2020-01-05T10:20:30Z", stateStore.get("Account"));
+  }
+
+  private static QueryResult createResult(String... values) {
+    SObject[] records = new SObject[values.length];
+    for (int i = 0; i < values.length; i++) {
+      records[i] = new SObject("Account");
+      records[i].setField("SystemModstamp", values[i]);
+    }
+    QueryResult result = new QueryResult();
+    result.setDone(true);
+    result.setRecords(records);
+    result.setSize(records.length);
+    return result;
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
+import com.sforce.soap.partner.fault.ApiFault;
+import com.sforce.soap.partner.fault.ExceptionCode;
+import com.sforce.ws.ConnectionException;
+import io.cdap.plugin.salesforce.plugin.source.batch.SalesforceSplit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests for {@link SalesforceMultiQueryPlanner}.
+ */
+public class SalesforceMultiQueryPlannerTest {
+
+  private static final List<String> QUERIES = ImmutableList.of("SELECT Id FROM Account", "SELECT Id FROM Contact",
+                                                               "SELECT Id FROM Lead", "SELECT Id FROM Case");
+
+  @Test
+  public void testOrderByPriority() {
+    Assert.assertEquals(ImmutableList.of("SELECT Id FROM Lead", "SELECT Id FROM Account", "SELECT Id FROM Contact",
+                                         "SELECT Id FROM Case"),
+                        SalesforceMultiQueryPlanner.orderQueries(QUERIES, ImmutableList.of("Lead", "Opportunity",
+                                                                                           "Account"),
+                                                                 Collections.emptyMap()));
+    Assert.assertEquals(QUERIES, SalesforceMultiQueryPlanner.orderQueries(QUERIES, Collections.emptyList(),
+                                                                          Collections.emptyMap()));
+  }
+
+  @Test
+  public void testOrderBySize() {
+    Map<String, Long> recordCounts = ImmutableMap.of("SELECT Id FROM Account", 10L, "SELECT Id FROM Contact", 1000L,
+                                                     "SELECT Id FROM Lead", 5L);
+    // queries without a count are considered the largest
+    Assert.assertEquals(ImmutableList.of("SELECT Id FROM Case", "SELECT Id FROM Contact", "SELECT Id FROM Account",
+                                         "SELECT Id FROM Lead"),
+                        SalesforceMultiQueryPlanner.orderQueries(QUERIES, Collections.emptyList(), recordCounts));
+    // priority SObjects are planned before larger SObjects
+    Assert.assertEquals(ImmutableList.of("SELECT Id FROM Lead", "SELECT Id FROM Case", "SELECT Id FROM Contact",
+                                         "SELECT Id FROM Account"),
+                        SalesforceMultiQueryPlanner.orderQueries(QUERIES, ImmutableList.of("Lead"), recordCounts));
+  }
+
+  @Test
+  public void testCountRecords() {
+    SalesforceMultiQueryPlanner planner = new SalesforceMultiQueryPlanner(2, 0L, 0L, 0);
+    Map<String, Long> recordCounts = planner.countRecords(QUERIES, query -> {
+      if (query.endsWith("Case")) {
+        throw new ConnectionException("Query timed out");
+      }
+      return query.length();
+    });
+    Assert.assertEquals(ImmutableMap.of("SELECT Id FROM Account", 22L, "SELECT Id FROM Contact", 22L,
+                                        "SELECT Id FROM Lead", 19L), recordCounts);
+  }
+
+  @Test
+  public void testPackSplits() {
+    Map<String, Long> recordCounts = new HashMap<>();
+    recordCounts.put("SELECT Id FROM Account", 5000L);
+    recordCounts.put("SELECT Id FROM Event", 40L);
+    List<SalesforceSplit> splits = new ArrayList<>();
+    splits.add(new SalesforceSplit("Account", "batch", "SELECT Id FROM Account"));
+    splits.add(new SalesforceSplit("Opportunity", "batch", "SELECT Id FROM Opportunity"));
+    for (int i = 0; i < 12; i++) {
+      String query = "SELECT Id FROM Object" + i + "__c";
+      recordCounts.put(query, 90L);
+      splits.add(new SalesforceSplit("Object" + i, "batch", query));
+    }
+    // SObjects with multiple splits are not packed
+    splits.add(new SalesforceSplit("Event", "batch", "SELECT Id FROM Event", "result1"));
+    splits.add(new SalesforceSplit("Event", "batch", "SELECT Id FROM Event", "result2"));
+
+    List<SalesforceSplit> packedSplits = SalesforceMultiQueryPlanner.packSplits(splits, recordCounts, 1000L);
+
+    Assert.assertEquals(ImmutableList.of("Account", "Opportunity", "Event", "Event", "", "Object11"),
+                        packedSplits.stream().map(SalesforceSplit::getJobId).collect(Collectors.toList()));
+    Assert.assertTrue(packedSplits.get(4).isPacked());
+    Assert.assertEquals(IntStream.range(0, 11).mapToObj(i -> "Object" + i).collect(Collectors.toList()),
+                        packedSplits.get(4).getPackedSplits().stream()
+                          .map(SalesforceSplit::getJobId).collect(Collectors.toList()));
+    Assert.assertFalse(packedSplits.get(5).isPacked());
+  }
+
+  @Test
+  public void testConcurrencyLimit() {
+    List<String> queries = IntStream.range(0, 20)
+      .mapToObj(i -> "SELECT Id FROM Object" + i + "__c")
+      .collect(Collectors.toList());
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    SalesforceMultiQueryPlanner planner = new SalesforceMultiQueryPlanner(3, 0L, 0L, 0);
+
+    List<SalesforceSplit> splits = planner.plan(queries, Collections.emptyList(), query -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        TimeUnit.MILLISECONDS.sleep(10);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      running.decrementAndGet();
+      return Collections.singletonList(new SalesforceSplit("job", "batch", query));
+    });
+
+    Assert.assertEquals(queries, splits.stream().map(SalesforceSplit::getQuery).collect(Collectors.toList()));
+    Assert.assertTrue(maxRunning.get() <= 3);
+  }
+
+  @Test
+  public void testBackoffOnLimitExceeded() {
+    Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+    SalesforceMultiQueryPlanner planner = new SalesforceMultiQueryPlanner(2, 10L, 20L, 2);
+
+    List<SalesforceSplit> splits = planner.plan(QUERIES, Collections.emptyList(), query -> {
+      if (attempts.computeIfAbsent(query, key -> new AtomicInteger()).incrementAndGet() == 1
+        && query.endsWith("Contact")) {
+        throw new RuntimeException("Failed to run Salesforce bulk query",
+                                   new AsyncApiException("Max concurrent jobs", AsyncExceptionCode.ExceededQuota));
+      }
+      return Collections.singletonList(new SalesforceSplit("job", "batch", query));
+    });
+
+    Assert.assertEquals(QUERIES.size(), splits.size());
+    Assert.assertEquals(2, attempts.get("SELECT Id FROM Contact").get());
+    Assert.assertEquals(1, attempts.get("SELECT Id FROM Account").get());
+  }
+
+  @Test
+  public void testFailure() {
+    SalesforceMultiQueryPlanner planner = new SalesforceMultiQueryPlanner(2, 0L, 0L, 5);
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      planner.plan(QUERIES, Collections.emptyList(), query -> {
+        if (query.endsWith("Lead")) {
+          attempts.incrementAndGet();
+          throw new RuntimeException("Invalid query",
+                                     new AsyncApiException("Invalid field", AsyncExceptionCode.InvalidBatch));
+        }
+        return Collections.emptyList();
+      });
+      Assert.fail("Planning should fail");
+    } catch (RuntimeException e) {
+      Assert.assertEquals("Invalid query", e.getMessage());
+    }
+    // failures not caused by limits are not retried
+    Assert.assertEquals(1, attempts.get());
+  }
+
+  @Test
+  public void testIsLimitExceeded() {
+    Assert.assertTrue(SalesforceMultiQueryPlanner.isLimitExceeded(
+      new RuntimeException(new AsyncApiException("Exceeded", AsyncExceptionCode.ExceededQuota))));
+    Assert.assertTrue(SalesforceMultiQueryPlanner.isLimitExceeded(
+      new RuntimeException("Failed to split a Salesforce query: ConcurrentPerOrgLongTxn Limit exceeded")));
+    ApiFault fault = new ApiFault();
+    fault.setExceptionCode(ExceptionCode.REQUEST_LIMIT_EXCEEDED);
+    fault.setExceptionMessage("ConcurrentPerOrgLongTxn Limit exceeded");
+    Assert.assertTrue(SalesforceMultiQueryPlanner.isLimitExceeded(new RuntimeException(fault)));
+
+    // record lock contention is not a limit of the organization
+    Assert.assertFalse(SalesforceMultiQueryPlanner.isLimitExceeded(
+      new RuntimeException(new AsyncApiException("Exceeded", AsyncExceptionCode.TooManyLockFailure))));
+    // failures, which merely mention concurrency, are not limits
+    Assert.assertFalse(SalesforceMultiQueryPlanner.isLimitExceeded(
+      new RuntimeException("Record was modified by a concurrent update")));
+    Assert.assertFalse(SalesforceMultiQueryPlanner.isLimitExceeded(
+      new RuntimeException(new AsyncApiException("Invalid", AsyncExceptionCode.InvalidJob))));
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.ws.ConnectionException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link SalesforcePartnerConnectionPool}.
+ */
+public class SalesforcePartnerConnectionPoolTest {
+
+  @Test
+  public void testBorrowAndRelease() throws Exception {
+    AtomicInteger created = new AtomicInteger();
+    PartnerConnection initial = Mockito.mock(PartnerConnection.class);
+    SalesforcePartnerConnectionPool pool = new SalesforcePartnerConnectionPool(2, () -> {
+      created.incrementAndGet();
+      return Mockito.mock(PartnerConnection.class);
+    }).add(initial);
+
+    PartnerConnection first = pool.borrow();
+    Assert.assertSame(initial, first);
+    PartnerConnection second = pool.borrow();
+    Assert.assertNotSame(initial, second);
+    Assert.assertEquals(1, created.get());
+
+    // the pool is exhausted until a connection is released
+    CompletableFuture<PartnerConnection> third = CompletableFuture.supplyAsync(() -> {
+      try {
+        return pool.borrow();
+      } catch (ConnectionException | InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    try {
+      third.get(200, TimeUnit.MILLISECONDS);
+      Assert.fail("Expected borrow to wait for a released connection");
+    } catch (TimeoutException e) {
+      // expected
+    }
+    pool.release(second);
+    Assert.assertSame(second, third.get(10, TimeUnit.SECONDS));
+    Assert.assertEquals(1, created.get());
+  }
+
+  @Test
+  public void testFailedConnectionIsNotCounted() throws Exception {
+    AtomicInteger attempts = new AtomicInteger();
+    PartnerConnection connection = Mockito.mock(PartnerConnection.class);
+    SalesforcePartnerConnectionPool pool = new SalesforcePartnerConnectionPool(1, () -> {
+      if (attempts.incrementAndGet() == 1) {
+        throw new ConnectionException("Login failed");
+      }
+      return connection;
+    });
+
+    try {
+      pool.borrow();
+      Assert.fail("Expected connection failure");
+    } catch (ConnectionException e) {
+      Assert.assertEquals("Login failed", e.getMessage());
+    }
+    Assert.assertSame(connection, pool.borrow());
+  }
+}
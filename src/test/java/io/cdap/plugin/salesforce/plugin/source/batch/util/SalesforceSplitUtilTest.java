@@ -0,0 +1,276 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharStreams;
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
+import com.sforce.async.BatchInfo;
+import com.sforce.async.BatchInfoList;
+import com.sforce.async.BatchStateEnum;
+import com.sforce.async.BulkConnection;
+import com.sforce.async.JobInfo;
+import com.sforce.async.JobStateEnum;
+import com.sforce.async.QueryResultList;
+import com.sforce.ws.ConnectorConfig;
+import io.cdap.plugin.salesforce.BulkAPIBatchException;
+import io.cdap.plugin.salesforce.SalesforceQueryUtil;
+import io.cdap.plugin.salesforce.plugin.source.batch.SalesforceSplit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests for {@link SalesforceSplitUtil}.
+ */
+public class SalesforceSplitUtilTest {
+
+  private static final String QUERY = "SELECT Id, Name FROM Account";
+
+  private BulkConnection bulkConnection;
+  private BatchInfo batch1;
+  private BatchInfo batch2;
+
+  @Before
+  public void setUp() throws Exception {
+    bulkConnection = Mockito.mock(BulkConnection.class);
+    JobInfo job = new JobInfo();
+    job.setId("job");
+    job.setState(JobStateEnum.Open);
+    Mockito.when(bulkConnection.createJob(Mockito.any(JobInfo.class))).thenReturn(job);
+    Mockito.when(bulkConnection.getJobStatus("job")).thenReturn(job);
+
+    batch1 = createBatch("batch1", BatchStateEnum.Completed);
+    batch2 = createBatch("batch2", BatchStateEnum.Completed);
+    Mockito.when(bulkConnection.createBatchFromStream(Mockito.any(JobInfo.class), Mockito.any(InputStream.class)))
+      .thenReturn(batch1);
+    BatchInfoList batchInfoList = new BatchInfoList();
+    batchInfoList.setBatchInfo(new BatchInfo[] {batch1, batch2});
+    Mockito.when(bulkConnection.getBatchInfoList("job")).thenReturn(batchInfoList);
+
+    mockResults("batch1", "result1", "result2");
+    mockResults("batch2", "result3");
+  }
+
+  @Test
+  public void testSplitPerBatch() {
+    List<SalesforceSplit> splits = SalesforceSplitUtil.getQuerySplits(QUERY, bulkConnection, false, "query",
+                                                                      1L, 2L, 1, true);
+    Assert.assertEquals(2, splits.size());
+    Assert.assertEquals("batch1", splits.get(0).getBatchId());
+    Assert.assertNull(splits.get(0).getResultId());
+    Assert.assertEquals("batch2", splits.get(1).getBatchId());
+  }
+
+  @Test
+  public void testSplitPerResultChunk() {
+    batch1.setNumberRecordsProcessed(5);
+    List<SalesforceSplit> splits = SalesforceSplitUtil.getQuerySplits(QUERY, bulkConnection, false, "query",
+                                                                      1L, 2L, 1, true, true);
+    Assert.assertEquals(3, splits.size());
+    assertSplit(splits.get(0), "batch1", "result1");
+    assertSplit(splits.get(1), "batch1", "result2");
+    assertSplit(splits.get(2), "batch2", "result3");
+    // records of a batch are assumed to be spread evenly over its result chunks
+    Assert.assertEquals(3L, splits.get(0).getRecords());
+    Assert.assertEquals(3L, splits.get(1).getRecords());
+    Assert.assertEquals(0L, splits.get(2).getRecords());
+  }
+
+  @Test
+  public void testSplitPerQueryBatch() throws Exception {
+    Mockito.when(bulkConnection.createBatchFromStream(Mockito.any(JobInfo.class), Mockito.any(InputStream.class)))
+      .thenReturn(batch1, batch2);
+    List<String> queries = ImmutableList.of(QUERY + " WHERE Id<'001000000000002'",
+                                            QUERY + " WHERE Id>='001000000000002'");
+    List<SalesforceSplit> splits = SalesforceSplitUtil.getQuerySplits(queries, bulkConnection, "query",
+                                                                      1L, 2L, 1, true, false);
+    Mockito.verify(bulkConnection, Mockito.times(1)).createJob(Mockito.any(JobInfo.class));
+    Assert.assertEquals(2, splits.size());
+    Assert.assertEquals("batch1", splits.get(0).getBatchId());
+    Assert.assertEquals(queries.get(0), splits.get(0).getQuery());
+    Assert.assertEquals("batch2", splits.get(1).getBatchId());
+    Assert.assertEquals(queries.get(1), splits.get(1).getQuery());
+  }
+
+  @Test
+  public void testFieldGroupSplits() throws Exception {
+    List<String> batchQueries = new ArrayList<>();
+    Mockito.when(bulkConnection.createBatchFromStream(Mockito.any(JobInfo.class), Mockito.any(InputStream.class)))
+      .thenAnswer(invocation -> {
+        batchQueries.add(CharStreams.toString(new InputStreamReader(invocation.getArgument(1),
+                                                                    StandardCharsets.UTF_8)));
+        return createBatch("batch" + batchQueries.size(), BatchStateEnum.Queued);
+      });
+    String fields = IntStream.range(0, 2000)
+      .mapToObj(i -> String.format("Field%04d__c", i))
+      .collect(Collectors.joining(","));
+    List<String> queries = ImmutableList.of("SELECT Id," + fields + " FROM Account WHERE Id<'001000000000002'",
+                                            "SELECT Id," + fields + " FROM Account WHERE Id>='001000000000002'");
+
+    List<SalesforceSplit> splits = SalesforceSplitUtil.getFieldGroupSplits(queries, bulkConnection, "query",
+                                                                           1L, 2L, 1, true);
+
+    Assert.assertEquals(2, splits.size());
+    int groups = splits.get(0).getFieldGroupSplits().size();
+    Assert.assertTrue(groups > 1);
+    Mockito.verify(bulkConnection, Mockito.times(groups)).createJob(Mockito.any(JobInfo.class));
+    Assert.assertEquals(groups * 2, batchQueries.size());
+    for (int i = 0; i < splits.size(); i++) {
+      SalesforceSplit split = splits.get(i);
+      Assert.assertTrue(split.hasFieldGroups());
+      Assert.assertEquals(queries.get(i), split.getQuery());
+      List<SalesforceSplit> groupSplits = split.getFieldGroupSplits();
+      Assert.assertEquals(groups, groupSplits.size());
+      for (int group = 0; group < groups; group++) {
+        // batches are created for each query of a field group job
+        Assert.assertEquals("batch" + (group * 2 + i + 1), groupSplits.get(group).getBatchId());
+      }
+    }
+    for (String batchQuery : batchQueries) {
+      Assert.assertTrue(SalesforceQueryUtil.isQueryUnderLengthLimit(batchQuery));
+      Assert.assertTrue(batchQuery.endsWith(" ORDER BY Id"));
+    }
+  }
+
+  @Test
+  public void testReplicationSplits() throws Exception {
+    long day = TimeUnit.DAYS.toMillis(1);
+    long start = TimeUnit.MINUTES.toMillis(10) + 30_000L;
+    long end = start + day + TimeUnit.HOURS.toMillis(1);
+
+    List<SalesforceSplit> splits = SalesforceSplitUtil.getReplicationSplits(QUERY, start, end);
+
+    Assert.assertEquals(2, splits.size());
+    Assert.assertEquals(TimeUnit.MINUTES.toMillis(10), splits.get(0).getReplicationStartTime());
+    Assert.assertEquals(TimeUnit.MINUTES.toMillis(10) + day, splits.get(0).getReplicationEndTime());
+    // the second window overlaps the first one
+    Assert.assertEquals(splits.get(0).getReplicationEndTime() - TimeUnit.MINUTES.toMillis(1),
+                        splits.get(1).getReplicationStartTime());
+    Assert.assertEquals(TimeUnit.MINUTES.toMillis(70) + day, splits.get(1).getReplicationEndTime());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    splits.get(1).write(new DataOutputStream(bytes));
+    SalesforceSplit split = new SalesforceSplit();
+    split.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    Assert.assertTrue(split.isReplication());
+    Assert.assertEquals(QUERY, split.getQuery());
+    Assert.assertEquals(splits.get(1).getReplicationStartTime(), split.getReplicationStartTime());
+    Assert.assertEquals(splits.get(1).getReplicationEndTime(), split.getReplicationEndTime());
+
+    Assert.assertTrue(SalesforceSplitUtil.getReplicationSplits(QUERY, start, start + 1_000L).isEmpty());
+  }
+
+  @Test(expected = BulkAPIBatchException.class)
+  public void testSplitPerResultChunkBatchFailed() {
+    batch2.setState(BatchStateEnum.Failed);
+    SalesforceSplitUtil.getQuerySplits(QUERY, bulkConnection, false, "query", 1L, 2L, 1, false, true);
+  }
+
+  @Test
+  public void testJobClosedOnFailure() throws Exception {
+    batch2.setState(BatchStateEnum.Failed);
+    try {
+      SalesforceSplitUtil.getQuerySplits(QUERY, bulkConnection, false, "query", 1L, 2L, 1, false, true);
+      Assert.fail("Splits were generated for a failed batch");
+    } catch (BulkAPIBatchException e) {
+      // expected
+    }
+    Mockito.verify(bulkConnection, Mockito.times(1)).updateJob(
+      Mockito.argThat(job -> "job".equals(job.getId()) && job.getState() == JobStateEnum.Closed));
+
+    Mockito.when(bulkConnection.getBatchInfoList("job"))
+      .thenThrow(new AsyncApiException("Failed", AsyncExceptionCode.ClientInputError));
+    try {
+      SalesforceSplitUtil.getQuerySplits(Collections.singletonList(QUERY), bulkConnection, "query",
+                                         1L, 2L, 1, false, false);
+      Assert.fail("Splits were generated for a failed job");
+    } catch (RuntimeException e) {
+      Assert.assertTrue(e.getCause() instanceof AsyncApiException);
+    }
+    Mockito.verify(bulkConnection, Mockito.times(2)).updateJob(Mockito.any(JobInfo.class));
+  }
+
+  @Test
+  public void testPKChunkBulkConnection() throws Exception {
+    ConnectorConfig config = new ConnectorConfig();
+    config.setRestEndpoint("https://example.my.salesforce.com/services/async/53.0");
+    config.setSessionId("session");
+    BulkConnection connection = new BulkConnection(config);
+
+    BulkConnection pkChunkConnection = SalesforceSplitUtil.getPKChunkBulkConnection(connection, 50000, "Account");
+
+    Assert.assertSame(config, pkChunkConnection.getConfig());
+    Assert.assertEquals("chunkSize=50000;parent=Account",
+                        getHeaders(pkChunkConnection).get(SalesforceSourceConstants.HEADER_ENABLE_PK_CHUNK));
+    // the header is not added to the connection used for other jobs
+    Assert.assertFalse(getHeaders(connection).containsKey(SalesforceSourceConstants.HEADER_ENABLE_PK_CHUNK));
+  }
+
+  @Test
+  public void testIsPKChunkSupported() {
+    Assert.assertTrue(SalesforceSplitUtil.isPKChunkSupported("Account"));
+    Assert.assertTrue(SalesforceSplitUtil.isPKChunkSupported("Invoice__c"));
+    Assert.assertFalse(SalesforceSplitUtil.isPKChunkSupported("AccountHistory"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, String> getHeaders(BulkConnection connection) throws Exception {
+    Field headers = BulkConnection.class.getDeclaredField("headers");
+    headers.setAccessible(true);
+    Map<String, String> value = (Map<String, String>) headers.get(connection);
+    return value == null ? Collections.emptyMap() : value;
+  }
+
+  private void assertSplit(SalesforceSplit split, String batchId, String resultId) {
+    Assert.assertEquals("job", split.getJobId());
+    Assert.assertEquals(batchId, split.getBatchId());
+    Assert.assertEquals(resultId, split.getResultId());
+    Assert.assertEquals(QUERY, split.getQuery());
+  }
+
+  private BatchInfo createBatch(String batchId, BatchStateEnum state) {
+    BatchInfo batchInfo = new BatchInfo();
+    batchInfo.setId(batchId);
+    batchInfo.setJobId("job");
+    batchInfo.setState(state);
+    return batchInfo;
+  }
+
+  private void mockResults(String batchId, String... resultIds) throws Exception {
+    QueryResultList resultList = new QueryResultList();
+    resultList.setResult(resultIds);
+    Mockito.when(bulkConnection.getQueryResultList("job", batchId)).thenReturn(resultList);
+  }
+}
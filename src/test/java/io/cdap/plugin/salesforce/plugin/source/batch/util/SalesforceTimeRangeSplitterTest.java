@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.salesforce.plugin.source.batch.util;
+
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.soap.partner.QueryResult;
+import com.sforce.soap.partner.sobject.SObject;
+import io.cdap.plugin.salesforce.SObjectFilterDescriptor;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Tests for {@link SalesforceTimeRangeSplitter}.
+ */
+public class SalesforceTimeRangeSplitterTest {
+
+  private static final String QUERY = "SELECT Id,Name FROM Account " +
+    "WHERE LastModifiedDate>=2020-01-01T00:00:00Z AND LastModifiedDate<2020-02-01T00:00:00Z";
+
+  @Test
+  public void testBoundaries() {
+    SortedMap<LocalDate, Long> histogram = new TreeMap<>();
+    histogram.put(LocalDate.of(2020, 1, 1), 10L);
+    histogram.put(LocalDate.of(2020, 1, 2), 80L);
+    histogram.put(LocalDate.of(2020, 1, 5), 30L);
+    histogram.put(LocalDate.of(2020, 1, 6), 40L);
+    histogram.put(LocalDate.of(2020, 1, 9), 35L);
+
+    Assert.assertEquals(Arrays.asList(day(2020, 1, 5), day(2020, 1, 9)),
+                        SalesforceTimeRangeSplitter.getBoundaries(histogram, 80));
+    Assert.assertEquals(Collections.emptyList(), SalesforceTimeRangeSplitter.getBoundaries(histogram, 1000));
+    Assert.assertEquals(Collections.emptyList(), SalesforceTimeRangeSplitter.getBoundaries(new TreeMap<>(), 10));
+  }
+
+  @Test
+  public void testRangeQueries() throws Exception {
+    PartnerConnection partnerConnection = Mockito.mock(PartnerConnection.class);
+    Mockito.when(partnerConnection.query(Mockito.startsWith("SELECT DAY_ONLY(LastModifiedDate), COUNT(Id) FROM")))
+      .thenReturn(createResult(true, new Object[] {"2020-01-03", 100}, new Object[] {"2020-01-20", 100}));
+
+    List<String> queries = SalesforceTimeRangeSplitter.getRangeQueries(
+      partnerConnection, QUERY, "query",
+      SObjectFilterDescriptor.interval(day(2020, 1, 1), day(2020, 2, 1)), 100);
+
+    Assert.assertEquals(Arrays.asList(
+      "SELECT Id,Name FROM Account WHERE (LastModifiedDate>=2020-01-01T00:00:00Z AND " +
+        "LastModifiedDate<2020-02-01T00:00:00Z) AND LastModifiedDate>=2020-01-01T00:00:00Z AND " +
+        "LastModifiedDate<2020-01-20T00:00:00Z",
+      "SELECT Id,Name FROM Account WHERE (LastModifiedDate>=2020-01-01T00:00:00Z AND " +
+        "LastModifiedDate<2020-02-01T00:00:00Z) AND LastModifiedDate>=2020-01-20T00:00:00Z AND " +
+        "LastModifiedDate<2020-02-01T00:00:00Z"), queries);
+  }
+
+  @Test
+  public void testRangeQueriesByMonth() throws Exception {
+    PartnerConnection partnerConnection = Mockito.mock(PartnerConnection.class);
+    Mockito.when(partnerConnection.queryAll(Mockito.startsWith("SELECT DAY_ONLY(LastModifiedDate)")))
+      .thenReturn(createResult(false, new Object[] {"2020-01-03", 100}));
+    Mockito.when(partnerConnection.queryAll(Mockito.startsWith("SELECT CALENDAR_YEAR(LastModifiedDate)")))
+      .thenReturn(createResult(true, new Object[] {2019, 12, 100}, new Object[] {2020, 1, 100}));
+
+    List<String> queries = SalesforceTimeRangeSplitter.getRangeQueries(
+      partnerConnection, QUERY, "queryAll", SObjectFilterDescriptor.interval(null, day(2020, 2, 1)), 100);
+
+    Assert.assertEquals(2, queries.size());
+    Assert.assertTrue(queries.get(0).endsWith(") AND LastModifiedDate<2020-01-01T00:00:00Z"));
+    Assert.assertTrue(queries.get(1).endsWith(") AND LastModifiedDate>=2020-01-01T00:00:00Z AND " +
+                                                "LastModifiedDate<2020-02-01T00:00:00Z"));
+  }
+
+  private static QueryResult createResult(boolean done, Object[]... rows) {
+    SObject[] records = new SObject[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      records[i] = new SObject("AggregateResult");
+      for (int j = 0; j < rows[i].length; j++) {
+        records[i].setField("expr" + j, rows[i][j]);
+      }
+    }
+    QueryResult result = new QueryResult();
+    result.setDone(done);
+    result.setRecords(records);
+    result.setSize(records.length);
+    return result;
+  }
+
+  private static ZonedDateTime day(int year, int month, int day) {
+    return LocalDate.of(year, month, day).atStartOfDay(ZoneOffset.UTC);
+  }
+}